@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+# 端到端压测: 启动 LoadTestServer(H2 + 本地Redis + ElasticSearch替代服务)，运行 LoadTestClient 输出吞吐量、延迟分布和GC统计
+# 需要 JDK8(Nashorn)，在项目根目录执行 mvn -Pbenchmarks -DskipTests package 打包，或者由本脚本自动打包
+# 用法: ./loadtest.sh [LoadTestClient参数]，例如 ./loadtest.sh --concurrency=64 --warmup=30 --duration=120
+# 环境变量: ROUTES(路由数量，默认100)、PORT(服务端端口，默认18081)、SERVER_OPTS(服务端JVM参数)
+set -euo pipefail
+
+cd "$(dirname "$0")"
+ROUTES=${ROUTES:-100}
+PORT=${PORT:-18081}
+SERVER_OPTS=${SERVER_OPTS:-"-server -Xms1g -Xmx1g -XX:+UseG1GC"}
+JAR=target/benchmarks.jar
+OUT=target/loadtest
+
+if [ ! -f "$JAR" ]; then
+    (cd .. && mvn -B -Pbenchmarks -DskipTests package)
+fi
+mkdir -p "$OUT"
+
+# 服务端(GC日志: target/loadtest/gc.log，服务端日志: target/loadtest/server.log)
+java $SERVER_OPTS \
+    -Xloggc:"$OUT/gc.log" -XX:+PrintGCDetails -XX:+PrintGCDateStamps \
+    -cp "$JAR" org.clever.nashorn.benchmarks.loadtest.LoadTestServer \
+    --server.port="$PORT" --loadtest.routes="$ROUTES" > "$OUT/server.log" 2>&1 &
+SERVER_PID=$!
+trap 'kill $SERVER_PID 2>/dev/null || true; wait $SERVER_PID 2>/dev/null || true' EXIT
+
+# 客户端(等待服务端启动完成后开始压测)
+java -Xms256m -Xmx512m \
+    -cp "$JAR" org.clever.nashorn.benchmarks.loadtest.LoadTestClient \
+    --url="http://127.0.0.1:$PORT" --routes="$ROUTES" "$@"
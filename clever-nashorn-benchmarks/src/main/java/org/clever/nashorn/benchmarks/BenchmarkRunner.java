@@ -0,0 +1,39 @@
+package org.clever.nashorn.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口(benchmarks.jar 的 Main-Class)，参数与 JMH 命令行一致 <br />
+ * 默认开启 GC 分析器(-prof gc)，结果中包含每次调用分配的内存(gc.alloc.rate.norm)和GC次数，
+ * 内存分配的增加和耗时的增加一样可以直接对比 <br />
+ * 例如: java -jar benchmarks.jar ModuleRequireBenchmark -rf json -rff result.json
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 15:00 <br/>
+ */
+public class BenchmarkRunner {
+    private static final String GC_Profiler = "gc";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp()
+                || commandLineOptions.shouldList()
+                || commandLineOptions.shouldListProfilers()
+                || commandLineOptions.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLineOptions);
+        final boolean hasGcProfiler = commandLineOptions.getProfilers().stream()
+                .anyMatch(profiler -> GC_Profiler.equals(profiler.getKlass()) || GCProfiler.class.getName().equals(profiler.getKlass()));
+        if (!hasGcProfiler) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,141 @@
+package org.clever.nashorn.benchmarks;
+
+import org.clever.canal.protocol.CanalEntry;
+import org.clever.nashorn.benchmarks.support.BenchmarkContext;
+import org.clever.nashorn.benchmarks.support.ScriptFiles;
+import org.clever.nashorn.benchmarks.support.StubJsCodeFileCacheService;
+import org.clever.nashorn.cache.JsCodeFileCache;
+import org.clever.nashorn.cache.MemoryJsCodeFileCache;
+import org.clever.nashorn.canal.ConsumeBinlogThread;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.folder.DatabaseFolder;
+import org.clever.nashorn.internal.LogConsole;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.pool.ScriptModuleInstancePoolConfig;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
+import org.clever.nashorn.watchdog.ScriptWatchdogConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.lang.reflect.Method;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConsumeBinlogThread 消费一批Binlog(不启动canal，直接调用 consume) <br />
+ * Binlog是构造的 tb_order 表的update事件，每条Binlog包含 rowsPerEntry 行，每行 columns 列，
+ * 由 /binlog/order.js 消费
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 16:45 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConsumeBinlogBenchmark {
+    private static final String Destination = "binlog";
+
+    /**
+     * 一批Binlog的条数
+     */
+    @Param({"1", "100"})
+    private int entries;
+    /**
+     * 每条Binlog的行数
+     */
+    @Param({"1", "20"})
+    private int rowsPerEntry;
+    /**
+     * 每行的列数
+     */
+    @Param({"12"})
+    private int columns;
+
+    private GenericApplicationContext applicationContext;
+    private ScriptModuleInstancePool scriptModuleInstancePool;
+    private ScriptWatchdog scriptWatchdog;
+    private ConsumeBinlogThread consumeBinlogThread;
+    private Method consume;
+    private List<CanalEntry.Entry> entryList;
+
+    @Setup
+    public void setup() throws Exception {
+        List<JsCodeFile> jsCodeFiles = ScriptFiles.loadAll();
+        applicationContext = BenchmarkContext.start(jsCodeFiles);
+        JsCodeFileCache jsCodeFileCache = new MemoryJsCodeFileCache(-1, new StubJsCodeFileCacheService(jsCodeFiles));
+        scriptModuleInstancePool = ScriptModuleInstancePool.creat(
+                new ScriptModuleInstancePoolConfig(),
+                new DatabaseFolder(EnumConstant.DefaultBizType, EnumConstant.DefaultGroupName, jsCodeFileCache),
+                new LogConsole(EnumConstant.DefaultBizType, EnumConstant.DefaultGroupName, "/"),
+                new HashMap<>()
+        );
+        scriptWatchdog = new ScriptWatchdog(new ScriptWatchdogConfig());
+        // 不需要 CanalServerWithEmbedded(不调用 run)
+        consumeBinlogThread = new ConsumeBinlogThread(null, scriptModuleInstancePool, scriptWatchdog, (short) 1, Destination);
+        consume = ConsumeBinlogThread.class.getDeclaredMethod("consume", List.class);
+        consume.setAccessible(true);
+        entryList = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            entryList.add(newEntry(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scriptWatchdog.close();
+        scriptModuleInstancePool.close();
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void consume() throws Exception {
+        consume.invoke(consumeBinlogThread, entryList);
+    }
+
+    private CanalEntry.Entry newEntry(int index) {
+        CanalEntry.RowChange.Builder rowChange = CanalEntry.RowChange.newBuilder()
+                .setEventType(CanalEntry.EventType.UPDATE)
+                .setIsDdl(false)
+                .setSql("");
+        for (int row = 0; row < rowsPerEntry; row++) {
+            CanalEntry.RowData.Builder rowData = CanalEntry.RowData.newBuilder();
+            for (int column = 0; column < columns; column++) {
+                rowData.addBeforeColumns(newColumn(column, "before-" + row + "-" + column, false));
+                rowData.addAfterColumns(newColumn(column, "after-" + row + "-" + column, column % 3 == 0));
+            }
+            rowChange.addRowData(rowData);
+        }
+        CanalEntry.Header header = CanalEntry.Header.newBuilder()
+                .setLogfileName("mysql-bin.000001")
+                .setLogfileOffset(1024L * index)
+                .setExecuteTime(1571990400000L + index)
+                .setSchemaName("shop")
+                .setTableName("tb_order")
+                .setEventType(CanalEntry.EventType.UPDATE)
+                .build();
+        return CanalEntry.Entry.newBuilder()
+                .setEntryType(CanalEntry.EntryType.ROW_DATA)
+                .setHeader(header)
+                .setStoreValue(rowChange.build().toByteString())
+                .build();
+    }
+
+    private static CanalEntry.Column newColumn(int index, String value, boolean updated) {
+        return CanalEntry.Column.newBuilder()
+                .setIndex(index)
+                .setSqlType(Types.VARCHAR)
+                .setName("column_" + index)
+                .setIsKey(index == 0)
+                .setUpdated(updated)
+                .setIsNull(false)
+                .setValue(value)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package org.clever.nashorn.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.nashorn.api.scripting.JSObject;
+import org.clever.nashorn.benchmarks.support.BenchmarkCodeRunLog;
+import org.clever.nashorn.benchmarks.support.ScriptFiles;
+import org.clever.nashorn.benchmarks.support.StubJsCodeFileCacheService;
+import org.clever.nashorn.cache.JsCodeFileCache;
+import org.clever.nashorn.cache.MemoryJsCodeFileCache;
+import org.clever.nashorn.config.jackson.BindingsJsonSerializer;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.folder.DatabaseFolder;
+import org.clever.nashorn.intercept.HttpRequestJsHandler;
+import org.clever.nashorn.internal.LogConsole;
+import org.clever.nashorn.metrics.ScriptMetrics;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.pool.ScriptModuleInstancePoolConfig;
+import org.clever.nashorn.route.RouteTrie;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
+import org.clever.nashorn.watchdog.ScriptWatchdogConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import javax.script.Bindings;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpRequestJsHandler 处理一次请求的全过程(路由、借用引擎实例、看门狗、执行脚本、返回值序列化) <br />
+ * 1. dispatch: 请求由 /api/user/controller.js 处理 <br />
+ * 2. dispatchMiss: 请求没有对应的脚本(静态资源等请求每次都会经过路由，RouteTrie 在前缀树中直接返回)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 16:15 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpRequestJsHandlerBenchmark {
+    private static final String Uri = "/api/user.json";
+    private static final String Miss_Uri = "/static/app.css";
+
+    /**
+     * 返回数组的长度
+     */
+    @Param({"20", "200"})
+    private int size;
+
+    private ScriptModuleInstancePool scriptModuleInstancePool;
+    private ScriptWatchdog scriptWatchdog;
+    private RouteTrie routeTrie;
+    private BenchmarkCodeRunLog codeRunLog;
+    private HttpRequestJsHandler httpRequestJsHandler;
+    private ResourceHttpRequestHandler resourceHandler;
+    private MockHttpSession session;
+
+    @Setup
+    public void setup() {
+        final String bizType = EnumConstant.DefaultBizType;
+        final String groupName = EnumConstant.DefaultGroupName;
+        final List<JsCodeFile> jsCodeFiles = ScriptFiles.loadAll();
+        JsCodeFileCache jsCodeFileCache = new MemoryJsCodeFileCache(-1, new StubJsCodeFileCacheService(jsCodeFiles));
+        routeTrie = new RouteTrie(bizType, groupName, () -> jsCodeFiles, -1);
+        ScriptModuleInstancePoolConfig poolConfig = new ScriptModuleInstancePoolConfig();
+        scriptModuleInstancePool = ScriptModuleInstancePool.creat(
+                poolConfig,
+                new DatabaseFolder(bizType, groupName, jsCodeFileCache),
+                new LogConsole(bizType, groupName, "/"),
+                new HashMap<>()
+        );
+        scriptWatchdog = new ScriptWatchdog(new ScriptWatchdogConfig());
+        // 与 NashornJackson2Customizer 相同的序列化配置
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(JSObject.class, BindingsJsonSerializer.instance);
+        module.addSerializer(Bindings.class, BindingsJsonSerializer.instance);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(module);
+        // 运行日志与线上相同(只是不写数据库)，测量结果包含执行脚本线程上记录运行日志的开销
+        codeRunLog = new BenchmarkCodeRunLog();
+        httpRequestJsHandler = new HttpRequestJsHandler(
+                bizType,
+                groupName,
+                objectMapper,
+                routeTrie,
+                jsCodeFileCache,
+                scriptModuleInstancePool,
+                scriptWatchdog,
+                codeRunLog.getCodeRunLogService(),
+                new ScriptMetrics(new SimpleMeterRegistry())
+        );
+        resourceHandler = new ResourceHttpRequestHandler();
+        session = new MockHttpSession();
+    }
+
+    @TearDown
+    public void tearDown() {
+        routeTrie.close();
+        scriptWatchdog.close();
+        scriptModuleInstancePool.close();
+        codeRunLog.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse dispatch() throws Exception {
+        MockHttpServletRequest request = newRequest(Uri);
+        request.setParameter("size", String.valueOf(size));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        if (httpRequestJsHandler.preHandle(request, response, resourceHandler)) {
+            throw new IllegalStateException("请求没有被脚本处理: " + Uri);
+        }
+        return response;
+    }
+
+    @Benchmark
+    public boolean dispatchMiss() throws Exception {
+        return httpRequestJsHandler.preHandle(newRequest(Miss_Uri), new MockHttpServletResponse(), resourceHandler);
+    }
+
+    private MockHttpServletRequest newRequest(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setServletPath(uri);
+        // 有Session时脚本才能获取到 ctx.req
+        request.setSession(session);
+        return request;
+    }
+}
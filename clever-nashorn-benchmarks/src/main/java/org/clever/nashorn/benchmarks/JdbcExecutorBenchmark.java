@@ -0,0 +1,71 @@
+package org.clever.nashorn.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import org.clever.nashorn.internal.JdbcExecutor;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcExecutor.batchUpdate 使用JS对象数组作为参数(H2内存数据库) <br />
+ * 更新预先写入的数据，数据量不随调用次数增长，耗时主要是参数转换和JDBC批量执行
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 16:30 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcExecutorBenchmark {
+    private static final String Update_Sql = "update tb_order set name=:name, price=:price, enabled=:enabled, update_at=:updateAt where id=:id";
+
+    /**
+     * 批量更新的行数
+     */
+    @Param({"100", "10000"})
+    private int rows;
+
+    private HikariDataSource dataSource;
+    private JdbcExecutor jdbcExecutor;
+    private ScriptObjectMirror params;
+
+    @Setup
+    public void setup() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("benchmark");
+        config.setJdbcUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(4);
+        dataSource = new HikariDataSource(config);
+        jdbcExecutor = new JdbcExecutor(dataSource);
+        jdbcExecutor.update("drop table if exists tb_order");
+        jdbcExecutor.update("create table tb_order(id bigint primary key, name varchar(64), price decimal(12,2), enabled boolean, update_at timestamp)");
+        jdbcExecutor.update("insert into tb_order(id) select x from system_range(0, " + (rows - 1) + ")");
+        params = (ScriptObjectMirror) ScriptEngineUtils.getDefaultEngine().eval(
+                "(function (rows) {\n" +
+                        "    var list = [];\n" +
+                        "    for (var i = 0; i < rows; i++) {\n" +
+                        "        list.push({id: i, name: 'order-' + i, price: i / 4, enabled: i % 2 === 0, updateAt: new Date(1571990400000 + i)});\n" +
+                        "    }\n" +
+                        "    return list;\n" +
+                        "})(" + rows + ")"
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int[] batchUpdate() {
+        return jdbcExecutor.batchUpdate(Update_Sql, params);
+    }
+}
@@ -0,0 +1,63 @@
+package org.clever.nashorn.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import jdk.nashorn.api.scripting.JSObject;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import org.clever.nashorn.JSTools;
+import org.clever.nashorn.config.jackson.BindingsJsonSerializer;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JS对象序列化: JSTools.inspect(在js中 JSON.stringify) 与 Jackson(BindingsJsonSerializer) 对比
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 16:05 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializeBenchmark {
+    /**
+     * 对象数组的长度
+     */
+    @Param({"20", "2000"})
+    private int size;
+
+    private ScriptObjectMirror value;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() throws Exception {
+        value = (ScriptObjectMirror) ScriptEngineUtils.creatEngine().eval(
+                "(function (size) {\n" +
+                        "    var shared = {name: 'shared', time: new Date(1571990400000)};\n" +
+                        "    var list = [];\n" +
+                        "    for (var i = 0; i < size; i++) {\n" +
+                        "        list.push({id: i, price: i / 4, name: 'item-' + i, tags: ['a', 'b', i], nested: {flag: i % 2 === 0, empty: null, missing: undefined}});\n" +
+                        "    }\n" +
+                        "    return {total: list.length, list: list, shared1: shared, shared2: shared};\n" +
+                        "})(" + size + ")"
+        );
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(JSObject.class, BindingsJsonSerializer.instance);
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(module);
+    }
+
+    @Benchmark
+    public String inspect() {
+        return JSTools.inspect((JSObject) value);
+    }
+
+    @Benchmark
+    public String jackson() throws Exception {
+        return objectMapper.writeValueAsString(value);
+    }
+}
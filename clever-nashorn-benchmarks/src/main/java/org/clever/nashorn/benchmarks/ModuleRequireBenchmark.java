@@ -0,0 +1,81 @@
+package org.clever.nashorn.benchmarks;
+
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.benchmarks.support.ScriptFiles;
+import org.clever.nashorn.folder.Folder;
+import org.clever.nashorn.folder.ResourceFolder;
+import org.clever.nashorn.internal.Console;
+import org.clever.nashorn.internal.LogConsole;
+import org.clever.nashorn.module.Module;
+import org.clever.nashorn.module.cache.DependencyModuleCache;
+import org.clever.nashorn.module.cache.EmptyModuleCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * require 加载模块 <br />
+ * 1. requireWarm: 命中 ModuleResolveCache 和 ModuleCache(请求处理时的常态) <br />
+ * 2. requireCold: 不缓存 Module，每次重新执行模块代码(编译结果命中 CompiledScriptCache) <br />
+ * 3. compileCached/compileUncached: Module.compileJavaScriptModule 命中/未命中 CompiledScriptCache <br />
+ * 注意: 每次 require 都会在根 Module 的 children 中增加一项，所以每轮迭代重新创建 ScriptModuleInstance
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 15:40 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ModuleRequireBenchmark {
+    private static final String Require_Path = "." + ScriptFiles.Controller_Js;
+
+    private Folder rootFolder;
+    private Console console;
+    private ScriptModuleInstance warmInstance;
+    private ScriptModuleInstance coldInstance;
+    private Folder libFolder;
+    private String utilFullPath;
+    private String utilCode;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        rootFolder = ResourceFolder.create(ModuleRequireBenchmark.class.getClassLoader(), ScriptFiles.Resource_Path, "UTF-8");
+        console = new LogConsole("benchmark", "benchmark", "/");
+        libFolder = rootFolder.getFolder("lib");
+        utilFullPath = libFolder.getFilePath("util.js");
+        utilCode = ScriptFiles.readScript(ScriptFiles.Util_Js);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        warmInstance = new ScriptModuleInstance(rootFolder, new DependencyModuleCache(), console);
+        warmInstance.useJs(Require_Path);
+        coldInstance = new ScriptModuleInstance(rootFolder, new EmptyModuleCache(), console);
+        coldInstance.useJs(Require_Path);
+    }
+
+    @Benchmark
+    public ScriptObjectMirror requireWarm() {
+        return warmInstance.useJs(Require_Path);
+    }
+
+    @Benchmark
+    public ScriptObjectMirror requireCold() {
+        return coldInstance.useJs(Require_Path);
+    }
+
+    @Benchmark
+    public Module compileCached() throws Exception {
+        return coldInstance.getRootModule().compileJavaScriptModule(libFolder, "util.js", utilCode);
+    }
+
+    @Benchmark
+    public Module compileUncached() throws Exception {
+        coldInstance.getCompiledScriptCache().remove(utilFullPath);
+        return coldInstance.getRootModule().compileJavaScriptModule(libFolder, "util.js", utilCode);
+    }
+}
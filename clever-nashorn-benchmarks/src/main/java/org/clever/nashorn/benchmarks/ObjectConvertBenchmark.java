@@ -0,0 +1,82 @@
+package org.clever.nashorn.benchmarks;
+
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import org.clever.nashorn.utils.ObjectConvertUtils;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java对象与JS对象之间的转换 <br />
+ * 1. javaToJSObject/javaToJSView: 查询结果(List&lt;Map&gt;)传给脚本 <br />
+ * 2. jsBaseToJava: 脚本中的Date等基本类型转换成Java类型 <br />
+ * 3. jsToJavaMapList: 脚本中的对象数组转换成Sql批量参数(JdbcExecutor.batchUpdate)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 15:50 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectConvertBenchmark {
+    /**
+     * 数据行数
+     */
+    @Param({"100", "10000"})
+    private int rows;
+
+    private List<Map<String, Object>> javaRows;
+    private ScriptObjectMirror jsRows;
+    private ScriptObjectMirror jsDate;
+
+    @Setup
+    public void setup() throws Exception {
+        javaRows = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", (long) i);
+            row.put("name", "item-" + i);
+            row.put("price", i / 4.0);
+            row.put("enabled", i % 2 == 0);
+            row.put("createAt", new Date(1571990400000L + i));
+            row.put("tags", Arrays.asList("a", "b", i));
+            javaRows.add(row);
+        }
+        jsRows = (ScriptObjectMirror) ScriptEngineUtils.getDefaultEngine().eval(
+                "(function (rows) {\n" +
+                        "    var list = [];\n" +
+                        "    for (var i = 0; i < rows; i++) {\n" +
+                        "        list.push({id: i, name: 'item-' + i, price: i / 4, enabled: i % 2 === 0, createAt: new Date(1571990400000 + i), remark: undefined});\n" +
+                        "    }\n" +
+                        "    return list;\n" +
+                        "})(" + rows + ")"
+        );
+        jsDate = ScriptEngineUtils.newDate(new Date());
+    }
+
+    @Benchmark
+    public Object javaToJSObject() {
+        return ObjectConvertUtils.Instance.javaToJSObject(javaRows);
+    }
+
+    @Benchmark
+    public Object javaToJSView() {
+        return ObjectConvertUtils.Instance.javaToJSView(javaRows);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object jsBaseToJava() {
+        return ObjectConvertUtils.jsBaseToJava(jsDate);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> jsToJavaMapList() {
+        return ObjectConvertUtils.jsToJavaMapList(jsRows);
+    }
+}
@@ -0,0 +1,98 @@
+package org.clever.nashorn.benchmarks;
+
+import org.clever.nashorn.benchmarks.support.ScriptFiles;
+import org.clever.nashorn.engine.ScriptEngineProvider;
+import org.clever.nashorn.engine.ScriptEngineType;
+import org.clever.nashorn.engine.ScriptValueConverter;
+import org.openjdk.jmh.annotations.*;
+
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nashorn与GraalJS执行同一个脚本的对比(脚本见 classpath:scripts/engine) <br />
+ * 每次调用包含: 请求数据转换成脚本对象(toScript) -> 执行脚本 -> 返回值转换成Java对象(toJava) <br />
+ * 1. controller: 查询结果过滤、转换、分页排序 <br />
+ * 2. binlog: 遍历Binlog行变化 <br />
+ * 没有GraalJS依赖时 engine=GraalJs 的用例会失败，可以使用 -p engine=Nashorn 只测试Nashorn
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/02 10:30 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScriptEngineCompareBenchmark {
+    private static final String Script_Path = "/engine/";
+
+    @Param({"Nashorn", "GraalJs"})
+    private ScriptEngineType engine;
+
+    @Param({"controller", "binlog"})
+    private String script;
+
+    private ScriptValueConverter converter;
+    private Invocable invocable;
+    private Map<String, Object> request;
+
+    @Setup
+    public void setup() throws Exception {
+        ScriptEngineProvider provider = engine.getProvider();
+        if (!provider.isAvailable()) {
+            throw new RuntimeException("当前环境不支持" + provider.getName() + "引擎");
+        }
+        ScriptEngine scriptEngine = provider.creatEngine();
+        scriptEngine.eval(ScriptFiles.readScript(Script_Path + script + ".js"));
+        invocable = (Invocable) scriptEngine;
+        converter = provider.getValueConverter();
+        request = "binlog".equals(script) ? binlogRequest() : controllerRequest();
+    }
+
+    private static Map<String, Object> controllerRequest() {
+        List<Map<String, Object>> rows = new ArrayList<>(500);
+        for (int i = 0; i < 500; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            row.put("name", "user-" + i);
+            row.put("age", 18 + (i % 40));
+            row.put("tags", Arrays.asList("a" + (i % 3), "b" + (i % 5)));
+            rows.add(row);
+        }
+        Map<String, Object> request = new HashMap<>();
+        request.put("rows", rows);
+        request.put("minAge", 30);
+        request.put("pageSize", 20);
+        return request;
+    }
+
+    private static Map<String, Object> binlogRequest() {
+        List<List<Map<String, Object>>> rows = new ArrayList<>(200);
+        for (int i = 0; i < 200; i++) {
+            List<Map<String, Object>> columns = new ArrayList<>();
+            for (String name : new String[]{"id", "name", "status", "update_at"}) {
+                Map<String, Object> column = new HashMap<>();
+                column.put("name", name);
+                column.put("value", "id".equals(name) ? String.valueOf(i) : name + "-" + i);
+                column.put("isNull", false);
+                column.put("updated", i % 2 == 0 && "status".equals(name));
+                columns.add(column);
+            }
+            rows.add(columns);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("tableName", "shop.tb_order");
+        data.put("rows", rows);
+        return data;
+    }
+
+    @Benchmark
+    public Object service() throws Exception {
+        Object result = invocable.invokeFunction("service", converter.toScript(request));
+        return converter.toJava(result);
+    }
+}
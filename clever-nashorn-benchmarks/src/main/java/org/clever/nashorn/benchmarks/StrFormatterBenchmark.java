@@ -0,0 +1,41 @@
+package org.clever.nashorn.benchmarks;
+
+import org.clever.nashorn.utils.StrFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StrFormatter.format(Console 日志、异常信息的格式化)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 16:00 <br/>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StrFormatterBenchmark {
+    private final String pattern = "使用js代码处理请求 | [{}] | 耗时 {}ms | 参数 {}";
+    private final String escapePattern = "转义的占位符 \\{} | 参数 {} | 路径 C:\\\\{}";
+    private final String noArgPattern = "没有占位符的日志";
+    private final Object[] args = {"/api/user/controller.js", 12L, new Date(1571990400000L)};
+
+    @Benchmark
+    public String format() {
+        return StrFormatter.format(pattern, args);
+    }
+
+    @Benchmark
+    public String formatEscape() {
+        return StrFormatter.format(escapePattern, args);
+    }
+
+    @Benchmark
+    public String formatNoPlaceholder() {
+        return StrFormatter.format(noArgPattern, args);
+    }
+}
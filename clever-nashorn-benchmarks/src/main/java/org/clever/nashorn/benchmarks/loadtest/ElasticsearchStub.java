@@ -0,0 +1,54 @@
+package org.clever.nashorn.benchmarks.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 代替ElasticSearch的HTTP服务(只用于压测) <br />
+ * 所有请求都返回集群状态为 green 的JSON，满足 Jest 健康检查，脚本中的ES操作不会得到有效结果
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 16:50 <br/>
+ */
+@Slf4j
+public class ElasticsearchStub {
+    private static final byte[] Response_Body = "{\"cluster_name\":\"loadtest\",\"status\":\"green\",\"number_of_nodes\":1}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer httpServer;
+
+    public ElasticsearchStub(int port) {
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("ElasticSearch替代服务启动失败，端口: " + port, e);
+        }
+        httpServer.createContext("/", ElasticsearchStub::handle);
+    }
+
+    public void start() {
+        httpServer.start();
+        log.info("ElasticSearch替代服务已启动 | {}", httpServer.getAddress());
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, Response_Body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(Response_Body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.clever.nashorn.benchmarks.loadtest;
+
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+
+/**
+ * H2数据库中没有的MySQL函数(schema-h2.sql 中使用 create alias 注册)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/02 16:40 <br/>
+ */
+public class H2Functions {
+    /**
+     * MySQL sha2(str, 256)，返回小写的十六进制字符串
+     */
+    public static String sha2(String str, int hashLength) {
+        if (str == null) {
+            return null;
+        }
+        if (hashLength != 256) {
+            throw new RuntimeException("只支持 sha2(str, 256)");
+        }
+        return CompiledScriptCache.sha256(str);
+    }
+}
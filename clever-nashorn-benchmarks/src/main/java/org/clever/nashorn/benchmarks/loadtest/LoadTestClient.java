@@ -0,0 +1,309 @@
+package org.clever.nashorn.benchmarks.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 端到端压测的客户端: 并发请求 LoadTestServer 的 controller.js 路由，统计吞吐量、延迟分布(p50/p99/p999)和服务端GC <br />
+ * 1. 等待服务端 /actuator/health 为 UP <br />
+ * 2. 预热 warmup 秒(不统计)，然后压测 duration 秒，每 5 秒输出一次区间统计 <br />
+ * 3. 服务端GC: 压测前后读取 /actuator/metrics 的 jvm.gc.pause、jvm.gc.memory.allocated、jvm.gc.memory.promoted 计算差值 <br />
+ * 参数(--name=value): url、routes(要和服务端的 loadtest.routes 一致)、concurrency、warmup、duration、size(每个请求返回的数据条数)、timeout、startup-timeout
+ * <pre>
+ * java -cp benchmarks.jar org.clever.nashorn.benchmarks.loadtest.LoadTestClient --url=http://127.0.0.1:18081 --concurrency=64 --duration=120
+ * </pre>
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 17:20 <br/>
+ */
+@Slf4j
+public class LoadTestClient {
+    private static final long Report_Interval = 5_000;
+    /**
+     * 延迟统计的最大值(纳秒)，超过的按最大值统计
+     */
+    private static final long Max_Latency = TimeUnit.SECONDS.toNanos(60);
+    private static final ObjectMapper Object_Mapper = new ObjectMapper();
+
+    private final String url;
+    private final List<String> paths;
+    private final int concurrency;
+    private final int size;
+    private final int timeout;
+    private final Recorder recorder = new Recorder(Max_Latency, 3);
+    private final LongAdder errorCount = new LongAdder();
+    private volatile boolean running = true;
+    private volatile boolean measuring = false;
+
+    public LoadTestClient(String url, int routes, int concurrency, int size, int timeout) {
+        this.url = StringUtils.removeEnd(url, "/");
+        this.paths = LoadTestRoutes.getRequestPaths(routes);
+        this.concurrency = concurrency;
+        this.size = size;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimpleCommandLinePropertySource options = new SimpleCommandLinePropertySource(args);
+        final String url = StringUtils.defaultIfBlank(options.getProperty("url"), "http://127.0.0.1:18081");
+        final int routes = NumberUtils.toInt(options.getProperty("routes"), 100);
+        final int concurrency = NumberUtils.toInt(options.getProperty("concurrency"), 32);
+        final int warmup = NumberUtils.toInt(options.getProperty("warmup"), 30);
+        final int duration = NumberUtils.toInt(options.getProperty("duration"), 60);
+        final int size = NumberUtils.toInt(options.getProperty("size"), 20);
+        final int timeout = NumberUtils.toInt(options.getProperty("timeout"), 10_000);
+        final int startupTimeout = NumberUtils.toInt(options.getProperty("startup-timeout"), 300);
+        // HttpURLConnection 每个地址默认只保持5个长连接
+        System.setProperty("http.maxConnections", String.valueOf(concurrency));
+        LoadTestClient client = new LoadTestClient(url, routes, concurrency, size, timeout);
+        client.waitForStartup(startupTimeout);
+        client.run(warmup, duration);
+    }
+
+    /**
+     * 等待服务端启动完成(包含脚本预热)
+     *
+     * @param startupTimeout 最长等待时间(秒)
+     */
+    public void waitForStartup(int startupTimeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(startupTimeout);
+        String status = null;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                JsonNode health = Object_Mapper.readTree(get(url + "/actuator/health"));
+                status = health == null ? null : health.path("status").asText();
+                if ("UP".equals(status)) {
+                    log.info("服务端已启动 | {}", url);
+                    return;
+                }
+            } catch (IOException ignored) {
+                // 服务端还未启动
+            }
+            Thread.sleep(1000);
+        }
+        throw new RuntimeException("等待服务端启动超时，health status: " + status);
+    }
+
+    /**
+     * 预热并压测
+     *
+     * @param warmup   预热时间(秒)
+     * @param duration 压测时间(秒)
+     */
+    public void run(int warmup, int duration) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            final int offset = i;
+            Thread thread = new Thread(() -> work(offset), "load-test-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(thread);
+        }
+        log.info("开始预热 | 并发 {} | 路由数 {} | {}秒", concurrency, paths.size(), warmup);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmup));
+        final GcSnapshot gcStart = getGcSnapshot();
+        recorder.reset();
+        errorCount.reset();
+        measuring = true;
+        log.info("开始压测 | {}秒", duration);
+        final long startTime = System.currentTimeMillis();
+        final long endTime = startTime + TimeUnit.SECONDS.toMillis(duration);
+        final Histogram total = new Histogram(Max_Latency, 3);
+        Histogram interval = null;
+        long lastTime = startTime;
+        while (System.currentTimeMillis() < endTime) {
+            Thread.sleep(Math.min(Report_Interval, Math.max(1, endTime - System.currentTimeMillis())));
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            final long now = System.currentTimeMillis();
+            log.info(
+                    "[{}s] {} req/s | p50 {}ms | p99 {}ms | max {}ms | 错误 {}",
+                    (now - startTime) / 1000,
+                    String.format("%.1f", interval.getTotalCount() * 1000.0 / Math.max(1, now - lastTime)),
+                    toMillis(interval.getValueAtPercentile(50)),
+                    toMillis(interval.getValueAtPercentile(99)),
+                    toMillis(interval.getMaxValue()),
+                    errorCount.sum()
+            );
+            lastTime = now;
+        }
+        measuring = false;
+        running = false;
+        final long elapsed = System.currentTimeMillis() - startTime;
+        for (Thread worker : workers) {
+            worker.join(timeout);
+        }
+        final GcSnapshot gcEnd = getGcSnapshot();
+        report(total, elapsed, gcStart, gcEnd);
+    }
+
+    private void report(Histogram total, long elapsed, GcSnapshot gcStart, GcSnapshot gcEnd) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n========================================== 压测结果 ==========================================\n");
+        sb.append(String.format("请求数      : %d (错误 %d)\n", total.getTotalCount(), errorCount.sum()));
+        sb.append(String.format("吞吐量      : %.1f req/s\n", total.getTotalCount() * 1000.0 / elapsed));
+        sb.append(String.format("延迟(ms)    : p50 %s | p90 %s | p99 %s | p999 %s | max %s\n",
+                toMillis(total.getValueAtPercentile(50)),
+                toMillis(total.getValueAtPercentile(90)),
+                toMillis(total.getValueAtPercentile(99)),
+                toMillis(total.getValueAtPercentile(99.9)),
+                toMillis(total.getMaxValue())));
+        if (gcStart != null && gcEnd != null) {
+            final double seconds = elapsed / 1000.0;
+            final double pauseCount = gcEnd.pauseCount - gcStart.pauseCount;
+            final double pauseTime = gcEnd.pauseTime - gcStart.pauseTime;
+            final double allocated = gcEnd.allocatedBytes - gcStart.allocatedBytes;
+            final double promoted = gcEnd.promotedBytes - gcStart.promotedBytes;
+            sb.append(String.format("服务端GC    : %.0f次 | 停顿 %.1fms(%.2f%%) | 最大停顿 %.1fms\n",
+                    pauseCount, pauseTime * 1000, pauseTime * 100 / seconds, gcEnd.pauseMax * 1000));
+            sb.append(String.format("服务端内存  : 分配 %.1fMB/s | 每个请求 %.1fKB | 晋升老年代 %.1fMB\n",
+                    allocated / seconds / 1024 / 1024,
+                    total.getTotalCount() == 0 ? 0 : allocated / total.getTotalCount() / 1024,
+                    promoted / 1024 / 1024));
+        } else {
+            sb.append("服务端GC    : 读取 /actuator/metrics 失败\n");
+        }
+        sb.append("==============================================================================================");
+        log.info(sb.toString());
+    }
+
+    private void work(int offset) {
+        int index = offset;
+        while (running) {
+            final String path = paths.get(index % paths.size());
+            index++;
+            final long startTime = System.nanoTime();
+            final boolean success = request(url + path + "?size=" + size);
+            final long time = System.nanoTime() - startTime;
+            if (!measuring) {
+                continue;
+            }
+            recorder.recordValue(Math.min(time, Max_Latency));
+            if (!success) {
+                errorCount.increment();
+            }
+        }
+    }
+
+    /**
+     * 发送请求并读取完整的响应(保证连接可以复用)
+     *
+     * @return 响应状态码是否是200
+     */
+    private boolean request(String requestUrl) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(requestUrl).openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            final int code = connection.getResponseCode();
+            try (InputStream inputStream = code < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (inputStream != null) {
+                    IOUtils.skip(inputStream, Long.MAX_VALUE);
+                }
+            }
+            return code == 200;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    private String get(String requestUrl) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(requestUrl).openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        final int code = connection.getResponseCode();
+        try (InputStream inputStream = code < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return inputStream == null ? "" : IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 读取服务端GC指标，失败返回null
+     */
+    private GcSnapshot getGcSnapshot() {
+        try {
+            GcSnapshot snapshot = new GcSnapshot();
+            JsonNode pause = getMetric("jvm.gc.pause");
+            snapshot.pauseCount = getMeasurement(pause, "COUNT");
+            snapshot.pauseTime = getMeasurement(pause, "TOTAL_TIME");
+            snapshot.pauseMax = getMeasurement(pause, "MAX");
+            snapshot.allocatedBytes = getMeasurement(getMetric("jvm.gc.memory.allocated"), "COUNT");
+            snapshot.promotedBytes = getMeasurement(getMetric("jvm.gc.memory.promoted"), "COUNT");
+            return snapshot;
+        } catch (IOException e) {
+            log.warn("读取服务端GC指标失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 读取 /actuator/metrics/{name}，还没有记录过的指标(例如还没有发生过GC)返回null
+     */
+    private JsonNode getMetric(String name) throws IOException {
+        JsonNode metric = Object_Mapper.readTree(get(url + "/actuator/metrics/" + name));
+        return metric == null || !metric.has("measurements") ? null : metric;
+    }
+
+    private static double getMeasurement(JsonNode metric, String statistic) {
+        if (metric == null) {
+            return 0;
+        }
+        for (JsonNode measurement : metric.path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asText())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * 服务端GC指标(累计值)
+     */
+    private static class GcSnapshot {
+        /**
+         * GC次数
+         */
+        private double pauseCount;
+        /**
+         * GC停顿时间合计(秒)
+         */
+        private double pauseTime;
+        /**
+         * 最近的最大GC停顿时间(秒)
+         */
+        private double pauseMax;
+        /**
+         * 新生代分配的内存(字节)
+         */
+        private double allocatedBytes;
+        /**
+         * 晋升到老年代的内存(字节)
+         */
+        private double promotedBytes;
+    }
+}
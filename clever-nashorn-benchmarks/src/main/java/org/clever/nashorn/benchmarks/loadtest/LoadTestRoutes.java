@@ -0,0 +1,52 @@
+package org.clever.nashorn.benchmarks.loadtest;
+
+import org.clever.nashorn.benchmarks.support.ScriptFiles;
+import org.clever.nashorn.entity.JsCodeFile;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测使用的请求路由 <br />
+ * 1. /api/user.json --> /api/user/controller.js <br />
+ * 2. /api/route-{index}.json --> /api/route-{index}/controller.js(复制 /api/user/controller.js，用于模拟大量的路由) <br />
+ * LoadTestServer 写入数据库、LoadTestClient 发送请求都使用这里的路由，两边的 routes 参数要一致
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 16:40 <br/>
+ */
+public class LoadTestRoutes {
+    private static final String Route_Prefix = "/api/route-";
+
+    /**
+     * 需要写入数据库的脚本(包含上级文件夹)
+     *
+     * @param routes 复制的路由数量
+     */
+    public static List<JsCodeFile> createJsCodeFiles(int routes) {
+        final String controller = ScriptFiles.readScript(ScriptFiles.Controller_Js);
+        Map<String, String> scripts = new LinkedHashMap<>(routes + 3);
+        scripts.put(ScriptFiles.Util_Js, ScriptFiles.readScript(ScriptFiles.Util_Js));
+        scripts.put(ScriptFiles.Controller_Js, controller);
+        for (int i = 0; i < routes; i++) {
+            scripts.put(Route_Prefix + i + "/controller.js", controller);
+        }
+        return ScriptFiles.create(scripts);
+    }
+
+    /**
+     * 请求路径
+     *
+     * @param routes 复制的路由数量
+     */
+    public static List<String> getRequestPaths(int routes) {
+        List<String> paths = new ArrayList<>(routes + 1);
+        paths.add("/api/user.json");
+        for (int i = 0; i < routes; i++) {
+            paths.add(Route_Prefix + i + ".json");
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,110 @@
+package org.clever.nashorn.benchmarks.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.clever.nashorn.StartApp;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import redis.embedded.RedisServer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * 端到端压测的服务端(不依赖MySQL、Redis、ElasticSearch) <br />
+ * 1. 创建H2内存库(MySQL兼容模式)，建表并写入 LoadTestRoutes 的脚本 <br />
+ * 2. 启动本地Redis(embedded-redis)、ElasticSearch替代服务 <br />
+ * 3. 使用服务端的 classpath:/application.yml 启动 StartApp，classpath:/loadtest/application.yml 覆盖压测需要修改的配置 <br />
+ * 参数(--name=value): loadtest.routes(复制的路由数量，默认100)、loadtest.redis-port(默认16379)、loadtest.es-port(默认19200)，其它参数原样传给 SpringApplication
+ * <pre>
+ * java -cp benchmarks.jar org.clever.nashorn.benchmarks.loadtest.LoadTestServer --server.port=18081 --loadtest.routes=100
+ * </pre>
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 17:00 <br/>
+ */
+@Slf4j
+public class LoadTestServer {
+    /**
+     * 数据库名和MySQL中的一致，DB_CLOSE_DELAY=-1 保证建表的连接关闭后数据库不被删除
+     */
+    private static final String Jdbc_Url = "jdbc:h2:mem:clever-nashorn;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String Schema_Sql = "loadtest/schema-h2.sql";
+    /**
+     * 后面的配置文件优先级更高
+     */
+    private static final String Config_Location = "classpath:/application.yml,classpath:/loadtest/application.yml";
+    /**
+     * 不使用服务端配置中的 dev 环境(dev 环境会注册SQL性能分析插件、Swagger，影响压测结果)
+     */
+    private static final String Profile = "loadtest";
+    private static final String Insert_Js_Code_File = "insert into js_code_file (biz_type, group_name, node_type, file_path, name, js_code) values (?, ?, ?, ?, ?, ?)";
+
+    public static void main(String[] args) throws SQLException {
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT+8"));
+        SimpleCommandLinePropertySource options = new SimpleCommandLinePropertySource(args);
+        final int routes = NumberUtils.toInt(options.getProperty("loadtest.routes"), 100);
+        final int redisPort = NumberUtils.toInt(options.getProperty("loadtest.redis-port"), 16379);
+        final int esPort = NumberUtils.toInt(options.getProperty("loadtest.es-port"), 19200);
+        // 数据库
+        final int count = initDatabase(routes);
+        log.info("H2数据库初始化完成 | 路由数 {} | js_code_file {}条", routes + 1, count);
+        // Redis
+        final RedisServer redisServer = RedisServer.builder().port(redisPort).setting("bind 127.0.0.1").setting("save \"\"").build();
+        redisServer.start();
+        log.info("Redis替代服务已启动 | 127.0.0.1:{}", redisPort);
+        // ElasticSearch
+        final ElasticsearchStub elasticsearchStub = new ElasticsearchStub(esPort);
+        elasticsearchStub.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            elasticsearchStub.stop();
+            redisServer.stop();
+        }));
+        // 启动服务(loadtest.* 参数使用解析后的值)
+        String[] springArgs = ArrayUtils.addAll(
+                Arrays.stream(args).filter(arg -> !arg.startsWith("--loadtest.")).toArray(String[]::new),
+                "--spring.config.location=" + Config_Location,
+                "--spring.profiles.active=" + Profile,
+                "--loadtest.jdbc-url=" + Jdbc_Url,
+                "--loadtest.redis-port=" + redisPort,
+                "--loadtest.es-port=" + esPort
+        );
+        ApplicationContext ctx = SpringApplication.run(StartApp.class, springArgs);
+        log.info("### 压测服务启动完成 === {}", ctx);
+    }
+
+    /**
+     * 建表并写入脚本
+     *
+     * @return 写入的 js_code_file 数量
+     */
+    private static int initDatabase(int routes) throws SQLException {
+        List<JsCodeFile> jsCodeFiles = LoadTestRoutes.createJsCodeFiles(routes);
+        try (Connection connection = DriverManager.getConnection(Jdbc_Url, "sa", "")) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource(Schema_Sql));
+            try (PreparedStatement statement = connection.prepareStatement(Insert_Js_Code_File)) {
+                for (JsCodeFile jsCodeFile : jsCodeFiles) {
+                    statement.setString(1, jsCodeFile.getBizType());
+                    statement.setString(2, jsCodeFile.getGroupName());
+                    statement.setInt(3, jsCodeFile.getNodeType());
+                    statement.setString(4, jsCodeFile.getFilePath());
+                    statement.setString(5, jsCodeFile.getName());
+                    statement.setString(6, jsCodeFile.getJsCode());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        return jsCodeFiles.size();
+    }
+}
@@ -0,0 +1,65 @@
+package org.clever.nashorn.benchmarks.support;
+
+import lombok.Getter;
+import org.clever.nashorn.config.AsyncConsoleConfig;
+import org.clever.nashorn.config.CodeRunLogWriterConfig;
+import org.clever.nashorn.config.CodeRunRollupConfig;
+import org.clever.nashorn.console.AsyncConsoleDispatcher;
+import org.clever.nashorn.console.RunLogConsoleSink;
+import org.clever.nashorn.service.CodeRunLogService;
+import org.clever.nashorn.service.CodeRunLogWriter;
+import org.clever.nashorn.service.CodeRunRollupRecorder;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+
+/**
+ * 基准测试使用的 CodeRunLogService(与 BeanConfiguration 相同的组装方式，只是不写数据库) <br />
+ * 执行脚本的线程上的开销(计算hash、抽样、放入 CodeRunLogWriter 的队列、Console输出、运行统计)都会被测量，
+ * CodeRunLogWriter、CodeRunRollupRecorder 的后台线程照常运行，只是写入数据库的操作什么都不做
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 15:25 <br/>
+ */
+public class BenchmarkCodeRunLog implements Closeable {
+    @Getter
+    private final CodeRunLogService codeRunLogService;
+    private final CodeRunLogWriter codeRunLogWriter;
+    private final CodeRunRollupRecorder codeRunRollupRecorder;
+    private final AsyncConsoleDispatcher asyncConsoleDispatcher;
+
+    public BenchmarkCodeRunLog() {
+        codeRunLogWriter = new CodeRunLogWriter(new CodeRunLogWriterConfig(), batch -> {
+        });
+        codeRunRollupRecorder = new CodeRunRollupRecorder(new CodeRunRollupConfig(), rollups -> {
+        });
+        AsyncConsoleConfig asyncConsoleConfig = new AsyncConsoleConfig();
+        asyncConsoleDispatcher = new AsyncConsoleDispatcher(asyncConsoleConfig);
+        asyncConsoleDispatcher.addSink(new RunLogConsoleSink(asyncConsoleConfig, codeRunLogWriter::appendLogs));
+        // CodeRunLogService 的依赖通过 @Autowired 字段注入，这里没有Spring容器处理注解
+        codeRunLogService = new CodeRunLogService();
+        setField(codeRunLogService, "codeRunLogWriter", codeRunLogWriter);
+        setField(codeRunLogService, "codeRunRollupRecorder", codeRunRollupRecorder);
+        setField(codeRunLogService, "asyncConsoleDispatcher", asyncConsoleDispatcher);
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            throw new RuntimeException("字段不存在: " + target.getClass().getName() + "." + name);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    /**
+     * 与 BeanConfiguration 中的关闭顺序相同: 先输出剩余的日志，再写入剩余的运行记录
+     */
+    @Override
+    public void close() {
+        asyncConsoleDispatcher.close();
+        codeRunLogWriter.close();
+        codeRunRollupRecorder.close();
+    }
+}
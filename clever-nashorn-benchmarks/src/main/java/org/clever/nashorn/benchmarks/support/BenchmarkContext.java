@@ -0,0 +1,71 @@
+package org.clever.nashorn.benchmarks.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.clever.common.utils.spring.SpringContextHolder;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.mapper.JsCodeFileMapper;
+import org.clever.nashorn.metrics.ScriptMetrics;
+import org.clever.nashorn.service.CodeRunLogService;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 基准测试使用的Spring容器(不连接数据库) <br />
+ * ConsumeBinlogThread 等类通过 SpringContextHolder 获取依赖，这里只注册它们需要的Bean: <br />
+ * 1. JsCodeFileMapper: 只支持 findAllChildByFilePath，从内存中的脚本列表查询 <br />
+ * 2. CodeRunLogService: {@link BenchmarkCodeRunLog}(不写数据库，容器关闭时停止后台线程) <br />
+ * 3. ScriptMetrics: 使用 SimpleMeterRegistry
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 15:30 <br/>
+ */
+public class BenchmarkContext {
+
+    /**
+     * 创建并启动Spring容器(之后可以使用 SpringContextHolder 获取Bean)
+     *
+     * @param jsCodeFiles 所有的脚本
+     */
+    public static GenericApplicationContext start(List<JsCodeFile> jsCodeFiles) {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        // 没有注册注解处理器，@Autowired 字段不会被注入
+        applicationContext.registerBean(SpringContextHolder.class);
+        applicationContext.registerBean(JsCodeFileMapper.class, () -> newJsCodeFileMapper(jsCodeFiles));
+        applicationContext.registerBean(BenchmarkCodeRunLog.class);
+        applicationContext.registerBean(CodeRunLogService.class, () -> applicationContext.getBean(BenchmarkCodeRunLog.class).getCodeRunLogService());
+        applicationContext.registerBean(ScriptMetrics.class, () -> new ScriptMetrics(new SimpleMeterRegistry()));
+        applicationContext.refresh();
+        return applicationContext;
+    }
+
+    private static JsCodeFileMapper newJsCodeFileMapper(List<JsCodeFile> jsCodeFiles) {
+        return (JsCodeFileMapper) Proxy.newProxyInstance(
+                BenchmarkContext.class.getClassLoader(),
+                new Class[]{JsCodeFileMapper.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findAllChildByFilePath":
+                            final String bizType = (String) args[0];
+                            final String groupName = (String) args[1];
+                            final String filePath = (String) args[2];
+                            return jsCodeFiles.stream()
+                                    .filter(file -> Objects.equals(file.getBizType(), bizType)
+                                            && Objects.equals(file.getGroupName(), groupName)
+                                            && file.getFilePath().startsWith(filePath))
+                                    .collect(Collectors.toList());
+                        case "toString":
+                            return "JsCodeFileMapper(benchmark)";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException("基准测试不支持: JsCodeFileMapper." + method.getName());
+                    }
+                });
+    }
+}
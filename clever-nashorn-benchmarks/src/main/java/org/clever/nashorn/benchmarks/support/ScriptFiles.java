@@ -0,0 +1,106 @@
+package org.clever.nashorn.benchmarks.support;
+
+import org.apache.commons.io.IOUtils;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.utils.JsCodeFilePathUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把 classpath:scripts 下的脚本转换成 JsCodeFile(代替数据库中的脚本)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 15:10 <br/>
+ */
+public class ScriptFiles {
+    /**
+     * 脚本所在的classpath目录(也可以直接用于 ResourceFolder)
+     */
+    public static final String Resource_Path = "scripts";
+    public static final String Util_Js = "/lib/util.js";
+    public static final String Controller_Js = "/api/user/controller.js";
+    /**
+     * Binlog消费脚本(destination 为 binlog)
+     */
+    public static final String Binlog_Js = "/binlog/order.js";
+
+    private static final AtomicLong Id = new AtomicLong(1);
+
+    /**
+     * 所有的基准测试脚本(包含上级文件夹)
+     */
+    public static List<JsCodeFile> loadAll() {
+        return load(Util_Js, Controller_Js, Binlog_Js);
+    }
+
+    /**
+     * 读取脚本，并为脚本的每一级上级路径生成文件夹
+     *
+     * @param fullPaths 脚本全路径
+     */
+    public static List<JsCodeFile> load(String... fullPaths) {
+        Map<String, String> scripts = new LinkedHashMap<>(fullPaths.length);
+        for (String fullPath : fullPaths) {
+            scripts.put(fullPath, readScript(fullPath));
+        }
+        return create(scripts);
+    }
+
+    /**
+     * 使用给定的脚本内容生成 JsCodeFile，并为脚本的每一级上级路径生成文件夹
+     *
+     * @param scripts Map<脚本全路径, 脚本内容>
+     */
+    public static List<JsCodeFile> create(Map<String, String> scripts) {
+        Map<String, JsCodeFile> folders = new LinkedHashMap<>();
+        List<JsCodeFile> files = new ArrayList<>(scripts.size());
+        for (Map.Entry<String, String> entry : scripts.entrySet()) {
+            TupleTow<String, String> tupleTow = JsCodeFilePathUtils.getParentPath(entry.getKey());
+            files.add(newJsCodeFile(EnumConstant.Node_Type_1, tupleTow.getValue1(), tupleTow.getValue2(), entry.getValue()));
+            String parent = tupleTow.getValue1();
+            while (parent.length() > 1) {
+                TupleTow<String, String> folder = JsCodeFilePathUtils.getParentPath(parent.substring(0, parent.length() - 1));
+                folders.putIfAbsent(parent, newJsCodeFile(EnumConstant.Node_Type_2, folder.getValue1(), folder.getValue2(), null));
+                parent = folder.getValue1();
+            }
+        }
+        List<JsCodeFile> result = new ArrayList<>(folders.values());
+        result.addAll(files);
+        return result;
+    }
+
+    private static JsCodeFile newJsCodeFile(Integer nodeType, String filePath, String name, String jsCode) {
+        JsCodeFile jsCodeFile = new JsCodeFile();
+        jsCodeFile.setId(Id.getAndIncrement());
+        jsCodeFile.setBizType(EnumConstant.DefaultBizType);
+        jsCodeFile.setGroupName(EnumConstant.DefaultGroupName);
+        jsCodeFile.setNodeType(nodeType);
+        jsCodeFile.setFilePath(filePath);
+        jsCodeFile.setName(name);
+        jsCodeFile.setJsCode(jsCode);
+        jsCodeFile.setCreateAt(new Date());
+        return jsCodeFile;
+    }
+
+    /**
+     * 读取脚本内容
+     *
+     * @param fullPath 脚本全路径
+     */
+    public static String readScript(String fullPath) {
+        try (InputStream stream = ScriptFiles.class.getClassLoader().getResourceAsStream(Resource_Path + fullPath)) {
+            if (stream == null) {
+                throw new RuntimeException("脚本不存在: " + fullPath);
+            }
+            return IOUtils.toString(stream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("读取脚本失败: " + fullPath, e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.clever.nashorn.benchmarks.support;
+
+import org.clever.nashorn.cache.JsCodeFileCacheService;
+import org.clever.nashorn.entity.JsCodeFile;
+
+import java.util.*;
+
+/**
+ * 从内存中的脚本列表查询 JsCodeFile(MemoryJsCodeFileCache 未命中时使用)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 15:20 <br/>
+ */
+public class StubJsCodeFileCacheService extends JsCodeFileCacheService {
+    private final List<JsCodeFile> jsCodeFiles;
+
+    public StubJsCodeFileCacheService(List<JsCodeFile> jsCodeFiles) {
+        this.jsCodeFiles = jsCodeFiles;
+    }
+
+    @Override
+    public JsCodeFile getJsCodeFile(String bizType, String groupName, int nodeType, String filePath, String name) {
+        for (JsCodeFile jsCodeFile : jsCodeFiles) {
+            if (Objects.equals(jsCodeFile.getBizType(), bizType)
+                    && Objects.equals(jsCodeFile.getGroupName(), groupName)
+                    && Objects.equals(jsCodeFile.getNodeType(), nodeType)
+                    && Objects.equals(jsCodeFile.getFilePath(), filePath)
+                    && Objects.equals(jsCodeFile.getName(), name)) {
+                return jsCodeFile;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Set<JsCodeFile> findAll() {
+        return new HashSet<>(jsCodeFiles);
+    }
+}
@@ -0,0 +1,98 @@
+/* ====================================================================================================================
+    端到端压测使用的H2表结构(MODE=MySQL)，和 clever-nashorn_MySql.sql 保持一致，
+    去掉了 comment、on update，mediumtext 改成 clob
+==================================================================================================================== */
+-- 请求路由查询使用的 sha2(js_code, 256)
+create alias if not exists sha2 for "org.clever.nashorn.benchmarks.loadtest.H2Functions.sha2";
+
+create table js_code_file
+(
+    id                  bigint          not null        auto_increment,
+    biz_type            varchar(127)    not null,
+    group_name          varchar(127)    not null,
+    node_type           int             not null        default 1,
+    read_only           int             not null        default 0,
+    disable_delete      int             not null        default 0,
+    file_path           varchar(255)    not null,
+    name                varchar(255)    not null,
+    js_code             clob,
+    description         varchar(511),
+    create_at           timestamp(3)    not null        default current_timestamp(3),
+    update_at           timestamp(3),
+    primary key (id)
+);
+create index js_code_file_biz_type on js_code_file (biz_type);
+create index js_code_file_group_name on js_code_file (group_name);
+create index js_code_file_file_path on js_code_file (file_path);
+create index js_code_file_name on js_code_file (name);
+create unique index js_code_full_path on js_code_file (biz_type, group_name, file_path, name);
+
+create table code_file_history
+(
+    id                  bigint          not null        auto_increment,
+    biz_type            varchar(127)    not null,
+    group_name          varchar(127)    not null,
+    file_path           varchar(255)    not null,
+    name                varchar(255)    not null,
+    js_code             clob,
+    description         varchar(511),
+    create_at           timestamp(3)    not null        default current_timestamp(3),
+    update_at           timestamp(3),
+    primary key (id)
+);
+
+create table code_run_log
+(
+    id                  bigint          not null        auto_increment,
+    js_code_id          bigint          not null,
+    js_code             clob,
+    js_code_hash        varchar(64),
+    run_start           timestamp(3)    not null,
+    run_end             timestamp(3),
+    run_log             clob            not null        default '',
+    status              int             not null        default 1,
+    cpu_time            bigint,
+    allocated_bytes     bigint,
+    create_at           timestamp(3)    not null        default current_timestamp(3),
+    update_at           timestamp(3),
+    primary key (id)
+);
+create index code_run_log_js_code_id on code_run_log (js_code_id);
+create index code_run_log_run_start on code_run_log (run_start);
+
+create table code_run_rollup
+(
+    id                  bigint          not null        auto_increment,
+    js_code_id          bigint          not null,
+    bucket_time         timestamp       not null,
+    run_count           bigint          not null        default 0,
+    success_count       bigint          not null        default 0,
+    error_count         bigint          not null        default 0,
+    timeout_count       bigint          not null        default 0,
+    cpu_limit_count     bigint          not null        default 0,
+    sum_run_time        bigint          not null        default 0,
+    max_run_time        bigint          not null        default 0,
+    sum_cpu_time        bigint          not null        default 0,
+    max_cpu_time        bigint          not null        default 0,
+    sum_allocated_bytes bigint          not null        default 0,
+    max_allocated_bytes bigint          not null        default 0,
+    latency_10ms        bigint          not null        default 0,
+    latency_50ms        bigint          not null        default 0,
+    latency_100ms       bigint          not null        default 0,
+    latency_500ms       bigint          not null        default 0,
+    latency_1s          bigint          not null        default 0,
+    latency_5s          bigint          not null        default 0,
+    latency_over_5s     bigint          not null        default 0,
+    create_at           timestamp(3)    not null        default current_timestamp(3),
+    update_at           timestamp(3),
+    primary key (id)
+);
+create unique index code_run_rollup_js_code_bucket on code_run_rollup (js_code_id, bucket_time);
+
+create table code_run_script
+(
+    js_code_hash        varchar(64)     not null,
+    js_code             clob            not null,
+    create_at           timestamp(3)    not null        default current_timestamp(3),
+    primary key (js_code_hash)
+);
@@ -0,0 +1,11 @@
+// 基准测试使用的请求处理脚本 -> /api/user.json
+var util = require("../../lib/util");
+
+exports.service = function (ctx) {
+    var size = Number(ctx.req.parameters.size || 20);
+    var list = [];
+    for (var i = 0; i < size; i++) {
+        list.push({id: i, name: "user-" + util.padLeft(i, 4, "0"), score: i * 1.5, birthday: util.formatDate(new Date(2019, 0, 1 + i))});
+    }
+    return {total: list.length, score: util.sum(list, "score"), list: list};
+};
@@ -0,0 +1,15 @@
+// 基准测试使用的Binlog消费脚本(destination: binlog)
+var util = require("../lib/util");
+
+exports.filter = "shop.tb_order, shop.tb_order_item";
+
+exports.onChange = function (data) {
+    var columns = data.rowDataList.afterColumns;
+    var changed = 0;
+    for (var i = 0; i < columns.length; i++) {
+        if (columns[i].updated) {
+            changed++;
+        }
+    }
+    return data.header.tableName + ":" + util.padLeft(changed, 3, "0");
+};
@@ -0,0 +1,18 @@
+// Nashorn与GraalJS对比使用的Binlog消费脚本(不依赖CommonJS模块): 遍历行变化，生成需要同步的数据
+function service(data) {
+    var result = {};
+    for (var i = 0; i < data.rows.length; i++) {
+        var columns = data.rows[i];
+        var record = {};
+        var updated = [];
+        for (var j = 0; j < columns.length; j++) {
+            var column = columns[j];
+            record[column.name] = column.isNull ? null : column.value;
+            if (column.updated) {
+                updated.push(column.name);
+            }
+        }
+        result[data.tableName + ":" + record.id] = updated.join(",");
+    }
+    return result;
+}
@@ -0,0 +1,22 @@
+// Nashorn与GraalJS对比使用的controller脚本(不依赖CommonJS模块): 查询结果过滤、转换、分页排序
+function service(request) {
+    var list = [];
+    for (var i = 0; i < request.rows.length; i++) {
+        var row = request.rows[i];
+        if (row.age < request.minAge) {
+            continue;
+        }
+        list.push({
+            id: row.id,
+            title: row.name.toUpperCase() + "(" + row.age + ")",
+            tags: row.tags.join(",")
+        });
+    }
+    list.sort(function (a, b) {
+        return b.id - a.id;
+    });
+    return {
+        total: list.length,
+        records: list.slice(0, request.pageSize)
+    };
+}
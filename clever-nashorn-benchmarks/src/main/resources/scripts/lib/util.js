@@ -0,0 +1,24 @@
+// 基准测试使用的工具模块
+var padLeft = function (str, length, ch) {
+    str = String(str);
+    while (str.length < length) {
+        str = ch + str;
+    }
+    return str;
+};
+
+var formatDate = function (date) {
+    return date.getFullYear() + "-" + padLeft(date.getMonth() + 1, 2, "0") + "-" + padLeft(date.getDate(), 2, "0");
+};
+
+var sum = function (list, field) {
+    var total = 0;
+    for (var i = 0; i < list.length; i++) {
+        total += list[i][field];
+    }
+    return total;
+};
+
+exports.padLeft = padLeft;
+exports.formatDate = formatDate;
+exports.sum = sum;
@@ -3,18 +3,22 @@ package org.clever.nashorn;
 import jdk.nashorn.api.scripting.NashornScriptEngine;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import lombok.Getter;
-import org.clever.nashorn.folder.FileSystemFolder;
+import org.clever.nashorn.folder.CachingFileSystemFolder;
 import org.clever.nashorn.folder.Folder;
 import org.clever.nashorn.internal.Console;
 import org.clever.nashorn.internal.LogConsole;
 import org.clever.nashorn.module.Module;
-import org.clever.nashorn.module.cache.MemoryModuleCache;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.module.cache.DependencyModuleCache;
 import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.module.cache.ModuleResolveCache;
 import org.clever.nashorn.utils.ScriptEngineUtils;
 
 import javax.script.Bindings;
 import javax.script.ScriptContext;
 import java.io.File;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -24,6 +28,7 @@ import java.util.Map;
  * 创建时间：2019/08/21 11:03 <br/>
  */
 public class ScriptModuleInstance {
+    private static final String Package_Json = "package.json";
 
     /**
      * 脚本资源获取
@@ -35,6 +40,11 @@ public class ScriptModuleInstance {
      */
     @Getter
     private final ModuleCache moduleCache;
+    /**
+     * 模块路径解析缓存
+     */
+    @Getter
+    private final ModuleResolveCache moduleResolveCache;
     /**
      * NashornScriptEngine
      */
@@ -54,14 +64,26 @@ public class ScriptModuleInstance {
     private final Bindings global;
 
     /**
-     * @param folder      脚本资源获取实现
-     * @param moduleCache 模块缓存实现
-     * @param console     Console
-     * @param context     全局的对象
+     * 预先解析好的模块导出函数(下标由调用方分配)，模块缓存删除或清空时全部失效，模块被淘汰时对应的函数失效
      */
-    public ScriptModuleInstance(Folder folder, ModuleCache moduleCache, Console console, Map<String, Object> context) {
+    private volatile BoundFunction[] boundFunctions = new BoundFunction[0];
+    /**
+     * boundFunctions 失效的次数，用于丢弃失效前开始解析的结果
+     */
+    private long boundVersion;
+
+    /**
+     * @param folder             脚本资源获取实现
+     * @param moduleCache        模块缓存实现
+     * @param moduleResolveCache 模块路径解析缓存(使用相同folder的实例之间可以共享)
+     * @param console            Console
+     * @param context            全局的对象
+     */
+    public ScriptModuleInstance(Folder folder, ModuleCache moduleCache, ModuleResolveCache moduleResolveCache, Console console, Map<String, Object> context) {
         this.folder = folder;
-        this.moduleCache = moduleCache;
+        // 模块被删除(包括依赖它的模块)或者清空时，预先解析的函数需要重新解析
+        this.moduleCache = new UnbindOnRemoveModuleCache(moduleCache, this);
+        this.moduleResolveCache = moduleResolveCache;
         // 初始化 root Module
         engine = ScriptEngineUtils.creatEngine();
         global = engine.getBindings(ScriptContext.ENGINE_SCOPE);
@@ -70,12 +92,22 @@ public class ScriptModuleInstance {
         }
         Bindings module = engine.createBindings();
         ScriptObjectMirror exports = ScriptEngineUtils.newObject();
-        rootModule = new Module(engine, console, moduleCache, folder, module, exports);
+        rootModule = new Module(engine, console, this.moduleCache, moduleResolveCache, folder, module, exports);
         global.put("require", rootModule);
         global.put("module", module);
         global.put("exports", exports);
     }
 
+    /**
+     * @param folder      脚本资源获取实现
+     * @param moduleCache 模块缓存实现
+     * @param console     Console
+     * @param context     全局的对象
+     */
+    public ScriptModuleInstance(Folder folder, ModuleCache moduleCache, Console console, Map<String, Object> context) {
+        this(folder, moduleCache, new ModuleResolveCache(), console, context);
+    }
+
     /**
      * @param folder      脚本资源获取实现
      * @param moduleCache 模块缓存实现
@@ -87,16 +119,32 @@ public class ScriptModuleInstance {
 
     /**
      * 创建默认的 ScriptModuleInstance <br />
-     * 使用本地文件获取脚本资源<br />
-     * 使用内存缓存Module<br />
+     * 使用本地文件获取脚本资源(缓存文件内容，文件变化时删除对应的Module缓存)<br />
+     * 使用内存缓存Module(记录依赖关系)<br />
      * 使用LogConsole<br />
      *
      * @param rootFilePath 本地文件路径
      * @param context      全局的对象
      */
     public static ScriptModuleInstance creatDefault(String bizType, String groupName, String rootFilePath, Map<String, Object> context) {
-        Folder rootFolder = FileSystemFolder.create(new File(rootFilePath));
-        return new ScriptModuleInstance(rootFolder, new MemoryModuleCache(), new LogConsole(bizType, groupName, rootFilePath), context);
+        CachingFileSystemFolder rootFolder = CachingFileSystemFolder.create(new File(rootFilePath));
+        ModuleResolveCache moduleResolveCache = new ModuleResolveCache();
+        ScriptModuleInstance instance = new ScriptModuleInstance(rootFolder, new DependencyModuleCache(), moduleResolveCache, new LogConsole(bizType, groupName, rootFilePath), context);
+        // 使用 instance.getModuleCache()，删除模块时预先解析的函数同时失效
+        ModuleCache moduleCache = instance.getModuleCache();
+        rootFolder.addChangeListener((fullPath, kind) -> {
+            if (StandardWatchEventKinds.OVERFLOW.equals(kind)) {
+                moduleCache.clear();
+                moduleResolveCache.clear();
+                return;
+            }
+            moduleCache.remove(fullPath);
+            // 新增、删除文件以及修改package.json会影响模块路径解析结果
+            if (!StandardWatchEventKinds.ENTRY_MODIFY.equals(kind) || fullPath.endsWith(File.separator + Package_Json)) {
+                moduleResolveCache.clear();
+            }
+        });
+        return instance;
     }
 
     /**
@@ -110,10 +158,154 @@ public class ScriptModuleInstance {
         return creatDefault(bizType, groupName, rootFilePath, null);
     }
 
+    /**
+     * 当前实例(engine)的编译后的脚本缓存
+     */
+    public CompiledScriptCache getCompiledScriptCache() {
+        return rootModule.getCompiledScriptCache();
+    }
+
     /**
      * 使用 require 得到 JS 对象
      */
     public ScriptObjectMirror useJs(String name) {
         return rootModule.useJs(name);
     }
+
+    /**
+     * 获取预先解析好的函数(不需要 require 和读取导出对象)
+     *
+     * @param slot     下标
+     * @param fullPath 模块文件全路径
+     * @return 还未解析或者已经失效(包括模块缓存淘汰了这个模块)返回null
+     */
+    public BoundFunction getBoundFunction(int slot, String fullPath) {
+        final BoundFunction[] functions = boundFunctions;
+        if (slot >= functions.length) {
+            return null;
+        }
+        final BoundFunction function = functions[slot];
+        if (function == null || !function.fullPath.equals(fullPath)) {
+            return null;
+        }
+        // 模块缓存按权重淘汰模块时不会调用remove，需要确认缓存中还是同一个模块
+        return moduleCache.get(fullPath) == function.module ? function : null;
+    }
+
+    /**
+     * 解析模块导出的函数，并保存到 slot 下
+     *
+     * @param slot     下标
+     * @param fullPath 模块文件全路径
+     * @param name     导出的函数名
+     * @return 模块没有导出这个函数返回null
+     */
+    public BoundFunction bindFunction(int slot, String fullPath, String name) {
+        final long version;
+        synchronized (this) {
+            version = boundVersion;
+        }
+        final ScriptObjectMirror exports = useJs(fullPath);
+        final Object member = exports.getMember(name);
+        if (!(member instanceof ScriptObjectMirror) || !((ScriptObjectMirror) member).isFunction()) {
+            return null;
+        }
+        final Module module = moduleCache.get(fullPath);
+        final BoundFunction function = new BoundFunction(fullPath, module, exports, (ScriptObjectMirror) member);
+        synchronized (this) {
+            // 解析期间模块发生了变化(或者已经被淘汰)，这次的结果只用于当前调用
+            if (version == boundVersion && module != null) {
+                BoundFunction[] functions = Arrays.copyOf(boundFunctions, Math.max(boundFunctions.length, slot + 1));
+                functions[slot] = function;
+                boundFunctions = functions;
+            }
+        }
+        return function;
+    }
+
+    /**
+     * 所有预先解析的函数失效
+     */
+    public synchronized void unbindAll() {
+        boundVersion++;
+        if (boundFunctions.length > 0) {
+            boundFunctions = new BoundFunction[0];
+        }
+    }
+
+    /**
+     * 预先解析好的模块导出函数
+     */
+    public static class BoundFunction {
+        /**
+         * 模块文件全路径
+         */
+        @Getter
+        private final String fullPath;
+        /**
+         * 解析时缓存中的模块
+         */
+        private final Module module;
+        /**
+         * 模块导出对象(调用函数时的this)
+         */
+        @Getter
+        private final ScriptObjectMirror exports;
+        @Getter
+        private final ScriptObjectMirror function;
+
+        private BoundFunction(String fullPath, Module module, ScriptObjectMirror exports, ScriptObjectMirror function) {
+            this.fullPath = fullPath;
+            this.module = module;
+            this.exports = exports;
+            this.function = function;
+        }
+
+        /**
+         * 调用函数，等同于 exports.callMember(name, args)
+         */
+        public Object call(Object... args) {
+            return function.call(exports, args);
+        }
+    }
+
+    /**
+     * 删除、清空模块缓存时让预先解析的函数失效
+     */
+    private static class UnbindOnRemoveModuleCache implements ModuleCache {
+        private final ModuleCache delegate;
+        private final ScriptModuleInstance instance;
+
+        private UnbindOnRemoveModuleCache(ModuleCache delegate, ScriptModuleInstance instance) {
+            this.delegate = delegate;
+            this.instance = instance;
+        }
+
+        @Override
+        public Module get(String fullPath) {
+            return delegate.get(fullPath);
+        }
+
+        @Override
+        public void put(String fullPath, Module module) {
+            delegate.put(fullPath, module);
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+            instance.unbindAll();
+        }
+
+        @Override
+        public void remove(String fullPath) {
+            delegate.remove(fullPath);
+            instance.unbindAll();
+        }
+
+        @Override
+        public void addDependency(String fullPath, String dependencyFullPath) {
+            delegate.addDependency(fullPath, dependencyFullPath);
+        }
+    }
 }
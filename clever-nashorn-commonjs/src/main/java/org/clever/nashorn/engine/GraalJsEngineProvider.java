@@ -0,0 +1,85 @@
+package org.clever.nashorn.engine;
+
+import com.oracle.truffle.js.scriptengine.GraalJSScriptEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+
+import javax.script.ScriptEngine;
+
+/**
+ * GraalJS引擎(需要 org.graalvm.js:js 和 org.graalvm.js:js-scriptengine 依赖) <br />
+ * 1. 所有 ScriptEngine 共享同一个 polyglot Engine，相同的源码只解析一次，编译结果(JIT)在各个Context之间共享 <br />
+ * 2. 开启 js.nashorn-compat 兼容模式，支持 Java.type、JavaImporter 等Nashorn扩展 <br />
+ * 3. 支持ES2019语法 <br />
+ * 注意: GraalJS返回给Java的对象不是 ScriptObjectMirror，需要使用 {@link #getValueConverter()} 转换数据，CommonJS模块系统(Module)还不能直接使用
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 10:40 <br/>
+ */
+@Slf4j
+public class GraalJsEngineProvider implements ScriptEngineProvider {
+    public static final GraalJsEngineProvider Instance = new GraalJsEngineProvider();
+
+    private static final String GraalJs_Class = "com.oracle.truffle.js.scriptengine.GraalJSScriptEngine";
+    private static final String Ecmascript_Version = "2019";
+
+    private final boolean available;
+
+    private GraalJsEngineProvider() {
+        boolean available;
+        try {
+            Class.forName(GraalJs_Class);
+            available = true;
+        } catch (Throwable e) {
+            available = false;
+        }
+        this.available = available;
+    }
+
+    @Override
+    public String getName() {
+        return "GraalJS";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public ScriptEngine creatEngine() {
+        if (!available) {
+            throw new RuntimeException("当前环境没有GraalJS引擎，需要引入依赖 org.graalvm.js:js 和 org.graalvm.js:js-scriptengine");
+        }
+        Context.Builder builder = Context.newBuilder("js")
+                .allowHostAccess(HostAccess.ALL)
+                .allowHostClassLookup(ScriptEngineUtils::isJavaTypeAllowed)
+                .allowExperimentalOptions(true)
+                .option("js.ecmascript-version", Ecmascript_Version)
+                .option("js.nashorn-compat", "true");
+        return GraalJSScriptEngine.create(SharedEngine.Instance, builder);
+    }
+
+    @Override
+    public ScriptValueConverter getValueConverter() {
+        if (!available) {
+            throw new RuntimeException("当前环境没有GraalJS引擎，需要引入依赖 org.graalvm.js:js 和 org.graalvm.js:js-scriptengine");
+        }
+        return GraalJsValueConverter.Instance;
+    }
+
+    /**
+     * 延迟创建共享的 polyglot Engine(没有GraalJS依赖时不会加载这个类)
+     */
+    private static class SharedEngine {
+        private static final Engine Instance;
+
+        static {
+            Instance = Engine.create();
+            log.info("创建GraalJS共享Engine | version={}", Instance.getVersion());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.clever.nashorn.engine;
+
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.util.*;
+
+/**
+ * GraalJS引擎的数据转换 <br />
+ * 1. toScript: Map 包装成 ProxyObject，List 包装成 ProxyArray(脚本中可以使用 obj.key、arr.length 等JS语法) <br />
+ * 2. toJava: GraalJS 返回的 Map、List 是绑定在 Context 上的视图，需要复制成普通的Java集合
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 11:40 <br/>
+ */
+public class GraalJsValueConverter implements ScriptValueConverter {
+    public static final GraalJsValueConverter Instance = new GraalJsValueConverter();
+
+    /**
+     * 最大递归深度(循环引用)
+     */
+    private static final int Max_Deep = 32;
+
+    private GraalJsValueConverter() {
+    }
+
+    @Override
+    public Object toScript(Object value) {
+        return doToScript(value, 0);
+    }
+
+    @Override
+    public Object toJava(Object value) {
+        return doToJava(value, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object doToScript(Object value, int deep) {
+        if (deep >= Max_Deep) {
+            return value;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) value;
+            Map<String, Object> jsObject = new HashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((key, item) -> jsObject.put(String.valueOf(key), doToScript(item, deep + 1)));
+            return ProxyObject.fromMap(jsObject);
+        }
+        if (value instanceof Collection) {
+            Collection<Object> collection = (Collection<Object>) value;
+            List<Object> jsArray = new ArrayList<>(collection.size());
+            for (Object item : collection) {
+                jsArray.add(doToScript(item, deep + 1));
+            }
+            return ProxyArray.fromList(jsArray);
+        }
+        return value;
+    }
+
+    private Object doToJava(Object value, int deep) {
+        if (deep >= Max_Deep) {
+            return value;
+        }
+        // JS数组可能同时实现Map和List，需要先判断List
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> javaList = new ArrayList<>(list.size());
+            for (Object item : list) {
+                javaList.add(doToJava(item, deep + 1));
+            }
+            return javaList;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Map<String, Object> javaMap = new HashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((key, item) -> javaMap.put(String.valueOf(key), doToJava(item, deep + 1)));
+            return javaMap;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,45 @@
+package org.clever.nashorn.engine;
+
+import jdk.nashorn.api.scripting.NashornScriptEngine;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+
+/**
+ * Nashorn引擎(JDK内置)，CommonJS模块系统(Module)目前只支持Nashorn
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 10:25 <br/>
+ */
+public class NashornEngineProvider implements ScriptEngineProvider {
+    public static final NashornEngineProvider Instance = new NashornEngineProvider();
+
+    private NashornEngineProvider() {
+    }
+
+    @Override
+    public String getName() {
+        return "Nashorn";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        try {
+            Class.forName("jdk.nashorn.api.scripting.NashornScriptEngineFactory");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 与 {@link ScriptEngineUtils#creatEngine()} 相同(使用持久化代码缓存等配置)
+     */
+    @Override
+    public NashornScriptEngine creatEngine() {
+        return ScriptEngineUtils.creatEngine();
+    }
+
+    @Override
+    public ScriptValueConverter getValueConverter() {
+        return NashornValueConverter.Instance;
+    }
+}
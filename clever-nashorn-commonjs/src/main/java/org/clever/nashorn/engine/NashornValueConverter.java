@@ -0,0 +1,26 @@
+package org.clever.nashorn.engine;
+
+import org.clever.nashorn.utils.ObjectConvertUtils;
+
+/**
+ * Nashorn引擎的数据转换，直接使用 {@link ObjectConvertUtils}
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 11:30 <br/>
+ */
+public class NashornValueConverter implements ScriptValueConverter {
+    public static final NashornValueConverter Instance = new NashornValueConverter();
+
+    private NashornValueConverter() {
+    }
+
+    @Override
+    public Object toScript(Object value) {
+        return ObjectConvertUtils.Instance.javaToJSObject(value);
+    }
+
+    @Override
+    public Object toJava(Object value) {
+        return ObjectConvertUtils.jsToJava(value);
+    }
+}
@@ -0,0 +1,32 @@
+package org.clever.nashorn.engine;
+
+import javax.script.ScriptEngine;
+
+/**
+ * Js引擎提供者(SPI)，屏蔽不同Js引擎的创建方式 <br />
+ * 内置实现见 {@link ScriptEngineType}
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 10:20 <br/>
+ */
+public interface ScriptEngineProvider {
+    /**
+     * 引擎名称
+     */
+    String getName();
+
+    /**
+     * 当前运行环境是否可以使用该引擎(JDK版本、依赖包)
+     */
+    boolean isAvailable();
+
+    /**
+     * 创建一个新的 ScriptEngine(JSR-223)，只允许访问 {@link org.clever.nashorn.utils.ScriptEngineUtils#isJavaTypeAllowed(String)} 允许的Java类
+     */
+    ScriptEngine creatEngine();
+
+    /**
+     * 当前引擎的Java数据与脚本数据转换器
+     */
+    ScriptValueConverter getValueConverter();
+}
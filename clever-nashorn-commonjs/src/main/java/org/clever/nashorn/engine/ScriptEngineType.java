@@ -0,0 +1,28 @@
+package org.clever.nashorn.engine;
+
+import lombok.Getter;
+
+/**
+ * 内置的Js引擎类型
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 11:05 <br/>
+ */
+public enum ScriptEngineType {
+    /**
+     * JDK内置的Nashorn引擎
+     */
+    Nashorn(NashornEngineProvider.Instance),
+    /**
+     * GraalJS引擎
+     */
+    GraalJs(GraalJsEngineProvider.Instance),
+    ;
+
+    @Getter
+    private final ScriptEngineProvider provider;
+
+    ScriptEngineType(ScriptEngineProvider provider) {
+        this.provider = provider;
+    }
+}
@@ -0,0 +1,21 @@
+package org.clever.nashorn.engine;
+
+/**
+ * Java数据与脚本数据之间的转换，屏蔽不同Js引擎的对象模型 <br />
+ * 1. Nashorn 使用 ScriptObjectMirror，转换逻辑见 {@link org.clever.nashorn.utils.ObjectConvertUtils} <br />
+ * 2. GraalJS 使用 polyglot Value(JSR-223 中表现为 Map、List 视图)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 11:20 <br/>
+ */
+public interface ScriptValueConverter {
+    /**
+     * Java对象(Map、List、基本类型)转换成脚本中可以直接使用的对象(JS对象、数组)
+     */
+    Object toScript(Object value);
+
+    /**
+     * 脚本返回值转换成Java对象(JS对象 -> Map，数组 -> List，基本类型)，转换结果不再依赖脚本引擎
+     */
+    Object toJava(Object value);
+}
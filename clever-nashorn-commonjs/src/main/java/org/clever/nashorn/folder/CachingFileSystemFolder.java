@@ -0,0 +1,286 @@
+package org.clever.nashorn.folder;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带内存缓存的本地文件夹 <br />
+ * 1. 缓存文件内容和子文件夹(包括不存在的结果)，模块路径解析时不再访问磁盘 <br />
+ * 2. 使用 WatchService 监听根目录下所有文件夹，文件变化时删除对应缓存并通知 {@link FolderChangeListener} (如删除 ModuleCache 中的模块) <br />
+ * 3. 超过 mmapThreshold 的大文件使用内存映射读取 <br />
+ * 同一个根目录创建的所有文件夹对象共享缓存和监听线程，不再使用时需要调用 {@link #close()}
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 16:20 <br/>
+ */
+@Slf4j
+public class CachingFileSystemFolder extends AbstractFolder {
+    /**
+     * 默认使用内存映射读取的文件大小(1MB)
+     */
+    public static final long Default_Mmap_Threshold = 1024 * 1024;
+
+    private final File root;
+    private final SharedState state;
+
+    private CachingFileSystemFolder(File root, Folder parent, String path, SharedState state) {
+        super(parent, path);
+        this.root = root;
+        this.state = state;
+    }
+
+    /**
+     * @param root 根目录
+     */
+    public static CachingFileSystemFolder create(File root) {
+        return create(root, null, Default_Mmap_Threshold);
+    }
+
+    /**
+     * @param root          根目录
+     * @param encoding      文件编码(默认UTF-8)
+     * @param mmapThreshold 超过这个大小的文件使用内存映射读取(小于等于0表示不使用内存映射)
+     */
+    public static CachingFileSystemFolder create(File root, String encoding, long mmapThreshold) {
+        File absolute = root.getAbsoluteFile();
+        Charset charset = Charset.forName(StringUtils.isNotBlank(encoding) ? encoding : "UTF-8");
+        SharedState state = new SharedState(absolute.toPath(), charset, mmapThreshold);
+        return new CachingFileSystemFolder(absolute, null, absolute.getPath() + File.separator, state);
+    }
+
+    /**
+     * 增加文件变化监听
+     */
+    public void addChangeListener(FolderChangeListener listener) {
+        state.listeners.add(listener);
+    }
+
+    @Override
+    public String getFileContent(String name) {
+        final String fullPath = getFilePath(name);
+        Optional<String> content = state.contents.get(fullPath);
+        if (content != null) {
+            return content.orElse(null);
+        }
+        final long version = state.version.get();
+        content = Optional.ofNullable(state.readFile(new File(root, name)));
+        state.putIfUnchanged(state.contents, fullPath, content, version);
+        return content.orElse(null);
+    }
+
+    @Override
+    public Folder getFolder(String name) {
+        final String path = getPath() + name + File.separator;
+        Optional<CachingFileSystemFolder> folder = state.folders.get(path);
+        if (folder != null) {
+            return folder.orElse(null);
+        }
+        final long version = state.version.get();
+        File file = new File(root, name);
+        if (file.isDirectory()) {
+            folder = Optional.of(new CachingFileSystemFolder(file, this, path, state));
+        } else {
+            folder = Optional.empty();
+        }
+        state.putIfUnchanged(state.folders, path, folder, version);
+        return folder.orElse(null);
+    }
+
+    /**
+     * 缓存的文件数(包括不存在的文件)
+     */
+    public int getCachedFileCount() {
+        return state.contents.size();
+    }
+
+    /**
+     * 停止监听文件变化并清空缓存
+     */
+    public void close() {
+        state.close();
+    }
+
+    /**
+     * 同一个根目录下所有文件夹共享的状态
+     */
+    private static class SharedState {
+        private final Path rootPath;
+        private final Charset charset;
+        private final long mmapThreshold;
+        /**
+         * 文件全路径 --> 文件内容(Optional.empty()表示文件不存在)
+         */
+        private final Map<String, Optional<String>> contents = new ConcurrentHashMap<>();
+        /**
+         * 文件夹路径(以路径分隔符结尾) --> 文件夹(Optional.empty()表示文件夹不存在)
+         */
+        private final Map<String, Optional<CachingFileSystemFolder>> folders = new ConcurrentHashMap<>();
+        /**
+         * 每收到一个文件变化事件加1，用于判断读取文件期间是否发生变化
+         */
+        private final AtomicLong version = new AtomicLong(0);
+        private final List<FolderChangeListener> listeners = new CopyOnWriteArrayList<>();
+        private final WatchService watchService;
+        private final Thread watchThread;
+        private volatile boolean running = true;
+
+        SharedState(Path rootPath, Charset charset, long mmapThreshold) {
+            this.rootPath = rootPath;
+            this.charset = charset;
+            this.mmapThreshold = mmapThreshold;
+            try {
+                watchService = rootPath.getFileSystem().newWatchService();
+                if (Files.isDirectory(rootPath)) {
+                    registerAll(rootPath);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("监听文件夹失败: " + rootPath, e);
+            }
+            watchThread = new Thread(this::run, "folder-watcher-" + rootPath.getFileName());
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+
+        /**
+         * 读取期间没有文件变化事件时才缓存读取结果 <br />
+         * 检查版本和写入缓存不是原子操作，写入之后再检查一次版本，版本变化了就删除刚写入的值(变化事件可能在两次检查之间处理完成)
+         *
+         * @param version 读取之前的版本
+         */
+        private <T> void putIfUnchanged(Map<String, T> cache, String key, T value, long version) {
+            if (version != this.version.get()) {
+                return;
+            }
+            cache.put(key, value);
+            if (version != this.version.get()) {
+                cache.remove(key, value);
+            }
+        }
+
+        private void registerAll(Path start) throws IOException {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        private String readFile(File file) {
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                if (mmapThreshold > 0 && file.length() > mmapThreshold) {
+                    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); FileChannel channel = randomAccessFile.getChannel()) {
+                        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                        return charset.decode(buffer).toString();
+                    }
+                }
+                return FileUtils.readFileToString(file, charset);
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                if (!file.exists()) {
+                    return null;
+                }
+                throw new RuntimeException("open file failed", e);
+            }
+        }
+
+        private void run() {
+            while (running) {
+                WatchKey watchKey;
+                try {
+                    watchKey = watchService.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+                Path dir = (Path) watchKey.watchable();
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    try {
+                        onEvent(dir, event);
+                    } catch (Throwable e) {
+                        log.warn("处理文件变化事件失败 | {} | {}", dir, event.context(), e);
+                    }
+                }
+                watchKey.reset();
+            }
+        }
+
+        private void onEvent(Path dir, WatchEvent<?> event) throws IOException {
+            version.incrementAndGet();
+            final WatchEvent.Kind<?> kind = event.kind();
+            if (StandardWatchEventKinds.OVERFLOW.equals(kind)) {
+                log.info("文件变化事件丢失，清空缓存 | {}", rootPath);
+                contents.clear();
+                folders.clear();
+                notifyListeners(rootPath.toString() + File.separator, kind);
+                return;
+            }
+            final Path path = dir.resolve((Path) event.context());
+            final String fullPath = path.toString();
+            final String folderPath = fullPath + File.separator;
+            contents.remove(fullPath);
+            folders.remove(folderPath);
+            List<String> evicted = new ArrayList<>();
+            if (StandardWatchEventKinds.ENTRY_CREATE.equals(kind) && Files.isDirectory(path)) {
+                // 新建的文件夹需要监听(其中已有的文件也会被读取)
+                registerAll(path);
+            } else if (StandardWatchEventKinds.ENTRY_DELETE.equals(kind)) {
+                // 可能删除的是文件夹，文件夹中已缓存的文件都需要通知(删除对应的模块)
+                for (String key : contents.keySet()) {
+                    if (key.startsWith(folderPath) && contents.remove(key) != null) {
+                        evicted.add(key);
+                    }
+                }
+                folders.keySet().removeIf(key -> key.startsWith(folderPath));
+            }
+            log.debug("# CachingFileSystemFolder 文件变化 -> {} | {}", kind, fullPath);
+            notifyListeners(fullPath, kind);
+            for (String key : evicted) {
+                notifyListeners(key, kind);
+            }
+        }
+
+        private void notifyListeners(String fullPath, WatchEvent.Kind<?> kind) {
+            for (FolderChangeListener listener : listeners) {
+                try {
+                    listener.onChange(fullPath, kind);
+                } catch (Throwable e) {
+                    log.warn("文件变化通知失败 | {}", fullPath, e);
+                }
+            }
+        }
+
+        void close() {
+            running = false;
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("关闭WatchService失败", e);
+            }
+            watchThread.interrupt();
+            contents.clear();
+            folders.clear();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.clever.nashorn.folder;
+
+import java.nio.file.WatchEvent;
+
+/**
+ * 文件夹中的文件变化监听
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 16:10 <br/>
+ */
+@FunctionalInterface
+public interface FolderChangeListener {
+    /**
+     * 文件(或文件夹)发生变化
+     *
+     * @param fullPath 变化的文件全路径(与 {@link Folder#getFilePath(String)} 一致)
+     * @param kind     变化类型(ENTRY_CREATE、ENTRY_MODIFY、ENTRY_DELETE)，OVERFLOW 表示丢失了部分事件，所有缓存都需要失效
+     */
+    void onChange(String fullPath, WatchEvent.Kind<?> kind);
+}
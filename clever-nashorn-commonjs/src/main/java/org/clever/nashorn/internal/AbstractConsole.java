@@ -6,6 +6,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.clever.common.utils.tuples.TupleTow;
 import org.clever.nashorn.module.Module;
 import org.clever.nashorn.utils.StrFormatter;
+import org.slf4j.Logger;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,6 +26,13 @@ public abstract class AbstractConsole implements Console {
      */
     public static final String Overflow_Suffix = "...";
 
+    /**
+     * 日志级别
+     */
+    public enum Level {
+        Log, Trace, Debug, Info, Warn, Error
+    }
+
     @Getter
     private final String bizType;
     @Getter
@@ -104,38 +112,82 @@ public abstract class AbstractConsole implements Console {
         return String.format("%s.%s#%s", bizType, groupName, FilenameUtils.concat(filePath, fileName));
     }
 
+    /**
+     * 是否有输出目标需要这个级别的日志(返回false时不会生成日志字符串) <br />
+     * 子类根据 Logger 级别、是否有监听等判断，默认都输出
+     */
+    protected boolean isEnabled(Level level) {
+        return true;
+    }
+
+    /**
+     * Logger 是否输出这个级别的日志(console.log 对应 info)
+     */
+    protected static boolean isLoggerEnabled(Logger log, Level level) {
+        switch (level) {
+            case Trace:
+                return log.isTraceEnabled();
+            case Debug:
+                return log.isDebugEnabled();
+            case Warn:
+                return log.isWarnEnabled();
+            case Error:
+                return log.isErrorEnabled();
+            default:
+                return log.isInfoEnabled();
+        }
+    }
+
     @Override
     public void log(Object... args) {
+        if (!isEnabled(Level.Log)) {
+            return;
+        }
         String logsText = logString(args);
         doLog(logsText, Arrays.asList(args));
     }
 
     @Override
     public void trace(Object... args) {
+        if (!isEnabled(Level.Trace)) {
+            return;
+        }
         String logsText = logString(args);
         doTrace(logsText, Arrays.asList(args));
     }
 
     @Override
     public void debug(Object... args) {
+        if (!isEnabled(Level.Debug)) {
+            return;
+        }
         String logsText = logString(args);
         doDebug(logsText, Arrays.asList(args));
     }
 
     @Override
     public void info(Object... args) {
+        if (!isEnabled(Level.Info)) {
+            return;
+        }
         String logsText = logString(args);
         doInfo(logsText, Arrays.asList(args));
     }
 
     @Override
     public void warn(Object... args) {
+        if (!isEnabled(Level.Warn)) {
+            return;
+        }
         String logsText = logString(args);
         doWarn(logsText, Arrays.asList(args));
     }
 
     @Override
     public void error(Object... args) {
+        if (!isEnabled(Level.Error)) {
+            return;
+        }
         String logsText = logString(args);
         doError(logsText, Arrays.asList(args));
     }
@@ -104,6 +104,13 @@ public class CommonUtils {
         return ObjectConvertUtils.Instance.javaToJSObject(obj);
     }
 
+    /**
+     * Java对象转换成JS对象视图(延迟转换，适合只读的大集合，如数据库查询结果)
+     */
+    public Object javaToJsView(Object obj) {
+        return ObjectConvertUtils.Instance.javaToJSView(obj);
+    }
+
     /**
      * 获取当前时间搓(毫秒)
      */
@@ -30,6 +30,11 @@ public class LogConsole extends AbstractConsole {
         this.log = LoggerFactory.getLogger(getConsoleName());
     }
 
+    @Override
+    protected boolean isEnabled(Level level) {
+        return isLoggerEnabled(log, level);
+    }
+
     @Override
     protected void doLog(String logsText, List<Object> args) {
         if (log.isInfoEnabled()) {
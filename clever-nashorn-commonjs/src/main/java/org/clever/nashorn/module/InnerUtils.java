@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.clever.nashorn.folder.Folder;
 import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.module.cache.ModuleResolveCache;
 import org.clever.nashorn.tuples.Tuple3;
 import org.clever.nashorn.utils.Paths;
 import org.clever.nashorn.utils.ScriptEngineUtils;
@@ -56,8 +57,9 @@ class InnerUtils {
      * @param folder         当前Module所在文件夹对象
      * @param moduleCache    Module缓存
      * @param compileModule  编译Js对象接口
+     * @return 找不到 Module 返回null(由调用方缓存解析失败的结果并抛出异常)
      */
-    static Module loadModule(String module, String[] folderParts, String filename, Folder resolvedFolder, Folder folder, ModuleCache moduleCache, CompileModule compileModule) throws ScriptException {
+    static Module findModule(String module, String[] folderParts, String filename, Folder resolvedFolder, Folder folder, ModuleCache moduleCache, CompileModule compileModule) throws ScriptException {
         Module found = null;
         if (InnerUtils.isPrefixedModuleName(module)) {
             found = attemptToLoadFromThisFolder(resolvedFolder, filename, moduleCache, compileModule);
@@ -66,13 +68,32 @@ class InnerUtils {
         if (found == null) {
             found = searchForModuleInNodeModules(folder, folderParts, filename, moduleCache, compileModule);
         }
-        // 还未加载成功则抛出异常
-        if (found == null) {
-            InnerUtils.throwModuleNotFoundException(module);
-        }
         return found;
     }
 
+    /**
+     * 根据模块路径解析缓存从 ModuleCache 中获取 Module
+     *
+     * @param module             依赖(require)模块名称
+     * @param folderPath         当前Module所在文件夹路径
+     * @param moduleResolveCache 模块路径解析缓存
+     * @param moduleCache        Module缓存
+     * @return 未命中缓存返回null，缓存的解析结果是“模块不存在”则直接抛出异常
+     */
+    static Module getResolvedModule(String module, String folderPath, ModuleResolveCache moduleResolveCache, ModuleCache moduleCache) {
+        if (module == null) {
+            return null;
+        }
+        String fullPath = moduleResolveCache.get(folderPath, module);
+        if (fullPath == null) {
+            return null;
+        }
+        if (ModuleResolveCache.isNotFound(fullPath)) {
+            throwModuleNotFoundException(module);
+        }
+        return moduleCache.get(fullPath);
+    }
+
     /**
      * 尝试根据filename从文件夹中加载Module
      *
@@ -266,7 +287,7 @@ class InnerUtils {
     /**
      * 抛出Module找不到异常
      */
-    private static void throwModuleNotFoundException(String module) {
+    static void throwModuleNotFoundException(String module) {
         Bindings error = ScriptEngineUtils.newError("Module not found: " + module);
         error.put("code", "MODULE_NOT_FOUND");
         throw new ECMAException(error, null);
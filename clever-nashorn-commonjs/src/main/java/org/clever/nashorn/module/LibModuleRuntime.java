@@ -0,0 +1,133 @@
+package org.clever.nashorn.module;
+
+import jdk.nashorn.api.scripting.NashornScriptEngine;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+
+import javax.script.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 第三方依赖库(如：lodash、Underscore、等等)运行时 <br />
+ * 1. 整个进程只使用一个engine加载第三方依赖库，每个库在这个engine的独立Global中执行 <br />
+ * 2. 导出对象按“文件全路径 + 脚本内容hash”缓存，库文件内容不变就不会重复加载 <br />
+ * 3. 导出对象会被冻结(Object.freeze)，可以安全的在所有Module树(所有engine)之间共享
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/23 10:05 <br/>
+ */
+@Slf4j
+public class LibModuleRuntime {
+    public static final LibModuleRuntime Instance = new LibModuleRuntime();
+
+    /**
+     * 加载第三方依赖库使用的engine(第一次加载时创建)
+     */
+    private volatile NashornScriptEngine engine;
+    /**
+     * 导出对象缓存(fullPath --> exports)
+     */
+    private final Map<String, Entry> exportsCache = new ConcurrentHashMap<>();
+    /**
+     * 命中次数
+     */
+    private final AtomicLong hitCount = new AtomicLong(0);
+    /**
+     * 加载次数
+     */
+    private final AtomicLong loadCount = new AtomicLong(0);
+
+    private LibModuleRuntime() {
+    }
+
+    /**
+     * 获取第三方依赖库的导出对象(已冻结)
+     *
+     * @param fullPath   库文件全路径
+     * @param scriptCode 库文件内容
+     */
+    public ScriptObjectMirror getExports(String fullPath, String scriptCode) throws ScriptException {
+        final String hash = CompiledScriptCache.sha256(scriptCode);
+        Entry entry = exportsCache.get(fullPath);
+        if (entry != null && entry.hash.equals(hash)) {
+            hitCount.incrementAndGet();
+            return entry.exports;
+        }
+        synchronized (this) {
+            entry = exportsCache.get(fullPath);
+            if (entry != null && entry.hash.equals(hash)) {
+                hitCount.incrementAndGet();
+                return entry.exports;
+            }
+            final long startTime = System.currentTimeMillis();
+            ScriptObjectMirror exports = load(fullPath, scriptCode);
+            exports.freeze();
+            exportsCache.put(fullPath, new Entry(hash, exports));
+            loadCount.incrementAndGet();
+            log.debug("# LibModuleRuntime 加载第三方依赖库 -> {} | 耗时 {}ms", fullPath, System.currentTimeMillis() - startTime);
+            return exports;
+        }
+    }
+
+    /**
+     * 在一个新的Global中执行库文件，得到导出对象
+     */
+    private ScriptObjectMirror load(String fullPath, String scriptCode) throws ScriptException {
+        if (engine == null) {
+            engine = ScriptEngineUtils.creatEngine();
+        }
+        // 每个库使用独立的Global(共享engine编译的class)
+        Bindings bindings = engine.createBindings();
+        bindings.put(ScriptEngine.FILENAME, fullPath);
+        ScriptContext context = new SimpleScriptContext();
+        context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+        Object result = engine.eval(scriptCode, context);
+        if (result instanceof ScriptObjectMirror) {
+            return (ScriptObjectMirror) result;
+        }
+        // 库没有返回值，使用库定义的全局变量作为导出对象
+        ScriptObjectMirror exports = ScriptEngineUtils.newObject();
+        if (bindings.size() == 1) {
+            for (Map.Entry<String, Object> item : bindings.entrySet()) {
+                if (item.getValue() instanceof ScriptObjectMirror) {
+                    return (ScriptObjectMirror) item.getValue();
+                }
+            }
+        }
+        exports.putAll(bindings);
+        return exports;
+    }
+
+    /**
+     * 删除缓存(下次加载时重新执行库文件)
+     */
+    public void remove(String fullPath) {
+        exportsCache.remove(fullPath);
+    }
+
+    public int size() {
+        return exportsCache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    private static class Entry {
+        private final String hash;
+        private final ScriptObjectMirror exports;
+
+        private Entry(String hash, ScriptObjectMirror exports) {
+            this.hash = hash;
+            this.exports = exports;
+        }
+    }
+}
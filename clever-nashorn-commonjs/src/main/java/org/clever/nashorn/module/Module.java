@@ -8,7 +8,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.clever.nashorn.folder.Folder;
 import org.clever.nashorn.internal.Console;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
 import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.module.cache.ModuleResolveCache;
 import org.clever.nashorn.tuples.Tuple3;
 import org.clever.nashorn.utils.ScriptEngineUtils;
 
@@ -42,6 +44,8 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
 
     // 当前线程缓存(fileFullPath --> ScriptObjectMirror缓存)
     private final static ThreadLocal<Map<String, ScriptObjectMirror>> refCache = new ThreadLocal<>();
+    // 模块加载监听(全局)
+    private static volatile ModuleLoadListener loadListener;
 
     // 当前Module使用的JS引擎
     @Getter
@@ -51,6 +55,12 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
     // 当前模块使用的Module缓存(fileFullPath ---> Module缓存)
     @Getter
     private final ModuleCache moduleCache;
+    // 模块路径解析缓存(folderPath + module ---> fileFullPath)
+    @Getter
+    private final ModuleResolveCache moduleResolveCache;
+    // 编译后的脚本缓存(root Module创建，同一个engine的所有Module共享)
+    @Getter
+    private final CompiledScriptCache compiledScriptCache;
     // 最顶层的Module对象(root Module)
     @Getter
     private final Module main;
@@ -68,31 +78,55 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
     // JS Module 定义的导出对象
     @Getter
     private ScriptObjectMirror exports;
+    // 当前Module文件全路径(root Module为null)
+    @Getter
+    private final String fullPath;
+    // 当前Module源码长度(作为缓存权重)
+    @Getter
+    private int sourceSize;
 
     /**
      * 新建一个 root Module
      *
-     * @param engine      Script Engine
-     * @param console     Console
-     * @param moduleCache Module Cache
-     * @param rootFolder  Root Folder
-     * @param module      module
-     * @param exports     exports
+     * @param engine             Script Engine
+     * @param console            Console
+     * @param moduleCache        Module Cache
+     * @param moduleResolveCache Module Resolve Cache
+     * @param rootFolder         Root Folder
+     * @param module             module
+     * @param exports            exports
      */
-    public Module(NashornScriptEngine engine, Console console, ModuleCache moduleCache, Folder rootFolder, Bindings module, ScriptObjectMirror exports) {
+    public Module(NashornScriptEngine engine, Console console, ModuleCache moduleCache, ModuleResolveCache moduleResolveCache, Folder rootFolder, Bindings module, ScriptObjectMirror exports) {
         this.engine = engine;
         this.console = console;
         this.moduleCache = moduleCache;
+        this.moduleResolveCache = moduleResolveCache;
+        this.compiledScriptCache = new CompiledScriptCache();
         this.folder = rootFolder;
         this.module = module;
-        this.requireLib = new RequireLib(rootFolder, moduleCache);
+        this.requireLib = new RequireLib(rootFolder, moduleCache, moduleResolveCache);
         this.exports = exports;
+        this.fullPath = null;
         // 设置根Module
         this.main = this;
         inject(Root_Filename, null);
         setLoaded();
     }
 
+    /**
+     * 新建一个 root Module
+     *
+     * @param engine      Script Engine
+     * @param console     Console
+     * @param moduleCache Module Cache
+     * @param rootFolder  Root Folder
+     * @param module      module
+     * @param exports     exports
+     */
+    public Module(NashornScriptEngine engine, Console console, ModuleCache moduleCache, Folder rootFolder, Bindings module, ScriptObjectMirror exports) {
+        this(engine, console, moduleCache, new ModuleResolveCache(), rootFolder, module, exports);
+    }
+
     /**
      * 新建一个 child Module
      *
@@ -104,10 +138,13 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
         this.engine = parent.engine;
         this.console = parent.console.creat(folder.getPath(), filename);
         this.moduleCache = parent.moduleCache;
+        this.moduleResolveCache = parent.moduleResolveCache;
+        this.compiledScriptCache = parent.compiledScriptCache;
         this.folder = folder;
+        this.fullPath = folder.getFilePath(filename);
         // 初始化 module
         this.module = ScriptEngineUtils.newObject();
-        this.requireLib = new RequireLib(folder, moduleCache);
+        this.requireLib = new RequireLib(folder, moduleCache, moduleResolveCache);
         // 初始化 exports
         this.exports = refCache.get() != null ? refCache.get().get(this.folder.getFilePath(filename)) : null;
         if (this.exports == null) {
@@ -121,26 +158,31 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
     /**
      * 创建一个第三方模块的Module
      *
-     * @param exports 导出对象
+     * @param fullPath 模块文件全路径
+     * @param exports  导出对象
      */
-    private Module(ScriptObjectMirror exports) {
+    private Module(String fullPath, ScriptObjectMirror exports) {
         engine = null;
         console = null;
         moduleCache = null;
+        moduleResolveCache = null;
+        compiledScriptCache = null;
         main = null;
         folder = null;
         module = null;
         requireLib = null;
+        this.fullPath = fullPath;
         this.exports = exports;
     }
 
     /**
      * 创建一个第三方模块的Module
      *
-     * @param exports 导出对象
+     * @param fullPath 模块文件全路径
+     * @param exports  导出对象
      */
-    static Module creatLibModule(ScriptObjectMirror exports) {
-        return new Module(exports);
+    static Module creatLibModule(String fullPath, ScriptObjectMirror exports) {
+        return new Module(fullPath, exports);
     }
 
     /**
@@ -194,6 +236,13 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
 
     @Override
     public ScriptObjectMirror require(String module) throws ScriptException, NashornException {
+        // 命中模块路径解析缓存，直接从ModuleCache中获取已加载的Module
+        final String requireModule = module;
+        Module cached = InnerUtils.getResolvedModule(requireModule, folder.getPath(), moduleResolveCache, moduleCache);
+        if (cached != null) {
+            log.debug("# ModuleResolveCache 命中缓存 -> {}", cached.fullPath);
+            return onRequired(cached);
+        }
         boolean useRoot = false;
         if (StringUtils.isNotBlank(module) && module.startsWith("@/")) {
             useRoot = true;
@@ -233,9 +282,15 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
         Module found;
         try {
             // 寻找并加载 Module
-            found = InnerUtils.loadModule(module, folderParts, filename, resolvedFolder, folder, moduleCache, this);
-            children.add(found.module);
-            return found.exports;
+            found = InnerUtils.findModule(module, folderParts, filename, resolvedFolder, folder, moduleCache, this);
+            if (found == null) {
+                moduleResolveCache.putNotFound(folder.getPath(), requireModule);
+                InnerUtils.throwModuleNotFoundException(module);
+            }
+            if (found.fullPath != null) {
+                moduleResolveCache.putResolved(folder.getPath(), requireModule, found.fullPath);
+            }
+            return onRequired(found);
         } finally {
             //  需要删除防止内存泄漏
             if (needRemove && refCache.get() != null) {
@@ -244,19 +299,42 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
         }
     }
 
+    /**
+     * 加载依赖Module成功
+     *
+     * @param found 依赖的Module
+     * @return 依赖Module的导出对象
+     */
+    private ScriptObjectMirror onRequired(Module found) {
+        children.add(found.module);
+        // 记录依赖关系，被依赖的模块变化时当前模块也需要重新加载
+        if (fullPath != null && found.fullPath != null) {
+            moduleCache.addDependency(fullPath, found.fullPath);
+        }
+        return found.exports;
+    }
+
     @Override
     public Module compileJavaScriptModule(Folder path, String filename, String scriptCode) throws ScriptException {
         String fullPath = path.getFilePath(filename);
         // 创建 Module
         Module created = new Module(path, filename, this);
+        created.sourceSize = scriptCode.length();
         // 初始化 Module
         String dirname = path.getPath();
-        String previousFilename = (String) engine.get(ScriptEngine.FILENAME);
-        // 设置文件名
-        engine.put(ScriptEngine.FILENAME, fullPath);
+        String wrapCode = String.format("(function (exports, require, requireLib, module, __filename, __dirname) {\n %s \n})", scriptCode);
+        final ModuleLoadListener listener = loadListener;
+        final long startTime = listener == null ? 0 : System.nanoTime();
+        long compileTime = 0;
+        boolean success = false;
         try {
-            scriptCode = String.format("(function (exports, require, requireLib, module, __filename, __dirname) {\n %s \n})", scriptCode);
-            ScriptObjectMirror function = (ScriptObjectMirror) engine.eval(scriptCode, created.module);
+            // 编译结果缓存在当前engine中，只在编译它的engine上执行
+            CompiledScript compiledScript = compiledScriptCache.getOrCompile(engine, fullPath, scriptCode, wrapCode);
+            if (listener != null) {
+                compileTime = System.nanoTime() - startTime;
+            }
+            // 在模块自己的bindings中执行(console等注入对象只在模块的bindings中，未声明的全局变量不会影响其它模块)
+            ScriptObjectMirror function = (ScriptObjectMirror) compiledScript.eval(created.module);
             // this         --> created
             // exports      --> created.exports
             // require      --> created (Module 对象实现了RequireFunction接口)
@@ -265,8 +343,12 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
             // __filename   --> filename
             // __dirname    --> dirname
             function.call(created, created.exports, created, created.requireLib, created.module, filename, dirname);
+            success = true;
         } finally {
-            engine.put(ScriptEngine.FILENAME, previousFilename);
+            if (listener != null) {
+                // 模块代码中 require 的子模块耗时也计入当前模块的执行耗时
+                listener.onLoaded(fullPath, compileTime, System.nanoTime() - startTime - compileTime, success);
+            }
         }
         // 获得js导出的 exports
         created.exports = (ScriptObjectMirror) created.module.get("exports");
@@ -275,9 +357,17 @@ public class Module extends SimpleBindings implements RequireFunction, CompileMo
         return created;
     }
 
+    /**
+     * 设置全局的模块加载监听(null 表示取消)
+     */
+    public static void setLoadListener(ModuleLoadListener listener) {
+        loadListener = listener;
+    }
+
     @Override
     public Module compileJsonModule(Folder path, String filename, String scriptCode) {
         Module created = new Module(path, filename, this);
+        created.sourceSize = scriptCode.length();
         created.exports = ScriptEngineUtils.parseJson(scriptCode);
         created.setLoaded();
         return created;
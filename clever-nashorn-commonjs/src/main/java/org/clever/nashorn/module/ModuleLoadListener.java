@@ -0,0 +1,21 @@
+package org.clever.nashorn.module;
+
+/**
+ * JavaScript Module 加载监听(用于统计 require 的编译耗时和执行耗时) <br />
+ * 通过 {@link Module#setLoadListener(ModuleLoadListener)} 全局设置，回调在加载模块的线程中同步执行，实现不能阻塞
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/31 09:20 <br/>
+ */
+public interface ModuleLoadListener {
+
+    /**
+     * 模块加载完成(包括加载失败)
+     *
+     * @param fullPath    模块文件全路径
+     * @param compileTime 获取编译结果的耗时(纳秒，命中 CompiledScriptCache 时很小)
+     * @param evalTime    执行模块代码的耗时(纳秒)
+     * @param success     是否加载成功
+     */
+    void onLoaded(String fullPath, long compileTime, long evalTime, boolean success);
+}
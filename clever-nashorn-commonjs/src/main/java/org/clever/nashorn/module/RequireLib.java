@@ -1,19 +1,15 @@
 package org.clever.nashorn.module;
 
 import jdk.nashorn.api.scripting.NashornException;
-import jdk.nashorn.api.scripting.NashornScriptEngine;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import org.apache.commons.lang3.StringUtils;
 import org.clever.nashorn.folder.Folder;
 import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.module.cache.ModuleResolveCache;
 import org.clever.nashorn.tuples.Tuple3;
 import org.clever.nashorn.utils.ScriptEngineUtils;
 
-import javax.script.Bindings;
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
 import javax.script.ScriptException;
-import java.util.Map;
 
 /**
  * 用于加载第三方依赖库(如：lodash、Underscore、等等)
@@ -22,17 +18,29 @@ import java.util.Map;
  * 创建时间：2019-09-04 21:22 <br/>
  */
 public class RequireLib implements RequireLibFunction, CompileModule {
+    /**
+     * 第三方依赖库的路径解析缓存Key前缀(与require的解析结果区分开)
+     */
+    private static final String Lib_Folder_Prefix = "lib:";
 
     private final Folder folder;
     private final ModuleCache moduleCache;
+    private final ModuleResolveCache moduleResolveCache;
 
-    RequireLib(Folder folder, ModuleCache moduleCache) {
+    RequireLib(Folder folder, ModuleCache moduleCache, ModuleResolveCache moduleResolveCache) {
         this.folder = folder;
         this.moduleCache = moduleCache;
+        this.moduleResolveCache = moduleResolveCache;
     }
 
     @Override
     public ScriptObjectMirror requireLib(String module) throws ScriptException, NashornException {
+        final String requireModule = module;
+        final String folderPath = Lib_Folder_Prefix + folder.getPath();
+        Module cached = InnerUtils.getResolvedModule(requireModule, folderPath, moduleResolveCache, moduleCache);
+        if (cached != null) {
+            return cached.getExports();
+        }
         if (StringUtils.isNotBlank(module) && module.startsWith("@/")) {
             module = module.substring(1);
         }
@@ -41,14 +49,21 @@ public class RequireLib implements RequireLibFunction, CompileModule {
         String filename = tuple3.getValue2();
         Folder resolvedFolder = tuple3.getValue3();
         // 寻找并加载 Module
-        Module found = InnerUtils.loadModule(module, folderParts, filename, resolvedFolder, folder, moduleCache, this);
+        Module found = InnerUtils.findModule(module, folderParts, filename, resolvedFolder, folder, moduleCache, this);
+        if (found == null) {
+            moduleResolveCache.putNotFound(folderPath, requireModule);
+            InnerUtils.throwModuleNotFoundException(module);
+        }
+        if (found.getFullPath() != null) {
+            moduleResolveCache.putResolved(folderPath, requireModule, found.getFullPath());
+        }
         return found.getExports();
     }
 
     @Override
     public Module compileJsonModule(Folder path, String filename, String scriptCode) {
         ScriptObjectMirror exports = ScriptEngineUtils.parseJson(scriptCode);
-        return Module.creatLibModule(exports);
+        return Module.creatLibModule(path.getFilePath(filename), exports);
     }
 
     @Override
@@ -56,37 +71,9 @@ public class RequireLib implements RequireLibFunction, CompileModule {
         if (StringUtils.isBlank(scriptCode)) {
             return null;
         }
-        final NashornScriptEngine engine = ScriptEngineUtils.creatEngine();
+        // 第三方依赖库由 LibModuleRuntime 统一加载，导出对象在整个进程内共享
         String fullPath = path.getFilePath(filename);
-        String previousFilename = (String) engine.get(ScriptEngine.FILENAME);
-        // 设置文件名
-        engine.put(ScriptEngine.FILENAME, fullPath);
-        try {
-            ScriptObjectMirror exports = (ScriptObjectMirror) engine.eval(scriptCode);
-            if (exports == null) {
-                exports = ScriptEngineUtils.newObject();
-                Bindings bindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
-                if (bindings.size() <= 0) {
-                    bindings = engine.getBindings(ScriptContext.GLOBAL_SCOPE);
-                }
-                if (bindings.size() > 0) {
-                    boolean flag = true;
-                    if (bindings.size() == 1) {
-                        for (Map.Entry<String, Object> entry : bindings.entrySet()) {
-                            if (entry.getValue() instanceof ScriptObjectMirror) {
-                                exports = (ScriptObjectMirror) entry.getValue();
-                                flag = false;
-                            }
-                        }
-                    }
-                    if (flag) {
-                        exports.putAll(bindings);
-                    }
-                }
-            }
-            return Module.creatLibModule(exports);
-        } finally {
-            engine.put(ScriptEngine.FILENAME, previousFilename);
-        }
+        ScriptObjectMirror exports = LibModuleRuntime.Instance.getExports(fullPath, scriptCode);
+        return Module.creatLibModule(fullPath, exports);
     }
 }
@@ -0,0 +1,143 @@
+package org.clever.nashorn.module.cache;
+
+import jdk.nashorn.api.scripting.NashornScriptEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.common.utils.exception.ExceptionUtils;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 编译后的脚本(CompiledScript)缓存，每个 ScriptModuleInstance(engine)一个，随实例一起回收 <br />
+ * 缓存Key: 文件全路径 + 脚本内容的SHA-256，脚本内容变化后自动重新编译 <br />
+ * CompiledScript 只在编译它的engine上执行(每次执行都在模块自己的bindings中)，
+ * 多个engine之间共享编译结果需要使用持久化代码缓存(ScriptEngineUtils.enablePersistentCodeCache) <br />
+ * 命中、未命中次数和编译耗时是所有实例的合计
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/22 09:40 <br/>
+ */
+@Slf4j
+public class CompiledScriptCache {
+    private static final char[] Hex_Digits = "0123456789abcdef".toCharArray();
+
+    /**
+     * 命中次数(所有实例)
+     */
+    private static final AtomicLong Hit_Count = new AtomicLong(0);
+    /**
+     * 未命中次数(所有实例)
+     */
+    private static final AtomicLong Miss_Count = new AtomicLong(0);
+    /**
+     * 累计编译耗时(纳秒，所有实例)
+     */
+    private static final AtomicLong Compile_Time = new AtomicLong(0);
+
+    /**
+     * 缓存map(fullPath --> CompiledScript)
+     */
+    private final Map<String, Entry> compiledScripts = new ConcurrentHashMap<>();
+
+    /**
+     * 获取编译后的脚本，缓存未命中时使用传入的engine编译
+     *
+     * @param engine     编译、执行使用的engine(当前实例的engine)
+     * @param fullPath   文件全路径
+     * @param scriptCode 原始脚本内容(用于计算hash)
+     * @param wrapCode   实际需要编译的脚本内容
+     */
+    public CompiledScript getOrCompile(NashornScriptEngine engine, String fullPath, String scriptCode, String wrapCode) throws ScriptException {
+        final String hash = sha256(scriptCode);
+        Entry entry = compiledScripts.get(fullPath);
+        if (entry != null && entry.hash.equals(hash)) {
+            Hit_Count.incrementAndGet();
+            return entry.compiledScript;
+        }
+        Miss_Count.incrementAndGet();
+        final long startTime = System.nanoTime();
+        final Object previousFilename = engine.get(ScriptEngine.FILENAME);
+        // 设置文件名(异常堆栈中显示的文件名)
+        engine.put(ScriptEngine.FILENAME, fullPath);
+        CompiledScript compiledScript;
+        try {
+            compiledScript = engine.compile(wrapCode);
+        } finally {
+            engine.put(ScriptEngine.FILENAME, previousFilename);
+        }
+        final long useTime = System.nanoTime() - startTime;
+        Compile_Time.addAndGet(useTime);
+        compiledScripts.put(fullPath, new Entry(hash, compiledScript));
+        log.debug("# CompiledScriptCache 编译脚本 -> {} | 耗时 {}ms", fullPath, useTime / 1000_000);
+        return compiledScript;
+    }
+
+    /**
+     * 删除缓存
+     */
+    public void remove(String fullPath) {
+        compiledScripts.remove(fullPath);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        compiledScripts.clear();
+    }
+
+    public int size() {
+        return compiledScripts.size();
+    }
+
+    public static long getHitCount() {
+        return Hit_Count.get();
+    }
+
+    public static long getMissCount() {
+        return Miss_Count.get();
+    }
+
+    /**
+     * 累计编译耗时(毫秒)
+     */
+    public static long getCompileTimeMillis() {
+        return Compile_Time.get() / 1000_000;
+    }
+
+    /**
+     * 计算字符串的SHA-256(十六进制)
+     */
+    public static String sha256(String str) {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+        byte[] digest = messageDigest.digest(str.getBytes(StandardCharsets.UTF_8));
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[i * 2] = Hex_Digits[(digest[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = Hex_Digits[digest[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static class Entry {
+        private final String hash;
+        private final CompiledScript compiledScript;
+
+        private Entry(String hash, CompiledScript compiledScript) {
+            this.hash = hash;
+            this.compiledScript = compiledScript;
+        }
+    }
+}
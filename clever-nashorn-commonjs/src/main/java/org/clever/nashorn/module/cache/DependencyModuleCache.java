@@ -0,0 +1,209 @@
+package org.clever.nashorn.module.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.module.Module;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 记录模块依赖关系的 Module 内存缓存 <br />
+ * 1. 删除(remove)一个模块时，同时删除所有直接或间接依赖(require)它的模块，避免依赖方持有旧的exports <br />
+ * 2. 使用LRU策略限制缓存大小，模块权重为模块源码长度(淘汰模块时同样删除依赖它的模块)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/23 15:20 <br/>
+ */
+@Slf4j
+public class DependencyModuleCache implements ModuleCache {
+    /**
+     * 所有实例的命中次数(池中每个 ScriptModuleInstance 都有一个 DependencyModuleCache，只统计总数)
+     */
+    private static final LongAdder Hit_Count = new LongAdder();
+    /**
+     * 所有实例的未命中次数
+     */
+    private static final LongAdder Miss_Count = new LongAdder();
+    /**
+     * 缓存map(访问顺序，最久未访问的在最前面)
+     */
+    private final LinkedHashMap<String, Module> modules = new LinkedHashMap<>(64, 0.75F, true);
+    /**
+     * 依赖关系(fullPath --> 依赖它的模块)
+     */
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+    /**
+     * 依赖关系(fullPath --> 它依赖的模块)
+     */
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    /**
+     * 缓存的最大权重(所有模块源码长度之和)，小于等于0表示不限制
+     */
+    private final long maxWeight;
+    /**
+     * 当前缓存的权重
+     */
+    private long weight = 0;
+
+    /**
+     * @param maxWeight 缓存的最大权重(所有模块源码长度之和)，小于等于0表示不限制
+     */
+    public DependencyModuleCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public DependencyModuleCache() {
+        this(-1);
+    }
+
+    @Override
+    public synchronized Module get(String fullPath) {
+        Module module = modules.get(fullPath);
+        if (module != null) {
+            Hit_Count.increment();
+        } else {
+            Miss_Count.increment();
+        }
+        return module;
+    }
+
+    @Override
+    public synchronized void put(String fullPath, Module module) {
+        Module old = modules.put(fullPath, module);
+        if (old != null) {
+            weight = weight - old.getSourceSize();
+        }
+        weight = weight + module.getSourceSize();
+        if (maxWeight <= 0) {
+            return;
+        }
+        // 淘汰最久未访问的模块以及依赖它的模块(保留刚加入的模块以及它直接或间接依赖的模块)
+        // 受保护的模块只计算一次，每轮淘汰只遍历被淘汰模块的依赖方，整体开销与淘汰的模块数成正比
+        Set<String> retained = null;
+        while (weight > maxWeight && modules.size() > 1) {
+            if (retained == null) {
+                retained = getWithDependencies(fullPath);
+            }
+            String eldest = null;
+            for (String path : modules.keySet()) {
+                if (!retained.contains(path)) {
+                    eldest = path;
+                    break;
+                }
+            }
+            if (eldest == null) {
+                break;
+            }
+            Set<String> invalid = getWithDependents(eldest);
+            removeAll(invalid);
+            log.debug("# DependencyModuleCache 淘汰缓存 -> {}", invalid);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        modules.clear();
+        dependents.clear();
+        dependencies.clear();
+        weight = 0;
+    }
+
+    /**
+     * 删除模块以及所有直接或间接依赖它的模块
+     */
+    @Override
+    public synchronized void remove(String fullPath) {
+        Set<String> invalid = getWithDependents(fullPath);
+        removeAll(invalid);
+        if (invalid.size() > 1) {
+            log.debug("# DependencyModuleCache 删除缓存 -> {} | 连带删除 {}", fullPath, invalid);
+        }
+    }
+
+    /**
+     * 模块以及所有直接或间接依赖它的模块
+     */
+    private Set<String> getWithDependents(String fullPath) {
+        Set<String> invalid = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(fullPath);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (!invalid.add(current)) {
+                continue;
+            }
+            Set<String> currentDependents = dependents.get(current);
+            if (currentDependents != null) {
+                queue.addAll(currentDependents);
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * 模块以及它直接或间接依赖的模块(这些模块的依赖方包含该模块，淘汰它们会连带淘汰该模块)
+     */
+    private Set<String> getWithDependencies(String fullPath) {
+        Set<String> result = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(fullPath);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (!result.add(current)) {
+                continue;
+            }
+            Set<String> currentDependencies = dependencies.get(current);
+            if (currentDependencies != null) {
+                queue.addAll(currentDependencies);
+            }
+        }
+        return result;
+    }
+
+    private void removeAll(Set<String> invalid) {
+        for (String path : invalid) {
+            Module module = modules.remove(path);
+            if (module != null) {
+                weight = weight - module.getSourceSize();
+            }
+            // 模块重新加载时会重新记录它的依赖
+            Set<String> pathDependencies = dependencies.remove(path);
+            if (pathDependencies != null) {
+                for (String dependency : pathDependencies) {
+                    Set<String> tmp = dependents.get(dependency);
+                    if (tmp != null) {
+                        tmp.remove(path);
+                        if (tmp.isEmpty()) {
+                            dependents.remove(dependency);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void addDependency(String fullPath, String dependencyFullPath) {
+        dependencies.computeIfAbsent(fullPath, key -> new HashSet<>()).add(dependencyFullPath);
+        dependents.computeIfAbsent(dependencyFullPath, key -> new HashSet<>()).add(fullPath);
+    }
+
+    public synchronized int size() {
+        return modules.size();
+    }
+
+    /**
+     * 当前缓存的权重(所有模块源码长度之和)
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public static long getHitCount() {
+        return Hit_Count.sum();
+    }
+
+    public static long getMissCount() {
+        return Miss_Count.sum();
+    }
+}
@@ -4,11 +4,20 @@ import org.clever.nashorn.module.Module;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Module 内存缓存
  */
 public class MemoryModuleCache implements ModuleCache {
+    /**
+     * 所有实例的命中次数(每个引擎实例都有一个 MemoryModuleCache，只统计总数)
+     */
+    private static final LongAdder Hit_Count = new LongAdder();
+    /**
+     * 所有实例的未命中次数
+     */
+    private static final LongAdder Miss_Count = new LongAdder();
     /**
      * 缓存map
      */
@@ -36,7 +45,13 @@ public class MemoryModuleCache implements ModuleCache {
     @Override
     public Module get(String fullPath) {
         intervalClear();
-        return modules.get(fullPath);
+        Module module = modules.get(fullPath);
+        if (module != null) {
+            Hit_Count.increment();
+        } else {
+            Miss_Count.increment();
+        }
+        return module;
     }
 
     @Override
@@ -57,6 +72,14 @@ public class MemoryModuleCache implements ModuleCache {
         modules.remove(fullPath);
     }
 
+    public static long getHitCount() {
+        return Hit_Count.sum();
+    }
+
+    public static long getMissCount() {
+        return Miss_Count.sum();
+    }
+
     private void intervalClear() {
         if (clearTimeInterval <= 0) {
             return;
@@ -14,4 +14,13 @@ public interface ModuleCache {
     void clear();
 
     void remove(String fullPath);
+
+    /**
+     * 记录模块之间的依赖关系(require)，默认不记录
+     *
+     * @param fullPath           模块全路径
+     * @param dependencyFullPath 被依赖(require)的模块全路径
+     */
+    default void addDependency(String fullPath, String dependencyFullPath) {
+    }
 }
@@ -0,0 +1,136 @@
+package org.clever.nashorn.module.cache;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模块路径解析缓存 <br />
+ * 缓存 require 时“当前模块所在文件夹 + 模块名称”解析得到的模块文件全路径，包括解析失败(模块不存在)的结果 <br />
+ * 命中缓存后只需要从 ModuleCache 中取出 Module，不再逐个尝试文件后缀、package.json、index.js 和 node_modules <br />
+ * 文件新增、删除、重命名后需要清除对应的缓存
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/24 15:20 <br/>
+ */
+public class ModuleResolveCache {
+    /**
+     * 解析失败(模块不存在)的标记
+     */
+    private static final String Not_Found = "";
+
+    /**
+     * 缓存map(folderPath + module --> fullPath)
+     */
+    private final Map<String, String> resolved = new ConcurrentHashMap<>();
+    /**
+     * 缓存的最大数量(小于等于0表示不限制)，超过后清空缓存
+     */
+    private final int maxSize;
+    /**
+     * 命中次数
+     */
+    private final AtomicLong hitCount = new AtomicLong(0);
+    /**
+     * 未命中次数
+     */
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * @param maxSize 缓存的最大数量(小于等于0表示不限制)
+     */
+    public ModuleResolveCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public ModuleResolveCache() {
+        this(100_000);
+    }
+
+    private static String getCacheKey(String folderPath, String module) {
+        return folderPath + '\n' + module;
+    }
+
+    /**
+     * 获取解析结果
+     *
+     * @param folderPath 当前模块所在文件夹路径
+     * @param module     依赖(require)模块名称
+     * @return 未缓存返回null，模块不存在返回空字符串(使用isNotFound判断)，否则返回模块文件全路径
+     */
+    public String get(String folderPath, String module) {
+        String fullPath = resolved.get(getCacheKey(folderPath, module));
+        if (fullPath == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return fullPath;
+    }
+
+    /**
+     * 判断解析结果是否是“模块不存在”
+     */
+    public static boolean isNotFound(String fullPath) {
+        return Not_Found.equals(fullPath);
+    }
+
+    /**
+     * 缓存解析成功的结果
+     *
+     * @param folderPath 当前模块所在文件夹路径
+     * @param module     依赖(require)模块名称
+     * @param fullPath   模块文件全路径
+     */
+    public void putResolved(String folderPath, String module, String fullPath) {
+        put(getCacheKey(folderPath, module), fullPath);
+    }
+
+    /**
+     * 缓存解析失败(模块不存在)的结果
+     *
+     * @param folderPath 当前模块所在文件夹路径
+     * @param module     依赖(require)模块名称
+     */
+    public void putNotFound(String folderPath, String module) {
+        put(getCacheKey(folderPath, module), Not_Found);
+    }
+
+    private void put(String key, String fullPath) {
+        if (maxSize > 0 && resolved.size() >= maxSize) {
+            resolved.clear();
+        }
+        resolved.put(key, fullPath);
+    }
+
+    /**
+     * 文件(文件夹)被删除，清除解析到该文件(该文件夹下文件)的缓存 <br />
+     * 删除文件不会让解析失败的模块变得存在，所以保留“模块不存在”的缓存
+     *
+     * @param fullPath 文件(文件夹)全路径
+     */
+    public void removeResolvedTo(String fullPath) {
+        final String folderPrefix = fullPath.endsWith("/") ? fullPath : fullPath + "/";
+        resolved.values().removeIf(value -> Objects.equals(value, fullPath) || value.startsWith(folderPrefix));
+    }
+
+    /**
+     * 清空缓存(新增或者重命名文件后，任意模块的解析结果都可能变化)
+     */
+    public void clear() {
+        resolved.clear();
+    }
+
+    public int size() {
+        return resolved.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
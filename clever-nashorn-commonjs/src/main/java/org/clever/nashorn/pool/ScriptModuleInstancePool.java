@@ -0,0 +1,184 @@
+package org.clever.nashorn.pool;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.clever.common.utils.exception.ExceptionUtils;
+import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.folder.Folder;
+import org.clever.nashorn.internal.Console;
+import org.clever.nashorn.module.cache.DependencyModuleCache;
+import org.clever.nashorn.module.cache.ModuleResolveCache;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * ScriptModuleInstance 池 <br />
+ * NashornScriptEngine 与 Module 对象都不是线程安全的，池中每个 ScriptModuleInstance 都有自己的 engine、Module树和ModuleCache，
+ * 同一时刻只会被一个线程使用(线程封闭)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/21 10:30 <br/>
+ */
+@Slf4j
+public class ScriptModuleInstancePool {
+    /**
+     * 池配置
+     */
+    @Getter
+    private final ScriptModuleInstancePoolConfig config;
+    /**
+     * 对象池
+     */
+    private final GenericObjectPool<ScriptModuleInstance> pool;
+    /**
+     * 池中所有存活的实例(包含借出的实例)
+     */
+    private final Set<ScriptModuleInstance> allInstance = ConcurrentHashMap.newKeySet();
+    /**
+     * 获取实例超时的次数
+     */
+    private final AtomicLong borrowTimeoutCount = new AtomicLong(0);
+
+    /**
+     * @param config  池配置
+     * @param factory 创建 ScriptModuleInstance 的工厂(每次调用必须返回新的实例)
+     */
+    public ScriptModuleInstancePool(ScriptModuleInstancePoolConfig config, Supplier<ScriptModuleInstance> factory) {
+        this.config = config;
+        GenericObjectPoolConfig<ScriptModuleInstance> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMinIdle(config.getMinIdle());
+        poolConfig.setMaxIdle(config.getMaxIdle());
+        poolConfig.setMaxTotal(config.getMaxTotal());
+        poolConfig.setBlockWhenExhausted(true);
+        poolConfig.setMaxWaitMillis(config.getMaxWait() == null ? -1 : config.getMaxWait().toMillis());
+        poolConfig.setJmxEnabled(false);
+        pool = new GenericObjectPool<>(new BasePooledObjectFactory<ScriptModuleInstance>() {
+            @Override
+            public ScriptModuleInstance create() {
+                final long startTime = System.currentTimeMillis();
+                ScriptModuleInstance scriptModuleInstance = factory.get();
+                allInstance.add(scriptModuleInstance);
+                log.info("创建ScriptModuleInstance | 耗时 {}ms | 实例数 {}", System.currentTimeMillis() - startTime, allInstance.size());
+                return scriptModuleInstance;
+            }
+
+            @Override
+            public PooledObject<ScriptModuleInstance> wrap(ScriptModuleInstance scriptModuleInstance) {
+                return new DefaultPooledObject<>(scriptModuleInstance);
+            }
+
+            @Override
+            public void destroyObject(PooledObject<ScriptModuleInstance> p) {
+                allInstance.remove(p.getObject());
+            }
+        }, poolConfig);
+        // 预先创建 minIdle 个实例
+        preparePool();
+    }
+
+    /**
+     * 创建 ScriptModuleInstance 池，池中每个实例使用独立的 DependencyModuleCache，共享同一个 ModuleResolveCache
+     *
+     * @param config  池配置
+     * @param folder  脚本资源获取实现(所有实例共享)
+     * @param console Console(所有实例共享)
+     * @param context 全局的对象
+     */
+    public static ScriptModuleInstancePool creat(ScriptModuleInstancePoolConfig config, Folder folder, Console console, Map<String, Object> context) {
+        final ModuleResolveCache moduleResolveCache = new ModuleResolveCache();
+        return new ScriptModuleInstancePool(config, () -> new ScriptModuleInstance(folder, new DependencyModuleCache(config.getModuleCacheMaxWeight()), moduleResolveCache, console, context));
+    }
+
+    /**
+     * 创建实例直到空闲实例数达到 minIdle
+     */
+    public void preparePool() {
+        try {
+            pool.preparePool();
+        } catch (Exception e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * 借出一个 ScriptModuleInstance，使用完成后必须调用 {@link #giveBack(ScriptModuleInstance)} 归还
+     */
+    public ScriptModuleInstance borrow() {
+        try {
+            return pool.borrowObject();
+        } catch (NoSuchElementException e) {
+            borrowTimeoutCount.incrementAndGet();
+            throw new RuntimeException(String.format("获取ScriptModuleInstance超时(maxWait=%s, maxTotal=%s)", config.getMaxWait(), config.getMaxTotal()), e);
+        } catch (Exception e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * 归还 ScriptModuleInstance
+     */
+    public void giveBack(ScriptModuleInstance scriptModuleInstance) {
+        if (scriptModuleInstance == null) {
+            return;
+        }
+        pool.returnObject(scriptModuleInstance);
+    }
+
+    /**
+     * 销毁 ScriptModuleInstance (实例状态不可信时使用，如脚本执行被强制终止)
+     */
+    public void invalidate(ScriptModuleInstance scriptModuleInstance) {
+        if (scriptModuleInstance == null) {
+            return;
+        }
+        try {
+            pool.invalidateObject(scriptModuleInstance);
+        } catch (Exception e) {
+            log.warn("销毁ScriptModuleInstance失败", e);
+        }
+    }
+
+    /**
+     * 遍历池中所有存活的实例(包含借出的实例)，用于清除各实例的ModuleCache等操作
+     */
+    public void forEach(Consumer<ScriptModuleInstance> action) {
+        allInstance.forEach(action);
+    }
+
+    /**
+     * 获取池状态
+     */
+    public ScriptModuleInstancePoolStatus getStatus() {
+        ScriptModuleInstancePoolStatus status = new ScriptModuleInstancePoolStatus();
+        status.setMaxTotal(pool.getMaxTotal());
+        status.setNumActive(pool.getNumActive());
+        status.setNumIdle(pool.getNumIdle());
+        status.setNumWaiters(pool.getNumWaiters());
+        status.setCreatedCount(pool.getCreatedCount());
+        status.setDestroyedCount(pool.getDestroyedCount());
+        status.setBorrowedCount(pool.getBorrowedCount());
+        status.setBorrowTimeoutCount(borrowTimeoutCount.get());
+        status.setMeanBorrowWaitTimeMillis(pool.getMeanBorrowWaitTimeMillis());
+        status.setMaxBorrowWaitTimeMillis(pool.getMaxBorrowWaitTimeMillis());
+        return status;
+    }
+
+    /**
+     * 关闭池
+     */
+    public void close() {
+        pool.close();
+        allInstance.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package org.clever.nashorn.pool;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * ScriptModuleInstance 池配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/21 10:12 <br/>
+ */
+@Data
+public class ScriptModuleInstancePoolConfig {
+    /**
+     * 池中最少的空闲实例数(启动时预先创建)
+     */
+    private int minIdle = 2;
+    /**
+     * 池中最多的空闲实例数(默认与 maxTotal 相同)<br />
+     * 归还实例时空闲实例超过 maxIdle 会销毁实例，实例中已经加载的模块和编译的脚本都要重新创建，
+     * 小于 maxTotal 时请求量波动会反复创建、销毁实例
+     */
+    private int maxIdle = 16;
+    /**
+     * 池中最多的实例数(同时执行脚本的最大线程数)
+     */
+    private int maxTotal = 16;
+    /**
+     * 获取实例的最大等待时间，超时抛出异常(小于等于0表示一直等待)
+     */
+    private Duration maxWait = Duration.ofSeconds(3);
+    /**
+     * 每个实例ModuleCache的最大权重(缓存模块源码长度之和，小于等于0表示不限制)
+     */
+    private long moduleCacheMaxWeight = 32 * 1024 * 1024;
+}
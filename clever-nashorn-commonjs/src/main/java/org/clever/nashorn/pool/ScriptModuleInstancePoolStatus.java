@@ -0,0 +1,55 @@
+package org.clever.nashorn.pool;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * ScriptModuleInstance 池状态
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/21 10:20 <br/>
+ */
+@Data
+public class ScriptModuleInstancePoolStatus implements Serializable {
+    /**
+     * 池中最多的实例数
+     */
+    private int maxTotal;
+    /**
+     * 正在使用的实例数
+     */
+    private int numActive;
+    /**
+     * 空闲的实例数
+     */
+    private int numIdle;
+    /**
+     * 等待获取实例的线程数
+     */
+    private int numWaiters;
+    /**
+     * 累计创建的实例数
+     */
+    private long createdCount;
+    /**
+     * 累计销毁的实例数
+     */
+    private long destroyedCount;
+    /**
+     * 累计借出次数
+     */
+    private long borrowedCount;
+    /**
+     * 累计获取超时次数
+     */
+    private long borrowTimeoutCount;
+    /**
+     * 最近获取实例的平均等待时间(毫秒)
+     */
+    private long meanBorrowWaitTimeMillis;
+    /**
+     * 获取实例的最大等待时间(毫秒)
+     */
+    private long maxBorrowWaitTimeMillis;
+}
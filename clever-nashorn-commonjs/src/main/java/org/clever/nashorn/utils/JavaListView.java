@@ -0,0 +1,245 @@
+package org.clever.nashorn.utils;
+
+import jdk.nashorn.api.scripting.AbstractJSObject;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import jdk.nashorn.internal.runtime.Undefined;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * Java List、数组的JS数组视图(延迟转换) <br />
+ * 1. 创建视图时不遍历集合，脚本访问元素时才转换元素(嵌套的集合也是视图)并缓存转换结果 <br />
+ * 2. 支持 length、下标访问、for in、for each in、Array.isArray、JSON.stringify <br />
+ * 3. 调用数组方法(map、join、push等)或者修改数组时才生成真正的JS数组，之后的读写都使用这个JS数组
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 10:15 <br/>
+ */
+public class JavaListView extends AbstractJSObject {
+    /**
+     * Array.prototype 中的方法(ES5)
+     */
+    private static final Set<String> Array_Methods = new HashSet<>(Arrays.asList(
+            "concat", "join", "pop", "push", "reverse", "shift", "slice", "sort", "splice", "unshift",
+            "indexOf", "lastIndexOf", "every", "some", "forEach", "map", "filter", "reduce", "reduceRight",
+            "toString", "toLocaleString"
+    ));
+
+    private final ObjectConvertUtils convertUtils;
+    private final List<?> list;
+    private final Object array;
+    private final int length;
+    /**
+     * 已转换的元素(null表示还未转换)
+     */
+    private Object[] converted;
+    /**
+     * 调用数组方法后生成的JS数组
+     */
+    private ScriptObjectMirror materialized;
+
+    JavaListView(ObjectConvertUtils convertUtils, List<?> list) {
+        this.convertUtils = convertUtils;
+        this.list = list;
+        this.array = null;
+        this.length = list.size();
+    }
+
+    JavaListView(ObjectConvertUtils convertUtils, Object array) {
+        this.convertUtils = convertUtils;
+        this.list = null;
+        this.array = array;
+        this.length = Array.getLength(array);
+    }
+
+    /**
+     * 原始的 List 或者数组(调用过数组方法或者修改过则返回生成的JS数组)
+     */
+    Object unwrap() {
+        if (materialized != null) {
+            return materialized;
+        }
+        return list != null ? list : array;
+    }
+
+    private Object getRaw(int index) {
+        return list != null ? list.get(index) : Array.get(array, index);
+    }
+
+    /**
+     * 生成真正的JS数组
+     */
+    private ScriptObjectMirror materialize() {
+        if (materialized == null) {
+            Object[] items = new Object[length];
+            for (int i = 0; i < length; i++) {
+                items[i] = getSlot(i);
+            }
+            ScriptObjectMirror nativeArray = ScriptEngineUtils.newArray();
+            nativeArray.callMember("push", items);
+            materialized = nativeArray;
+            converted = null;
+        }
+        return materialized;
+    }
+
+    private static int toIndex(String name) {
+        if (name == null || name.isEmpty() || name.length() > 10) {
+            return -1;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return -1;
+            }
+        }
+        long index = Long.parseLong(name);
+        return index > Integer.MAX_VALUE ? -1 : (int) index;
+    }
+
+    @Override
+    public Object getSlot(int index) {
+        if (materialized != null) {
+            return materialized.getSlot(index);
+        }
+        if (index < 0 || index >= length) {
+            return Undefined.getUndefined();
+        }
+        if (converted == null) {
+            converted = new Object[length];
+        }
+        Object value = converted[index];
+        if (value == null) {
+            value = convertUtils.javaToJSView(getRaw(index));
+            converted[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean hasSlot(int slot) {
+        if (materialized != null) {
+            return materialized.hasSlot(slot);
+        }
+        return slot >= 0 && slot < length;
+    }
+
+    @Override
+    public void setSlot(int index, Object value) {
+        materialize().setSlot(index, value);
+    }
+
+    @Override
+    public Object getMember(String name) {
+        if (Array_Methods.contains(name)) {
+            return new ArrayMethod(name);
+        }
+        if (materialized != null) {
+            return materialized.getMember(name);
+        }
+        if ("length".equals(name)) {
+            return length;
+        }
+        int index = toIndex(name);
+        if (index >= 0) {
+            return getSlot(index);
+        }
+        return Undefined.getUndefined();
+    }
+
+    @Override
+    public boolean hasMember(String name) {
+        if (materialized != null) {
+            return materialized.hasMember(name);
+        }
+        if ("length".equals(name)) {
+            return true;
+        }
+        return hasSlot(toIndex(name));
+    }
+
+    @Override
+    public void setMember(String name, Object value) {
+        materialize().setMember(name, value);
+    }
+
+    @Override
+    public void removeMember(String name) {
+        materialize().removeMember(name);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        if (materialized != null) {
+            return materialized.keySet();
+        }
+        Set<String> keys = new LinkedHashSet<>(length * 4 / 3 + 1);
+        for (int i = 0; i < length; i++) {
+            keys.add(String.valueOf(i));
+        }
+        return keys;
+    }
+
+    @Override
+    public Collection<Object> values() {
+        if (materialized != null) {
+            return materialized.values();
+        }
+        List<Object> values = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            values.add(getSlot(i));
+        }
+        return values;
+    }
+
+    @Override
+    public boolean isArray() {
+        return true;
+    }
+
+    @Override
+    public String getClassName() {
+        return "Array";
+    }
+
+    @Override
+    public Object getDefaultValue(Class<?> hint) {
+        return materialize().callMember("join");
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(getDefaultValue(String.class));
+    }
+
+    /**
+     * 数组方法，调用时生成JS数组并在JS数组上调用
+     */
+    private class ArrayMethod extends AbstractJSObject {
+        private final String name;
+
+        ArrayMethod(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object call(Object thiz, Object... args) {
+            return materialize().callMember(name, args);
+        }
+
+        @Override
+        public boolean isFunction() {
+            return true;
+        }
+
+        @Override
+        public String getClassName() {
+            return "Function";
+        }
+
+        @Override
+        public Object getDefaultValue(Class<?> hint) {
+            return "function " + name + "() { [native code] }";
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.clever.nashorn.utils;
+
+import jdk.nashorn.api.scripting.AbstractJSObject;
+import jdk.nashorn.internal.runtime.Undefined;
+
+import java.util.*;
+
+/**
+ * Java Map(JavaBean 先转换成Map)的JS对象视图(延迟转换) <br />
+ * 1. 创建视图时不遍历Map，脚本访问属性时才转换属性值(嵌套的对象也是视图)并缓存转换结果 <br />
+ * 2. 修改属性时复制一份Map(只复制引用)，不会修改原来的Java对象 <br />
+ * 3. key不是String的Map使用 String.valueOf(key) 作为属性名(第一次访问不存在的属性时才复制Map)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 10:40 <br/>
+ */
+public class JavaMapView extends AbstractJSObject {
+    private final ObjectConvertUtils convertUtils;
+    private final Map<?, ?> map;
+    /**
+     * 脚本修改属性后使用的Map
+     */
+    private Map<String, Object> own;
+    /**
+     * 已转换的属性值
+     */
+    private Map<String, Object> converted;
+    /**
+     * Map中是否有不是String的key(null表示还未检查)
+     */
+    private Boolean otherKey;
+
+    JavaMapView(ObjectConvertUtils convertUtils, Map<?, ?> map) {
+        this.convertUtils = convertUtils;
+        this.map = map;
+    }
+
+    /**
+     * 原始的 Map(脚本修改过属性则返回修改后的Map)
+     */
+    Map<?, ?> unwrap() {
+        return source();
+    }
+
+    /**
+     * 脚本是否修改过属性
+     */
+    boolean isModified() {
+        return own != null;
+    }
+
+    private Map<?, ?> source() {
+        return own != null ? own : map;
+    }
+
+    private Map<String, Object> ensureOwn() {
+        if (own == null) {
+            Map<String, Object> copy = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((key, value) -> copy.put(key instanceof String ? (String) key : String.valueOf(key), value));
+            own = copy;
+        }
+        return own;
+    }
+
+    @Override
+    public Object getMember(String name) {
+        if (converted != null) {
+            Object value = converted.get(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        Map<?, ?> source = source();
+        Object raw = source.get(name);
+        if (raw == null && !source.containsKey(name)) {
+            if (own != null || !hasOtherKey()) {
+                return Undefined.getUndefined();
+            }
+            source = ensureOwn();
+            raw = source.get(name);
+            if (raw == null && !source.containsKey(name)) {
+                return Undefined.getUndefined();
+            }
+        }
+        if (raw == null) {
+            return null;
+        }
+        Object value = convertUtils.javaToJSView(raw);
+        if (converted == null) {
+            converted = new HashMap<>();
+        }
+        converted.put(name, value);
+        return value;
+    }
+
+    private boolean hasOtherKey() {
+        if (otherKey == null) {
+            boolean flag = false;
+            for (Object key : map.keySet()) {
+                if (!(key instanceof String)) {
+                    flag = true;
+                    break;
+                }
+            }
+            otherKey = flag;
+        }
+        return otherKey;
+    }
+
+    @Override
+    public boolean hasMember(String name) {
+        if (source().containsKey(name)) {
+            return true;
+        }
+        return own == null && hasOtherKey() && ensureOwn().containsKey(name);
+    }
+
+    @Override
+    public void setMember(String name, Object value) {
+        ensureOwn().put(name, value);
+        if (converted != null) {
+            converted.remove(name);
+        }
+    }
+
+    @Override
+    public void removeMember(String name) {
+        ensureOwn().remove(name);
+        if (converted != null) {
+            converted.remove(name);
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        Map<?, ?> source = source();
+        Set<String> keys = new LinkedHashSet<>(source.size() * 4 / 3 + 1);
+        for (Object key : source.keySet()) {
+            keys.add(key instanceof String ? (String) key : String.valueOf(key));
+        }
+        return keys;
+    }
+
+    @Override
+    public Collection<Object> values() {
+        Set<String> keys = keySet();
+        List<Object> values = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            values.add(getMember(key));
+        }
+        return values;
+    }
+
+    @Override
+    public String getClassName() {
+        return "Object";
+    }
+
+    @Override
+    public Object getDefaultValue(Class<?> hint) {
+        return "[object Object]";
+    }
+
+    @Override
+    public String toString() {
+        return "[object Object]";
+    }
+}
@@ -1,13 +1,17 @@
 package org.clever.nashorn.utils;
 
+import jdk.nashorn.api.scripting.JSObject;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import jdk.nashorn.api.scripting.ScriptUtils;
+import jdk.nashorn.internal.objects.NativeArray;
 import jdk.nashorn.internal.objects.NativeDate;
+import jdk.nashorn.internal.runtime.ConsString;
 import jdk.nashorn.internal.runtime.ScriptObject;
 import jdk.nashorn.internal.runtime.Undefined;
+import jdk.nashorn.internal.runtime.arrays.ArrayData;
 import lombok.extern.slf4j.Slf4j;
 import org.clever.common.utils.exception.ExceptionUtils;
 import org.clever.common.utils.mapper.BeanMapConverter;
-import org.clever.common.utils.reflection.ReflectionsUtils;
 import org.joda.time.DateTime;
 
 import java.math.BigDecimal;
@@ -36,25 +40,22 @@ public class ObjectConvertUtils {
     }
 
     /**
-     * 递归深度
-     */
-    private final int recursiveMaxDeep;
-    /**
-     * 集合大小
+     * 不是基本类型时 convertBaseType 的返回值
      */
-    private final int collectionMaxSize;
+    private static final Object Not_Base_Type = new Object();
     /**
-     * 当前递归深度-线程槽
+     * JS值转换成Java值的最大递归深度
      */
-    private final ThreadLocal<Integer> deepSlot = new ThreadLocal<>();
+    private static final int Js_To_Java_Max_Deep = 32;
+
     /**
-     * 递归最大深度-线程槽
+     * 递归深度
      */
-    private final ThreadLocal<Integer> deepMaxSlot = new ThreadLocal<>();
+    private final int recursiveMaxDeep;
     /**
-     * 已经转换了的对象缓存 - 解决循环依赖问题
+     * 集合大小
      */
-    private final ThreadLocal<List<Object>> cacheSlot = new ThreadLocal<>();
+    private final int collectionMaxSize;
 
     public ObjectConvertUtils(int recursiveMaxDeep, int collectionMaxSize) {
         this.recursiveMaxDeep = recursiveMaxDeep;
@@ -62,110 +63,80 @@ public class ObjectConvertUtils {
     }
 
     /**
-     * Java对象转换成JS对象(慎用: 性能较差)
+     * 一次转换的状态
+     */
+    private static class ConvertContext {
+        /**
+         * 已经转换了的对象 - 解决循环依赖问题
+         */
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>(64));
+        /**
+         * 当前递归深度
+         */
+        private int deep;
+        /**
+         * 递归最大深度
+         */
+        private int maxDeep;
+
+        /**
+         * 进入下一层，对象已经转换过返回false
+         */
+        private boolean enter(Object obj) {
+            if (obj != null && !isBaseType(obj) && !visited.add(obj)) {
+                return false;
+            }
+            deep++;
+            if (maxDeep < deep) {
+                maxDeep = deep;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Java对象转换成JS对象(慎用: 性能较差，会复制整个对象图；只读的大集合建议使用 {@link #javaToJSView(Object)})
      */
     public Object javaToJSObject(Object obj) {
         if (obj == null) {
             return null;
         }
         final long startTime = System.currentTimeMillis();
-        cacheSlot.set(new ArrayList<>(512));
-        deepSlot.set(0);
-        deepMaxSlot.set(0);
+        final ConvertContext context = new ConvertContext();
         Object res;
         try {
-            res = doJavaToJSObject(obj);
+            res = doJavaToJSObject(obj, context);
         } catch (Throwable e) {
             throw ExceptionUtils.unchecked(e);
         } finally {
-            log.debug("[Java对象转换成JS对象] 递归深度：{} | 耗时：{}ms", deepMaxSlot.get(), System.currentTimeMillis() - startTime);
-            cacheSlot.remove();
-            deepSlot.remove();
-            deepMaxSlot.remove();
+            log.debug("[Java对象转换成JS对象] 递归深度：{} | 耗时：{}ms", context.maxDeep, System.currentTimeMillis() - startTime);
         }
         return res;
     }
 
-    private Object doJavaToJSObject(Object obj) {
-        if (obj != null && !isBaseType(obj)) {
-            for (Object cache : cacheSlot.get()) {
-                if (cache == obj) {
-                    return "Cycle Reference";
-                }
-            }
-            cacheSlot.get().add(obj);
+    private Object doJavaToJSObject(Object obj, ConvertContext context) {
+        if (!context.enter(obj)) {
+            return "Cycle Reference";
         }
         Object result;
-        // 递归深度加 1
-        Integer deep = deepSlot.get();
-        if (deep == null) {
-            deep = 0;
-        }
-        deep++;
-        deepSlot.set(deep);
-        Integer maxDeep = deepMaxSlot.get();
-        if (maxDeep == null) {
-            maxDeep = 0;
-        }
-        if (maxDeep < deep) {
-            deepMaxSlot.set(deep);
-        }
+        Object base;
         // 超过了最大递归深度
-        if (deep >= recursiveMaxDeep) {
+        if (context.deep >= recursiveMaxDeep) {
             result = obj;
         } else if (obj instanceof ScriptObjectMirror) {
             // TODO 需要当Map处理？
             result = obj;
         } else if (obj == null) {// ------------------------------------------------------------------- null
             result = null;
-        } else if (obj instanceof Byte) {// ----------------------------------------------------------- Number
-            Byte val = (Byte) obj;
-            result = val.intValue();
-        } else if (obj instanceof Short) {
-            Short val = (Short) obj;
-            result = val.intValue();
-        } else if (obj instanceof Integer) {
-            result = obj;
-        } else if (obj instanceof Long) {
-            Long raw = (Long) obj;
-            // js number 最大值 9007199254740992
-            if (raw > 9007199254740992L) {
-                result = Number_Format.format(raw);
-            } else {
-                result = raw.doubleValue();
-            }
-        } else if (obj instanceof Float) {
-            Float val = (Float) obj;
-            result = val.doubleValue();
-        } else if (obj instanceof Double) {
-            result = obj;
-        } else if (obj instanceof BigInteger) {
-            BigInteger bigInteger = (BigInteger) obj;
-            result = bigInteger.doubleValue();
-        } else if (obj instanceof BigDecimal) {
-            BigDecimal bigDecimal = (BigDecimal) obj;
-            result = bigDecimal.doubleValue();
-        } else if (obj instanceof Boolean) {// -------------------------------------------------------- Boolean
-            result = obj;
-        } else if (obj instanceof String) {// --------------------------------------------------------- String
-            result = obj;
-        } else if (obj instanceof Character) {
-            result = obj.toString();
-        } else if (obj instanceof CharSequence) {
-            result = obj.toString();
-        } else if (obj instanceof Date) {// ----------------------------------------------------------- Date
-            double val = (double) ((Date) obj).getTime();
-            result = ScriptEngineUtils.newDate(val);
-        } else if (obj instanceof DateTime) {
-            double val = (double) ((DateTime) obj).toDate().getTime();
-            result = ScriptEngineUtils.newDate(val);
+        } else if ((base = convertBaseType(obj)) != Not_Base_Type) {// -------------------------------- Number、Boolean、String、Date
+            result = base;
         } else if (obj.getClass().isArray()) {// ------------------------------------------------------ Array
             ScriptObjectMirror nativeArray;
             Object[] array = (Object[]) obj;
             if (array.length < collectionMaxSize) {
                 List<Object> list = new ArrayList<>(array.length);
                 for (Object o : array) {
-                    list.add(doJavaToJSObject(o));
+                    list.add(doJavaToJSObject(o, context));
                 }
                 nativeArray = ScriptEngineUtils.newArray(list);
             } else {
@@ -179,7 +150,7 @@ public class ObjectConvertUtils {
             if (collection.size() < collectionMaxSize) {
                 List<Object> list = new ArrayList<>(collection.size());
                 for (Object o : collection) {
-                    list.add(doJavaToJSObject(o));
+                    list.add(doJavaToJSObject(o, context));
                 }
                 nativeArray = ScriptEngineUtils.newArray(list);
             } else {
@@ -201,7 +172,7 @@ public class ObjectConvertUtils {
                 } else {
                     key = entry.getKey().getClass().getName() + "@" + Integer.toHexString(entry.getKey().hashCode());
                 }
-                scriptObjectMirror.put(key, flag ? doJavaToJSObject(entry.getValue()) : entry.getValue());
+                scriptObjectMirror.put(key, flag ? doJavaToJSObject(entry.getValue(), context) : entry.getValue());
                 index++;
             }
             result = scriptObjectMirror;
@@ -211,7 +182,7 @@ public class ObjectConvertUtils {
                 ScriptObjectMirror scriptObjectMirror = ScriptEngineUtils.newObject();
                 if (map.size() < collectionMaxSize) {
                     for (Map.Entry<String, Object> entry : map.entrySet()) {
-                        scriptObjectMirror.put(entry.getKey(), doJavaToJSObject(entry.getValue()));
+                        scriptObjectMirror.put(entry.getKey(), doJavaToJSObject(entry.getValue(), context));
                     }
                 } else {
                     scriptObjectMirror.putAll(map);
@@ -221,11 +192,87 @@ public class ObjectConvertUtils {
                 result = obj;
             }
         }
-        deep--;
-        deepSlot.set(deep);
+        context.deep--;
         return result;
     }
 
+    /**
+     * Java对象转换成JS对象视图(延迟转换) <br />
+     * Map、JavaBean 包装成 {@link JavaMapView}，List、数组 包装成 {@link JavaListView}，
+     * 创建视图的开销与集合大小无关，脚本访问属性或元素时才转换(嵌套的对象也是视图，不存在循环依赖和递归深度问题)
+     */
+    public Object javaToJSView(Object obj) {
+        if (obj == null || obj instanceof JSObject || obj instanceof ScriptObject || obj instanceof Undefined) {
+            return obj;
+        }
+        Object base = convertBaseType(obj);
+        if (base != Not_Base_Type) {
+            return base;
+        }
+        if (obj.getClass().isArray()) {
+            return new JavaListView(this, obj);
+        }
+        if (obj instanceof List) {
+            return new JavaListView(this, (List<?>) obj);
+        }
+        if (obj instanceof Collection) {
+            // Set等集合不能按下标访问，只复制引用
+            return new JavaListView(this, new ArrayList<>((Collection<?>) obj));
+        }
+        if (obj instanceof Map) {
+            return new JavaMapView(this, (Map<?, ?>) obj);
+        }
+        Map<String, Object> map = BeanMapConverter.toMap(obj);
+        if (map.size() > 0) {
+            return new JavaMapView(this, map);
+        }
+        return obj;
+    }
+
+    /**
+     * Java基本类型转换成JS基本类型
+     *
+     * @return 不是基本类型返回 Not_Base_Type
+     */
+    private static Object convertBaseType(Object obj) {
+        if (obj instanceof String || obj instanceof Integer || obj instanceof Double || obj instanceof Boolean) {
+            return obj;
+        } else if (obj instanceof Byte) {// ----------------------------------------------------------- Number
+            Byte val = (Byte) obj;
+            return val.intValue();
+        } else if (obj instanceof Short) {
+            Short val = (Short) obj;
+            return val.intValue();
+        } else if (obj instanceof Long) {
+            Long raw = (Long) obj;
+            // js number 最大值 9007199254740992
+            if (raw > 9007199254740992L) {
+                return Number_Format.format(raw);
+            }
+            return raw.doubleValue();
+        } else if (obj instanceof Float) {
+            Float val = (Float) obj;
+            return val.doubleValue();
+        } else if (obj instanceof BigInteger) {
+            BigInteger bigInteger = (BigInteger) obj;
+            return bigInteger.doubleValue();
+        } else if (obj instanceof BigDecimal) {
+            BigDecimal bigDecimal = (BigDecimal) obj;
+            return bigDecimal.doubleValue();
+        } else if (obj instanceof Character) {// ------------------------------------------------------ String
+            return obj.toString();
+        } else if (obj instanceof CharSequence) {
+            return obj.toString();
+        } else if (obj instanceof Date) {// ----------------------------------------------------------- Date
+            double val = (double) ((Date) obj).getTime();
+            return ScriptEngineUtils.newDate(val);
+        } else if (obj instanceof DateTime) {
+            double val = (double) ((DateTime) obj).toDate().getTime();
+            return ScriptEngineUtils.newDate(val);
+        }
+        return Not_Base_Type;
+    }
+
     /**
      * Map key 字符串下划线转驼峰格式
      */
@@ -234,19 +281,14 @@ public class ObjectConvertUtils {
             return null;
         }
         final long startTime = System.currentTimeMillis();
-        cacheSlot.set(new ArrayList<>(512));
-        deepSlot.set(0);
-        deepMaxSlot.set(0);
+        final ConvertContext context = new ConvertContext();
         Object res;
         try {
-            res = doUnderlineToCamel(obj);
+            res = doUnderlineToCamel(obj, context);
         } catch (Throwable e) {
             throw ExceptionUtils.unchecked(e);
         } finally {
-            log.debug("[Java对象转换成JS对象] 递归深度：{} | 耗时：{}ms", deepMaxSlot.get(), System.currentTimeMillis() - startTime);
-            cacheSlot.remove();
-            deepSlot.remove();
-            deepMaxSlot.remove();
+            log.debug("[Java对象转换成JS对象] 递归深度：{} | 耗时：{}ms", context.maxDeep, System.currentTimeMillis() - startTime);
         }
         return res;
     }
@@ -254,57 +296,37 @@ public class ObjectConvertUtils {
     /**
      * Map key 字符串下划线转驼峰格式
      */
-    private Object doUnderlineToCamel(Object obj) {
-        if (obj != null && !isBaseType(obj)) {
-            for (Object cache : cacheSlot.get()) {
-                if (cache == obj) {
-                    return "Cycle Reference";
-                }
-            }
-            cacheSlot.get().add(obj);
+    private Object doUnderlineToCamel(Object obj, ConvertContext context) {
+        if (!context.enter(obj)) {
+            return "Cycle Reference";
         }
         Object result;
-        // 递归深度加 1
-        Integer deep = deepSlot.get();
-        if (deep == null) {
-            deep = 0;
-        }
-        deep++;
-        deepSlot.set(deep);
-        Integer maxDeep = deepMaxSlot.get();
-        if (maxDeep == null) {
-            maxDeep = 0;
-        }
-        if (maxDeep < deep) {
-            deepMaxSlot.set(deep);
-        }
         // 超过了最大递归深度
-        if (deep >= recursiveMaxDeep) {
+        if (context.deep >= recursiveMaxDeep) {
             result = obj;
         } else if (obj instanceof Map) {
             Map<?, ?> map = (Map) obj;
             Map<String, Object> tmp = new HashMap<>(map.size());
             map.forEach((key, value) -> {
                 if (key instanceof String) {
-                    tmp.put(StrFormatter.underlineToCamel((String) key), doUnderlineToCamel(value));
+                    tmp.put(StrFormatter.underlineToCamel((String) key), doUnderlineToCamel(value, context));
                 }
             });
             result = tmp;
         } else if (obj instanceof List) {
             List<?> list = (List) obj;
             List<Object> tmp = new ArrayList<>(list.size());
-            list.forEach(value -> tmp.add(doUnderlineToCamel(value)));
+            list.forEach(value -> tmp.add(doUnderlineToCamel(value, context)));
             result = tmp;
         } else if (obj instanceof Set) {
             Set<?> list = (Set) obj;
             Set<Object> tmp = new HashSet<>(list.size());
-            list.forEach(value -> tmp.add(doUnderlineToCamel(value)));
+            list.forEach(value -> tmp.add(doUnderlineToCamel(value, context)));
             result = tmp;
         } else {
             result = obj;
         }
-        deep--;
-        deepSlot.set(deep);
+        context.deep--;
         return result;
     }
 
@@ -312,7 +334,7 @@ public class ObjectConvertUtils {
      * 是否是基本类型(不会有循环依赖问题的)
      */
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    private boolean isBaseType(Object obj) {
+    private static boolean isBaseType(Object obj) {
         return obj instanceof String
                 || obj instanceof Character
                 || obj instanceof Boolean
@@ -339,20 +361,6 @@ public class ObjectConvertUtils {
         if (!(value instanceof ScriptObjectMirror) && !(value instanceof ScriptObject)) {
             return value;
         }
-        ScriptObject scriptObject = null;
-        if (value instanceof ScriptObjectMirror) {
-            ScriptObjectMirror scriptObjectMirror = (ScriptObjectMirror) value;
-            if (scriptObjectMirror.isArray() || scriptObjectMirror.isFunction() || scriptObjectMirror.isStrictFunction()) {
-                return value;
-            }
-            Object tmp = ReflectionsUtils.getFieldValue(scriptObjectMirror, "sobj");
-            if (tmp instanceof ScriptObject) {
-                scriptObject = (ScriptObject) tmp;
-            }
-        }
-        if (value instanceof ScriptObject) {
-            scriptObject = (ScriptObject) value;
-        }
         // 打印JS变量 | undefined   jdk.nashorn.internal.runtime.Undefined
         // 打印JS变量 | null        null
         // 打印JS变量 | int         java.lang.Integer
@@ -363,12 +371,206 @@ public class ObjectConvertUtils {
         // 打印JS变量 | array       jdk.nashorn.api.scripting.ScriptObjectMirror
         // 打印JS变量 | object      jdk.nashorn.api.scripting.ScriptObjectMirror
         // 打印JS变量 | function    jdk.nashorn.api.scripting.ScriptObjectMirror
-        Object result = value;
+        // ScriptUtils.unwrap 直接返回 ScriptObjectMirror 内部的 ScriptObject(不使用反射)
+        Object scriptObject = ScriptUtils.unwrap(value);
         if (scriptObject instanceof NativeDate) {
-            NativeDate nativeDate = (NativeDate) scriptObject;
-            result = new Date((long) NativeDate.getTime(nativeDate));
+            return new Date((long) NativeDate.getTime(scriptObject));
         }
         // 其他类型暂不处理
+        return value;
+    }
+
+    /**
+     * JS值转换成Java值(Sql参数等) <br />
+     * 1. 基本类型直接返回，undefined 返回null，ConsString 转换成 String <br />
+     * 2. Date 转换成 java.util.Date <br />
+     * 3. 数组转换成 List(元素同样转换) <br />
+     * 4. 普通对象转换成 Map(属性值同样转换) <br />
+     * 5. JavaListView、JavaMapView 返回原始的 List(数组)、Map(脚本修改过的视图按JS值转换) <br />
+     * 6. 其他对象(函数等)不处理
+     */
+    public static Object jsToJava(Object value) {
+        return doJsToJava(value, 0);
+    }
+
+    private static Object doJsToJava(Object value, int deep) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Undefined) {
+            return null;
+        }
+        // 超过了最大递归深度(循环引用)
+        if (deep >= Js_To_Java_Max_Deep) {
+            return value;
+        }
+        if (value instanceof JavaListView || value instanceof JavaMapView) {
+            Object raw = value instanceof JavaListView ? ((JavaListView) value).unwrap() : ((JavaMapView) value).unwrap();
+            if (raw instanceof ScriptObjectMirror) {
+                return doJsToJava(raw, deep);
+            }
+            if (raw instanceof Map && value instanceof JavaMapView && ((JavaMapView) value).isModified()) {
+                // 脚本设置的属性值可能是JS值
+                Map<?, ?> map = (Map<?, ?>) raw;
+                Map<String, Object> javaMap = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+                map.forEach((key, item) -> javaMap.put(String.valueOf(key), doJsToJava(item, deep + 1)));
+                return javaMap;
+            }
+            return raw;
+        }
+        if (value instanceof ScriptObjectMirror || value instanceof ScriptObject) {
+            Object scriptObject = ScriptUtils.unwrap(value);
+            if (scriptObject instanceof NativeDate) {
+                return new Date((long) NativeDate.getTime(scriptObject));
+            }
+            if (scriptObject instanceof NativeArray) {
+                return doJsArrayToList(value, deep);
+            }
+            if (value instanceof ScriptObjectMirror) {
+                ScriptObjectMirror scriptObjectMirror = (ScriptObjectMirror) value;
+                if (!"Object".equals(scriptObjectMirror.getClassName())) {
+                    return value;
+                }
+                Map<String, Object> javaMap = new HashMap<>(scriptObjectMirror.size() * 4 / 3 + 1);
+                scriptObjectMirror.forEach((key, item) -> javaMap.put(key, doJsToJava(item, deep + 1)));
+                return javaMap;
+            }
+            ScriptObject object = (ScriptObject) scriptObject;
+            if (!"Object".equals(object.getClassName())) {
+                return value;
+            }
+            Map<String, Object> javaMap = new HashMap<>();
+            Iterator<String> iterator = object.propertyIterator();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                javaMap.put(key, doJsToJava(object.get(key), deep + 1));
+            }
+            return javaMap;
+        }
+        if (value instanceof ConsString) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * JS对象转换成Java Map(值使用 {@link #jsToJava(Object)} 转换)
+     */
+    public static Map<String, Object> jsToJavaMap(Map<String, Object> jsObject) {
+        Map<String, Object> javaMap = new HashMap<>(jsObject.size() * 4 / 3 + 1);
+        jsObject.forEach((key, value) -> javaMap.put(key, jsToJava(value)));
+        return javaMap;
+    }
+
+    /**
+     * 对象数组批量转换成 List&lt;Map&gt;(如Sql批量参数) <br />
+     * 支持JS数组、Java集合、Java数组，数组项是JS对象时使用 {@link #jsToJavaMap(Map)} 转换，Java Map 不转换
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> jsToJavaMapList(Object array) {
+        final Collection<?> items;
+        if (array instanceof ScriptObjectMirror) {
+            ScriptObjectMirror scriptObjectMirror = (ScriptObjectMirror) array;
+            if (!scriptObjectMirror.isArray()) {
+                throw new RuntimeException("参数必须是一个数组");
+            }
+            // values() 只切换一次Global，比 forEach 少创建 Map.Entry
+            items = scriptObjectMirror.values();
+        } else if (array instanceof Collection) {
+            items = (Collection<?>) array;
+        } else if (array instanceof Object[]) {
+            items = Arrays.asList((Object[]) array);
+        } else {
+            throw new RuntimeException("参数必须是一个数组");
+        }
+        List<Map<String, Object>> result = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof ScriptObjectMirror) {
+                result.add(jsToJavaMap((Map<String, Object>) item));
+            } else if (item instanceof JavaMapView) {
+                result.add((Map<String, Object>) jsToJava(item));
+            } else if (item instanceof Map) {
+                result.add((Map<String, Object>) item);
+            } else {
+                throw new RuntimeException("数组项必须是一个对象，不能是基本类型变量");
+            }
+        }
         return result;
     }
+
+    /**
+     * JS数组转换成 List(元素使用 {@link #jsToJava(Object)} 转换)
+     */
+    public static List<Object> jsArrayToList(Object jsArray) {
+        return doJsArrayToList(jsArray, 0);
+    }
+
+    private static List<Object> doJsArrayToList(Object jsArray, int deep) {
+        final ArrayData arrayData = getArrayData(jsArray);
+        final int length = (int) arrayData.length();
+        List<Object> list = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            if (!arrayData.has(i)) {
+                list.add(null);
+                continue;
+            }
+            Object item = arrayData.getObject(i);
+            if (item instanceof ScriptObject && jsArray instanceof ScriptObjectMirror) {
+                ScriptObject scriptObject = (ScriptObject) item;
+                if (!(scriptObject instanceof NativeDate) && !(scriptObject instanceof NativeArray)) {
+                    // 普通对象需要包装成 ScriptObjectMirror
+                    item = ((ScriptObjectMirror) jsArray).getSlot(i);
+                }
+            }
+            list.add(doJsToJava(item, deep + 1));
+        }
+        return list;
+    }
+
+    /**
+     * JS数组转换成 int[](非数字元素按JS规则转换)
+     */
+    public static int[] jsArrayToIntArray(Object jsArray) {
+        final ArrayData arrayData = getArrayData(jsArray);
+        final int[] array = new int[(int) arrayData.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = arrayData.getInt(i);
+        }
+        return array;
+    }
+
+    /**
+     * JS数组转换成 long[](非数字元素按JS规则转换)
+     */
+    public static long[] jsArrayToLongArray(Object jsArray) {
+        final ArrayData arrayData = getArrayData(jsArray);
+        final long[] array = new long[(int) arrayData.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = (long) arrayData.getDouble(i);
+        }
+        return array;
+    }
+
+    /**
+     * JS数组转换成 double[](非数字元素按JS规则转换)
+     */
+    public static double[] jsArrayToDoubleArray(Object jsArray) {
+        final ArrayData arrayData = getArrayData(jsArray);
+        final double[] array = new double[(int) arrayData.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = arrayData.getDouble(i);
+        }
+        return array;
+    }
+
+    /**
+     * 读取JS数组的内部存储
+     */
+    private static ArrayData getArrayData(Object jsArray) {
+        Object scriptObject = ScriptUtils.unwrap(jsArray);
+        if (!(scriptObject instanceof NativeArray)) {
+            throw new RuntimeException("参数必须是一个JS数组");
+        }
+        return ((NativeArray) scriptObject).getArray();
+    }
 }
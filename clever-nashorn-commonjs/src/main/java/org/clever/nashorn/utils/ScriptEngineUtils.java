@@ -3,12 +3,20 @@ package org.clever.nashorn.utils;
 import jdk.nashorn.api.scripting.NashornScriptEngine;
 import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.clever.common.utils.exception.ExceptionUtils;
 
 import javax.script.Bindings;
 import javax.script.ScriptEngineFactory;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
@@ -18,9 +26,22 @@ import java.util.Set;
  * 作者：lizw <br/>
  * 创建时间：2019/08/21 09:26 <br/>
  */
+@Slf4j
 public class ScriptEngineUtils {
     private static final Set<String> Java_Type = new HashSet<>();
     private static final NashornScriptEngineFactory NASHORN_FACTORY;
+    /**
+     * Nashorn持久化代码缓存目录(系统属性)
+     */
+    private static final String Persistent_Code_Cache_Property = "nashorn.persistent.code.cache";
+    /**
+     * Nashorn乐观类型信息缓存目录(系统属性)
+     */
+    private static final String Type_Info_Cache_Property = "nashorn.typeInfo.cacheDir";
+    /**
+     * 创建 NashornScriptEngine 使用的参数
+     */
+    private static volatile String[] Engine_Args = new String[]{"-doe"};
 
     static {
         ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
@@ -74,7 +95,7 @@ public class ScriptEngineUtils {
      * 创建一个新的 NashornScriptEngine
      */
     public static NashornScriptEngine creatEngine() {
-        String[] stringArray = new String[]{"-doe"};
+        String[] stringArray = Engine_Args;
         return (NashornScriptEngine) NASHORN_FACTORY.getScriptEngine(stringArray, getAppClassLoader(), Java_Type::contains);
         // 支持ES6语法的 NashornScriptEngine
         // ScriptEngineManager sm = new ScriptEngineManager();
@@ -89,6 +110,87 @@ public class ScriptEngineUtils {
         // return factory.getScriptEngine(stringArray);
     }
 
+    /**
+     * 开启Nashorn持久化代码缓存，之后调用 {@link #creatEngine()} 创建的engine会把编译后的class和乐观类型信息保存到磁盘，
+     * 重启后直接从磁盘加载，不需要重新编译 <br />
+     * Nashorn按脚本源码的hash保存缓存文件，修改某个脚本只会让这个脚本重新编译，所以缓存目录只按
+     * JDK版本、应用版本、engine参数区分(见 {@link #getCodeCacheVersion(String, String[])})，版本变化时会删除其它版本的缓存目录 <br />
+     * 必须在创建engine之前调用(Nashorn在创建engine时读取缓存目录)
+     *
+     * @param cacheDir        缓存根目录
+     * @param appVersion      应用版本
+     * @param optimisticTypes 是否启用乐观类型(--optimistic-types)
+     * @return 当前版本的缓存目录
+     */
+    public static synchronized File enablePersistentCodeCache(String cacheDir, String appVersion, boolean optimisticTypes) {
+        final String[] engineArgs = new String[]{"-doe", "--persistent-code-cache=true", "--optimistic-types=" + optimisticTypes};
+        final String version = getCodeCacheVersion(appVersion, engineArgs);
+        File rootDir = new File(cacheDir);
+        File versionDir = new File(rootDir, version);
+        File[] oldDirs = rootDir.listFiles(file -> file.isDirectory() && !file.getName().equals(version));
+        if (oldDirs != null) {
+            for (File oldDir : oldDirs) {
+                log.info("删除过期的Nashorn代码缓存目录 | {}", oldDir.getAbsolutePath());
+                FileUtils.deleteQuietly(oldDir);
+            }
+        }
+        File classDir = new File(versionDir, "classes");
+        File typeInfoDir = new File(versionDir, "type-info");
+        if ((!classDir.exists() && !classDir.mkdirs()) || (!typeInfoDir.exists() && !typeInfoDir.mkdirs())) {
+            throw new RuntimeException("创建Nashorn代码缓存目录失败: " + versionDir.getAbsolutePath());
+        }
+        System.setProperty(Persistent_Code_Cache_Property, classDir.getAbsolutePath());
+        System.setProperty(Type_Info_Cache_Property, typeInfoDir.getAbsolutePath());
+        Engine_Args = engineArgs;
+        log.info("开启Nashorn持久化代码缓存 | {} | engine参数 {}", versionDir.getAbsolutePath(), Arrays.toString(Engine_Args));
+        return versionDir;
+    }
+
+    /**
+     * 持久化代码缓存的版本(JDK版本 + 应用版本 + engine参数的hash)
+     *
+     * @param appVersion 应用版本
+     * @param engineArgs 创建engine使用的参数
+     */
+    public static String getCodeCacheVersion(String appVersion, String[] engineArgs) {
+        String key = String.format("%s|%s|%s|%s",
+                System.getProperty("java.vm.name"),
+                System.getProperty("java.runtime.version", System.getProperty("java.version")),
+                appVersion,
+                String.join(" ", engineArgs));
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+        byte[] digest = messageDigest.digest(key.getBytes(StandardCharsets.UTF_8));
+        return String.format("%064x", new BigInteger(1, digest)).substring(0, 16);
+    }
+
+    /**
+     * 关闭Nashorn持久化代码缓存(只影响之后创建的engine)
+     */
+    public static synchronized void disablePersistentCodeCache() {
+        Engine_Args = new String[]{"-doe"};
+    }
+
+    /**
+     * 当前创建 NashornScriptEngine 使用的参数
+     */
+    public static String[] getEngineArgs() {
+        return Engine_Args.clone();
+    }
+
+    /**
+     * Js代码中是否允许访问指定的Java类(Java.type)
+     *
+     * @param className Java类全名
+     */
+    public static boolean isJavaTypeAllowed(String className) {
+        return Java_Type.contains(className);
+    }
+
     // 参考 NashornScriptEngineFactory 实现
     private static ClassLoader getAppClassLoader() {
         ClassLoader ccl = Thread.currentThread().getContextClassLoader();
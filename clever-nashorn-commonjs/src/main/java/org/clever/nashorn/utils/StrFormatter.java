@@ -15,6 +15,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 字符串格式化工具
@@ -46,41 +47,19 @@ public class StrFormatter {
             result.add(strPattern);
             return result;
         }
-        final int strPatternLength = strPattern.length();
+        final CompiledPattern pattern = compile(strPattern);
         int handledPosition = 0;// 记录已经处理到的位置
-        int delimIndex;// 占位符所在位置
-        for (int argIndex = 0; argIndex < argArray.length; argIndex++) {
-            delimIndex = strPattern.indexOf(EMPTY_JSON, handledPosition);
-            if (delimIndex == -1) {// 剩余部分无占位符
-                if (handledPosition == 0) { // 不带占位符的模板直接返回
-                    result.add(strPattern);
-                    return result;
-                }
-                // 字符串模板剩余部分不再包含占位符，加入剩余部分后返回结果
-                result.add(strPattern.substring(handledPosition, strPatternLength));
-                return result;
-            }
-            // 转义符
-            if (delimIndex > 0 && strPattern.charAt(delimIndex - 1) == C_BACKSLASH) {// 转义符
-                if (delimIndex > 1 && strPattern.charAt(delimIndex - 2) == C_BACKSLASH) {// 双转义符
-                    // 转义符之前还有一个转义符，占位符依旧有效
-                    result.add(strPattern.substring(handledPosition, delimIndex - 1));
-                    result.add(argArray[argIndex]);
-                    handledPosition = delimIndex + 2;
-                } else {
-                    // 占位符被转义
-                    argIndex--;
-                    result.add(strPattern.substring(handledPosition, delimIndex - 1));
-                    result.add(C_DELIM_START);
-                    handledPosition = delimIndex + 1;
-                }
-            } else {// 正常占位符
-                result.add(strPattern.substring(handledPosition, delimIndex));
-                result.add(argArray[argIndex]);
-                handledPosition = delimIndex + 2;
+        int argIndex = 0;
+        for (int i = 0; i < pattern.size && argIndex < argArray.length; i++) {
+            result.add(pattern.texts[i]);
+            if (pattern.placeholders[i]) {
+                result.add(argArray[argIndex++]);
+            } else {
+                // 占位符被转义
+                result.add(C_DELIM_START);
             }
+            handledPosition = pattern.positions[i];
         }
-        // append the characters following the last {} pair.
         // 加入最后一个占位符后所有的字符
         result.add(strPattern.substring(handledPosition));
         return result;
@@ -103,45 +82,101 @@ public class StrFormatter {
         if (StringUtils.isBlank(strPattern) || argArray == null || argArray.length <= 0) {
             return strPattern;
         }
-        final int strPatternLength = strPattern.length();
+        final CompiledPattern pattern = compile(strPattern);
+        if (pattern.size <= 0) {// 不带占位符的模板直接返回
+            return strPattern;
+        }
         // 初始化定义好的长度以获得更好的性能
-        StringBuilder sbuf = new StringBuilder(strPatternLength + 50);
+        StringBuilder sbuf = new StringBuilder(strPattern.length() + 50);
         int handledPosition = 0;// 记录已经处理到的位置
-        int delimIndex;// 占位符所在位置
-        for (int argIndex = 0; argIndex < argArray.length; argIndex++) {
-            delimIndex = strPattern.indexOf(EMPTY_JSON, handledPosition);
-            if (delimIndex == -1) {// 剩余部分无占位符
-                if (handledPosition == 0) { // 不带占位符的模板直接返回
-                    return strPattern;
-                }
-                // 字符串模板剩余部分不再包含占位符，加入剩余部分后返回结果
-                sbuf.append(strPattern, handledPosition, strPatternLength);
-                return sbuf.toString();
+        int argIndex = 0;
+        for (int i = 0; i < pattern.size && argIndex < argArray.length; i++) {
+            sbuf.append(pattern.texts[i]);
+            if (pattern.placeholders[i]) {
+                sbuf.append(utf8Str(argArray[argIndex++]));
+            } else {
+                // 占位符被转义
+                sbuf.append(C_DELIM_START);
+            }
+            handledPosition = pattern.positions[i];
+        }
+        // 加入最后一个占位符后所有的字符
+        sbuf.append(strPattern, handledPosition, strPattern.length());
+        return sbuf.toString();
+    }
+
+    /**
+     * 缓存的字符串模板最大数量
+     */
+    private static final int Max_Pattern_Cache_Size = 2048;
+    /**
+     * 超过这个长度的字符串模板不缓存(一般是拼接出来的)
+     */
+    private static final int Max_Cache_Pattern_Length = 512;
+    /**
+     * 字符串模板 --> 解析结果
+     */
+    private static final ConcurrentHashMap<String, CompiledPattern> Pattern_Cache = new ConcurrentHashMap<>();
+
+    /**
+     * 解析好的字符串模板: 第i个占位符(或被转义的占位符)之前的文本、是否是占位符、处理到的位置
+     */
+    private static final class CompiledPattern {
+        private final int size;
+        private final String[] texts;
+        private final boolean[] placeholders;
+        private final int[] positions;
+
+        private CompiledPattern(List<String> texts, List<Boolean> placeholders, List<Integer> positions) {
+            this.size = texts.size();
+            this.texts = texts.toArray(new String[0]);
+            this.placeholders = new boolean[size];
+            this.positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                this.placeholders[i] = placeholders.get(i);
+                this.positions[i] = positions.get(i);
             }
-            // 转义符
+        }
+    }
+
+    /**
+     * 解析字符串模板(与原来逐个查找占位符的处理逻辑一致)
+     */
+    private static CompiledPattern compile(final String strPattern) {
+        CompiledPattern pattern = Pattern_Cache.get(strPattern);
+        if (pattern != null) {
+            return pattern;
+        }
+        List<String> texts = new ArrayList<>();
+        List<Boolean> placeholders = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        int handledPosition = 0;// 记录已经处理到的位置
+        int delimIndex;// 占位符所在位置
+        while ((delimIndex = strPattern.indexOf(EMPTY_JSON, handledPosition)) != -1) {
             if (delimIndex > 0 && strPattern.charAt(delimIndex - 1) == C_BACKSLASH) {// 转义符
                 if (delimIndex > 1 && strPattern.charAt(delimIndex - 2) == C_BACKSLASH) {// 双转义符
                     // 转义符之前还有一个转义符，占位符依旧有效
-                    sbuf.append(strPattern, handledPosition, delimIndex - 1);
-                    sbuf.append(utf8Str(argArray[argIndex]));
+                    texts.add(strPattern.substring(handledPosition, delimIndex - 1));
+                    placeholders.add(true);
                     handledPosition = delimIndex + 2;
                 } else {
                     // 占位符被转义
-                    argIndex--;
-                    sbuf.append(strPattern, handledPosition, delimIndex - 1);
-                    sbuf.append(C_DELIM_START);
+                    texts.add(strPattern.substring(handledPosition, delimIndex - 1));
+                    placeholders.add(false);
                     handledPosition = delimIndex + 1;
                 }
             } else {// 正常占位符
-                sbuf.append(strPattern, handledPosition, delimIndex);
-                sbuf.append(utf8Str(argArray[argIndex]));
+                texts.add(strPattern.substring(handledPosition, delimIndex));
+                placeholders.add(true);
                 handledPosition = delimIndex + 2;
             }
+            positions.add(handledPosition);
         }
-        // append the characters following the last {} pair.
-        // 加入最后一个占位符后所有的字符
-        sbuf.append(strPattern, handledPosition, strPattern.length());
-        return sbuf.toString();
+        pattern = new CompiledPattern(texts, placeholders, positions);
+        if (strPattern.length() <= Max_Cache_Pattern_Length && Pattern_Cache.size() < Max_Pattern_Cache_Size) {
+            Pattern_Cache.put(strPattern, pattern);
+        }
+        return pattern;
     }
 
     /**
@@ -0,0 +1,124 @@
+package org.clever.nashorn.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 统计当前线程一段代码的资源使用(CPU时间、分配的堆内存) <br />
+ * 使用 com.sun.management.ThreadMXBean#getThreadAllocatedBytes，JVM不支持时对应的值为 -1
+ * <pre>
+ *     ThreadResourceUsage usage = ThreadResourceUsage.start();
+ *     // ... 执行脚本
+ *     usage.stop();
+ *     usage.getCpuTime();
+ *     usage.getAllocatedBytes();
+ * </pre>
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 16:20 <br/>
+ */
+@Slf4j
+public class ThreadResourceUsage {
+    private static final ThreadMXBean Thread_MX_Bean = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean Sun_Thread_MX_Bean;
+    private static final boolean Cpu_Time_Supported;
+    private static final boolean Allocated_Memory_Supported;
+
+    static {
+        boolean cpuTimeSupported = Thread_MX_Bean.isCurrentThreadCpuTimeSupported();
+        if (cpuTimeSupported && !Thread_MX_Bean.isThreadCpuTimeEnabled()) {
+            try {
+                Thread_MX_Bean.setThreadCpuTimeEnabled(true);
+            } catch (Throwable e) {
+                log.warn("开启线程CPU时间统计失败", e);
+                cpuTimeSupported = false;
+            }
+        }
+        Cpu_Time_Supported = cpuTimeSupported;
+        com.sun.management.ThreadMXBean sunThreadMXBean = null;
+        boolean allocatedMemorySupported = false;
+        if (Thread_MX_Bean instanceof com.sun.management.ThreadMXBean) {
+            sunThreadMXBean = (com.sun.management.ThreadMXBean) Thread_MX_Bean;
+            allocatedMemorySupported = sunThreadMXBean.isThreadAllocatedMemorySupported();
+            if (allocatedMemorySupported && !sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                try {
+                    sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+                } catch (Throwable e) {
+                    log.warn("开启线程内存分配统计失败", e);
+                    allocatedMemorySupported = false;
+                }
+            }
+        }
+        Sun_Thread_MX_Bean = sunThreadMXBean;
+        Allocated_Memory_Supported = allocatedMemorySupported;
+    }
+
+    private final long threadId;
+    private final long startCpuTime;
+    private final long startAllocatedBytes;
+    /**
+     * CPU时间(纳秒)
+     */
+    private long cpuTime = -1;
+    /**
+     * 分配的堆内存(字节)
+     */
+    private long allocatedBytes = -1;
+
+    private ThreadResourceUsage() {
+        threadId = Thread.currentThread().getId();
+        startCpuTime = currentCpuTime();
+        startAllocatedBytes = currentAllocatedBytes(threadId);
+    }
+
+    /**
+     * 开始统计当前线程的资源使用
+     */
+    public static ThreadResourceUsage start() {
+        return new ThreadResourceUsage();
+    }
+
+    private static long currentCpuTime() {
+        return Cpu_Time_Supported ? Thread_MX_Bean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long currentAllocatedBytes(long threadId) {
+        return Allocated_Memory_Supported ? Sun_Thread_MX_Bean.getThreadAllocatedBytes(threadId) : -1;
+    }
+
+    /**
+     * 结束统计(必须在调用start的线程中调用)，可以多次调用，以最后一次为准
+     */
+    public ThreadResourceUsage stop() {
+        if (startCpuTime >= 0) {
+            cpuTime = currentCpuTime() - startCpuTime;
+        }
+        if (startAllocatedBytes >= 0) {
+            allocatedBytes = currentAllocatedBytes(threadId) - startAllocatedBytes;
+        }
+        return this;
+    }
+
+    /**
+     * CPU时间(纳秒，不支持时为-1)
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * CPU时间(微秒，不支持时为null)
+     */
+    public Long getCpuTimeMicros() {
+        return cpuTime < 0 ? null : cpuTime / 1000;
+    }
+
+    /**
+     * 分配的堆内存(字节，不支持时为-1)
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,18 @@
+package org.clever.nashorn.watchdog;
+
+/**
+ * 脚本超出的资源限制类型
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 10:20 <br/>
+ */
+public enum ExceededLimit {
+    /**
+     * 超出CPU时间限制
+     */
+    CpuTime,
+    /**
+     * 超出执行时间限制
+     */
+    WallTime,
+}
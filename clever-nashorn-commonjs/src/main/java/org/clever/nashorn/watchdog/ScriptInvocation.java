@@ -0,0 +1,151 @@
+package org.clever.nashorn.watchdog;
+
+import lombok.Getter;
+
+/**
+ * 一次被看门狗监控的脚本调用(只能在发起调用的线程中使用) <br />
+ * 脚本调用结束后必须调用 {@link #close()}，建议使用 try-with-resources
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 10:30 <br/>
+ */
+public class ScriptInvocation implements AutoCloseable {
+    private final ScriptWatchdog watchdog;
+    /**
+     * 调用名称(一般是脚本文件全路径)
+     */
+    @Getter
+    private final String name;
+    /**
+     * 本次调用的资源限制
+     */
+    @Getter
+    private final ScriptLimits limits;
+    /**
+     * 执行脚本的线程
+     */
+    private final Thread thread;
+    /**
+     * 开始时间(毫秒)
+     */
+    @Getter
+    private final long startTime;
+    /**
+     * 开始时线程的CPU时间(纳秒，不支持时为-1)
+     */
+    private final long startCpuTime;
+    /**
+     * 保证终止线程和结束调用不会同时进行
+     */
+    private final Object lock = new Object();
+    /**
+     * 调用是否已经结束
+     */
+    private volatile boolean finished = false;
+    /**
+     * 超出的资源限制(未超出为null)
+     */
+    @Getter
+    private volatile ExceededLimit exceeded;
+    /**
+     * 是否被强制终止(Thread.stop)
+     */
+    @Getter
+    private volatile boolean stopped = false;
+    /**
+     * 最后一次中断或者终止线程的时间
+     */
+    private volatile long lastSignalTime;
+
+    ScriptInvocation(ScriptWatchdog watchdog, String name, ScriptLimits limits, Thread thread, long startCpuTime) {
+        this.watchdog = watchdog;
+        this.name = name;
+        this.limits = limits;
+        this.thread = thread;
+        this.startTime = System.currentTimeMillis();
+        this.startCpuTime = startCpuTime;
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    long getStartCpuTime() {
+        return startCpuTime;
+    }
+
+    long getLastSignalTime() {
+        return lastSignalTime;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 中断线程，让阻塞在IO或者等待中的脚本尽快退出
+     */
+    boolean interrupt(ExceededLimit limit) {
+        synchronized (lock) {
+            if (finished) {
+                return false;
+            }
+            exceeded = limit;
+            lastSignalTime = System.currentTimeMillis();
+            thread.interrupt();
+            return true;
+        }
+    }
+
+    /**
+     * 强制终止线程中正在执行的脚本(纯计算的死循环不会响应中断)
+     */
+    @SuppressWarnings("deprecation")
+    boolean stop() {
+        synchronized (lock) {
+            if (finished) {
+                return false;
+            }
+            stopped = true;
+            lastSignalTime = System.currentTimeMillis();
+            thread.stop();
+            return true;
+        }
+    }
+
+    /**
+     * 是否超出了资源限制
+     */
+    public boolean isExceeded() {
+        return exceeded != null;
+    }
+
+    /**
+     * 已经执行的时间(毫秒)
+     */
+    public long getWallTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * 结束调用，不再被看门狗监控
+     */
+    @Override
+    public void close() {
+        try {
+            // 等待正在进行的 interrupt/stop 完成
+            synchronized (lock) {
+                finished = true;
+            }
+        } finally {
+            // 等待锁时也可能收到 ThreadDeath，保证一定会结束监控
+            finished = true;
+            watchdog.finish(this);
+            // 清除看门狗设置的中断标记，避免影响线程之后的任务
+            if (exceeded != null && Thread.currentThread() == thread) {
+                //noinspection ResultOfMethodCallIgnored
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.clever.nashorn.watchdog;
+
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.Data;
+
+/**
+ * 单次脚本调用的资源限制 <br />
+ * 脚本可以导出 limits 对象覆盖全局配置，如：
+ * <pre>
+ *     exports.limits = { cpuTime: 200, wallTime: 1000 };
+ * </pre>
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 10:12 <br/>
+ */
+@Data
+public class ScriptLimits {
+    /**
+     * 脚本导出的资源限制对象名
+     */
+    public static final String Limits_Member = "limits";
+    private static final String Cpu_Time = "cpuTime";
+    private static final String Wall_Time = "wallTime";
+
+    /**
+     * CPU时间限制(毫秒，小于等于0表示不限制)
+     */
+    private long cpuTime;
+    /**
+     * 执行时间限制(毫秒，小于等于0表示不限制)
+     */
+    private long wallTime;
+
+    public ScriptLimits(long cpuTime, long wallTime) {
+        this.cpuTime = cpuTime;
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * 是否有限制
+     */
+    public boolean isLimited() {
+        return cpuTime > 0 || wallTime > 0;
+    }
+
+    /**
+     * 读取脚本导出的 limits 对象，未导出的属性使用默认值
+     *
+     * @param exports  脚本导出对象
+     * @param defaults 默认的资源限制
+     */
+    public static ScriptLimits from(ScriptObjectMirror exports, ScriptLimits defaults) {
+        ScriptLimits limits = new ScriptLimits(defaults.getCpuTime(), defaults.getWallTime());
+        if (exports == null) {
+            return limits;
+        }
+        Object limitsObject = exports.getMember(Limits_Member);
+        if (!(limitsObject instanceof ScriptObjectMirror)) {
+            return limits;
+        }
+        ScriptObjectMirror limitsMirror = (ScriptObjectMirror) limitsObject;
+        Object cpuTime = limitsMirror.getMember(Cpu_Time);
+        if (cpuTime instanceof Number) {
+            limits.setCpuTime(((Number) cpuTime).longValue());
+        }
+        Object wallTime = limitsMirror.getMember(Wall_Time);
+        if (wallTime instanceof Number) {
+            limits.setWallTime(((Number) wallTime).longValue());
+        }
+        return limits;
+    }
+}
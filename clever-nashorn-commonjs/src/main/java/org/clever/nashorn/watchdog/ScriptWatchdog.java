@@ -0,0 +1,233 @@
+package org.clever.nashorn.watchdog;
+
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 脚本执行看门狗 <br />
+ * 后台线程定时检查正在执行的脚本调用(ThreadMXBean采样CPU时间)，超出CPU时间或执行时间限制时: <br />
+ * 1. 先中断(interrupt)执行脚本的线程，阻塞在IO、sleep、wait中的脚本可以尽快退出 <br />
+ * 2. 超过 graceTime 后脚本还未退出(如纯计算的死循环)，强制终止(Thread.stop)线程中的脚本 <br />
+ * 被强制终止的脚本所在的 engine 状态不可靠，调用方需要丢弃(不再复用)对应的 ScriptModuleInstance
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 10:45 <br/>
+ */
+@Slf4j
+public class ScriptWatchdog {
+    @Getter
+    private final ScriptWatchdogConfig config;
+    /**
+     * 默认的资源限制
+     */
+    private final ScriptLimits defaultLimits;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    /**
+     * 是否支持获取线程CPU时间
+     */
+    private final boolean cpuTimeSupported;
+    /**
+     * 正在执行的脚本调用
+     */
+    private final Set<ScriptInvocation> invocations = ConcurrentHashMap.newKeySet();
+    /**
+     * 需要采样分析的调用名称(脚本文件全路径)
+     */
+    private final Set<String> profiledNames = ConcurrentHashMap.newKeySet();
+    /**
+     * 正在执行的需要采样分析的脚本调用(不受资源限制配置影响)
+     */
+    private final Set<ScriptInvocation> profiledInvocations = ConcurrentHashMap.newKeySet();
+    /**
+     * 检查线程
+     */
+    private final Thread checkThread;
+    private volatile boolean running = true;
+    /**
+     * 超出CPU时间限制的次数
+     */
+    private final AtomicLong cpuTimeExceededCount = new AtomicLong(0);
+    /**
+     * 超出执行时间限制的次数
+     */
+    private final AtomicLong wallTimeExceededCount = new AtomicLong(0);
+    /**
+     * 强制终止线程的次数
+     */
+    private final AtomicLong stopCount = new AtomicLong(0);
+
+    public ScriptWatchdog(ScriptWatchdogConfig config) {
+        this.config = config;
+        this.defaultLimits = new ScriptLimits(config.getCpuTime(), config.getWallTime());
+        boolean supported = threadMXBean.isThreadCpuTimeSupported();
+        if (supported && !threadMXBean.isThreadCpuTimeEnabled()) {
+            try {
+                threadMXBean.setThreadCpuTimeEnabled(true);
+            } catch (Throwable e) {
+                log.warn("开启线程CPU时间统计失败", e);
+                supported = false;
+            }
+        }
+        this.cpuTimeSupported = supported;
+        if (!cpuTimeSupported) {
+            log.warn("当前JVM不支持获取线程CPU时间，只能限制脚本执行时间");
+        }
+        checkThread = new Thread(this::run, "script-watchdog");
+        checkThread.setDaemon(true);
+        if (config.isEnable()) {
+            checkThread.start();
+        }
+    }
+
+    /**
+     * 开始监控当前线程的一次脚本调用
+     *
+     * @param name    调用名称(一般是脚本文件全路径)
+     * @param exports 脚本导出对象(读取导出的 limits 对象)
+     */
+    public ScriptInvocation start(String name, ScriptObjectMirror exports) {
+        return start(name, ScriptLimits.from(exports, defaultLimits));
+    }
+
+    /**
+     * 开始监控当前线程的一次脚本调用
+     *
+     * @param name   调用名称(一般是脚本文件全路径)
+     * @param limits 资源限制
+     */
+    public ScriptInvocation start(String name, ScriptLimits limits) {
+        final long startCpuTime = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : -1;
+        ScriptInvocation invocation = new ScriptInvocation(this, name, limits, Thread.currentThread(), startCpuTime);
+        if (config.isEnable() && limits.isLimited()) {
+            invocations.add(invocation);
+        }
+        if (!profiledNames.isEmpty() && profiledNames.contains(name)) {
+            profiledInvocations.add(invocation);
+        }
+        return invocation;
+    }
+
+    /**
+     * 结束监控
+     */
+    void finish(ScriptInvocation invocation) {
+        invocations.remove(invocation);
+        if (!profiledInvocations.isEmpty()) {
+            profiledInvocations.remove(invocation);
+        }
+    }
+
+    /**
+     * 开始记录指定名称的脚本调用(之后开始的调用才会记录)
+     *
+     * @param name 调用名称(一般是脚本文件全路径)
+     */
+    public void addProfiledName(String name) {
+        profiledNames.add(name);
+    }
+
+    /**
+     * 停止记录指定名称的脚本调用
+     */
+    public void removeProfiledName(String name) {
+        profiledNames.remove(name);
+        profiledInvocations.removeIf(invocation -> name.equals(invocation.getName()));
+    }
+
+    /**
+     * 正在执行的需要采样分析的脚本调用
+     */
+    public Collection<ScriptInvocation> getProfiledInvocations() {
+        return Collections.unmodifiableCollection(profiledInvocations);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(config.getCheckInterval());
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (ScriptInvocation invocation : invocations) {
+                try {
+                    check(invocation);
+                } catch (Throwable e) {
+                    log.warn("检查脚本执行状态失败 | {}", invocation.getName(), e);
+                }
+            }
+        }
+    }
+
+    private void check(ScriptInvocation invocation) {
+        if (invocation.isFinished()) {
+            return;
+        }
+        final ScriptLimits limits = invocation.getLimits();
+        if (invocation.getExceeded() == null) {
+            ExceededLimit exceeded = null;
+            final long wallTime = invocation.getWallTime();
+            long cpuTime = -1;
+            if (limits.getWallTime() > 0 && wallTime > limits.getWallTime()) {
+                exceeded = ExceededLimit.WallTime;
+            } else if (limits.getCpuTime() > 0 && cpuTimeSupported) {
+                long threadCpuTime = threadMXBean.getThreadCpuTime(invocation.getThread().getId());
+                if (threadCpuTime >= 0) {
+                    cpuTime = (threadCpuTime - invocation.getStartCpuTime()) / 1000_000;
+                    if (cpuTime > limits.getCpuTime()) {
+                        exceeded = ExceededLimit.CpuTime;
+                    }
+                }
+            }
+            if (exceeded != null && invocation.interrupt(exceeded)) {
+                if (ExceededLimit.CpuTime.equals(exceeded)) {
+                    cpuTimeExceededCount.incrementAndGet();
+                } else {
+                    wallTimeExceededCount.incrementAndGet();
+                }
+                log.warn("脚本超出资源限制，中断执行 | {} | {} | 执行时间 {}ms | CPU时间 {}ms | 限制 {}", invocation.getName(), exceeded, wallTime, cpuTime, limits);
+            }
+            return;
+        }
+        // 已经中断过，等待 graceTime 后仍未退出则强制终止(之后每隔 graceTime 重试)
+        if ((System.currentTimeMillis() - invocation.getLastSignalTime()) >= config.getGraceTime() && invocation.stop()) {
+            stopCount.incrementAndGet();
+            log.error("脚本未响应中断，强制终止 | {} | {} | 执行时间 {}ms", invocation.getName(), invocation.getExceeded(), invocation.getWallTime());
+        }
+    }
+
+    /**
+     * 正在监控的脚本调用数
+     */
+    public int getRunningCount() {
+        return invocations.size();
+    }
+
+    public long getCpuTimeExceededCount() {
+        return cpuTimeExceededCount.get();
+    }
+
+    public long getWallTimeExceededCount() {
+        return wallTimeExceededCount.get();
+    }
+
+    public long getStopCount() {
+        return stopCount.get();
+    }
+
+    /**
+     * 停止看门狗
+     */
+    public void close() {
+        running = false;
+        checkThread.interrupt();
+    }
+}
@@ -0,0 +1,33 @@
+package org.clever.nashorn.watchdog;
+
+import lombok.Data;
+
+/**
+ * 脚本执行看门狗配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 10:05 <br/>
+ */
+@Data
+public class ScriptWatchdogConfig {
+    /**
+     * 是否启用看门狗
+     */
+    private boolean enable = true;
+    /**
+     * 检查正在执行的脚本的时间间隔(毫秒)
+     */
+    private long checkInterval = 20;
+    /**
+     * 默认的单次调用CPU时间限制(毫秒，小于等于0表示不限制)，脚本可以通过导出的 limits.cpuTime 覆盖
+     */
+    private long cpuTime = 10_000;
+    /**
+     * 默认的单次调用执行时间限制(毫秒，小于等于0表示不限制)，脚本可以通过导出的 limits.wallTime 覆盖
+     */
+    private long wallTime = 60_000;
+    /**
+     * 中断(interrupt)线程后等待脚本自行退出的时间(毫秒)，超过后强制终止(Thread.stop)线程中的脚本
+     */
+    private long graceTime = 1_000;
+}
@@ -0,0 +1,117 @@
+package org.clever.nashorn.modules;
+
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.folder.CachingFileSystemFolder;
+import org.clever.nashorn.folder.Folder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 17:30 <br/>
+ */
+@Slf4j
+public class CachingFileSystemFolderTest {
+
+    private static void waitFor(Supplier<Boolean> condition) throws InterruptedException {
+        // WatchService 在部分系统上是轮询实现(如macOS)，最多等待20秒
+        for (int i = 0; i < 200 && !condition.get(); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(condition.get());
+    }
+
+    /**
+     * 文件内容缓存，修改、新增、删除文件后缓存失效
+     */
+    @Test
+    public void t1() throws Exception {
+        File root = Files.createTempDirectory("caching-folder").toFile();
+        try {
+            FileUtils.writeStringToFile(new File(root, "a.js"), "v1", StandardCharsets.UTF_8);
+            CachingFileSystemFolder folder = CachingFileSystemFolder.create(root);
+            Assert.assertEquals("v1", folder.getFileContent("a.js"));
+            Assert.assertNull(folder.getFileContent("b.js"));
+            Assert.assertNull(folder.getFolder("sub"));
+            Assert.assertEquals(2, folder.getCachedFileCount());
+
+            FileUtils.writeStringToFile(new File(root, "a.js"), "v2", StandardCharsets.UTF_8);
+            waitFor(() -> "v2".equals(folder.getFileContent("a.js")));
+            FileUtils.writeStringToFile(new File(root, "b.js"), "b", StandardCharsets.UTF_8);
+            waitFor(() -> "b".equals(folder.getFileContent("b.js")));
+            // 新建的子文件夹也会被监听
+            FileUtils.writeStringToFile(new File(root, "sub/c.js"), "c1", StandardCharsets.UTF_8);
+            waitFor(() -> folder.getFolder("sub") != null);
+            Folder sub = folder.getFolder("sub");
+            waitFor(() -> "c1".equals(sub.getFileContent("c.js")));
+            FileUtils.writeStringToFile(new File(root, "sub/c.js"), "c2", StandardCharsets.UTF_8);
+            waitFor(() -> "c2".equals(sub.getFileContent("c.js")));
+            FileUtils.deleteQuietly(new File(root, "a.js"));
+            waitFor(() -> folder.getFileContent("a.js") == null);
+            folder.close();
+        } finally {
+            FileUtils.deleteQuietly(root);
+        }
+    }
+
+    /**
+     * 修改文件后删除依赖它的Module缓存
+     */
+    @Test
+    public void t2() throws Exception {
+        File root = Files.createTempDirectory("caching-folder").toFile();
+        try {
+            FileUtils.writeStringToFile(new File(root, "lib.js"), "exports.value = 1;", StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(new File(root, "main.js"), "var lib = require('./lib'); exports.get = function () { return lib.value; };", StandardCharsets.UTF_8);
+            ScriptModuleInstance instance = ScriptModuleInstance.creatDefault("test", "test", root.getAbsolutePath());
+            ScriptObjectMirror main = instance.useJs("./main.js");
+            Assert.assertEquals(1, ((Number) main.callMember("get")).intValue());
+
+            FileUtils.writeStringToFile(new File(root, "lib.js"), "exports.value = 2;", StandardCharsets.UTF_8);
+            waitFor(() -> ((Number) instance.useJs("./main.js").callMember("get")).intValue() == 2);
+            log.info("### 模块已重新加载");
+            ((CachingFileSystemFolder) instance.getFolder()).close();
+        } finally {
+            FileUtils.deleteQuietly(root);
+        }
+    }
+
+    /**
+     * 删除文件夹时，文件夹中每个已缓存的文件都会通知监听器
+     */
+    @Test
+    public void t3() throws Exception {
+        File root = Files.createTempDirectory("caching-folder").toFile();
+        try {
+            FileUtils.writeStringToFile(new File(root, "sub/a.js"), "a", StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(new File(root, "sub/b.js"), "b", StandardCharsets.UTF_8);
+            CachingFileSystemFolder folder = CachingFileSystemFolder.create(root);
+            Set<String> deleted = ConcurrentHashMap.newKeySet();
+            folder.addChangeListener((fullPath, kind) -> {
+                if (StandardWatchEventKinds.ENTRY_DELETE.equals(kind)) {
+                    deleted.add(fullPath);
+                }
+            });
+            Folder sub = folder.getFolder("sub");
+            Assert.assertEquals("a", sub.getFileContent("a.js"));
+            Assert.assertEquals("b", sub.getFileContent("b.js"));
+            FileUtils.deleteDirectory(new File(root, "sub"));
+            waitFor(() -> deleted.contains(sub.getFilePath("a.js")) && deleted.contains(sub.getFilePath("b.js")));
+            Assert.assertNull(folder.getFolder("sub"));
+            folder.close();
+        } finally {
+            FileUtils.deleteQuietly(root);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.clever.nashorn.modules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.folder.CachingFileSystemFolder;
+import org.clever.nashorn.internal.Console;
+import org.clever.nashorn.internal.LogConsole;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.module.cache.DependencyModuleCache;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.pool.ScriptModuleInstancePoolConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/03 10:20 <br/>
+ */
+@Slf4j
+public class CompiledScriptCacheTest {
+    private static final String Root_Path = "src/test/resources/test1";
+
+    /**
+     * 池中两个实例 require 同一个模块，每个实例各自编译一次，重新加载模块时命中编译缓存
+     */
+    @Test
+    public void t1() {
+        ScriptModuleInstancePoolConfig config = new ScriptModuleInstancePoolConfig();
+        ScriptModuleInstancePool pool = ScriptModuleInstancePool.creat(
+                config,
+                CachingFileSystemFolder.create(new File(Root_Path)),
+                new LogConsole("test", "test", Root_Path),
+                null
+        );
+        ScriptModuleInstance instance1 = pool.borrow();
+        ScriptModuleInstance instance2 = pool.borrow();
+        try {
+            final long missCount = CompiledScriptCache.getMissCount();
+            instance1.useJs("./leak.js");
+            instance2.useJs("./leak.js");
+            Assert.assertEquals(missCount + 2, CompiledScriptCache.getMissCount());
+            Assert.assertEquals(1, instance1.getCompiledScriptCache().size());
+            // 删除Module缓存后重新执行模块代码，不需要重新编译
+            final long hitCount = CompiledScriptCache.getHitCount();
+            instance1.getModuleCache().clear();
+            instance1.useJs("./leak.js");
+            Assert.assertEquals(hitCount + 1, CompiledScriptCache.getHitCount());
+            Assert.assertEquals(missCount + 2, CompiledScriptCache.getMissCount());
+        } finally {
+            pool.giveBack(instance1);
+            pool.giveBack(instance2);
+            pool.close();
+        }
+    }
+
+    /**
+     * 模块代码可以使用 console，未声明的全局变量不会影响其它模块
+     */
+    @Test
+    public void t2() {
+        final List<String> logs = new ArrayList<>();
+        ScriptModuleInstance instance = new ScriptModuleInstance(
+                CachingFileSystemFolder.create(new File(Root_Path)),
+                new DependencyModuleCache(),
+                new RecordConsole(logs)
+        );
+        Assert.assertEquals(true, instance.useJs("./console.js").getMember("hasConsole"));
+        Assert.assertEquals(1, logs.size());
+        Assert.assertTrue(logs.get(0).contains("console.js"));
+        Assert.assertEquals("undefined", instance.useJs("./leak.js").getMember("leaked"));
+    }
+
+    /**
+     * 记录 log 输出的 Console
+     */
+    private static class RecordConsole implements Console {
+        private final List<String> logs;
+
+        private RecordConsole(List<String> logs) {
+            this.logs = logs;
+        }
+
+        @Override
+        public void log(Object... args) {
+            logs.add(Arrays.toString(args));
+        }
+
+        @Override
+        public void trace(Object... args) {
+        }
+
+        @Override
+        public void debug(Object... args) {
+        }
+
+        @Override
+        public void info(Object... args) {
+        }
+
+        @Override
+        public void warn(Object... args) {
+        }
+
+        @Override
+        public void error(Object... args) {
+        }
+
+        @Override
+        public Console creat(String filePath, String fileName) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.clever.nashorn.modules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.folder.CachingFileSystemFolder;
+import org.clever.nashorn.folder.Folder;
+import org.clever.nashorn.internal.LogConsole;
+import org.clever.nashorn.module.cache.DependencyModuleCache;
+import org.clever.nashorn.module.cache.ModuleCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/23 17:02 <br/>
+ */
+@Slf4j
+public class DependencyModuleCacheTest {
+
+    @Test
+    public void t1() {
+        ScriptModuleInstance scriptModuleInstance = ScriptModuleInstance.creatDefault("test", "test", "src/test/resources/test1");
+        scriptModuleInstance.useJs("./foo.js");
+        Folder folder = scriptModuleInstance.getFolder();
+        ModuleCache moduleCache = scriptModuleInstance.getModuleCache();
+        String fooPath = folder.getFilePath("foo.js");
+        String barPath = folder.getFolder("subdir").getFilePath("bar.js");
+        Assert.assertNotNull(moduleCache.get(fooPath));
+        Assert.assertNotNull(moduleCache.get(barPath));
+        // 删除被依赖的模块，依赖它的模块也被删除
+        moduleCache.remove(barPath);
+        Assert.assertNull(moduleCache.get(barPath));
+        Assert.assertNull(moduleCache.get(fooPath));
+        log.info("### foo={} | bar={}", fooPath, barPath);
+    }
+
+    @Test
+    public void t2() {
+        ScriptModuleInstance scriptModuleInstance = ScriptModuleInstance.creatDefault("test", "test", "src/test/resources/test1");
+        Folder folder = scriptModuleInstance.getFolder();
+        String fooPath = folder.getFilePath("foo.js");
+        String barPath = folder.getFolder("subdir").getFilePath("bar.js");
+        Assert.assertNull(scriptModuleInstance.getBoundFunction(0, fooPath));
+        Assert.assertNull(scriptModuleInstance.bindFunction(0, fooPath, "foo"));
+        Assert.assertNotNull(scriptModuleInstance.bindFunction(0, fooPath, "test"));
+        Assert.assertNotNull(scriptModuleInstance.getBoundFunction(0, fooPath));
+        Assert.assertNull(scriptModuleInstance.getBoundFunction(0, barPath));
+        // 删除被依赖的模块，预先解析的函数失效
+        scriptModuleInstance.getModuleCache().remove(barPath);
+        Assert.assertNull(scriptModuleInstance.getBoundFunction(0, fooPath));
+    }
+
+    /**
+     * 按权重淘汰模块时同时淘汰依赖它的模块，预先解析的函数失效
+     */
+    @Test
+    public void t3() {
+        final String rootPath = "src/test/resources/test1";
+        DependencyModuleCache moduleCache = new DependencyModuleCache(1);
+        ScriptModuleInstance scriptModuleInstance = new ScriptModuleInstance(
+                CachingFileSystemFolder.create(new File(rootPath)),
+                moduleCache,
+                new LogConsole("test", "test", rootPath)
+        );
+        Folder folder = scriptModuleInstance.getFolder();
+        String fooPath = folder.getFilePath("foo.js");
+        String barPath = folder.getFolder("subdir").getFilePath("bar.js");
+        Assert.assertNotNull(scriptModuleInstance.bindFunction(0, fooPath, "test"));
+        // foo.js 依赖 bar.js，淘汰 bar.js 会删除 foo.js，加入 foo.js 时不会淘汰 bar.js
+        Assert.assertNotNull(moduleCache.get(barPath));
+        Assert.assertNotNull(scriptModuleInstance.getBoundFunction(0, fooPath));
+        scriptModuleInstance.useJs("./global.js");
+        Assert.assertEquals(1, moduleCache.size());
+        Assert.assertNull(moduleCache.get(barPath));
+        Assert.assertNull(moduleCache.get(fooPath));
+        Assert.assertNull(scriptModuleInstance.getBoundFunction(0, fooPath));
+        // 重新解析
+        Assert.assertNotNull(scriptModuleInstance.bindFunction(0, fooPath, "test"));
+        Assert.assertNotNull(scriptModuleInstance.getBoundFunction(0, fooPath));
+    }
+}
@@ -81,4 +81,19 @@ public class LogConsoleTest {
         scriptObjectMirror.callMember("tmp");
         log.info(" # --- {}", scriptModuleInstance.getRootModule());
     }
+
+    @Test
+    public void t5() {
+        // 没有开启trace级别时不会生成日志字符串
+        Map<String, Object> arg = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            arg.put("key" + i, new Date());
+        }
+        final int count = 100000;
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            logConsole.trace("arg -> ", arg);
+        }
+        log.info("### console.trace {} 次 耗时：{}ms", count, System.currentTimeMillis() - startTime);
+    }
 }
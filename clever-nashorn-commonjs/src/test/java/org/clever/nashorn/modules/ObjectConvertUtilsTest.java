@@ -1,11 +1,13 @@
 package org.clever.nashorn.modules;
 
+import jdk.nashorn.api.scripting.NashornScriptEngine;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import lombok.extern.slf4j.Slf4j;
 import org.clever.common.utils.DateTimeUtils;
 import org.clever.nashorn.utils.ObjectConvertUtils;
 import org.clever.nashorn.utils.ScriptEngineUtils;
 import org.clever.nashorn.utils.StrFormatter;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.*;
@@ -86,4 +88,85 @@ public class ObjectConvertUtilsTest {
         Object object = ObjectConvertUtils.Instance.underlineToCamel(list);
         log.info("-------------------------> {}", object);
     }
+
+    @Test
+    public void t8() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", (long) i);
+            row.put("name", "name-" + i);
+            row.put("create_at", new Date());
+            rows.add(row);
+        }
+        long startTime = System.currentTimeMillis();
+        Object view = ObjectConvertUtils.Instance.javaToJSView(rows);
+        log.info("-------------------------> javaToJSView 耗时：{}ms", System.currentTimeMillis() - startTime);
+        NashornScriptEngine engine = ScriptEngineUtils.creatEngine();
+        engine.put("rows", view);
+        Object result = engine.eval("Array.isArray(rows) + '|' + rows.length + '|' + rows[1].name + '|' + (rows[2].create_at.getTime() > 0) + '|' + (rows[0].xxx === undefined)");
+        Assert.assertEquals("true|100000|name-1|true|true", result);
+        result = engine.eval("rows.slice(0, 3).map(function (row) { return row.id; }).join(',')");
+        Assert.assertEquals("0,1,2", result);
+        result = engine.eval("rows.push({id: -1}); rows.length + '|' + rows[100000].id");
+        Assert.assertEquals("100001|-1", result);
+        startTime = System.currentTimeMillis();
+        ObjectConvertUtils.Instance.javaToJSObject(rows.subList(0, 1000));
+        log.info("-------------------------> javaToJSObject(1000) 耗时：{}ms", System.currentTimeMillis() - startTime);
+    }
+
+    @Test
+    public void t9() throws Exception {
+        NashornScriptEngine engine = ScriptEngineUtils.creatEngine();
+        ScriptObjectMirror rows = (ScriptObjectMirror) engine.eval("var rows = [];\n" +
+                "for (var i = 0; i < 10000; i++) {\n" +
+                "    rows.push({id: i, name: 'name-' + i, price: i / 4, createAt: new Date(), tags: [i, i + 1], deleted: undefined});\n" +
+                "}\n" +
+                "rows");
+        List<Map<String, Object>> list = ObjectConvertUtils.jsToJavaMapList(rows);
+        Assert.assertEquals(10000, list.size());
+        Map<String, Object> row = list.get(1);
+        Assert.assertEquals("name-1", row.get("name"));
+        Assert.assertTrue(row.get("createAt") instanceof Date);
+        Assert.assertEquals(Arrays.asList(1, 2), row.get("tags"));
+        Assert.assertTrue(row.containsKey("deleted") && row.get("deleted") == null);
+        Assert.assertArrayEquals(new int[]{3, 4}, ObjectConvertUtils.jsArrayToIntArray(engine.eval("[3, '4']")));
+        // 预热
+        for (int i = 0; i < 20; i++) {
+            ObjectConvertUtils.jsToJavaMapList(rows);
+        }
+        final int count = 50;
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            ObjectConvertUtils.jsToJavaMapList(rows);
+        }
+        log.info("-------------------------> 10000行批量参数转换 {} 次 耗时：{}ms", count, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 数组中的JS对象、JavaListView、JavaMapView 转换成Java对象
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void t10() throws Exception {
+        NashornScriptEngine engine = ScriptEngineUtils.creatEngine();
+        List<Object> javaList = Arrays.asList(1, 2, 3);
+        Map<String, Object> javaMap = new HashMap<>();
+        javaMap.put("a", "b");
+        engine.put("javaList", ObjectConvertUtils.Instance.javaToJSView(javaList));
+        engine.put("javaMap", ObjectConvertUtils.Instance.javaToJSView(javaMap));
+        ScriptObjectMirror row = (ScriptObjectMirror) engine.eval("({items: [{id: 1, tags: ['x'], user: {name: 'n'}}], list: javaList, map: javaMap})");
+        Map<String, Object> map = ObjectConvertUtils.jsToJavaMap(row);
+        Map<String, Object> item = (Map<String, Object>) ((List<Object>) map.get("items")).get(0);
+        Assert.assertEquals(1, item.get("id"));
+        Assert.assertEquals(Collections.singletonList("x"), item.get("tags"));
+        Assert.assertEquals("n", ((Map<String, Object>) item.get("user")).get("name"));
+        Assert.assertSame(javaList, map.get("list"));
+        Assert.assertSame(javaMap, map.get("map"));
+        // 脚本修改过的视图
+        row = (ScriptObjectMirror) engine.eval("javaMap.c = {d: 1}; javaList.push(4); ({list: javaList, map: javaMap})");
+        map = ObjectConvertUtils.jsToJavaMap(row);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4), map.get("list"));
+        Assert.assertEquals(1, ((Map<String, Object>) ((Map<String, Object>) map.get("map")).get("c")).get("d"));
+    }
 }
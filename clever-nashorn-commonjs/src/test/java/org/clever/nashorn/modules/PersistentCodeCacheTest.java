@@ -0,0 +1,114 @@
+package org.clever.nashorn.modules;
+
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 冷启动对比: 不使用/使用Nashorn持久化代码缓存时，从JVM启动到第一次成功调用脚本的耗时 <br />
+ * 每次测量都启动一个新的JVM进程，避免JIT和类缓存的影响；第一次运行生成的缓存文件在之后的运行中被复用(不会重新写入)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/22 16:30 <br/>
+ */
+@Slf4j
+public class PersistentCodeCacheTest {
+    private static final String Cache_Dir = "target/nashorn_code_cache";
+    private static final String Root_Path = "src/test/resources/test3";
+
+    /**
+     * 子进程入口 args[0]: 缓存目录(none表示不使用缓存)
+     */
+    public static void main(String[] args) {
+        if (!"none".equals(args[0])) {
+            File versionDir = ScriptEngineUtils.enablePersistentCodeCache(args[0], "v1", true);
+            System.out.println("cache-dir=" + versionDir.getAbsolutePath());
+        }
+        ScriptModuleInstance scriptModuleInstance = ScriptModuleInstance.creatDefault("test", "test", Root_Path);
+        ScriptObjectMirror test = scriptModuleInstance.useJs("./test.js");
+        ((ScriptObjectMirror) test.getMember("invariant")).call(null, true, "ok");
+        long timeToFirstCall = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println("time-to-first-call=" + timeToFirstCall);
+    }
+
+    /**
+     * @return 子进程输出的 key=value
+     */
+    private Map<String, String> runOnce(String cacheDir) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PersistentCodeCacheTest.class.getName());
+        command.add(cacheDir);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = IOUtils.readLines(process.getInputStream(), StandardCharsets.UTF_8);
+        process.waitFor();
+        Map<String, String> result = new HashMap<>();
+        for (String line : lines) {
+            int index = line.indexOf('=');
+            if (line.startsWith("time-to-first-call=") || line.startsWith("cache-dir=")) {
+                result.put(line.substring(0, index), line.substring(index + 1));
+            }
+        }
+        if (!result.containsKey("time-to-first-call")) {
+            throw new RuntimeException("子进程执行失败: " + lines);
+        }
+        return result;
+    }
+
+    /**
+     * @return Map<缓存文件, 最后修改时间>
+     */
+    private Map<String, Long> listCacheFiles(String versionDir) {
+        Map<String, Long> files = new TreeMap<>();
+        for (File file : FileUtils.listFiles(new File(versionDir, "classes"), null, true)) {
+            files.put(file.getAbsolutePath(), file.lastModified());
+        }
+        return files;
+    }
+
+    @Test
+    public void t1() throws Exception {
+        FileUtils.deleteQuietly(new File(Cache_Dir));
+        final int count = 3;
+        for (int i = 0; i < count; i++) {
+            log.info("### 不使用缓存 | time-to-first-call={}ms", runOnce("none").get("time-to-first-call"));
+        }
+        // 第一次运行生成缓存
+        Map<String, String> first = runOnce(Cache_Dir);
+        log.info("### 生成缓存   | time-to-first-call={}ms", first.get("time-to-first-call"));
+        final String versionDir = first.get("cache-dir");
+        Map<String, Long> cacheFiles = listCacheFiles(versionDir);
+        Assert.assertFalse("没有生成缓存文件", cacheFiles.isEmpty());
+        for (int i = 0; i < count; i++) {
+            Map<String, String> cached = runOnce(Cache_Dir);
+            log.info("### 使用缓存   | time-to-first-call={}ms", cached.get("time-to-first-call"));
+            // 使用同一个缓存目录，直接加载已有的缓存文件
+            Assert.assertEquals(versionDir, cached.get("cache-dir"));
+            Assert.assertEquals(cacheFiles, listCacheFiles(versionDir));
+        }
+    }
+
+    /**
+     * 缓存版本只与JDK版本、应用版本、engine参数有关
+     */
+    @Test
+    public void t2() {
+        String[] args = new String[]{"-doe", "--persistent-code-cache=true", "--optimistic-types=true"};
+        String version = ScriptEngineUtils.getCodeCacheVersion("v1", args);
+        Assert.assertEquals(version, ScriptEngineUtils.getCodeCacheVersion("v1", args.clone()));
+        Assert.assertNotEquals(version, ScriptEngineUtils.getCodeCacheVersion("v2", args));
+        Assert.assertNotEquals(version, ScriptEngineUtils.getCodeCacheVersion("v1", new String[]{"-doe", "--persistent-code-cache=true", "--optimistic-types=false"}));
+    }
+}
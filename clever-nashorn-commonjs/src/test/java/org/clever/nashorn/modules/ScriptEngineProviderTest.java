@@ -0,0 +1,176 @@
+package org.clever.nashorn.modules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.clever.common.utils.mapper.JacksonMapper;
+import org.clever.nashorn.engine.ScriptEngineProvider;
+import org.clever.nashorn.engine.ScriptEngineType;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 对比Nashorn和GraalJS执行同一个脚本的结果和性能 <br />
+ * 默认使用 src/test/resources/benchmark 中的示例脚本，
+ * 可以使用 -Dbenchmark.script.dir=目录 指定真实的 controller.js 和 binlog.js (脚本需要定义 service(requestJson) 函数)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/26 14:30 <br/>
+ */
+@Slf4j
+public class ScriptEngineProviderTest {
+    private static final int Warm_Up = 200;
+    private static final int Iterations = 2000;
+
+    private String readScript(String name) throws Exception {
+        String dir = System.getProperty("benchmark.script.dir");
+        if (dir != null) {
+            return FileUtils.readFileToString(new File(dir, name), StandardCharsets.UTF_8);
+        }
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("benchmark/" + name)) {
+            return IOUtils.toString(Objects.requireNonNull(inputStream), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String controllerRequest() {
+        Map<String, Object> request = new HashMap<>();
+        request.put("size", 500);
+        request.put("minAge", 30);
+        request.put("pageSize", 20);
+        return JacksonMapper.getInstance().toJson(request);
+    }
+
+    private String binlogRequest() {
+        List<List<Map<String, Object>>> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<Map<String, Object>> columns = new ArrayList<>();
+            for (String name : new String[]{"id", "name", "status", "update_at"}) {
+                Map<String, Object> column = new HashMap<>();
+                column.put("name", name);
+                column.put("value", "id".equals(name) ? String.valueOf(i) : name + "-" + i);
+                column.put("isNull", false);
+                column.put("updated", i % 2 == 0 && "status".equals(name));
+                columns.add(column);
+            }
+            rows.add(columns);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("tableName", "test.tb_order");
+        data.put("rows", rows);
+        return JacksonMapper.getInstance().toJson(data);
+    }
+
+    /**
+     * @return 脚本返回值
+     */
+    private String benchmark(ScriptEngineType type, String scriptName, String script, String request) throws Exception {
+        ScriptEngineProvider provider = type.getProvider();
+        long startTime = System.currentTimeMillis();
+        ScriptEngine engine = provider.creatEngine();
+        engine.eval(script);
+        Invocable invocable = (Invocable) engine;
+        Object result = invocable.invokeFunction("service", request);
+        long firstTime = System.currentTimeMillis() - startTime;
+        for (int i = 0; i < Warm_Up; i++) {
+            invocable.invokeFunction("service", request);
+        }
+        long[] times = new long[Iterations];
+        for (int i = 0; i < Iterations; i++) {
+            long start = System.nanoTime();
+            invocable.invokeFunction("service", request);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        long sum = 0;
+        for (long time : times) {
+            sum += time;
+        }
+        log.info("### {} | {} | 首次执行(含创建引擎) {}ms | avg {}us | p50 {}us | p99 {}us",
+                provider.getName(),
+                scriptName,
+                firstTime,
+                sum / Iterations / 1000,
+                times[Iterations / 2] / 1000,
+                times[Iterations * 99 / 100] / 1000);
+        return String.valueOf(result);
+    }
+
+    private void compare(String scriptName, String request) throws Exception {
+        Assume.assumeTrue("没有GraalJS依赖", ScriptEngineType.GraalJs.getProvider().isAvailable());
+        String script = readScript(scriptName);
+        String nashorn = benchmark(ScriptEngineType.Nashorn, scriptName, script, request);
+        String graalJs = benchmark(ScriptEngineType.GraalJs, scriptName, script, request);
+        Assert.assertEquals(nashorn, graalJs);
+    }
+
+    /**
+     * controller.js
+     */
+    @Test
+    public void t1() throws Exception {
+        compare("controller.js", controllerRequest());
+    }
+
+    /**
+     * Binlog消费脚本
+     */
+    @Test
+    public void t2() throws Exception {
+        compare("binlog.js", binlogRequest());
+    }
+
+    /**
+     * GraalJS支持ES6语法，Java.type 受类白名单限制
+     */
+    @Test
+    public void t3() throws Exception {
+        Assume.assumeTrue("没有GraalJS依赖", ScriptEngineType.GraalJs.getProvider().isAvailable());
+        ScriptEngine engine = ScriptEngineType.GraalJs.getProvider().creatEngine();
+        Object result = engine.eval("const sum = (...args) => args.reduce((a, b) => a + b, 0); `${sum(1, 2, 3)}`");
+        Assert.assertEquals("6", result);
+        result = engine.eval("Java.type('org.apache.commons.lang3.StringUtils').isBlank('  ')");
+        Assert.assertEquals(true, result);
+        try {
+            engine.eval("Java.type('java.io.File')");
+            Assert.fail();
+        } catch (Exception e) {
+            log.info("### 不允许访问 java.io.File -> {}", e.getMessage());
+        }
+    }
+
+    /**
+     * ScriptValueConverter: Java数据传给脚本，脚本返回值转换成Java数据
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void t4() throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("name", "order");
+        request.put("items", Arrays.asList(1, 2, 3));
+        for (ScriptEngineType type : ScriptEngineType.values()) {
+            ScriptEngineProvider provider = type.getProvider();
+            if (!provider.isAvailable()) {
+                log.info("### 跳过 {}", provider.getName());
+                continue;
+            }
+            ScriptEngine engine = provider.creatEngine();
+            engine.eval("function service(request) { return {name: request.name.toUpperCase(), size: request.items.length, items: request.items.map(function (item) { return {id: item}; })}; }");
+            Object result = ((Invocable) engine).invokeFunction("service", provider.getValueConverter().toScript(request));
+            Map<String, Object> map = (Map<String, Object>) provider.getValueConverter().toJava(result);
+            log.info("### {} -> {}", provider.getName(), map);
+            Assert.assertEquals("ORDER", map.get("name"));
+            Assert.assertEquals(3, ((Number) map.get("size")).intValue());
+            List<Object> items = (List<Object>) map.get("items");
+            Assert.assertEquals(3, items.size());
+            Assert.assertEquals(2, ((Number) ((Map<String, Object>) items.get(1)).get("id")).intValue());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.clever.nashorn.modules;
+
+import jdk.nashorn.api.scripting.NashornScriptEngine;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+import org.clever.nashorn.watchdog.ExceededLimit;
+import org.clever.nashorn.watchdog.ScriptInvocation;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
+import org.clever.nashorn.watchdog.ScriptWatchdogConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 14:10 <br/>
+ */
+@Slf4j
+public class ScriptWatchdogTest {
+
+    private ScriptObjectMirror eval(String code) throws Exception {
+        NashornScriptEngine engine = ScriptEngineUtils.creatEngine();
+        return (ScriptObjectMirror) engine.eval(code);
+    }
+
+    /**
+     * 死循环超出CPU时间限制，被强制终止
+     */
+    @Test
+    public void t1() throws Exception {
+        ScriptWatchdogConfig config = new ScriptWatchdogConfig();
+        config.setCpuTime(200);
+        config.setGraceTime(100);
+        ScriptWatchdog scriptWatchdog = new ScriptWatchdog(config);
+        ScriptObjectMirror exports = eval("({ service: function () { var i = 0; while (true) { i++; } } })");
+        ScriptInvocation invocation = scriptWatchdog.start("loop.js", exports);
+        try {
+            exports.callMember("service");
+            Assert.fail();
+        } catch (Throwable e) {
+            log.info("### 脚本被终止 -> {}", e.getClass().getName());
+        } finally {
+            invocation.close();
+        }
+        Assert.assertEquals(ExceededLimit.CpuTime, invocation.getExceeded());
+        Assert.assertTrue(invocation.isStopped());
+        Assert.assertFalse(Thread.currentThread().isInterrupted());
+        log.info("### 执行时间 {}ms", invocation.getWallTime());
+        scriptWatchdog.close();
+    }
+
+    /**
+     * 脚本导出的 limits 覆盖默认配置，sleep 响应中断后退出
+     */
+    @Test
+    public void t2() throws Exception {
+        ScriptWatchdog scriptWatchdog = new ScriptWatchdog(new ScriptWatchdogConfig());
+        ScriptObjectMirror exports = eval("({ limits: { wallTime: 100 }, service: function () { java.lang.Thread.sleep(10000); } })");
+        ScriptInvocation invocation = scriptWatchdog.start("sleep.js", exports);
+        try {
+            exports.callMember("service");
+            Assert.fail();
+        } catch (Throwable e) {
+            log.info("### 脚本被中断 -> {}", e.getClass().getName());
+        } finally {
+            invocation.close();
+        }
+        Assert.assertEquals(ExceededLimit.WallTime, invocation.getExceeded());
+        Assert.assertFalse(invocation.isStopped());
+        scriptWatchdog.close();
+    }
+}
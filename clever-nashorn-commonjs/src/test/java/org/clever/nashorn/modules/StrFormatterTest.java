@@ -2,6 +2,7 @@ package org.clever.nashorn.modules;
 
 import lombok.extern.slf4j.Slf4j;
 import org.clever.nashorn.utils.StrFormatter;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -19,4 +20,16 @@ public class StrFormatterTest {
         log.info("---> {}", StrFormatter.underlineToCamel("_audit_status"));
         log.info("---> {}", StrFormatter.underlineToCamel("__audit_status"));
     }
+
+    @Test
+    public void t2() {
+        // 解析结果缓存后多次调用结果一致
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("this is a for b", StrFormatter.format("this is {} for {}", "a", "b"));
+            Assert.assertEquals("this is {} for a", StrFormatter.format("this is \\{} for {}", "a", "b"));
+            Assert.assertEquals("this is \\a for b", StrFormatter.format("this is \\\\{} for {}", "a", "b"));
+            Assert.assertEquals("a {} \\{}", StrFormatter.format("{} {} \\{}", "a"));
+            Assert.assertEquals("no placeholder", StrFormatter.format("no placeholder", "a"));
+        }
+    }
 }
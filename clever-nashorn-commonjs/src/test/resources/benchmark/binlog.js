@@ -0,0 +1,20 @@
+// 模拟Binlog消费脚本: 遍历行变化，生成需要同步的数据
+function service(requestJson) {
+    var data = JSON.parse(requestJson);
+    var result = {};
+    for (var i = 0; i < data.rows.length; i++) {
+        var columns = data.rows[i];
+        var record = {};
+        var updated = [];
+        for (var j = 0; j < columns.length; j++) {
+            var column = columns[j];
+            record[column.name] = column.isNull ? null : column.value;
+            if (column.updated) {
+                updated.push(column.name);
+            }
+        }
+        var key = data.tableName + ":" + record.id;
+        result[key] = {updated: updated.join(","), size: Object.keys(record).length};
+    }
+    return JSON.stringify(result);
+}
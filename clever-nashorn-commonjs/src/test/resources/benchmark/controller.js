@@ -0,0 +1,31 @@
+// 模拟 controller.js: 解析请求参数、查询结果转换、分页排序
+function service(requestJson) {
+    var request = JSON.parse(requestJson);
+    var rows = [];
+    for (var i = 0; i < request.size; i++) {
+        rows.push({
+            id: i,
+            name: "user-" + i,
+            age: 18 + (i % 40),
+            tags: ["a" + (i % 3), "b" + (i % 5)],
+            createAt: new Date(1571990400000 + i * 1000).toISOString()
+        });
+    }
+    var list = rows.filter(function (row) {
+        return row.age >= request.minAge;
+    }).map(function (row) {
+        return {
+            id: row.id,
+            title: row.name.toUpperCase() + "(" + row.age + ")",
+            tags: row.tags.join(","),
+            createAt: row.createAt
+        };
+    });
+    list.sort(function (a, b) {
+        return b.id - a.id;
+    });
+    return JSON.stringify({
+        total: list.length,
+        records: list.slice(0, request.pageSize)
+    });
+}
@@ -0,0 +1,4 @@
+// 模块代码中使用 console，并且给未声明的变量赋值
+console.log("console.js {}", "loaded");
+leaked = "console.js";
+exports.hasConsole = typeof console !== 'undefined';
@@ -0,0 +1,2 @@
+// 其它模块给未声明的变量赋值不会影响当前模块
+exports.leaked = typeof leaked;
@@ -39,7 +39,7 @@ public class CodeRunLogQueryReq extends QueryByPage {
     @ApiModelProperty("运行结束时间-结束")
     private Date runEndEnd;
 
-    @ApiModelProperty("脚本运行状态：1-运行中，2-成功，3-异常，4-超时，...")
+    @ApiModelProperty("脚本运行状态：1-运行中，2-成功，3-异常，4-超时，5-超出CPU时间限制，...")
     private Integer status;
 
     @ApiModelProperty("执行时间-最小(单位:微秒)(1毫秒=1000微秒)")
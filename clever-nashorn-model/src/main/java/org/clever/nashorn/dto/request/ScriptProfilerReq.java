@@ -0,0 +1,40 @@
+package org.clever.nashorn.dto.request;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.clever.nashorn.model.WebSocketTaskReq;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+
+/**
+ * 请求对脚本采样分析(火焰图)
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 09:30 <br/>
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class ScriptProfilerReq extends WebSocketTaskReq {
+    /**
+     * 业务类型
+     */
+    @NotBlank
+    private String bizType;
+    /**
+     * 代码分组
+     */
+    @NotBlank
+    private String groupName;
+    /**
+     * 分析的脚本文件名(全路径)
+     */
+    @NotBlank
+    private String fileFullPath;
+    /**
+     * 采样时长(秒)，为空时使用默认值
+     */
+    @Min(1)
+    @Max(3600)
+    private Integer duration;
+}
@@ -32,9 +32,15 @@ public class CodeRunLogQueryRes extends BaseResponse {
     /** 运行日志 */
     private String runLog;
 
-    /** 脚本运行状态：1-运行中，2-成功，3-异常，4-超时，... */
+    /** 脚本运行状态：1-运行中，2-成功，3-异常，4-超时，5-超出CPU时间限制，... */
     private Integer status;
 
+    /** CPU时间(单位:微秒) */
+    private Long cpuTime;
+
+    /** 分配的堆内存(单位:字节) */
+    private Long allocatedBytes;
+
     /** 创建时间 */
     private Date createAt;
 
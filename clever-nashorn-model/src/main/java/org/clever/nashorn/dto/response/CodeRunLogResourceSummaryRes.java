@@ -0,0 +1,52 @@
+package org.clever.nashorn.dto.response;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.clever.common.model.response.BaseResponse;
+
+/**
+ * 按脚本文件汇总的资源使用(CPU时间、分配的堆内存)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/25 16:50 <br/>
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class CodeRunLogResourceSummaryRes extends BaseResponse {
+
+    /** 系统JS代码ID(js_code_file.id) */
+    private Long jsCodeId;
+
+    /** 业务类型 */
+    private String bizType;
+
+    /** 代码分组 */
+    private String groupName;
+
+    /** 上级路径，以“/”号结尾 */
+    private String filePath;
+
+    /** 文件或文件夹名称 */
+    private String name;
+
+    /** 运行次数 */
+    private Long runCount;
+
+    /** CPU时间合计(单位:微秒) */
+    private Long sumCpuTime;
+
+    /** CPU时间平均值(单位:微秒) */
+    private Long avgCpuTime;
+
+    /** CPU时间最大值(单位:微秒) */
+    private Long maxCpuTime;
+
+    /** 分配的堆内存合计(单位:字节) */
+    private Long sumAllocatedBytes;
+
+    /** 分配的堆内存平均值(单位:字节) */
+    private Long avgAllocatedBytes;
+
+    /** 分配的堆内存最大值(单位:字节) */
+    private Long maxAllocatedBytes;
+}
@@ -0,0 +1,63 @@
+package org.clever.nashorn.dto.response;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.clever.common.model.response.BaseResponse;
+
+import java.util.Date;
+
+/**
+ * 脚本运行统计(每分钟一条)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/30 11:20 <br/>
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class CodeRunRollupDashboardRes extends BaseResponse {
+
+    /** 统计时间(分钟) */
+    private Date bucketTime;
+
+    /** 运行次数 */
+    private Long runCount;
+
+    /** 成功次数 */
+    private Long successCount;
+
+    /** 异常次数 */
+    private Long errorCount;
+
+    /** 超时次数 */
+    private Long timeoutCount;
+
+    /** 超出CPU时间限制次数 */
+    private Long cpuLimitCount;
+
+    /** 执行时间平均值(单位:微秒) */
+    private Long avgRunTime;
+
+    /** 执行时间最大值(单位:微秒) */
+    private Long maxRunTime;
+
+    /** 执行时间 <=10ms 的次数 */
+    private Long latency10ms;
+
+    /** 执行时间 (10ms, 50ms] 的次数 */
+    private Long latency50ms;
+
+    /** 执行时间 (50ms, 100ms] 的次数 */
+    private Long latency100ms;
+
+    /** 执行时间 (100ms, 500ms] 的次数 */
+    private Long latency500ms;
+
+    /** 执行时间 (500ms, 1s] 的次数 */
+    private Long latency1s;
+
+    /** 执行时间 (1s, 5s] 的次数 */
+    private Long latency5s;
+
+    /** 执行时间 >5s 的次数 */
+    private Long latencyOver5s;
+}
@@ -0,0 +1,44 @@
+package org.clever.nashorn.dto.response;
+
+import lombok.Data;
+import org.clever.nashorn.model.FlameGraphNode;
+
+import java.io.Serializable;
+
+/**
+ * 脚本采样分析结果(每次推送从开始采样累计的结果)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 09:40 <br/>
+ */
+@Data
+public class ScriptProfilerRes implements Serializable {
+    /**
+     * 分析的脚本文件名(全路径)
+     */
+    private String fileFullPath;
+    /**
+     * 开始采样时间
+     */
+    private Long startTime;
+    /**
+     * 采样间隔(毫秒)
+     */
+    private Long sampleInterval;
+    /**
+     * 采样次数(每次采样每个执行中的调用算一次)
+     */
+    private Long sampleCount;
+    /**
+     * 没有脚本栈帧的采样次数(脚本执行前后的Java代码)，不计入火焰图
+     */
+    private Long skippedCount;
+    /**
+     * 是否是最后一次推送(采样结束)
+     */
+    private Boolean end;
+    /**
+     * 火焰图
+     */
+    private FlameGraphNode root;
+}
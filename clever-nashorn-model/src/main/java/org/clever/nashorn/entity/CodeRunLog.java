@@ -20,9 +20,12 @@ public class CodeRunLog implements Serializable {
     /** 系统JS代码ID(js_code_file.id) */
     private Long jsCodeId;
 
-    /** 脚本内容 */
+    /** 脚本内容(不保存到code_run_log，按jsCodeHash保存到code_run_script) */
     private String jsCode;
 
+    /** 脚本内容hash(code_run_script.js_code_hash) */
+    private String jsCodeHash;
+
     /** 运行开始时间 */
     private Date runStart;
 
@@ -32,9 +35,15 @@ public class CodeRunLog implements Serializable {
     /** 运行日志 */
     private String runLog;
 
-    /** 脚本运行状态：1-运行中，2-成功，3-异常，4-超时，... */
+    /** 脚本运行状态：1-运行中，2-成功，3-异常，4-超时，5-超出CPU时间限制，... */
     private Integer status;
 
+    /** CPU时间(单位:微秒) */
+    private Long cpuTime;
+
+    /** 分配的堆内存(单位:字节) */
+    private Long allocatedBytes;
+
     /** 创建时间 */
     private Date createAt;
 
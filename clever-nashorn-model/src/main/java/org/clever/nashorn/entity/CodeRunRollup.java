@@ -0,0 +1,85 @@
+package org.clever.nashorn.entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * JS代码运行统计(按脚本文件每分钟汇总)
+ *
+ * @author lizw
+ * @since 2019-10-30 09:40:12
+ */
+@Data
+public class CodeRunRollup implements Serializable {
+    private static final long serialVersionUID = -3318830386618463372L;
+    /** 主键id */
+    private Long id;
+
+    /** 系统JS代码ID(js_code_file.id) */
+    private Long jsCodeId;
+
+    /** 统计时间(运行结束时间所在的分钟) */
+    private Date bucketTime;
+
+    /** 运行次数 */
+    private Long runCount;
+
+    /** 成功次数 */
+    private Long successCount;
+
+    /** 异常次数 */
+    private Long errorCount;
+
+    /** 超时次数 */
+    private Long timeoutCount;
+
+    /** 超出CPU时间限制次数 */
+    private Long cpuLimitCount;
+
+    /** 执行时间合计(单位:微秒) */
+    private Long sumRunTime;
+
+    /** 执行时间最大值(单位:微秒) */
+    private Long maxRunTime;
+
+    /** CPU时间合计(单位:微秒) */
+    private Long sumCpuTime;
+
+    /** CPU时间最大值(单位:微秒) */
+    private Long maxCpuTime;
+
+    /** 分配的堆内存合计(单位:字节) */
+    private Long sumAllocatedBytes;
+
+    /** 分配的堆内存最大值(单位:字节) */
+    private Long maxAllocatedBytes;
+
+    /** 执行时间 <=10ms 的次数 */
+    private Long latency10ms;
+
+    /** 执行时间 (10ms, 50ms] 的次数 */
+    private Long latency50ms;
+
+    /** 执行时间 (50ms, 100ms] 的次数 */
+    private Long latency100ms;
+
+    /** 执行时间 (100ms, 500ms] 的次数 */
+    private Long latency500ms;
+
+    /** 执行时间 (500ms, 1s] 的次数 */
+    private Long latency1s;
+
+    /** 执行时间 (1s, 5s] 的次数 */
+    private Long latency5s;
+
+    /** 执行时间 >5s 的次数 */
+    private Long latencyOver5s;
+
+    /** 创建时间 */
+    private Date createAt;
+
+    /** 更新时间 */
+    private Date updateAt;
+}
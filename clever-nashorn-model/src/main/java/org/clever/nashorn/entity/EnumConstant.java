@@ -43,6 +43,10 @@ public class EnumConstant {
      * 脚本运行状态：4-超时，
      */
     public static final Integer Run_Log_Status_4 = 4;
+    /**
+     * 脚本运行状态：5-超出CPU时间限制
+     */
+    public static final Integer Run_Log_Status_5 = 5;
     /**
      * 读写权限：0-可读可写
      */
@@ -75,4 +79,8 @@ public class EnumConstant {
      * 脚本运行状态：4-超时
      */
     public static final Integer Status_4 = 4;
+    /**
+     * 脚本运行状态：5-超出CPU时间限制
+     */
+    public static final Integer Status_5 = 5;
 }
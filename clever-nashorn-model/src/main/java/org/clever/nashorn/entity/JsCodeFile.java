@@ -1,5 +1,6 @@
 package org.clever.nashorn.entity;
 
+import com.baomidou.mybatisplus.annotation.TableField;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -40,6 +41,10 @@ public class JsCodeFile implements Serializable {
     
     /** 脚本内容 */    
     private String jsCode;
+
+    /** 脚本内容hash(不是数据库字段，只在查询请求路由时返回) */
+    @TableField(exist = false)
+    private String jsCodeHash;
     
     /** 说明 */    
     private String description;
@@ -0,0 +1,37 @@
+package org.clever.nashorn.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 火焰图节点(d3-flame-graph 的数据格式)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 09:35 <br/>
+ */
+@Data
+public class FlameGraphNode implements Serializable {
+    /**
+     * 栈帧名称(脚本函数: "函数名 (文件全路径:行号)"，Java方法: "类名.方法名")
+     */
+    private String name;
+    /**
+     * 包含这个栈帧的采样次数
+     */
+    private long value;
+    /**
+     * 调用的栈帧
+     */
+    private List<FlameGraphNode> children = new ArrayList<>();
+
+    public FlameGraphNode() {
+    }
+
+    public FlameGraphNode(String name, long value) {
+        this.name = name;
+        this.value = value;
+    }
+}
@@ -0,0 +1,364 @@
+package org.clever.nashorn.bundle;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.cache.JsCodeFileCacheService;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 脚本发布包(一个 bizType + groupName 的所有 JsCodeFile，只读) <br />
+ * 文件格式:
+ * <pre>
+ *   int     magic
+ *   int     格式版本
+ *   string  bizType、groupName、version(内容hash)
+ *   long    创建时间、所有文件最大的修改时间(数据库时间)
+ *   int     文件数量
+ *   索引    [id, nodeType, readOnly, disableDelete, filePath, name, description, createAt, updateAt, 数据偏移, 压缩后长度, 原始长度] * 文件数量
+ *   数据    deflate压缩的脚本内容
+ * </pre>
+ * 使用内存映射读取，启动时只解析索引，脚本内容在第一次使用时解压
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/27 10:15 <br/>
+ */
+@Slf4j
+public class ScriptBundle {
+    private static final int Magic = 0x434E4A53;
+    private static final int Format_Version = 1;
+    /**
+     * 空字符串与null区分
+     */
+    private static final int Null_Length = -1;
+
+    /**
+     * 业务类型
+     */
+    @Getter
+    private final String bizType;
+    /**
+     * 代码分组
+     */
+    @Getter
+    private final String groupName;
+    /**
+     * 内容版本(所有文件内容的hash)
+     */
+    @Getter
+    private final String version;
+    /**
+     * 创建时间
+     */
+    @Getter
+    private final long createTime;
+    /**
+     * 所有文件最大的修改时间，之后修改的文件需要从数据库加载
+     */
+    @Getter
+    private final long maxUpdateTime;
+    /**
+     * nodeType|filePath|name --> Entry
+     */
+    private final Map<String, Entry> index;
+    /**
+     * id --> Entry
+     */
+    private final Map<Long, Entry> idIndex;
+    /**
+     * 数据区域(内存映射)
+     */
+    private final ByteBuffer data;
+
+    private ScriptBundle(String bizType, String groupName, String version, long createTime, long maxUpdateTime, List<Entry> entries, ByteBuffer data) {
+        this.bizType = bizType;
+        this.groupName = groupName;
+        this.version = version;
+        this.createTime = createTime;
+        this.maxUpdateTime = maxUpdateTime;
+        this.data = data;
+        Map<String, Entry> index = new HashMap<>(entries.size() * 2);
+        Map<Long, Entry> idIndex = new HashMap<>(entries.size() * 2);
+        for (Entry entry : entries) {
+            index.put(getKey(entry.meta.getNodeType(), entry.meta.getFilePath(), entry.meta.getName()), entry);
+            idIndex.put(entry.meta.getId(), entry);
+        }
+        this.index = Collections.unmodifiableMap(index);
+        this.idIndex = Collections.unmodifiableMap(idIndex);
+    }
+
+    static String getKey(Integer nodeType, String filePath, String name) {
+        return String.format("%s|%s|%s", nodeType, filePath, name);
+    }
+
+    /**
+     * 导出发布包
+     *
+     * @param out       输出流
+     * @param bizType   业务类型
+     * @param groupName 代码分组
+     * @param files     所有 JsCodeFile(包含脚本内容)
+     * @return 内容版本
+     */
+    public static String write(OutputStream out, String bizType, String groupName, Collection<JsCodeFile> files) throws IOException {
+        final String version = JsCodeFileCacheService.getContentVersion(files);
+        long maxUpdateTime = 0;
+        List<JsCodeFile> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(JsCodeFile::getId));
+        ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (JsCodeFile file : sorted) {
+                maxUpdateTime = Math.max(maxUpdateTime, getUpdateTime(file));
+                index.writeLong(file.getId());
+                index.writeInt(file.getNodeType());
+                index.writeInt(file.getReadOnly() == null ? 0 : file.getReadOnly());
+                index.writeInt(file.getDisableDelete() == null ? 0 : file.getDisableDelete());
+                writeString(index, file.getFilePath());
+                writeString(index, file.getName());
+                writeString(index, file.getDescription());
+                index.writeLong(file.getCreateAt() == null ? -1 : file.getCreateAt().getTime());
+                index.writeLong(file.getUpdateAt() == null ? -1 : file.getUpdateAt().getTime());
+                if (file.getJsCode() == null) {
+                    index.writeLong(-1);
+                    index.writeInt(0);
+                    index.writeInt(0);
+                    continue;
+                }
+                byte[] raw = file.getJsCode().getBytes(StandardCharsets.UTF_8);
+                byte[] compressed = deflate(deflater, raw);
+                index.writeLong(dataBytes.size());
+                index.writeInt(compressed.length);
+                index.writeInt(raw.length);
+                dataBytes.write(compressed);
+            }
+        } finally {
+            deflater.end();
+        }
+        index.flush();
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        output.writeInt(Magic);
+        output.writeInt(Format_Version);
+        writeString(output, bizType);
+        writeString(output, groupName);
+        writeString(output, version);
+        output.writeLong(System.currentTimeMillis());
+        output.writeLong(maxUpdateTime);
+        output.writeInt(sorted.size());
+        indexBytes.writeTo(output);
+        dataBytes.writeTo(output);
+        output.flush();
+        return version;
+    }
+
+    /**
+     * 打开发布包(内存映射)
+     */
+    public static ScriptBundle open(File file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); FileChannel channel = randomAccessFile.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != Magic) {
+            throw new RuntimeException("不是脚本发布包文件: " + file.getAbsolutePath());
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != Format_Version) {
+            throw new RuntimeException("不支持的脚本发布包格式版本: " + formatVersion);
+        }
+        final String bizType = readString(buffer);
+        final String groupName = readString(buffer);
+        final String version = readString(buffer);
+        final long createTime = buffer.getLong();
+        final long maxUpdateTime = buffer.getLong();
+        final int count = buffer.getInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            JsCodeFile meta = new JsCodeFile();
+            meta.setId(buffer.getLong());
+            meta.setBizType(bizType);
+            meta.setGroupName(groupName);
+            meta.setNodeType(buffer.getInt());
+            meta.setReadOnly(buffer.getInt());
+            meta.setDisableDelete(buffer.getInt());
+            meta.setFilePath(readString(buffer));
+            meta.setName(readString(buffer));
+            meta.setDescription(readString(buffer));
+            long createAt = buffer.getLong();
+            long updateAt = buffer.getLong();
+            meta.setCreateAt(createAt < 0 ? null : new Date(createAt));
+            meta.setUpdateAt(updateAt < 0 ? null : new Date(updateAt));
+            entries.add(new Entry(meta, buffer.getLong(), buffer.getInt(), buffer.getInt()));
+        }
+        ByteBuffer data = buffer.slice();
+        log.info("打开脚本发布包 | {} | {} | {} | version={} | 文件数 {}", file.getAbsolutePath(), bizType, groupName, version, count);
+        return new ScriptBundle(bizType, groupName, version, createTime, maxUpdateTime, entries, data);
+    }
+
+    /**
+     * 获取 JsCodeFile(每次调用都会解压脚本内容，调用方需要自己缓存)
+     *
+     * @param nodeType 数据类型
+     * @param filePath 上级路径
+     * @param name     文件或文件夹名称
+     * @return 不存在返回null
+     */
+    public JsCodeFile get(Integer nodeType, String filePath, String name) {
+        Entry entry = index.get(getKey(nodeType, filePath, name));
+        return entry == null ? null : toJsCodeFile(entry);
+    }
+
+    /**
+     * 根据id获取 JsCodeFile 的索引信息(不包含脚本内容)
+     */
+    public JsCodeFile getMetaById(Long id) {
+        Entry entry = idIndex.get(id);
+        return entry == null ? null : entry.meta;
+    }
+
+    /**
+     * 文件是否有脚本内容(不解压)
+     */
+    public boolean hasContent(Long id) {
+        Entry entry = idIndex.get(id);
+        return entry != null && entry.offset >= 0 && entry.rawLength > 0;
+    }
+
+    /**
+     * 所有文件的索引信息(不包含脚本内容)
+     */
+    public List<JsCodeFile> findAllMeta() {
+        List<JsCodeFile> list = new ArrayList<>(index.size());
+        for (Entry entry : index.values()) {
+            list.add(entry.meta);
+        }
+        return list;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private JsCodeFile toJsCodeFile(Entry entry) {
+        JsCodeFile file = new JsCodeFile();
+        JsCodeFile meta = entry.meta;
+        file.setId(meta.getId());
+        file.setBizType(meta.getBizType());
+        file.setGroupName(meta.getGroupName());
+        file.setNodeType(meta.getNodeType());
+        file.setReadOnly(meta.getReadOnly());
+        file.setDisableDelete(meta.getDisableDelete());
+        file.setFilePath(meta.getFilePath());
+        file.setName(meta.getName());
+        file.setDescription(meta.getDescription());
+        file.setCreateAt(meta.getCreateAt());
+        file.setUpdateAt(meta.getUpdateAt());
+        if (entry.offset >= 0 && Objects.equals(meta.getNodeType(), EnumConstant.Node_Type_1)) {
+            file.setJsCode(inflate(entry));
+        }
+        return file;
+    }
+
+    private String inflate(Entry entry) {
+        byte[] compressed = new byte[entry.compressedLength];
+        // MappedByteBuffer 的读取位置不是线程安全的，使用副本读取
+        ByteBuffer buffer = data.duplicate();
+        buffer.position((int) entry.offset);
+        buffer.get(compressed);
+        byte[] raw = new byte[entry.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int count = inflater.inflate(raw, length, raw.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // 压缩数据被截断(或需要预设字典)，继续调用 inflate 永远不会有输出
+                    throw new IOException(String.format("压缩数据不完整，已解压 %s/%s 字节", length, raw.length));
+                }
+                length += count;
+            }
+            if (length != raw.length) {
+                throw new IOException(String.format("解压后的长度不正确，已解压 %s/%s 字节", length, raw.length));
+            }
+        } catch (DataFormatException | IOException e) {
+            throw new RuntimeException("脚本发布包数据损坏: " + entry.meta.getFilePath() + entry.meta.getName(), e);
+        } finally {
+            inflater.end();
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    static long getUpdateTime(JsCodeFile file) {
+        long time = 0;
+        if (file.getCreateAt() != null) {
+            time = file.getCreateAt().getTime();
+        }
+        if (file.getUpdateAt() != null) {
+            time = Math.max(time, file.getUpdateAt().getTime());
+        }
+        return time;
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(Null_Length);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == Null_Length) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        private final JsCodeFile meta;
+        /**
+         * 数据偏移(没有脚本内容为-1)
+         */
+        private final long offset;
+        private final int compressedLength;
+        private final int rawLength;
+
+        Entry(JsCodeFile meta, long offset, int compressedLength, int rawLength) {
+            this.meta = meta;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+        }
+    }
+}
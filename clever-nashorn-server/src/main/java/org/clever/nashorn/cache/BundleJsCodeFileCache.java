@@ -0,0 +1,251 @@
+package org.clever.nashorn.cache;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.clever.nashorn.bundle.ScriptBundle;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 优先从脚本发布包(ScriptBundle)读取的Js代码缓存 <br />
+ * 1. 创建时只从数据库加载发布包之后新增或修改的文件，以及所有文件的id(用于判断发布包中的文件是否已经被删除) <br />
+ * 2. 运行中的变化(JsCodeFileChangeEvent)记录在内存中，优先级高于发布包 <br />
+ * 3. 发布包以外的 bizType、groupName 使用 delegate
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/27 11:30 <br/>
+ */
+@Slf4j
+public class BundleJsCodeFileCache implements JsCodeFileCache {
+    /**
+     * 脚本发布包
+     */
+    @Getter
+    private final ScriptBundle bundle;
+    /**
+     * 发布包以外的数据使用的缓存
+     */
+    @Getter
+    private final JsCodeFileCache delegate;
+    /**
+     * JsCodeFile 数据库查询工具
+     */
+    private final JsCodeFileCacheService cacheService;
+    /**
+     * 发布包之后的变化 Map<nodeType|filePath|name, JsCodeFile> (Optional.empty()表示已删除) <br />
+     * syncDelta时整体替换，不会出现读取到一半数据的情况
+     */
+    private volatile Map<String, Optional<JsCodeFile>> changed = new ConcurrentHashMap<>();
+    /**
+     * 已解压的发布包文件 Map<nodeType|filePath|name, JsCodeFile>
+     */
+    private volatile Map<String, JsCodeFile> loaded = new ConcurrentHashMap<>();
+    /**
+     * 发布包中脚本内容的hash Map<JsCodeFile.id, hash>(发布包不会变化，只计算一次)
+     */
+    private final Map<Long, String> bundleHashes = new ConcurrentHashMap<>();
+    /**
+     * 创建时从数据库加载的变化数量
+     */
+    @Getter
+    private volatile int deltaCount;
+
+    public BundleJsCodeFileCache(ScriptBundle bundle, JsCodeFileCache delegate, JsCodeFileCacheService cacheService) {
+        this.bundle = bundle;
+        this.delegate = delegate;
+        this.cacheService = cacheService;
+        syncDelta();
+    }
+
+    /**
+     * 从数据库加载发布包之后的变化(在新的Map中加载完成后再替换，加载期间读取的还是之前的数据) <br />
+     * put、remove 与 syncDelta 互斥，加载期间的变化在替换之后再应用
+     */
+    public synchronized void syncDelta() {
+        final long startTime = System.currentTimeMillis();
+        Map<String, Optional<JsCodeFile>> newChanged = new ConcurrentHashMap<>();
+        List<JsCodeFile> deltaList = cacheService.findChangedAfter(bundle.getBizType(), bundle.getGroupName(), new Date(bundle.getMaxUpdateTime()));
+        deltaList.forEach(jsCodeFile -> putChanged(newChanged, jsCodeFile));
+        Set<Long> allId = cacheService.findAllId(bundle.getBizType(), bundle.getGroupName());
+        int deleteCount = 0;
+        for (JsCodeFile meta : bundle.findAllMeta()) {
+            if (!allId.contains(meta.getId())) {
+                newChanged.put(getKey(meta), Optional.empty());
+                deleteCount++;
+            }
+        }
+        changed = newChanged;
+        loaded = new ConcurrentHashMap<>();
+        deltaCount = deltaList.size() + deleteCount;
+        log.info("加载脚本发布包之后的变化 | version={} | 新增或修改 {} | 删除 {} | 耗时 {}ms",
+                bundle.getVersion(), deltaList.size(), deleteCount, System.currentTimeMillis() - startTime);
+    }
+
+    private static String getKey(Integer nodeType, String filePath, String name) {
+        return String.format("%s|%s|%s", nodeType, filePath, name);
+    }
+
+    private static String getKey(JsCodeFile jsCodeFile) {
+        return getKey(jsCodeFile.getNodeType(), jsCodeFile.getFilePath(), jsCodeFile.getName());
+    }
+
+    private boolean inBundle(String bizType, String groupName) {
+        return Objects.equals(bundle.getBizType(), bizType) && Objects.equals(bundle.getGroupName(), groupName);
+    }
+
+    private JsCodeFile get(Integer nodeType, String filePath, String name) {
+        final String key = getKey(nodeType, filePath, name);
+        Optional<JsCodeFile> changedFile = changed.get(key);
+        if (changedFile != null) {
+            return changedFile.orElse(null);
+        }
+        return loaded.computeIfAbsent(key, k -> bundle.get(nodeType, filePath, name));
+    }
+
+    /**
+     * 记录变化(文件被重命名或移动时删除旧路径)
+     */
+    private void putChanged(Map<String, Optional<JsCodeFile>> changed, JsCodeFile jsCodeFile) {
+        final String key = getKey(jsCodeFile);
+        JsCodeFile old = bundle.getMetaById(jsCodeFile.getId());
+        if (old != null && !key.equals(getKey(old))) {
+            changed.put(getKey(old), Optional.empty());
+        }
+        changed.entrySet().stream()
+                .filter(entry -> entry.getValue().isPresent() && Objects.equals(entry.getValue().get().getId(), jsCodeFile.getId()) && !key.equals(entry.getKey()))
+                .forEach(entry -> entry.setValue(Optional.empty()));
+        changed.put(key, Optional.of(jsCodeFile));
+    }
+
+    @Override
+    public JsCodeFile getFolder(String bizType, String groupName, String filePath, String name) {
+        if (!inBundle(bizType, groupName)) {
+            return delegate.getFolder(bizType, groupName, filePath, name);
+        }
+        return get(EnumConstant.Node_Type_2, filePath, name);
+    }
+
+    @Override
+    public JsCodeFile getFile(String bizType, String groupName, String filePath, String name) {
+        if (!inBundle(bizType, groupName)) {
+            return delegate.getFile(bizType, groupName, filePath, name);
+        }
+        return get(EnumConstant.Node_Type_1, filePath, name);
+    }
+
+    @Override
+    public synchronized void put(JsCodeFile jsCodeFile) {
+        if (!inBundle(jsCodeFile.getBizType(), jsCodeFile.getGroupName())) {
+            delegate.put(jsCodeFile);
+            return;
+        }
+        putChanged(changed, jsCodeFile);
+    }
+
+    @Override
+    public synchronized void remove(JsCodeFile jsCodeFile) {
+        if (!inBundle(jsCodeFile.getBizType(), jsCodeFile.getGroupName())) {
+            delegate.remove(jsCodeFile);
+            return;
+        }
+        changed.put(getKey(jsCodeFile), Optional.empty());
+    }
+
+    /**
+     * 重新加载发布包之后的变化(不会全量查询数据库)
+     */
+    @Override
+    public void reload() {
+        syncDelta();
+        delegate.clear();
+    }
+
+    /**
+     * 只清除已解压的文件，发布包之后的变化不会被清除
+     */
+    @Override
+    public void clear() {
+        loaded.clear();
+        delegate.clear();
+    }
+
+    /**
+     * 发布包中的所有 JsCodeFile(包含之后的变化)
+     */
+    public Set<JsCodeFile> findAll() {
+        final Map<String, Optional<JsCodeFile>> changed = this.changed;
+        Set<JsCodeFile> all = new HashSet<>(bundle.size() + changed.size());
+        for (JsCodeFile meta : bundle.findAllMeta()) {
+            final String key = getKey(meta);
+            if (changed.containsKey(key)) {
+                continue;
+            }
+            JsCodeFile jsCodeFile = get(meta.getNodeType(), meta.getFilePath(), meta.getName());
+            if (jsCodeFile != null) {
+                all.add(jsCodeFile);
+            }
+        }
+        changed.values().forEach(jsCodeFile -> jsCodeFile.ifPresent(all::add));
+        return all;
+    }
+
+    /**
+     * 发布包中的所有文件信息(包含之后的变化，不包含脚本内容和文件夹，包含脚本内容hash)，用于生成请求路由
+     */
+    public List<JsCodeFile> findRouteMeta() {
+        final Map<String, Optional<JsCodeFile>> changed = this.changed;
+        List<JsCodeFile> all = new ArrayList<>(bundle.size() + changed.size());
+        for (JsCodeFile meta : bundle.findAllMeta()) {
+            if (Objects.equals(EnumConstant.Node_Type_1, meta.getNodeType()) && bundle.hasContent(meta.getId()) && !changed.containsKey(getKey(meta))) {
+                String hash = bundleHashes.computeIfAbsent(meta.getId(), id -> {
+                    JsCodeFile file = bundle.get(meta.getNodeType(), meta.getFilePath(), meta.getName());
+                    return CompiledScriptCache.sha256(file.getJsCode());
+                });
+                all.add(toRouteMeta(meta, hash));
+            }
+        }
+        changed.values().forEach(jsCodeFile -> jsCodeFile
+                .filter(file -> Objects.equals(EnumConstant.Node_Type_1, file.getNodeType()) && StringUtils.isNotBlank(file.getJsCode()))
+                .ifPresent(file -> all.add(toRouteMeta(file, CompiledScriptCache.sha256(file.getJsCode())))));
+        return all;
+    }
+
+    private static JsCodeFile toRouteMeta(JsCodeFile file, String jsCodeHash) {
+        JsCodeFile meta = new JsCodeFile();
+        meta.setId(file.getId());
+        meta.setBizType(file.getBizType());
+        meta.setGroupName(file.getGroupName());
+        meta.setNodeType(file.getNodeType());
+        meta.setFilePath(file.getFilePath());
+        meta.setName(file.getName());
+        meta.setJsCodeHash(jsCodeHash);
+        return meta;
+    }
+
+    /**
+     * 脚本内容版本(发布包版本 + 之后的变化)
+     */
+    public String getContentVersion() {
+        final Map<String, Optional<JsCodeFile>> changed = this.changed;
+        if (changed.isEmpty()) {
+            return bundle.getVersion();
+        }
+        List<JsCodeFile> changedList = new ArrayList<>(changed.size());
+        changed.forEach((key, jsCodeFile) -> {
+            if (jsCodeFile.isPresent()) {
+                changedList.add(jsCodeFile.get());
+            } else {
+                // 删除的文件只记录路径
+                JsCodeFile deleted = new JsCodeFile();
+                deleted.setFilePath(key);
+                changedList.add(deleted);
+            }
+        });
+        return bundle.getVersion() + "-" + JsCodeFileCacheService.getContentVersion(changedList);
+    }
+}
@@ -1,12 +1,21 @@
 package org.clever.nashorn.cache;
 
+import org.clever.common.utils.exception.ExceptionUtils;
+import org.clever.nashorn.bundle.ScriptBundle;
+import org.clever.nashorn.entity.EnumConstant;
 import org.clever.nashorn.entity.JsCodeFile;
 import org.clever.nashorn.mapper.JsCodeFileMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Set;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 
 /**
  * 作者： lzw<br/>
@@ -25,4 +34,67 @@ public class JsCodeFileCacheService {
     public Set<JsCodeFile> findAll() {
         return jsCodeFileMapper.findAll();
     }
+
+    /**
+     * 查询指定时间之后新增或修改的 JsCodeFile
+     *
+     * @param bizType   业务类型
+     * @param groupName 代码分组
+     * @param time      时间(包含)
+     */
+    public List<JsCodeFile> findChangedAfter(String bizType, String groupName, Date time) {
+        return jsCodeFileMapper.findChangedAfter(bizType, groupName, time);
+    }
+
+    /**
+     * 查询请求路由需要的文件信息(不查询脚本内容，不包含文件夹和空脚本)
+     */
+    public List<JsCodeFile> findRouteMeta(String bizType, String groupName) {
+        return jsCodeFileMapper.findRouteMeta(bizType, groupName, EnumConstant.Node_Type_1);
+    }
+
+    /**
+     * 查询所有 JsCodeFile 的id(不查询脚本内容)
+     */
+    public Set<Long> findAllId(String bizType, String groupName) {
+        return jsCodeFileMapper.findAllId(bizType, groupName);
+    }
+
+    /**
+     * 导出脚本发布包
+     *
+     * @param bizType   业务类型
+     * @param groupName 代码分组
+     * @param out       输出流
+     * @return 发布包内容版本
+     */
+    public String exportBundle(String bizType, String groupName, OutputStream out) throws IOException {
+        List<JsCodeFile> jsCodeFileList = jsCodeFileMapper.findAllByBizAndGroup(bizType, groupName);
+        return ScriptBundle.write(out, bizType, groupName, jsCodeFileList);
+    }
+
+    /**
+     * 计算脚本内容的版本(hash)
+     */
+    public static String getContentVersion(Collection<JsCodeFile> jsCodeFiles) {
+        List<JsCodeFile> jsCodeFileList = new ArrayList<>(jsCodeFiles);
+        jsCodeFileList.sort(Comparator.comparing(JsCodeFileCacheService::getKey));
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+        for (JsCodeFile jsCodeFile : jsCodeFileList) {
+            messageDigest.update(getKey(jsCodeFile).getBytes(StandardCharsets.UTF_8));
+            if (jsCodeFile.getJsCode() != null) {
+                messageDigest.update(jsCodeFile.getJsCode().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return String.format("%064x", new BigInteger(1, messageDigest.digest())).substring(0, 16);
+    }
+
+    private static String getKey(JsCodeFile jsCodeFile) {
+        return String.format("%s|%s|%s|%s%s", jsCodeFile.getBizType(), jsCodeFile.getGroupName(), jsCodeFile.getNodeType(), jsCodeFile.getFilePath(), jsCodeFile.getName());
+    }
 }
@@ -4,10 +4,11 @@ import org.clever.common.utils.spring.SpringContextHolder;
 import org.clever.nashorn.entity.EnumConstant;
 import org.clever.nashorn.entity.JsCodeFile;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 作者：lizw <br/>
@@ -20,9 +21,9 @@ public class MemoryJsCodeFileCache implements JsCodeFileCache {
      */
     private final JsCodeFileCacheService cacheService;
     /**
-     * 内存缓存 Map<bizType|groupName|nodeType|filePath|name, JsCodeFile>
+     * 内存缓存 Map<bizType|groupName|nodeType|filePath|name, JsCodeFile> (全量替换时整体替换)
      */
-    private final Map<String, JsCodeFile> Js_Code_File_Map = new ConcurrentHashMap<>();
+    private volatile Map<String, JsCodeFile> Js_Code_File_Map = new ConcurrentHashMap<>();
     /**
      * 定时清除缓存的时间间隔,毫秒(小于等于0表示不清除)
      */
@@ -31,6 +32,14 @@ public class MemoryJsCodeFileCache implements JsCodeFileCache {
      * 最后一次清除缓存时间
      */
     private long lastClearTime = System.currentTimeMillis();
+    /**
+     * 命中次数(getFile、getFolder)
+     */
+    private final LongAdder hitCount = new LongAdder();
+    /**
+     * 未命中次数(需要查询数据库)
+     */
+    private final LongAdder missCount = new LongAdder();
 
     /**
      * @param clearTimeInterval 定时清除缓存的时间间隔,毫秒(小于等于0表示不清除)
@@ -86,7 +95,10 @@ public class MemoryJsCodeFileCache implements JsCodeFileCache {
         intervalClear();
         String key = getCacheKey(bizType, groupName, EnumConstant.Node_Type_2, filePath, name);
         JsCodeFile jsCodeFile = Js_Code_File_Map.get(key);
-        if (jsCodeFile == null) {
+        if (jsCodeFile != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
             jsCodeFile = cacheService.getJsCodeFile(bizType, groupName, EnumConstant.Node_Type_2, filePath, name);
             if (jsCodeFile != null) {
                 put(jsCodeFile);
@@ -100,7 +112,10 @@ public class MemoryJsCodeFileCache implements JsCodeFileCache {
         intervalClear();
         String key = getCacheKey(bizType, groupName, EnumConstant.Node_Type_1, filePath, name);
         JsCodeFile jsCodeFile = Js_Code_File_Map.get(key);
-        if (jsCodeFile == null) {
+        if (jsCodeFile != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
             jsCodeFile = cacheService.getJsCodeFile(bizType, groupName, EnumConstant.Node_Type_1, filePath, name);
             if (jsCodeFile != null) {
                 put(jsCodeFile);
@@ -129,13 +144,31 @@ public class MemoryJsCodeFileCache implements JsCodeFileCache {
 
     @Override
     public void reload() {
-        clear();
-        Set<JsCodeFile> set = cacheService.findAll();
-        set.forEach(this::put);
+        replaceAll(cacheService.findAll());
+    }
+
+    /**
+     * 使用传入的 JsCodeFile 替换所有缓存(先构建新的缓存再替换，替换过程中缓存不会为空)
+     */
+    public void replaceAll(Collection<JsCodeFile> jsCodeFiles) {
+        Map<String, JsCodeFile> map = new ConcurrentHashMap<>(Math.max(16, jsCodeFiles.size() * 2));
+        for (JsCodeFile jsCodeFile : jsCodeFiles) {
+            map.put(getCacheKey(jsCodeFile), jsCodeFile);
+        }
+        Js_Code_File_Map = map;
+        lastClearTime = System.currentTimeMillis();
     }
 
     @Override
     public void clear() {
         Js_Code_File_Map.clear();
     }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
 }
@@ -9,8 +9,9 @@ import org.clever.canal.instance.manager.model.CanalParameter;
 import org.clever.canal.instance.manager.model.DataSourcing;
 import org.clever.canal.instance.manager.model.SourcingType;
 import org.clever.canal.server.embedded.CanalServerWithEmbedded;
-import org.clever.nashorn.ScriptModuleInstance;
 import org.clever.nashorn.config.CanalConfig;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
 
 import java.net.InetSocketAddress;
 import java.util.HashMap;
@@ -27,9 +28,13 @@ public class CanalMysqlSlave {
     private static final AtomicLong Canal_Id = new AtomicLong(0);
     private static final AtomicInteger Client_Id = new AtomicInteger(0);
     /**
-     * Script 实例
+     * Script 实例池
      */
-    private final ScriptModuleInstance scriptModuleInstance;
+    private final ScriptModuleInstancePool scriptModuleInstancePool;
+    /**
+     * 脚本执行看门狗
+     */
+    private final ScriptWatchdog scriptWatchdog;
     /**
      * Canal配置集合(destination --> CanalConfig)
      */
@@ -39,8 +44,9 @@ public class CanalMysqlSlave {
      */
     private final Map<String, ConsumeBinlogThread> consumeBinlogThreadHashMap = new HashMap<>();
 
-    public CanalMysqlSlave(ScriptModuleInstance scriptModuleInstance, Map<String, CanalConfig> canalConfigMap) {
-        this.scriptModuleInstance = scriptModuleInstance;
+    public CanalMysqlSlave(ScriptModuleInstancePool scriptModuleInstancePool, ScriptWatchdog scriptWatchdog, Map<String, CanalConfig> canalConfigMap) {
+        this.scriptModuleInstancePool = scriptModuleInstancePool;
+        this.scriptWatchdog = scriptWatchdog;
         this.canalConfigMap = canalConfigMap;
         CanalConfigClient canalConfigClient = new CanalConfigClient() {
 
@@ -94,7 +100,7 @@ public class CanalMysqlSlave {
         if (consumeBinlogThreadHashMap.containsKey(destination)) {
             return;
         }
-        ConsumeBinlogThread consumeBinlogThread = new ConsumeBinlogThread(Canal_Server_With_Embedded, scriptModuleInstance, (short) Client_Id.incrementAndGet(), destination);
+        ConsumeBinlogThread consumeBinlogThread = new ConsumeBinlogThread(Canal_Server_With_Embedded, scriptModuleInstancePool, scriptWatchdog, (short) Client_Id.incrementAndGet(), destination);
         consumeBinlogThreadHashMap.put(destination, consumeBinlogThread);
         Canal_Server_With_Embedded.subscribe(consumeBinlogThread.getClientIdentity());
         consumeBinlogThread.start();
@@ -12,10 +12,18 @@ import org.clever.canal.protocol.Message;
 import org.clever.canal.server.embedded.CanalServerWithEmbedded;
 import org.clever.common.utils.exception.ExceptionUtils;
 import org.clever.common.utils.spring.SpringContextHolder;
+import org.clever.common.utils.tuples.TupleTow;
 import org.clever.nashorn.ScriptModuleInstance;
 import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
 import org.clever.nashorn.mapper.JsCodeFileMapper;
+import org.clever.nashorn.metrics.ScriptMetrics;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.service.CodeRunLogService;
 import org.clever.nashorn.utils.JsCodeFilePathUtils;
+import org.clever.nashorn.utils.ThreadResourceUsage;
+import org.clever.nashorn.watchdog.ScriptInvocation;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -33,21 +41,27 @@ public class ConsumeBinlogThread extends Thread {
     private static final String Filter_Name = "filter";
 
     private final JsCodeFileMapper jsCodeFileMapper;
+    private final CodeRunLogService codeRunLogService;
+    private final ScriptMetrics scriptMetrics;
     private final CanalServerWithEmbedded canalServerWithEmbedded;
-    private final ScriptModuleInstance scriptModuleInstance;
+    private final ScriptModuleInstancePool scriptModuleInstancePool;
+    private final ScriptWatchdog scriptWatchdog;
 
     private final ClientIdentity clientIdentity;
     private boolean running = true;
     private long lastTime = 0;
-    private List<String> allFileFullPath;
+    private List<JsCodeFile> allFile;
 
-    public ConsumeBinlogThread(CanalServerWithEmbedded canalServerWithEmbedded, ScriptModuleInstance scriptModuleInstance, short id, String destination) {
+    public ConsumeBinlogThread(CanalServerWithEmbedded canalServerWithEmbedded, ScriptModuleInstancePool scriptModuleInstancePool, ScriptWatchdog scriptWatchdog, short id, String destination) {
         this.canalServerWithEmbedded = canalServerWithEmbedded;
-        this.scriptModuleInstance = scriptModuleInstance;
+        this.scriptModuleInstancePool = scriptModuleInstancePool;
+        this.scriptWatchdog = scriptWatchdog;
         setName(String.format("ConsumeBinlogThread-[%s]-[%s]", destination, id));
         setDaemon(true);
         clientIdentity = new ClientIdentity(destination, id);
         jsCodeFileMapper = SpringContextHolder.getBean(JsCodeFileMapper.class);
+        codeRunLogService = SpringContextHolder.getBean(CodeRunLogService.class);
+        scriptMetrics = SpringContextHolder.getBean(ScriptMetrics.class);
     }
 
     @Override
@@ -88,56 +102,136 @@ public class ConsumeBinlogThread extends Thread {
             return;
         }
         log.info("消费Binlog - {} | {} | size={}", clientIdentity.getClientId(), clientIdentity.getDestination(), entryList.size());
-        // List<Map<String, Object>> dataList = new ArrayList<>(entryList.size());
-        for (CanalEntry.Entry entry : entryList) {
-            if (!CanalEntry.EntryType.ROW_DATA.equals(entry.getEntryType())) {
-                continue;
+        scriptMetrics.recordBinlogEntries(clientIdentity.getDestination(), entryList.size());
+        // 每批Binlog借用一个js引擎模块实例(get时已自动ack，脚本被强制终止时换一个实例继续消费剩余的Binlog)
+        ScriptModuleInstance scriptModuleInstance = scriptModuleInstancePool.borrow();
+        // 当前实例最后一次脚本调用
+        ScriptInvocation invocation = null;
+        try {
+            for (CanalEntry.Entry entry : entryList) {
+                if (!CanalEntry.EntryType.ROW_DATA.equals(entry.getEntryType())) {
+                    continue;
+                }
+                final String fullSchemaName = String.format("%s.%s", entry.getHeader().getSchemaName(), entry.getHeader().getTableName());
+                List<TupleTow<JsCodeFile, ScriptObjectMirror>> jsConsumes = getJsConsumes(scriptModuleInstance, fullSchemaName);
+                if (jsConsumes.isEmpty()) {
+                    continue;
+                }
+                final Map<String, Object> dataMap = toDataMap(entry);
+                if (dataMap == null) {
+                    continue;
+                }
+                // 遍历消费(已经消费的脚本id)
+                final Set<Long> consumed = new HashSet<>(jsConsumes.size());
+                for (int i = 0; i < jsConsumes.size(); i++) {
+                    final TupleTow<JsCodeFile, ScriptObjectMirror> consume = jsConsumes.get(i);
+                    final JsCodeFile jsCodeFile = consume.getValue1();
+                    if (!consumed.add(jsCodeFile.getId())) {
+                        continue;
+                    }
+                    invocation = consume(jsCodeFile, consume.getValue2(), fullSchemaName, dataMap);
+                    if (invocation != null && invocation.isStopped()) {
+                        // 脚本被看门狗强制终止，engine状态不可靠，丢弃该实例，使用新的实例消费剩余的脚本
+                        final ScriptModuleInstance stoppedInstance = scriptModuleInstance;
+                        scriptModuleInstance = null;
+                        invocation = null;
+                        scriptModuleInstancePool.invalidate(stoppedInstance);
+                        scriptModuleInstance = scriptModuleInstancePool.borrow();
+                        jsConsumes = getJsConsumes(scriptModuleInstance, fullSchemaName);
+                        i = -1;
+                    }
+                }
             }
-            String fullSchemaName = String.format("%s.%s", entry.getHeader().getSchemaName(), entry.getHeader().getTableName());
-            List<ScriptObjectMirror> jsConsumes = getJsConsumes(fullSchemaName);
-            if (jsConsumes.isEmpty()) {
-                continue;
+        } finally {
+            if (scriptModuleInstance != null) {
+                if (invocation != null && invocation.isStopped()) {
+                    scriptModuleInstancePool.invalidate(scriptModuleInstance);
+                } else {
+                    scriptModuleInstancePool.giveBack(scriptModuleInstance);
+                }
             }
-            Map<String, Object> dataMap = new HashMap<>(5);
-            // dataList.add(dataMap);
-            dataMap.put("entryType", entry.getEntryType());
-            Map<String, Object> header = new HashMap<>(6);
-            header.put("logfileName", entry.getHeader().getLogfileName());
-            header.put("logfileOffset", entry.getHeader().getLogfileOffset());
-            header.put("executeTime", entry.getHeader().getExecuteTime());
-            header.put("schemaName", entry.getHeader().getSchemaName());
-            header.put("tableName", entry.getHeader().getTableName());
-            header.put("eventType", entry.getHeader().getEventType());
-            dataMap.put("header", header);
-            CanalEntry.RowChange rowChange = CanalEntry.RowChange.parseFrom(entry.getStoreValue());
-            dataMap.put("isDdl", rowChange.getIsDdl());
-            dataMap.put("sql", rowChange.getSql());
-            if (rowChange.getRowDataList() == null || rowChange.getRowDataList().isEmpty()) {
-                continue;
+        }
+    }
+
+    /**
+     * Binlog 转换成脚本消费的数据(没有行数据返回null)
+     */
+    private Map<String, Object> toDataMap(CanalEntry.Entry entry) throws InvalidProtocolBufferException {
+        Map<String, Object> dataMap = new HashMap<>(5);
+        dataMap.put("entryType", entry.getEntryType());
+        Map<String, Object> header = new HashMap<>(6);
+        header.put("logfileName", entry.getHeader().getLogfileName());
+        header.put("logfileOffset", entry.getHeader().getLogfileOffset());
+        header.put("executeTime", entry.getHeader().getExecuteTime());
+        header.put("schemaName", entry.getHeader().getSchemaName());
+        header.put("tableName", entry.getHeader().getTableName());
+        header.put("eventType", entry.getHeader().getEventType());
+        dataMap.put("header", header);
+        CanalEntry.RowChange rowChange = CanalEntry.RowChange.parseFrom(entry.getStoreValue());
+        dataMap.put("isDdl", rowChange.getIsDdl());
+        dataMap.put("sql", rowChange.getSql());
+        if (rowChange.getRowDataList() == null || rowChange.getRowDataList().isEmpty()) {
+            return null;
+        }
+        List<Map<String, Object>> beforeColumns = new ArrayList<>(rowChange.getRowDataList().size());
+        List<Map<String, Object>> afterColumns = new ArrayList<>(rowChange.getRowDataList().size());
+        Map<String, Object> rowDataList = new HashMap<>(2);
+        rowDataList.put("beforeColumns", beforeColumns);
+        rowDataList.put("afterColumns", afterColumns);
+        dataMap.put("rowDataList", rowDataList);
+        for (CanalEntry.RowData rowData : rowChange.getRowDataList()) {
+            for (CanalEntry.Column column : rowData.getBeforeColumnsList()) {
+                beforeColumns.add(columnToMap(column));
             }
-            List<Map<String, Object>> beforeColumns = new ArrayList<>(rowChange.getRowDataList().size());
-            List<Map<String, Object>> afterColumns = new ArrayList<>(rowChange.getRowDataList().size());
-            Map<String, Object> rowDataList = new HashMap<>(2);
-            rowDataList.put("beforeColumns", beforeColumns);
-            rowDataList.put("afterColumns", afterColumns);
-            dataMap.put("rowDataList", rowDataList);
-            for (CanalEntry.RowData rowData : rowChange.getRowDataList()) {
-                for (CanalEntry.Column column : rowData.getBeforeColumnsList()) {
-                    beforeColumns.add(columnToMap(column));
-                }
-                for (CanalEntry.Column column : rowData.getAfterColumnsList()) {
-                    afterColumns.add(columnToMap(column));
-                }
+            for (CanalEntry.Column column : rowData.getAfterColumnsList()) {
+                afterColumns.add(columnToMap(column));
             }
-            // 遍历消费
-            jsConsumes.forEach(consume -> {
+        }
+        return dataMap;
+    }
+
+    /**
+     * 调用一个消费脚本
+     *
+     * @return 本次脚本调用(脚本被看门狗强制终止时 isStopped 为true)
+     */
+    private ScriptInvocation consume(JsCodeFile jsCodeFile, ScriptObjectMirror jsConsume, String fullSchemaName, Map<String, Object> dataMap) {
+        final String fileFullPath = JsCodeFilePathUtils.concat(jsCodeFile.getFilePath(), jsCodeFile.getName());
+        Long codeRunLogId = null;
+        ScriptInvocation invocation = null;
+        ThreadResourceUsage usage = null;
+        boolean failure = false;
+        final long startTime = System.nanoTime();
+        try {
+            codeRunLogId = codeRunLogService.startLog(jsCodeFile);
+            invocation = scriptWatchdog.start(fileFullPath, jsConsume);
+            usage = ThreadResourceUsage.start();
+            jsConsume.callMember(Consume_Method, dataMap);
+        } catch (Throwable e) {
+            failure = true;
+            log.error("Binlog消费失败 - [{}] - [{}]", fullSchemaName, fileFullPath, e);
+        } finally {
+            if (invocation != null) {
                 try {
-                    consume.callMember(Consume_Method, dataMap);
-                } catch (Throwable e) {
-                    log.error("Binlog消费失败 - [{}]", fullSchemaName, e);
+                    invocation.close();
+                } catch (ThreadDeath e) {
+                    // 结束调用时收到看门狗的终止信号(已记录在 invocation.isStopped() 中)，不影响之后的Binlog消费
+                    failure = true;
                 }
-            });
+            }
+            if (usage != null) {
+                usage.stop();
+            }
+            final Integer status = CodeRunLogService.getRunStatus(invocation, failure);
+            if (codeRunLogId != null) {
+                codeRunLogService.endLog(codeRunLogId, status, usage);
+            }
+            scriptMetrics.recordBinlogConsume(clientIdentity.getDestination(), fileFullPath, status, System.nanoTime() - startTime);
+        }
+        if (invocation != null && invocation.isStopped()) {
+            log.error("Binlog消费脚本被强制终止 - [{}] - [{}] - {}", fullSchemaName, fileFullPath, invocation.getExceeded());
         }
+        return invocation;
     }
 
     private Map<String, Object> columnToMap(CanalEntry.Column column) {
@@ -153,19 +247,19 @@ public class ConsumeBinlogThread extends Thread {
     }
 
 
-    private List<ScriptObjectMirror> getJsConsumes(String fullSchemaName) {
+    private List<TupleTow<JsCodeFile, ScriptObjectMirror>> getJsConsumes(ScriptModuleInstance scriptModuleInstance, String fullSchemaName) {
         String destination = clientIdentity.getDestination();
         long nowTime = System.currentTimeMillis();
         if ((nowTime - lastTime) > Time_Interval) {
-            allFileFullPath = jsCodeFileMapper.findAllChildByFilePath(EnumConstant.DefaultBizType, EnumConstant.DefaultGroupName, String.format("/%s/", destination))
+            allFile = jsCodeFileMapper.findAllChildByFilePath(EnumConstant.DefaultBizType, EnumConstant.DefaultGroupName, String.format("/%s/", destination))
                     .stream()
                     .filter(file -> file != null && Objects.equals(file.getNodeType(), EnumConstant.Node_Type_1))
-                    .map(file -> JsCodeFilePathUtils.concat(file.getFilePath(), file.getName()))
                     .collect(Collectors.toList());
             lastTime = nowTime;
         }
-        List<ScriptObjectMirror> jsConsumes = new ArrayList<>();
-        for (String fileFullPath : allFileFullPath) {
+        List<TupleTow<JsCodeFile, ScriptObjectMirror>> jsConsumes = new ArrayList<>();
+        for (JsCodeFile file : allFile) {
+            String fileFullPath = JsCodeFilePathUtils.concat(file.getFilePath(), file.getName());
             ScriptObjectMirror scriptObjectMirror;
             try {
                 scriptObjectMirror = scriptModuleInstance.useJs(fileFullPath);
@@ -191,7 +285,7 @@ public class ConsumeBinlogThread extends Thread {
             if (!filter(fullSchemaName, filter)) {
                 continue;
             }
-            jsConsumes.add(scriptObjectMirror);
+            jsConsumes.add(TupleTow.creat(file, scriptObjectMirror));
         }
         return jsConsumes;
     }
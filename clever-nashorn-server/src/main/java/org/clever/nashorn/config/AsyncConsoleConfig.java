@@ -0,0 +1,49 @@
+package org.clever.nashorn.config;
+
+import lombok.Data;
+
+/**
+ * 脚本Console异步输出配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 15:10 <br/>
+ */
+@Data
+public class AsyncConsoleConfig {
+    /**
+     * 是否异步输出(false: 在执行脚本的线程中输出)
+     */
+    private boolean enable = true;
+    /**
+     * 所有输出目标共用的环形缓冲区大小(会调整为2的幂)，满了之后覆盖最旧的日志(读取慢的输出目标会丢弃被覆盖的日志)
+     */
+    private int bufferSize = 8192;
+    /**
+     * 后台线程每批处理的最大日志数
+     */
+    private int batchSize = 256;
+    /**
+     * 缓冲区为空时后台线程的等待时间(毫秒)
+     */
+    private long idleWait = 10;
+    /**
+     * 是否把脚本执行时的Console输出写入运行日志(code_run_log.run_log)
+     */
+    private boolean runLogEnable = true;
+    /**
+     * 写入运行日志的最低级别(trace、debug、info、warn、error，console.log等同于info)
+     */
+    private String runLogLevel = "info";
+    /**
+     * 运行日志刷新间隔(毫秒)
+     */
+    private long runLogFlushInterval = 1000;
+    /**
+     * 缓冲的运行日志超过这个长度(字符数)时立即刷新
+     */
+    private int runLogFlushSize = 64 * 1024;
+    /**
+     * 一次脚本执行最多写入的运行日志长度(字符数，小于等于0表示不限制)
+     */
+    private int runLogMaxLength = 256 * 1024;
+}
@@ -7,31 +7,53 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.searchbox.client.JestClient;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.clever.common.server.config.CustomPaginationInterceptor;
-import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.common.utils.exception.ExceptionUtils;
+import org.clever.common.utils.spring.SpringContextHolder;
+import org.clever.nashorn.bundle.ScriptBundle;
+import org.clever.nashorn.cache.BundleJsCodeFileCache;
 import org.clever.nashorn.cache.JsCodeFileCache;
 import org.clever.nashorn.cache.JsCodeFileCacheService;
 import org.clever.nashorn.cache.MemoryJsCodeFileCache;
 import org.clever.nashorn.canal.CanalMysqlSlave;
+import org.clever.nashorn.console.AsyncConsoleDispatcher;
+import org.clever.nashorn.console.RunLogConsoleSink;
+import org.clever.nashorn.console.Slf4jConsoleSink;
+import org.clever.nashorn.console.WebSocketConsoleSink;
 import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
 import org.clever.nashorn.folder.DatabaseFolder;
 import org.clever.nashorn.folder.Folder;
 import org.clever.nashorn.intercept.HttpRequestJsHandler;
 import org.clever.nashorn.internal.*;
-import org.clever.nashorn.module.cache.MemoryModuleCache;
-import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.metrics.MeteredJestClient;
+import org.clever.nashorn.metrics.ScriptMetrics;
+import org.clever.nashorn.metrics.ScriptResourceMetrics;
+import org.clever.nashorn.module.Module;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.profiler.ScriptProfiler;
+import org.clever.nashorn.route.RouteTrie;
+import org.clever.nashorn.pool.ScriptModuleInstancePoolConfig;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
+import org.clever.nashorn.watchdog.ScriptWatchdogConfig;
 import org.clever.nashorn.service.CodeRunLogService;
+import org.clever.nashorn.service.CodeRunLogWriter;
+import org.clever.nashorn.service.CodeRunRollupRecorder;
+import org.clever.nashorn.utils.ScriptEngineUtils;
 import org.clever.nashorn.utils.MergeDataSourceConfig;
 import org.clever.nashorn.utils.MergeJestProperties;
 import org.clever.nashorn.utils.MergeRedisProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.autoconfigure.elasticsearch.jest.HttpClientConfigBuilderCustomizer;
 import org.springframework.boot.autoconfigure.elasticsearch.jest.JestProperties;
+import org.springframework.boot.info.BuildProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -40,10 +62,14 @@ import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 作者： lzw<br/>
@@ -127,51 +153,205 @@ public class BeanConfiguration {
         return Collections.unmodifiableMap(context);
     }
 
-    @Bean("HttpRequestJsHandler-ModuleCache")
-    public ModuleCache moduleCache() {
-        return new MemoryModuleCache();
+    @Bean("HttpRequestJsHandler-JsCodeFileCache")
+    public JsCodeFileCache jsCodeFileCache(@Autowired GlobalConfig globalConfig, @Autowired JsCodeFileCacheService jsCodeFileCacheService) {
+        MemoryJsCodeFileCache memoryJsCodeFileCache = new MemoryJsCodeFileCache(1000 * 3600 * 2, jsCodeFileCacheService);
+        ScriptBundleConfig scriptBundle = globalConfig.getScriptBundle();
+        if (scriptBundle == null || !scriptBundle.isEnable()) {
+            return memoryJsCodeFileCache;
+        }
+        File bundleFile = new File(scriptBundle.getBundleFile());
+        if (!bundleFile.isFile()) {
+            log.warn("脚本发布包不存在，从数据库加载脚本 | {}", bundleFile.getAbsolutePath());
+            return memoryJsCodeFileCache;
+        }
+        try {
+            return new BundleJsCodeFileCache(ScriptBundle.open(bundleFile), memoryJsCodeFileCache, jsCodeFileCacheService);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
     }
 
-    @Bean("HttpRequestJsHandler-JsCodeFileCache")
-    public JsCodeFileCache jsCodeFileCache(@Autowired JsCodeFileCacheService jsCodeFileCacheService) {
-        return new MemoryJsCodeFileCache(1000 * 3600 * 2, jsCodeFileCacheService);
+    @Bean("HttpRequestJsHandler-RouteTrie")
+    public RouteTrie routeTrie(
+            @Autowired @Qualifier("HttpRequestJsHandler-JsCodeFileCache") JsCodeFileCache jsCodeFileCache,
+            @Autowired JsCodeFileCacheService jsCodeFileCacheService) {
+        final Supplier<Collection<JsCodeFile>> loader;
+        if (jsCodeFileCache instanceof BundleJsCodeFileCache) {
+            loader = ((BundleJsCodeFileCache) jsCodeFileCache)::findRouteMeta;
+        } else {
+            // 只查询当前 bizType、groupName 的文件路径，不查询脚本内容
+            loader = () -> jsCodeFileCacheService.findRouteMeta(EnumConstant.DefaultBizType, EnumConstant.DefaultGroupName);
+        }
+        // 定时全量重建，同步其它服务节点修改的脚本
+        final RouteTrie routeTrie = new RouteTrie(EnumConstant.DefaultBizType, EnumConstant.DefaultGroupName, loader, 1000 * 60 * 10);
+        Runtime.getRuntime().addShutdownHook(new Thread(routeTrie::close));
+        return routeTrie;
+    }
+
+    @Bean("Global-CodeRunLogWriter")
+    public CodeRunLogWriter codeRunLogWriter(@Autowired GlobalConfig globalConfig) {
+        CodeRunLogWriterConfig codeRunLogWriterConfig = globalConfig.getCodeRunLogWriter();
+        if (codeRunLogWriterConfig == null) {
+            codeRunLogWriterConfig = new CodeRunLogWriterConfig();
+            globalConfig.setCodeRunLogWriter(codeRunLogWriterConfig);
+        }
+        // CodeRunLogService 依赖 CodeRunLogWriter，写入时再获取
+        return new CodeRunLogWriter(codeRunLogWriterConfig, batch -> SpringContextHolder.getBean(CodeRunLogService.class).writeBatch(batch));
+    }
+
+    @Bean("Global-CodeRunRollupRecorder")
+    public CodeRunRollupRecorder codeRunRollupRecorder(@Autowired GlobalConfig globalConfig) {
+        CodeRunRollupConfig codeRunRollupConfig = globalConfig.getCodeRunRollup();
+        if (codeRunRollupConfig == null) {
+            codeRunRollupConfig = new CodeRunRollupConfig();
+            globalConfig.setCodeRunRollup(codeRunRollupConfig);
+        }
+        final CodeRunRollupRecorder codeRunRollupRecorder = new CodeRunRollupRecorder(
+                codeRunRollupConfig,
+                rollups -> SpringContextHolder.getBean(CodeRunLogService.class).saveRollups(rollups)
+        );
+        // 写入未写入的统计
+        Runtime.getRuntime().addShutdownHook(new Thread(codeRunRollupRecorder::close));
+        return codeRunRollupRecorder;
+    }
+
+    @Bean("Global-AsyncConsoleDispatcher")
+    public AsyncConsoleDispatcher asyncConsoleDispatcher(
+            @Autowired GlobalConfig globalConfig,
+            @Autowired @Qualifier("Global-CodeRunLogWriter") CodeRunLogWriter codeRunLogWriter) {
+        AsyncConsoleConfig asyncConsoleConfig = globalConfig.getAsyncConsole();
+        if (asyncConsoleConfig == null) {
+            asyncConsoleConfig = new AsyncConsoleConfig();
+            globalConfig.setAsyncConsole(asyncConsoleConfig);
+        }
+        final AsyncConsoleDispatcher asyncConsoleDispatcher = new AsyncConsoleDispatcher(asyncConsoleConfig);
+        if (asyncConsoleConfig.isEnable()) {
+            asyncConsoleDispatcher.addSink(new Slf4jConsoleSink());
+            asyncConsoleDispatcher.addSink(new WebSocketConsoleSink());
+            if (asyncConsoleConfig.isRunLogEnable()) {
+                asyncConsoleDispatcher.addSink(new RunLogConsoleSink(asyncConsoleConfig, codeRunLogWriter::appendLogs));
+            }
+        }
+        // 输出剩余的日志，再写入剩余的运行记录(运行日志先交给 codeRunLogWriter)
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            asyncConsoleDispatcher.close();
+            codeRunLogWriter.close();
+        }));
+        return asyncConsoleDispatcher;
     }
 
-    @Bean("Global-ScriptModuleInstance")
-    public ScriptModuleInstance scriptModuleInstance(
-            @Autowired @Qualifier("HttpRequestJsHandler-ModuleCache") ModuleCache moduleCache,
+    @Bean("Global-ScriptModuleInstancePool")
+    public ScriptModuleInstancePool scriptModuleInstancePool(
+            @Autowired GlobalConfig globalConfig,
+            @Autowired ObjectProvider<BuildProperties> buildPropertiesProvider,
             @Autowired @Qualifier("HttpRequestJsHandler-JsCodeFileCache") JsCodeFileCache jsCodeFileCache,
-            @Autowired @Qualifier("ScriptGlobalContext") Map<String, Object> context
+            @Autowired @Qualifier("ScriptGlobalContext") Map<String, Object> context,
+            @Autowired @Qualifier("Global-AsyncConsoleDispatcher") AsyncConsoleDispatcher asyncConsoleDispatcher
     ) {
+        ScriptModuleInstancePoolConfig poolConfig = globalConfig.getScriptModuleInstancePool();
+        if (poolConfig == null) {
+            poolConfig = new ScriptModuleInstancePoolConfig();
+            globalConfig.setScriptModuleInstancePool(poolConfig);
+        }
+        // 开启Nashorn持久化代码缓存(必须在创建engine之前)
+        PersistentCodeCacheConfig persistentCodeCache = globalConfig.getPersistentCodeCache();
+        if (persistentCodeCache != null && persistentCodeCache.isEnable()) {
+            // 缓存目录只按应用版本区分，不需要读取脚本内容
+            BuildProperties buildProperties = buildPropertiesProvider.getIfAvailable();
+            final String appVersion = buildProperties == null ? "unknown" : buildProperties.getVersion() + "-" + buildProperties.getTime();
+            ScriptEngineUtils.enablePersistentCodeCache(persistentCodeCache.getCacheDir(), appVersion, persistentCodeCache.isOptimisticTypes());
+        }
         final String bizType = EnumConstant.DefaultBizType;
         final String groupName = EnumConstant.DefaultGroupName;
-        // 初始化ScriptModuleInstance
+        // 初始化ScriptModuleInstance池
         Folder rootFolder = new DatabaseFolder(bizType, groupName, jsCodeFileCache);
-        Console console = new AllConsoleWrapper(bizType, groupName, "/");
+        Console console = new AllConsoleWrapper(bizType, groupName, "/", asyncConsoleDispatcher.getConfig().isEnable() ? asyncConsoleDispatcher : null);
         // 由于Spring bug导致需要这样获取 context
         if (context.get("ScriptGlobalContext") != null && context.get("ScriptGlobalContext") instanceof Map) {
             //noinspection unchecked
             context = (Map<String, Object>) context.get("ScriptGlobalContext");
         }
-        return new ScriptModuleInstance(rootFolder, moduleCache, console, context);
+        final ScriptModuleInstancePool scriptModuleInstancePool = ScriptModuleInstancePool.creat(poolConfig, rootFolder, console, context);
+        // 关闭ScriptModuleInstance池
+        Runtime.getRuntime().addShutdownHook(new Thread(scriptModuleInstancePool::close));
+        return scriptModuleInstancePool;
+    }
+
+    @Bean("Global-ScriptMetrics")
+    public ScriptMetrics scriptMetrics(@Autowired MeterRegistry meterRegistry) {
+        final ScriptMetrics scriptMetrics = new ScriptMetrics(meterRegistry);
+        // 统计 require 加载模块的耗时
+        Module.setLoadListener(scriptMetrics);
+        return scriptMetrics;
+    }
+
+    @Bean("Global-ScriptResourceMetrics")
+    public ScriptResourceMetrics scriptResourceMetrics(
+            @Autowired @Qualifier("HttpRequestJsHandler-JsCodeFileCache") JsCodeFileCache jsCodeFileCache,
+            @Autowired @Qualifier("HttpRequestJsHandler-RouteTrie") RouteTrie routeTrie,
+            @Autowired @Qualifier("Global-CodeRunLogWriter") CodeRunLogWriter codeRunLogWriter,
+            @Autowired @Qualifier("MultipleDataSource") Map<String, DataSource> multipleDataSource,
+            @Autowired @Qualifier("MultipleRedis") Map<String, LettuceClientBuilder> multipleRedis) {
+        // 实现了 MeterBinder，由 Spring Boot 绑定到 MeterRegistry
+        final ScriptResourceMetrics scriptResourceMetrics = new ScriptResourceMetrics(
+                jsCodeFileCache,
+                routeTrie,
+                codeRunLogWriter,
+                multipleDataSource,
+                multipleRedis
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(scriptResourceMetrics::close));
+        return scriptResourceMetrics;
+    }
+
+    @Bean("Global-ScriptWatchdog")
+    public ScriptWatchdog scriptWatchdog(@Autowired GlobalConfig globalConfig) {
+        ScriptWatchdogConfig watchdogConfig = globalConfig.getScriptWatchdog();
+        if (watchdogConfig == null) {
+            watchdogConfig = new ScriptWatchdogConfig();
+            globalConfig.setScriptWatchdog(watchdogConfig);
+        }
+        final ScriptWatchdog scriptWatchdog = new ScriptWatchdog(watchdogConfig);
+        // 停止看门狗
+        Runtime.getRuntime().addShutdownHook(new Thread(scriptWatchdog::close));
+        return scriptWatchdog;
+    }
+
+    @Bean("Global-ScriptProfiler")
+    public ScriptProfiler scriptProfiler(
+            @Autowired GlobalConfig globalConfig,
+            @Autowired @Qualifier("Global-ScriptWatchdog") ScriptWatchdog scriptWatchdog) {
+        ScriptProfilerConfig scriptProfilerConfig = globalConfig.getScriptProfiler();
+        if (scriptProfilerConfig == null) {
+            scriptProfilerConfig = new ScriptProfilerConfig();
+            globalConfig.setScriptProfiler(scriptProfilerConfig);
+        }
+        final ScriptProfiler scriptProfiler = new ScriptProfiler(scriptProfilerConfig, scriptWatchdog);
+        Runtime.getRuntime().addShutdownHook(new Thread(scriptProfiler::close));
+        return scriptProfiler;
     }
 
     @Bean
     public HttpRequestJsHandler httpRequestJsHandler(
             @Autowired ObjectMapper objectMapper,
+            @Autowired @Qualifier("HttpRequestJsHandler-RouteTrie") RouteTrie routeTrie,
             @Autowired @Qualifier("HttpRequestJsHandler-JsCodeFileCache") JsCodeFileCache jsCodeFileCache,
-            @Autowired @Qualifier("Global-ScriptModuleInstance") ScriptModuleInstance scriptModuleInstance,
-            @Autowired CodeRunLogService codeRunLogService
+            @Autowired @Qualifier("Global-ScriptModuleInstancePool") ScriptModuleInstancePool scriptModuleInstancePool,
+            @Autowired @Qualifier("Global-ScriptWatchdog") ScriptWatchdog scriptWatchdog,
+            @Autowired CodeRunLogService codeRunLogService,
+            @Autowired @Qualifier("Global-ScriptMetrics") ScriptMetrics scriptMetrics
     ) {
         final String bizType = EnumConstant.DefaultBizType;
         final String groupName = EnumConstant.DefaultGroupName;
-        return new HttpRequestJsHandler(bizType, groupName, objectMapper, jsCodeFileCache, scriptModuleInstance, codeRunLogService);
+        return new HttpRequestJsHandler(bizType, groupName, objectMapper, routeTrie, jsCodeFileCache, scriptModuleInstancePool, scriptWatchdog, codeRunLogService, scriptMetrics);
     }
 
     @Bean
     public CanalMysqlSlave canalMysqlSlave(
             @Autowired GlobalConfig globalConfig,
-            @Autowired @Qualifier("Global-ScriptModuleInstance") ScriptModuleInstance scriptModuleInstance
+            @Autowired @Qualifier("Global-ScriptModuleInstancePool") ScriptModuleInstancePool scriptModuleInstancePool,
+            @Autowired @Qualifier("Global-ScriptWatchdog") ScriptWatchdog scriptWatchdog
     ) {
         MultipleCanalConfig multipleCanalConfig = globalConfig.getMultipleCanal();
         if (multipleCanalConfig == null) {
@@ -180,7 +360,7 @@ public class BeanConfiguration {
         }
         // TODO Merge Config
         // TODO 校验配置重复(不同的destination 对应同一个数据库)
-        CanalMysqlSlave canalMysqlSlave = new CanalMysqlSlave(scriptModuleInstance, Collections.unmodifiableMap(multipleCanalConfig.getCanalConfigMap()));
+        CanalMysqlSlave canalMysqlSlave = new CanalMysqlSlave(scriptModuleInstancePool, scriptWatchdog, Collections.unmodifiableMap(multipleCanalConfig.getCanalConfigMap()));
         canalMysqlSlave.start();
         // 关闭 CanalMysqlSlave
         Runtime.getRuntime().addShutdownHook(new Thread(canalMysqlSlave::stop));
@@ -301,6 +481,7 @@ public class BeanConfiguration {
     @Bean("MultipleJest")
     public Map<String, JestClient> multipleJest(
             @Autowired GlobalConfig globalConfig,
+            @Autowired @Qualifier("Global-ScriptMetrics") ScriptMetrics scriptMetrics,
             @Autowired(required = false) JestClient jestClient,
             @Autowired(required = false) Gson gson,
             @Autowired(required = false) List<HttpClientConfigBuilderCustomizer> builderCustomizers) {
@@ -316,7 +497,7 @@ public class BeanConfiguration {
         final Map<String, JestClient> jestClientMap = new HashMap<>(jestConfigCount);
         // 加入已存在的数据源
         if (jestClient != null) {
-            jestClientMap.put("spring-data-jest", jestClient);
+            jestClientMap.put("spring-data-jest", new MeteredJestClient("spring-data-jest", jestClient, scriptMetrics));
         }
         // 初始化配置的数据源
         final JestProperties jestGlobalConfig = multipleJest.getGlobalConfig();
@@ -330,7 +511,7 @@ public class BeanConfiguration {
             jestConfig = MergeJestProperties.mergeConfig(jestGlobalConfig, jestConfig);
             JestClientBuilder jestClientBuilder = new JestClientBuilder(jestConfig, gson, builderCustomizers);
             JestClient jestClientTmp = jestClientBuilder.builder();
-            jestClientMap.put(name, jestClientTmp);
+            jestClientMap.put(name, new MeteredJestClient(name, jestClientTmp, scriptMetrics));
         });
         final Map<String, JestClient> result = Collections.unmodifiableMap(jestClientMap);
         // 关闭 JestClient
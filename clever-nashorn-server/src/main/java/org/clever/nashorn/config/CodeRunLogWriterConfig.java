@@ -0,0 +1,41 @@
+package org.clever.nashorn.config;
+
+import lombok.Data;
+
+/**
+ * 脚本运行记录(code_run_log)后台批量写入配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/29 14:10 <br/>
+ */
+@Data
+public class CodeRunLogWriterConfig {
+    /**
+     * 是否后台批量写入(false: 在执行脚本的线程中写入)
+     */
+    private boolean enable = true;
+    /**
+     * 等待写入的队列大小，其中 1/8 预留给"结束"，满了之后丢弃新的运行记录并计数
+     */
+    private int queueSize = 65536;
+    /**
+     * 队列(包括预留给"结束"的空间)满了时，"结束"最多等待的时间(毫秒)，超时后丢弃并计数
+     */
+    private long endWaitTimeout = 100;
+    /**
+     * 一个事务最多写入的操作数(开始、结束、追加日志各算一个)
+     */
+    private int batchSize = 512;
+    /**
+     * 队列为空时后台线程的等待时间(毫秒)
+     */
+    private long flushInterval = 200;
+    /**
+     * 一批数据写入失败后的重试次数(整批在一个事务中，失败时已回滚，可以直接重试)
+     */
+    private int maxRetries = 3;
+    /**
+     * 写入失败后重试的间隔(毫秒，每次重试加倍)
+     */
+    private long retryInterval = 500;
+}
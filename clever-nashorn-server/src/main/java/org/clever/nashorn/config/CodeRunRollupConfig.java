@@ -0,0 +1,25 @@
+package org.clever.nashorn.config;
+
+import lombok.Data;
+
+/**
+ * 脚本运行统计(code_run_rollup)配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/30 09:30 <br/>
+ */
+@Data
+public class CodeRunRollupConfig {
+    /**
+     * 统计数据写入数据库的间隔(毫秒)
+     */
+    private long flushInterval = 60_000;
+    /**
+     * 保存运行日志(code_run_log)的比例(0 ~ 1)，1: 全部保存，0: 只统计不保存
+     */
+    private double rawLogSampleRate = 1;
+    /**
+     * 没有抽中的执行失败时(异常、超时)是否仍然保存运行日志(不包含Console输出)
+     */
+    private boolean rawLogKeepFailure = true;
+}
@@ -1,6 +1,8 @@
 package org.clever.nashorn.config;
 
 import lombok.Data;
+import org.clever.nashorn.pool.ScriptModuleInstancePoolConfig;
+import org.clever.nashorn.watchdog.ScriptWatchdogConfig;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.stereotype.Component;
@@ -34,4 +36,49 @@ public class GlobalConfig {
      */
     @NestedConfigurationProperty
     private MultipleCanalConfig multipleCanal = new MultipleCanalConfig();
+    /**
+     * ScriptModuleInstance池配置
+     */
+    @NestedConfigurationProperty
+    private ScriptModuleInstancePoolConfig scriptModuleInstancePool = new ScriptModuleInstancePoolConfig();
+    /**
+     * Nashorn持久化代码缓存配置
+     */
+    @NestedConfigurationProperty
+    private PersistentCodeCacheConfig persistentCodeCache = new PersistentCodeCacheConfig();
+    /**
+     * 启动预热配置
+     */
+    @NestedConfigurationProperty
+    private ScriptWarmUpConfig scriptWarmUp = new ScriptWarmUpConfig();
+    /**
+     * 脚本执行看门狗配置(CPU时间、执行时间限制)
+     */
+    @NestedConfigurationProperty
+    private ScriptWatchdogConfig scriptWatchdog = new ScriptWatchdogConfig();
+    /**
+     * 脚本发布包配置
+     */
+    @NestedConfigurationProperty
+    private ScriptBundleConfig scriptBundle = new ScriptBundleConfig();
+    /**
+     * 脚本Console异步输出配置
+     */
+    @NestedConfigurationProperty
+    private AsyncConsoleConfig asyncConsole = new AsyncConsoleConfig();
+    /**
+     * 脚本运行记录后台批量写入配置
+     */
+    @NestedConfigurationProperty
+    private CodeRunLogWriterConfig codeRunLogWriter = new CodeRunLogWriterConfig();
+    /**
+     * 脚本运行统计配置
+     */
+    @NestedConfigurationProperty
+    private CodeRunRollupConfig codeRunRollup = new CodeRunRollupConfig();
+    /**
+     * 脚本采样分析配置
+     */
+    @NestedConfigurationProperty
+    private ScriptProfilerConfig scriptProfiler = new ScriptProfilerConfig();
 }
@@ -1,6 +1,7 @@
 package org.clever.nashorn.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lettuce.core.event.DefaultEventPublisherOptions;
 import io.lettuce.core.resource.ClientResources;
 import io.lettuce.core.resource.DefaultClientResources;
 import lombok.Getter;
@@ -33,6 +34,10 @@ import java.util.List;
 public class LettuceClientBuilder implements DisposableBean {
     private final RedisProperties properties;
     private final ObjectMapper objectMapper;
+    /**
+     * 命令统计由 ScriptResourceMetrics 定时读取(spring-data-redis 时为null)
+     */
+    @Getter
     private final ClientResources clientResources;
     @Getter
     private final RedisConnectionFactory redisConnectionFactory;
@@ -42,7 +47,10 @@ public class LettuceClientBuilder implements DisposableBean {
     public LettuceClientBuilder(RedisProperties redisProperties, ObjectMapper objectMapper) {
         this.properties = redisProperties;
         this.objectMapper = objectMapper;
-        this.clientResources = DefaultClientResources.create();
+        // 不定时发布命令统计事件(发布时会清零统计)
+        this.clientResources = DefaultClientResources.builder()
+                .commandLatencyPublisherOptions(DefaultEventPublisherOptions.disabled())
+                .build();
         this.redisConnectionFactory = build();
         this.redisTemplate = initRedisTemplate();
     }
@@ -0,0 +1,25 @@
+package org.clever.nashorn.config;
+
+import lombok.Data;
+
+/**
+ * Nashorn持久化代码缓存配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/22 15:08 <br/>
+ */
+@Data
+public class PersistentCodeCacheConfig {
+    /**
+     * 是否启用持久化代码缓存
+     */
+    private boolean enable = false;
+    /**
+     * 缓存根目录(实际缓存目录为 cacheDir/版本，版本由JDK版本、应用版本、engine参数决定)
+     */
+    private String cacheDir = "./data/nashorn_code_cache";
+    /**
+     * 是否启用乐观类型(--optimistic-types)
+     */
+    private boolean optimisticTypes = true;
+}
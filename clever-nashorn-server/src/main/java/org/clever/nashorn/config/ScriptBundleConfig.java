@@ -0,0 +1,21 @@
+package org.clever.nashorn.config;
+
+import lombok.Data;
+
+/**
+ * 脚本发布包配置(启动时从发布包加载脚本，数据库只用于加载发布包之后的变化)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/27 14:05 <br/>
+ */
+@Data
+public class ScriptBundleConfig {
+    /**
+     * 是否从发布包加载脚本
+     */
+    private boolean enable = false;
+    /**
+     * 发布包文件(导出接口: /api/js_code_file/export_bundle)，文件不存在时从数据库加载脚本
+     */
+    private String bundleFile = "./data/script.bundle";
+}
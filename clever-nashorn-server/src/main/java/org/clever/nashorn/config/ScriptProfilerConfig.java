@@ -0,0 +1,29 @@
+package org.clever.nashorn.config;
+
+import lombok.Data;
+
+/**
+ * 脚本采样分析(火焰图)配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 09:50 <br/>
+ */
+@Data
+public class ScriptProfilerConfig {
+    /**
+     * 采样间隔(毫秒)
+     */
+    private long sampleInterval = 10;
+    /**
+     * 推送火焰图的间隔(毫秒)
+     */
+    private long pushInterval = 2000;
+    /**
+     * 默认的采样时长(秒)
+     */
+    private int defaultDuration = 60;
+    /**
+     * 最长的采样时长(秒)
+     */
+    private int maxDuration = 600;
+}
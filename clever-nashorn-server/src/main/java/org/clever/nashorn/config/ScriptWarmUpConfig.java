@@ -0,0 +1,29 @@
+package org.clever.nashorn.config;
+
+import lombok.Data;
+
+/**
+ * 启动预热配置
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/24 09:30 <br/>
+ */
+@Data
+public class ScriptWarmUpConfig {
+    /**
+     * 是否在启动时预热脚本
+     */
+    private boolean enable = true;
+    /**
+     * 并行预热的线程数(每个线程预热一个池实例，不超过池的 minIdle；小于等于0表示使用CPU核数)
+     */
+    private int parallelism = 0;
+    /**
+     * 预编译后是否调用脚本导出的 warmup 函数
+     */
+    private boolean invokeWarmupFunction = false;
+    /**
+     * 打印(健康检查中显示)耗时最长的文件数
+     */
+    private int slowestTop = 10;
+}
@@ -3,6 +3,7 @@ package org.clever.nashorn.config;
 import lombok.extern.slf4j.Slf4j;
 import org.clever.nashorn.websocket.debug.DebugHandler;
 import org.clever.nashorn.websocket.looklogs.ListenerLogsHandler;
+import org.clever.nashorn.websocket.profiler.ScriptProfilerHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -22,6 +23,8 @@ public class WebSocketConfig implements WebSocketConfigurer {
     private DebugHandler debugHandler;
     @Autowired
     private ListenerLogsHandler listenerLogsHandler;
+    @Autowired
+    private ScriptProfilerHandler scriptProfilerHandler;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
@@ -32,5 +35,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
         // .withSockJS();
         registry.addHandler(listenerLogsHandler, "/ws/listener_logs")
                 .setAllowedOrigins(allowsOrigins);
+        registry.addHandler(scriptProfilerHandler, "/ws/script_profiler")
+                .setAllowedOrigins(allowsOrigins);
     }
 }
@@ -4,14 +4,28 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import jdk.nashorn.api.scripting.JSObject;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import jdk.nashorn.api.scripting.ScriptUtils;
 import jdk.nashorn.internal.runtime.PropertyAccess;
-import org.apache.commons.lang3.StringUtils;
 import org.clever.nashorn.JSTools;
+import org.clever.nashorn.internal.CommonUtils;
 
 import javax.script.Bindings;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TimeZone;
 
 /**
+ * 直接遍历JS对象的属性写入 JsonGenerator(不再调用 BaseUtils.js 的 inspect 生成Json字符串) <br />
+ * 输出与 JSTools.inspect 保持一致: <br />
+ * 1. 重复引用的对象输出 "[Circular 第一次出现的key]" <br />
+ * 2. 函数输出 {"function ()": "源码"}，undefined 输出 "undefined" <br />
+ * 3. Date 和 ISO格式的时间字符串输出 "yyyy-MM-dd HH:mm:ss" <br />
+ * 4. NaN、Infinity 输出 null
+ * <p>
  * 作者：lizw <br/>
  * 创建时间：2019/08/26 17:47 <br/>
  */
@@ -19,19 +33,194 @@ public class BindingsJsonSerializer extends JsonSerializer<Object> {
 
     public final static BindingsJsonSerializer instance = new BindingsJsonSerializer();
 
+    private static final String Root_Key = "root";
+    private static final String Function_Key = "function ()";
+    private static final String Undefined = "undefined";
+
+    private static final ThreadLocal<SimpleDateFormat> Iso_Date_Format = ThreadLocal.withInitial(() -> {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    });
+
     @Override
     public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
-        String json = null;
-        if (value instanceof JSObject) {
-            json = JSTools.inspect((JSObject) value);
-        } else if (value instanceof Bindings) {
-            json = JSTools.inspect((Bindings) value);
-        } else if (value instanceof PropertyAccess) {
-            json = JSTools.inspect((PropertyAccess) value);
-        }
-        if (StringUtils.isNotBlank(json)) {
-            gen.writeRawValue(json);
-            // gen.writeObject(new JSONObject(json).toMap());
+        new Writer(gen, provider).write(Root_Key, value);
+    }
+
+    /**
+     * 一次序列化的状态
+     */
+    private static class Writer {
+        private final JsonGenerator gen;
+        private final SerializerProvider provider;
+        /**
+         * 已经输出的对象 --> 第一次出现时的key
+         */
+        private final Map<Object, String> seen = new IdentityHashMap<>();
+        /**
+         * 正在输出的数组(数组只检查循环引用)
+         */
+        private final Map<Object, String> arrays = new IdentityHashMap<>();
+
+        Writer(JsonGenerator gen, SerializerProvider provider) {
+            this.gen = gen;
+            this.provider = provider;
+        }
+
+        void write(String key, Object value) throws IOException {
+            if (value == null) {
+                gen.writeNull();
+            } else if (ScriptObjectMirror.isUndefined(value)) {
+                gen.writeString(Undefined);
+            } else if (value instanceof String) {
+                gen.writeString(CommonUtils.Instance.formatDate((String) value));
+            } else if (value instanceof Number) {
+                writeNumber((Number) value);
+            } else if (value instanceof Boolean) {
+                gen.writeBoolean((Boolean) value);
+            } else if (value instanceof CharSequence || value instanceof Character) {
+                gen.writeString(CommonUtils.Instance.formatDate(value.toString()));
+            } else if (value instanceof ScriptObjectMirror) {
+                writeMirror(key, (ScriptObjectMirror) value);
+            } else if (value instanceof JSObject) {
+                writeJSObject(key, (JSObject) value);
+            } else if (value instanceof Bindings) {
+                writeBindings(key, (Bindings) value);
+            } else if (value instanceof PropertyAccess) {
+                // 未包装的 ScriptObject 在当前线程没有所属的Global，无法直接访问，仍然使用 inspect
+                gen.writeRawValue(JSTools.inspect((PropertyAccess) value));
+            } else {
+                provider.defaultSerializeValue(value, gen);
+            }
+        }
+
+        private void writeNumber(Number number) throws IOException {
+            if (number instanceof Double || number instanceof Float) {
+                double value = number.doubleValue();
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    gen.writeNull();
+                } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                    // 与 JSON.stringify 一致，整数不输出小数部分
+                    gen.writeNumber((long) value);
+                } else {
+                    gen.writeNumber(value);
+                }
+            } else if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+                gen.writeNumber(number.longValue());
+            } else {
+                provider.defaultSerializeValue(number, gen);
+            }
+        }
+
+        /**
+         * 对象已经输出过时输出 "[Circular key]"
+         */
+        private boolean writeCircular(String key, Object object) throws IOException {
+            String firstKey = seen.get(object);
+            if (firstKey != null) {
+                gen.writeString("[Circular " + firstKey + "]");
+                return true;
+            }
+            seen.put(object, key);
+            return false;
+        }
+
+        private void writeMirror(String key, ScriptObjectMirror mirror) throws IOException {
+            if (mirror.isFunction()) {
+                gen.writeStartObject();
+                gen.writeStringField(Function_Key, String.valueOf(mirror.callMember("toString")));
+                gen.writeEndObject();
+                return;
+            }
+            // 同一个JS对象每次获取到的 ScriptObjectMirror 可能不同，使用内部的 ScriptObject 判断是否重复
+            final Object identity = ScriptUtils.unwrap(mirror);
+            if (mirror.isArray()) {
+                if (arrays.containsKey(identity)) {
+                    gen.writeString("[Circular " + arrays.get(identity) + "]");
+                    return;
+                }
+                arrays.put(identity, key);
+                final int length = ((Number) mirror.getMember("length")).intValue();
+                gen.writeStartArray();
+                for (int i = 0; i < length; i++) {
+                    write(String.valueOf(i), mirror.getSlot(i));
+                }
+                gen.writeEndArray();
+                arrays.remove(identity);
+                return;
+            }
+            switch (mirror.getClassName()) {
+                case "Date":
+                    writeDate(mirror);
+                    return;
+                case "String":
+                case "Number":
+                case "Boolean":
+                    // new String()、new Number()、new Boolean() 输出原始值
+                    write(key, mirror.callMember("valueOf"));
+                    return;
+                default:
+            }
+            if (writeCircular(key, identity)) {
+                return;
+            }
+            gen.writeStartObject();
+            for (String name : mirror.keySet()) {
+                gen.writeFieldName(name);
+                write(name, mirror.getMember(name));
+            }
+            gen.writeEndObject();
+        }
+
+        private void writeDate(ScriptObjectMirror date) throws IOException {
+            Object time = date.callMember("getTime");
+            double value = time instanceof Number ? ((Number) time).doubleValue() : Double.NaN;
+            if (Double.isNaN(value)) {
+                // Invalid Date
+                gen.writeNull();
+                return;
+            }
+            String iso = Iso_Date_Format.get().format(new Date((long) value));
+            gen.writeString(CommonUtils.Instance.formatDate(iso));
+        }
+
+        private void writeJSObject(String key, JSObject object) throws IOException {
+            if (object.isFunction()) {
+                gen.writeStartObject();
+                gen.writeStringField(Function_Key, object.toString());
+                gen.writeEndObject();
+                return;
+            }
+            if (writeCircular(key, object)) {
+                return;
+            }
+            if (object.isArray()) {
+                gen.writeStartArray();
+                for (Object item : object.values()) {
+                    write(key, item);
+                }
+                gen.writeEndArray();
+                return;
+            }
+            gen.writeStartObject();
+            for (String name : object.keySet()) {
+                gen.writeFieldName(name);
+                write(name, object.getMember(name));
+            }
+            gen.writeEndObject();
+        }
+
+        private void writeBindings(String key, Bindings bindings) throws IOException {
+            if (writeCircular(key, bindings)) {
+                return;
+            }
+            gen.writeStartObject();
+            for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+                gen.writeFieldName(entry.getKey());
+                write(entry.getKey(), entry.getValue());
+            }
+            gen.writeEndObject();
         }
     }
 }
@@ -0,0 +1,213 @@
+package org.clever.nashorn.console;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.config.AsyncConsoleConfig;
+import org.clever.nashorn.internal.AbstractConsole;
+import org.clever.nashorn.internal.AllConsoleWrapper;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Console异步输出 <br />
+ * 1. 执行脚本的线程只把日志写入 {@link ConsoleRingBuffer}(不序列化、不写websocket、不阻塞) <br />
+ * 2. 每个输出目标({@link ConsoleSink})有一个后台线程批量读取并输出 <br />
+ * 3. 输出目标处理不过来时丢弃最旧的日志并计数(见 {@link #getStats()})
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 15:50 <br/>
+ */
+@Slf4j
+public class AsyncConsoleDispatcher {
+    /**
+     * 最多支持的输出目标数(ConsoleEvent.sinkMask 按位记录)
+     */
+    private static final int Max_Sink_Count = 31;
+
+    @Getter
+    private final AsyncConsoleConfig config;
+    private final ConsoleRingBuffer ringBuffer;
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    public AsyncConsoleDispatcher(AsyncConsoleConfig config) {
+        this.config = config;
+        this.ringBuffer = new ConsoleRingBuffer(config.getBufferSize());
+    }
+
+    /**
+     * 增加输出目标(启动对应的后台线程)
+     */
+    public synchronized void addSink(ConsoleSink sink) {
+        if (workers.size() >= Max_Sink_Count) {
+            throw new RuntimeException("Console输出目标数量不能超过" + Max_Sink_Count);
+        }
+        Worker worker = new Worker(sink, workers.size());
+        workers.add(worker);
+        worker.thread.start();
+    }
+
+    /**
+     * 写入日志(在执行脚本的线程中调用)
+     *
+     * @return 没有输出目标需要这条日志返回false
+     */
+    public boolean publish(ConsoleEvent event) {
+        int sinkMask = 0;
+        for (Worker worker : workers) {
+            if (worker.sink.accept(event.getConsole(), event.getLevel())) {
+                sinkMask |= (1 << worker.index);
+            }
+        }
+        if (sinkMask == 0) {
+            return false;
+        }
+        event.sinkMask = sinkMask;
+        ringBuffer.publish(event);
+        return true;
+    }
+
+    /**
+     * 写入脚本执行结束的标记(在执行脚本的线程中调用，排在这次执行的所有日志之后)
+     *
+     * @return 没有输出目标需要结束标记返回false
+     */
+    public boolean publishEnd(Long codeRunLogId) {
+        int sinkMask = 0;
+        for (Worker worker : workers) {
+            if (worker.sink.acceptEnd()) {
+                sinkMask |= (1 << worker.index);
+            }
+        }
+        if (sinkMask == 0) {
+            return false;
+        }
+        ConsoleEvent event = ConsoleEvent.newEnd(codeRunLogId);
+        event.sinkMask = sinkMask;
+        ringBuffer.publish(event);
+        return true;
+    }
+
+    /**
+     * 是否有输出目标需要这个Console这个级别的日志
+     */
+    public boolean accept(AllConsoleWrapper console, AbstractConsole.Level level) {
+        for (Worker worker : workers) {
+            if (worker.sink.accept(console, level)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 各个输出目标的统计 Map<输出目标名称, 统计>
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bufferSize", ringBuffer.getCapacity());
+        stats.put("published", ringBuffer.getPublishedCount());
+        for (Worker worker : workers) {
+            Map<String, Object> sinkStats = new LinkedHashMap<>();
+            sinkStats.put("written", worker.written);
+            sinkStats.put("dropped", worker.cursor.getDropped());
+            sinkStats.put("lag", worker.cursor.getLag());
+            sinkStats.put("failed", worker.failed);
+            stats.put(worker.sink.getName(), sinkStats);
+        }
+        return stats;
+    }
+
+    /**
+     * 输出剩余的日志并停止后台线程
+     */
+    public void close() {
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+            try {
+                worker.thread.join(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一个输出目标的后台线程
+     */
+    private class Worker implements Runnable {
+        private final ConsoleSink sink;
+        private final int index;
+        private final ConsoleRingBuffer.Cursor cursor;
+        private final Thread thread;
+        private volatile long written;
+        private volatile long failed;
+
+        Worker(ConsoleSink sink, int index) {
+            this.sink = sink;
+            this.index = index;
+            this.cursor = ringBuffer.newCursor();
+            this.thread = new Thread(this, "async-console-" + sink.getName());
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * 读取一批日志并输出
+         *
+         * @return 读取的日志数(包括不需要输出的)
+         */
+        private int drain(List<ConsoleEvent> batch) {
+            final int bit = 1 << index;
+            final int batchSize = Math.max(1, config.getBatchSize());
+            int count = 0;
+            ConsoleEvent event;
+            while (count < batchSize && (event = cursor.poll()) != null) {
+                count++;
+                if ((event.sinkMask & bit) != 0) {
+                    batch.add(event);
+                }
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    sink.write(batch);
+                    written += batch.size();
+                } catch (Throwable e) {
+                    failed += batch.size();
+                    log.warn("Console输出失败 | {}", sink.getName(), e);
+                }
+                batch.clear();
+            }
+            return count;
+        }
+
+        @Override
+        public void run() {
+            final List<ConsoleEvent> batch = new ArrayList<>(Math.max(1, config.getBatchSize()));
+            final long idleWait = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getIdleWait()));
+            while (running) {
+                if (drain(batch) <= 0) {
+                    try {
+                        sink.idle();
+                    } catch (Throwable e) {
+                        log.warn("Console输出失败 | {}", sink.getName(), e);
+                    }
+                    LockSupport.parkNanos(this, idleWait);
+                }
+            }
+            // 停止前输出剩余的日志
+            //noinspection StatementWithEmptyBody
+            while (drain(batch) > 0) {
+            }
+            try {
+                sink.close();
+            } catch (Throwable e) {
+                log.warn("关闭Console输出目标失败 | {}", sink.getName(), e);
+            }
+        }
+    }
+}
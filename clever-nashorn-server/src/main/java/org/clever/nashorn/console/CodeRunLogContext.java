@@ -0,0 +1,64 @@
+package org.clever.nashorn.console;
+
+import lombok.Getter;
+import org.clever.nashorn.entity.CodeRunLog;
+
+/**
+ * 当前线程正在执行的脚本对应的运行日志(code_run_log) <br />
+ * CodeRunLogService.startLog 时设置，endLog 时清除。脚本的Console输出在创建 {@link ConsoleEvent} 时记录运行日志ID
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/29 09:30 <br/>
+ */
+@Getter
+public class CodeRunLogContext {
+    private static final ThreadLocal<CodeRunLogContext> Current_Context = new ThreadLocal<>();
+
+    private final Long codeRunLogId;
+    /**
+     * 开始执行时的运行日志(可以为null)
+     */
+    private final CodeRunLog startLog;
+    /**
+     * 是否保存运行日志(按比例抽样，没有抽中的只计入统计)
+     */
+    private final boolean sampled;
+    /**
+     * 开始执行的时间(System.nanoTime)
+     */
+    private final long startNanoTime;
+
+    private CodeRunLogContext(Long codeRunLogId, CodeRunLog startLog, boolean sampled) {
+        this.codeRunLogId = codeRunLogId;
+        this.startLog = startLog;
+        this.sampled = sampled;
+        this.startNanoTime = System.nanoTime();
+    }
+
+    public static void set(Long codeRunLogId) {
+        set(codeRunLogId, null, true);
+    }
+
+    public static void set(Long codeRunLogId, CodeRunLog startLog, boolean sampled) {
+        Current_Context.set(new CodeRunLogContext(codeRunLogId, startLog, sampled));
+    }
+
+    /**
+     * @return 当前线程不在执行脚本或者不保存运行日志返回null
+     */
+    public static Long get() {
+        CodeRunLogContext context = Current_Context.get();
+        return context != null && context.sampled ? context.codeRunLogId : null;
+    }
+
+    /**
+     * @return 当前线程不在执行脚本返回null
+     */
+    public static CodeRunLogContext current() {
+        return Current_Context.get();
+    }
+
+    public static void clear() {
+        Current_Context.remove();
+    }
+}
@@ -0,0 +1,71 @@
+package org.clever.nashorn.console;
+
+import lombok.Getter;
+import org.clever.nashorn.internal.AbstractConsole;
+import org.clever.nashorn.internal.AllConsoleWrapper;
+
+import java.util.List;
+
+/**
+ * 一次Console输出(在执行脚本的线程中创建，由后台线程输出)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 15:20 <br/>
+ */
+@Getter
+public class ConsoleEvent {
+    /**
+     * 输出日志的Console
+     */
+    private final AllConsoleWrapper console;
+    private final AbstractConsole.Level level;
+    private final String logsText;
+    /**
+     * 参数快照(在执行脚本的线程中生成，见 {@link WebSocketConsoleSink#snapshotArgs(List)})，后台线程不会访问JS对象
+     */
+    private final List<Object> args;
+    private final long timestamp;
+    /**
+     * 输出日志时正在执行的脚本对应的运行日志ID(没有则为null)
+     */
+    private final Long codeRunLogId;
+    /**
+     * 脚本执行结束的标记(不是日志，console、level为null)
+     */
+    private final boolean end;
+    /**
+     * 在环形缓冲区中的序号(写入缓冲区之前设置)
+     */
+    long sequence;
+    /**
+     * 需要这条日志的输出目标(按位)
+     */
+    int sinkMask;
+
+    public ConsoleEvent(AllConsoleWrapper console, AbstractConsole.Level level, String logsText, List<Object> args) {
+        this.console = console;
+        this.level = level;
+        this.logsText = logsText;
+        this.args = args;
+        this.timestamp = System.currentTimeMillis();
+        this.codeRunLogId = CodeRunLogContext.get();
+        this.end = false;
+    }
+
+    private ConsoleEvent(Long codeRunLogId) {
+        this.console = null;
+        this.level = null;
+        this.logsText = null;
+        this.args = null;
+        this.timestamp = System.currentTimeMillis();
+        this.codeRunLogId = codeRunLogId;
+        this.end = true;
+    }
+
+    /**
+     * 脚本执行结束的标记(跟日志在同一个缓冲区中，输出目标读到它时这次执行的日志都已经读完了)
+     */
+    public static ConsoleEvent newEnd(Long codeRunLogId) {
+        return new ConsoleEvent(codeRunLogId);
+    }
+}
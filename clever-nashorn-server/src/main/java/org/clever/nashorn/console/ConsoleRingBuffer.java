@@ -0,0 +1,144 @@
+package org.clever.nashorn.console;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁环形缓冲区(多生产者，多消费者各自维护读取位置) <br />
+ * 1. 生产者只做一次 getAndIncrement 和一次数组写入，永远不会阻塞 <br />
+ * 2. 缓冲区满了直接覆盖最旧的日志，消费者读取时发现序号跳跃就累计丢弃数 <br />
+ * 3. 生产者申请序号之后、写入之前被终止(脚本线程被 Thread.stop)时这个位置永远不会写入，
+ * 消费者等待超过 {@link #Unfilled_Timeout_Nanos} 就跳过这个位置(计入丢弃数)，避免所有消费者停止
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 15:35 <br/>
+ */
+public class ConsoleRingBuffer {
+    /**
+     * 已申请序号但还没有写入的位置，最长等待时间(生产者写入只需要一次数组赋值，正常情况下不会超过)
+     */
+    static final long Unfilled_Timeout_Nanos = 100_000_000L;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<ConsoleEvent> slots;
+    /**
+     * 下一个写入的序号
+     */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /**
+     * @param bufferSize 缓冲区大小(调整为2的幂)
+     */
+    public ConsoleRingBuffer(int bufferSize) {
+        int size = 16;
+        while (size < bufferSize && size < (1 << 30)) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 已写入的日志总数
+     */
+    public long getPublishedCount() {
+        return tail.get();
+    }
+
+    /**
+     * 写入日志(缓冲区满了覆盖最旧的日志)
+     */
+    public void publish(ConsoleEvent event) {
+        final long sequence = tail.getAndIncrement();
+        event.sequence = sequence;
+        slots.set((int) (sequence & mask), event);
+    }
+
+    /**
+     * 消费者的读取位置
+     */
+    public class Cursor {
+        /**
+         * 下一个读取的序号
+         */
+        private long next;
+        /**
+         * 被覆盖(丢弃)的日志数
+         */
+        private volatile long dropped;
+        /**
+         * 开始等待 next 位置写入的时间(System.nanoTime，0表示没有等待)
+         */
+        private long unfilledSince;
+
+        private Cursor(long next) {
+            this.next = next;
+        }
+
+        /**
+         * 读取下一条日志
+         *
+         * @return 没有新的日志返回null
+         */
+        public ConsoleEvent poll() {
+            final long published = tail.get();
+            if (next >= published) {
+                return null;
+            }
+            if (published - next > capacity) {
+                // 落后超过一圈，直接跳到还没有被覆盖的位置
+                dropped += published - capacity - next;
+                next = published - capacity;
+            }
+            ConsoleEvent event = slots.get((int) (next & mask));
+            if (event == null || event.sequence < next) {
+                // 生产者已经申请了序号但还没有写入
+                final long now = System.nanoTime();
+                if (unfilledSince == 0) {
+                    unfilledSince = now;
+                    return null;
+                }
+                if (now - unfilledSince < Unfilled_Timeout_Nanos) {
+                    return null;
+                }
+                // 生产者在写入之前被终止，跳过这个位置
+                unfilledSince = 0;
+                dropped++;
+                next++;
+                return poll();
+            }
+            unfilledSince = 0;
+            if (event.sequence > next) {
+                // 读取之前被覆盖了
+                dropped += event.sequence - next;
+                next = event.sequence;
+            }
+            next++;
+            return event;
+        }
+
+        /**
+         * 还没有读取的日志数
+         */
+        public long getLag() {
+            return Math.max(0, tail.get() - next);
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+    }
+
+    /**
+     * 创建消费者(从当前位置开始读取)
+     */
+    public Cursor newCursor() {
+        return new Cursor(tail.get());
+    }
+}
@@ -0,0 +1,48 @@
+package org.clever.nashorn.console;
+
+import org.clever.nashorn.internal.AbstractConsole;
+import org.clever.nashorn.internal.AllConsoleWrapper;
+
+import java.util.List;
+
+/**
+ * Console输出目标(所有输出目标共用一个环形缓冲区，每个输出目标有自己的读取位置和后台线程，慢的输出目标只会丢弃自己没读到的日志)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 15:25 <br/>
+ */
+public interface ConsoleSink {
+    /**
+     * 输出目标名称
+     */
+    String getName();
+
+    /**
+     * 是否需要这个Console这个级别的日志(在执行脚本的线程中调用，必须很快)
+     */
+    boolean accept(AllConsoleWrapper console, AbstractConsole.Level level);
+
+    /**
+     * 批量输出(在后台线程中调用)
+     */
+    void write(List<ConsoleEvent> events);
+
+    /**
+     * 是否需要脚本执行结束的标记({@link ConsoleEvent#isEnd()})
+     */
+    default boolean acceptEnd() {
+        return false;
+    }
+
+    /**
+     * 缓冲区为空时调用(在后台线程中调用，可用于定时刷新)
+     */
+    default void idle() {
+    }
+
+    /**
+     * 输出完剩余的日志后调用(在后台线程中调用)
+     */
+    default void close() {
+    }
+}
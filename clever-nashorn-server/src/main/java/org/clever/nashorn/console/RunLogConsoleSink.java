@@ -0,0 +1,197 @@
+package org.clever.nashorn.console;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.config.AsyncConsoleConfig;
+import org.clever.nashorn.internal.AbstractConsole;
+import org.clever.nashorn.internal.AllConsoleWrapper;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Console输出到运行日志(code_run_log.run_log) <br />
+ * 1. 按运行日志ID缓冲日志，到了刷新间隔或者缓冲的日志超过 runLogFlushSize 时把所有运行日志的日志一起交给 writer <br />
+ * 2. 读到脚本执行结束的标记时刷新(同一批中结束的多次执行一起更新) <br />
+ * 3. 一次执行的日志超过 runLogMaxLength 后截断
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/29 10:05 <br/>
+ */
+public class RunLogConsoleSink implements ConsoleSink {
+    private static final FastDateFormat Time_Format = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final String Truncated_Text = "...(日志太长，已截断)\n";
+    /**
+     * 没有收到结束标记(被丢弃)的运行日志缓冲保留的时间
+     */
+    private static final long Stale_Time = 10 * 60 * 1000;
+
+    private final AsyncConsoleConfig config;
+    /**
+     * 输出的最低级别(console.log 等同于 info)
+     */
+    private final int minLevel;
+    /**
+     * 写入数据库 List<TupleTow<运行日志ID, 追加的日志>>
+     */
+    private final Consumer<List<TupleTow<Long, String>>> writer;
+    /**
+     * 各个运行日志的缓冲(只在后台线程中访问)
+     */
+    private final Map<Long, Pending> pendingMap = new LinkedHashMap<>();
+    private int pendingLength;
+    private boolean hasEnd;
+    private long lastFlushTime = System.currentTimeMillis();
+
+    /**
+     * @param writer 一次追加多个运行日志的日志
+     */
+    public RunLogConsoleSink(AsyncConsoleConfig config, Consumer<List<TupleTow<Long, String>>> writer) {
+        this.config = config;
+        this.minLevel = getLevelOrder(toLevel(config.getRunLogLevel()));
+        this.writer = writer;
+    }
+
+    private static AbstractConsole.Level toLevel(String level) {
+        if (StringUtils.isBlank(level)) {
+            return AbstractConsole.Level.Trace;
+        }
+        for (AbstractConsole.Level item : AbstractConsole.Level.values()) {
+            if (item.name().equalsIgnoreCase(level.trim())) {
+                return item;
+            }
+        }
+        throw new RuntimeException("运行日志级别配置错误: " + level);
+    }
+
+    private static int getLevelOrder(AbstractConsole.Level level) {
+        switch (level) {
+            case Trace:
+                return 0;
+            case Debug:
+                return 1;
+            case Warn:
+                return 3;
+            case Error:
+                return 4;
+            default:
+                return 2;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "run-log";
+    }
+
+    @Override
+    public boolean accept(AllConsoleWrapper console, AbstractConsole.Level level) {
+        return getLevelOrder(level) >= minLevel && CodeRunLogContext.get() != null;
+    }
+
+    @Override
+    public boolean acceptEnd() {
+        return true;
+    }
+
+    @Override
+    public void write(List<ConsoleEvent> events) {
+        for (ConsoleEvent event : events) {
+            Long codeRunLogId = event.getCodeRunLogId();
+            if (codeRunLogId == null) {
+                continue;
+            }
+            if (event.isEnd()) {
+                Pending pending = pendingMap.get(codeRunLogId);
+                if (pending != null) {
+                    pending.end = true;
+                    hasEnd = true;
+                }
+                continue;
+            }
+            Pending pending = pendingMap.computeIfAbsent(codeRunLogId, id -> new Pending());
+            pendingLength += pending.append(event, config.getRunLogMaxLength());
+        }
+        if (hasEnd || pendingLength >= config.getRunLogFlushSize() || isFlushTime()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void idle() {
+        if (!pendingMap.isEmpty() && isFlushTime()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private boolean isFlushTime() {
+        return System.currentTimeMillis() - lastFlushTime >= config.getRunLogFlushInterval();
+    }
+
+    /**
+     * 把缓冲的日志写入数据库
+     */
+    private void flush() {
+        final long now = System.currentTimeMillis();
+        lastFlushTime = now;
+        List<TupleTow<Long, String>> logs = new ArrayList<>(pendingMap.size());
+        Iterator<Map.Entry<Long, Pending>> iterator = pendingMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Pending> entry = iterator.next();
+            Pending pending = entry.getValue();
+            if (pending.buffer.length() > 0) {
+                logs.add(TupleTow.creat(entry.getKey(), pending.buffer.toString()));
+                pending.buffer.setLength(0);
+                pending.lastTime = now;
+            }
+            if (pending.end || now - pending.lastTime >= Stale_Time) {
+                iterator.remove();
+            }
+        }
+        pendingLength = 0;
+        hasEnd = false;
+        if (!logs.isEmpty()) {
+            writer.accept(logs);
+        }
+    }
+
+    /**
+     * 一次脚本执行缓冲的日志
+     */
+    private static class Pending {
+        private final StringBuilder buffer = new StringBuilder(256);
+        /**
+         * 已经输出的日志长度(包括已写入数据库的)
+         */
+        private int length;
+        private boolean truncated;
+        private boolean end;
+        private long lastTime = System.currentTimeMillis();
+
+        /**
+         * @return 增加的缓冲长度
+         */
+        private int append(ConsoleEvent event, int maxLength) {
+            if (truncated) {
+                return 0;
+            }
+            final int start = buffer.length();
+            buffer.append(Time_Format.format(event.getTimestamp()))
+                    .append(" [").append(event.getLevel().name().toUpperCase()).append("] ")
+                    .append(event.getLogsText()).append('\n');
+            length += buffer.length() - start;
+            if (maxLength > 0 && length > maxLength) {
+                buffer.setLength(Math.max(start, buffer.length() - (length - maxLength)));
+                buffer.append(Truncated_Text);
+                truncated = true;
+            }
+            return buffer.length() - start;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.clever.nashorn.console;
+
+import org.clever.nashorn.internal.AbstractConsole;
+import org.clever.nashorn.internal.AllConsoleWrapper;
+
+import java.util.List;
+
+/**
+ * Console输出到slf4j日志
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 16:20 <br/>
+ */
+public class Slf4jConsoleSink implements ConsoleSink {
+
+    @Override
+    public String getName() {
+        return "slf4j";
+    }
+
+    @Override
+    public boolean accept(AllConsoleWrapper console, AbstractConsole.Level level) {
+        return console.isLoggerEnabled(level);
+    }
+
+    @Override
+    public void write(List<ConsoleEvent> events) {
+        for (ConsoleEvent event : events) {
+            event.getConsole().writeLogger(event.getLevel(), event.getLogsText());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.clever.nashorn.console;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.clever.nashorn.internal.AbstractConsole;
+import org.clever.nashorn.internal.AllConsoleWrapper;
+import org.clever.nashorn.websocket.Task;
+import org.clever.nashorn.websocket.looklogs.ListenerLogsTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Console输出到监听日志的websocket客户端(ListenerLogsTask) <br />
+ * 一批日志按监听的文件分组，每个客户端连接一次写完一组
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 16:25 <br/>
+ */
+public class WebSocketConsoleSink implements ConsoleSink {
+
+    /**
+     * 生成 ConsoleEvent 的参数快照(在执行脚本的线程中调用) <br />
+     * JS对象在后台线程序列化时脚本可能正在修改它，所以除了不可变的基本类型，其他参数都先序列化成Json
+     */
+    public static List<Object> snapshotArgs(List<Object> args) {
+        if (args == null || args.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> snapshot = new ArrayList<>(args.size());
+        for (Object arg : args) {
+            if (arg == null || arg instanceof String || arg instanceof Number || arg instanceof Boolean) {
+                snapshot.add(arg);
+            } else {
+                snapshot.add(new RawValue(Task.Jackson_Mapper.toJson(arg)));
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String getName() {
+        return "websocket";
+    }
+
+    @Override
+    public boolean accept(AllConsoleWrapper console, AbstractConsole.Level level) {
+        return ListenerLogsTask.hasListener(console.getListenerForJsFileId());
+    }
+
+    @Override
+    public void write(List<ConsoleEvent> events) {
+        Map<String, List<Object>> groups = new LinkedHashMap<>();
+        for (ConsoleEvent event : events) {
+            AllConsoleWrapper console = event.getConsole();
+            groups.computeIfAbsent(console.getListenerForJsFileId(), key -> new ArrayList<>())
+                    .add(console.newDebugConsoleRes(event.getLevel(), event.getLogsText(), event.getArgs()));
+        }
+        groups.forEach(ListenerLogsTask::sendMessages);
+    }
+}
@@ -5,7 +5,15 @@ import io.swagger.annotations.ApiOperation;
 import org.clever.common.model.response.AjaxMessage;
 import org.clever.nashorn.cache.JsCodeFileCache;
 import org.clever.nashorn.config.LettuceClientBuilder;
-import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.console.AsyncConsoleDispatcher;
+import org.clever.nashorn.module.LibModuleRuntime;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.pool.ScriptModuleInstancePoolStatus;
+import org.clever.nashorn.route.RouteTrie;
+import org.clever.nashorn.service.CodeRunLogWriter;
+import org.clever.nashorn.service.CodeRunRollupRecorder;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,8 +21,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.sql.DataSource;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 作者：lizw <br/>
@@ -25,12 +35,27 @@ import java.util.Set;
 @RestController
 public class AdminController {
     @Autowired
-    @Qualifier("HttpRequestJsHandler-ModuleCache")
-    private ModuleCache moduleCache;
+    @Qualifier("Global-ScriptModuleInstancePool")
+    private ScriptModuleInstancePool scriptModuleInstancePool;
     @Autowired
     @Qualifier("HttpRequestJsHandler-JsCodeFileCache")
     private JsCodeFileCache jsCodeFileCache;
     @Autowired
+    @Qualifier("HttpRequestJsHandler-RouteTrie")
+    private RouteTrie routeTrie;
+    @Autowired
+    @Qualifier("Global-ScriptWatchdog")
+    private ScriptWatchdog scriptWatchdog;
+    @Autowired
+    @Qualifier("Global-AsyncConsoleDispatcher")
+    private AsyncConsoleDispatcher asyncConsoleDispatcher;
+    @Autowired
+    @Qualifier("Global-CodeRunLogWriter")
+    private CodeRunLogWriter codeRunLogWriter;
+    @Autowired
+    @Qualifier("Global-CodeRunRollupRecorder")
+    private CodeRunRollupRecorder codeRunRollupRecorder;
+    @Autowired
     @Qualifier("MultipleDataSource")
     private Map<String, DataSource> multipleDataSource;
     @Autowired
@@ -40,17 +65,84 @@ public class AdminController {
     @ApiOperation("清空HttpRequestJsHandler-ModuleCache缓存")
     @GetMapping("/http_js_handler_module_cache_clear")
     public AjaxMessage httpJsHandlerModuleCacheClear() {
-        moduleCache.clear();
+        scriptModuleInstancePool.forEach(instance -> {
+            instance.getModuleCache().clear();
+            instance.getModuleResolveCache().clear();
+        });
         return new AjaxMessage(true, "操作成功", "");
     }
 
+    @ApiOperation("获取ScriptModuleInstance池状态")
+    @GetMapping("/script_module_instance_pool_status")
+    public ScriptModuleInstancePoolStatus getScriptModuleInstancePoolStatus() {
+        return scriptModuleInstancePool.getStatus();
+    }
+
     @ApiOperation("清空HttpRequestJsHandler-JsCodeFileCache缓存")
     @GetMapping("/http_js_handler_js_code_file_cache_reload")
     public AjaxMessage httpJsHandlerJsCodeFileCacheReload() {
         jsCodeFileCache.reload();
+        routeTrie.reload();
+        scriptModuleInstancePool.forEach(instance -> instance.getModuleResolveCache().clear());
         return new AjaxMessage(true, "操作成功", "");
     }
 
+    @ApiOperation("获取CompiledScriptCache状态")
+    @GetMapping("/compiled_script_cache_status")
+    public Map<String, Object> getCompiledScriptCacheStatus() {
+        // 每个实例(engine)一个缓存，size是池中所有实例的合计
+        final AtomicInteger size = new AtomicInteger(0);
+        scriptModuleInstancePool.forEach(instance -> size.addAndGet(instance.getCompiledScriptCache().size()));
+        Map<String, Object> status = new LinkedHashMap<>(4);
+        status.put("size", size.get());
+        status.put("hitCount", CompiledScriptCache.getHitCount());
+        status.put("missCount", CompiledScriptCache.getMissCount());
+        status.put("compileTimeMillis", CompiledScriptCache.getCompileTimeMillis());
+        return status;
+    }
+
+    @ApiOperation("获取第三方依赖库缓存状态")
+    @GetMapping("/lib_module_runtime_status")
+    public Map<String, Object> getLibModuleRuntimeStatus() {
+        LibModuleRuntime libModuleRuntime = LibModuleRuntime.Instance;
+        Map<String, Object> status = new LinkedHashMap<>(3);
+        status.put("size", libModuleRuntime.size());
+        status.put("hitCount", libModuleRuntime.getHitCount());
+        status.put("loadCount", libModuleRuntime.getLoadCount());
+        return status;
+    }
+
+    @ApiOperation("获取脚本执行看门狗状态")
+    @GetMapping("/script_watchdog_status")
+    public Map<String, Object> getScriptWatchdogStatus() {
+        Map<String, Object> status = new LinkedHashMap<>(5);
+        status.put("config", scriptWatchdog.getConfig());
+        status.put("runningCount", scriptWatchdog.getRunningCount());
+        status.put("cpuTimeExceededCount", scriptWatchdog.getCpuTimeExceededCount());
+        status.put("wallTimeExceededCount", scriptWatchdog.getWallTimeExceededCount());
+        status.put("stopCount", scriptWatchdog.getStopCount());
+        return status;
+    }
+
+    @ApiOperation("获取Console异步输出状态(各输出目标的丢弃数、积压数)")
+    @GetMapping("/async_console_status")
+    public Map<String, Object> getAsyncConsoleStatus() {
+        Map<String, Object> status = new LinkedHashMap<>(2);
+        status.put("config", asyncConsoleDispatcher.getConfig());
+        status.put("stats", asyncConsoleDispatcher.getStats());
+        return status;
+    }
+
+    @ApiOperation("获取脚本运行记录后台写入状态(队列积压数、丢弃数、未写入的统计)")
+    @GetMapping("/code_run_log_writer_status")
+    public Map<String, Object> getCodeRunLogWriterStatus() {
+        Map<String, Object> status = new LinkedHashMap<>(3);
+        status.put("config", codeRunLogWriter.getConfig());
+        status.put("stats", codeRunLogWriter.getStats());
+        status.put("rollup", codeRunRollupRecorder.getStats());
+        return status;
+    }
+
     @ApiOperation("获取所有DataSource名称")
     @GetMapping("/multiple_data_source_name")
     public Set<String> getMultipleDataSourceName() {
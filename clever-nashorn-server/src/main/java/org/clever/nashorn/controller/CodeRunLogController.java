@@ -5,7 +5,9 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.clever.nashorn.dto.request.CodeRunLogQueryReq;
 import org.clever.nashorn.dto.response.CodeRunLogQueryRes;
+import org.clever.nashorn.dto.response.CodeRunLogResourceSummaryRes;
 import org.clever.nashorn.dto.response.CodeRunLogStatusSummaryRes;
+import org.clever.nashorn.dto.response.CodeRunRollupDashboardRes;
 import org.clever.nashorn.entity.CodeRunLog;
 import org.clever.nashorn.service.CodeRunLogService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,9 +42,21 @@ public class CodeRunLogController {
         return codeRunLogService.queryByPage(query);
     }
 
-    @ApiOperation("运行状态摘要信息")
+    @ApiOperation("运行状态摘要信息(没有执行时间条件时使用每分钟的统计数据)")
     @GetMapping("/summary")
     public List<CodeRunLogStatusSummaryRes> groupByStatus(@Validated CodeRunLogQueryReq query) {
         return codeRunLogService.groupByStatus(query);
     }
+
+    @ApiOperation("按脚本文件汇总CPU时间、分配的堆内存(默认按分配的堆内存合计倒序，没有执行时间、运行状态条件时使用每分钟的统计数据)")
+    @GetMapping("/resource_summary")
+    public IPage<CodeRunLogResourceSummaryRes> groupByJsCode(@Validated CodeRunLogQueryReq query) {
+        return codeRunLogService.groupByJsCode(query);
+    }
+
+    @ApiOperation("按分钟统计运行次数、运行状态、执行时间分布(默认最近一小时)")
+    @GetMapping("/dashboard")
+    public List<CodeRunRollupDashboardRes> groupByBucketTime(@Validated CodeRunLogQueryReq query) {
+        return codeRunLogService.groupByBucketTime(query);
+    }
 }
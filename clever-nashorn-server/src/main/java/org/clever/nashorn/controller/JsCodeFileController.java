@@ -2,6 +2,7 @@ package org.clever.nashorn.controller;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.clever.nashorn.cache.JsCodeFileCacheService;
 import org.clever.nashorn.dto.request.JsCodeFileAddReq;
 import org.clever.nashorn.dto.request.JsCodeFileTreeFindReq;
 import org.clever.nashorn.dto.request.JsCodeFileUpdateReq;
@@ -9,9 +10,12 @@ import org.clever.nashorn.entity.JsCodeFile;
 import org.clever.nashorn.model.JsCodeFileNode;
 import org.clever.nashorn.service.JsCodeFileService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +29,8 @@ import java.util.Map;
 public class JsCodeFileController {
     @Autowired
     private JsCodeFileService jsCodeFileService;
+    @Autowired
+    private JsCodeFileCacheService jsCodeFileCacheService;
 
     @ApiOperation("根据id获取")
     @GetMapping("/{id}")
@@ -79,4 +85,12 @@ public class JsCodeFileController {
     public JsCodeFile lockFile(@PathVariable("id") Long id) {
         return jsCodeFileService.lockFile(id);
     }
+
+    @ApiOperation("导出脚本发布包")
+    @GetMapping("/export_bundle")
+    public void exportBundle(@RequestParam("bizType") String bizType, @RequestParam("groupName") String groupName, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader("Content-Disposition", String.format("attachment; filename=\"%s-%s.bundle\"", bizType, groupName));
+        jsCodeFileCacheService.exportBundle(bizType, groupName, response.getOutputStream());
+    }
 }
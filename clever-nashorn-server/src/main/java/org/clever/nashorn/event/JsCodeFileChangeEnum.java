@@ -7,5 +7,9 @@ package org.clever.nashorn.event;
 public enum JsCodeFileChangeEnum {
     Add,
     Update,
+    /**
+     * 修改了文件(文件夹)的路径或者名称
+     */
+    Rename,
     Delete,
 }
@@ -3,7 +3,9 @@ package org.clever.nashorn.event;
 import lombok.extern.slf4j.Slf4j;
 import org.clever.nashorn.cache.JsCodeFileCache;
 import org.clever.nashorn.entity.JsCodeFile;
-import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.module.LibModuleRuntime;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.route.RouteTrie;
 import org.clever.nashorn.utils.JsCodeFilePathUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -17,14 +19,19 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @Component
 public class JsCodeFileChangeListener implements ApplicationListener<JsCodeFileChangeEvent> {
+    private static final String Package_Json = "package.json";
 
     @Qualifier("HttpRequestJsHandler-JsCodeFileCache")
     @Autowired
     private JsCodeFileCache memoryJsCodeFileCache;
 
-    @Qualifier("HttpRequestJsHandler-ModuleCache")
+    @Qualifier("Global-ScriptModuleInstancePool")
     @Autowired
-    private ModuleCache moduleCache;
+    private ScriptModuleInstancePool scriptModuleInstancePool;
+
+    @Qualifier("HttpRequestJsHandler-RouteTrie")
+    @Autowired
+    private RouteTrie routeTrie;
 
     @Override
     public void onApplicationEvent(JsCodeFileChangeEvent event) {
@@ -37,14 +44,35 @@ public class JsCodeFileChangeListener implements ApplicationListener<JsCodeFileC
         switch (event.getChange()) {
             case Add:
                 memoryJsCodeFileCache.put(jsCodeFile);
+                routeTrie.put(jsCodeFile);
+                scriptModuleInstancePool.forEach(instance -> instance.getModuleResolveCache().clear());
                 break;
             case Update:
                 memoryJsCodeFileCache.put(jsCodeFile);
-                moduleCache.remove(fullPath);
+                routeTrie.put(jsCodeFile);
+                scriptModuleInstancePool.forEach(instance -> instance.getModuleCache().remove(fullPath));
+                // package.json 的 main 可能变化
+                if (Package_Json.equals(jsCodeFile.getName())) {
+                    scriptModuleInstancePool.forEach(instance -> instance.getModuleResolveCache().clear());
+                }
+                break;
+            case Rename:
+                memoryJsCodeFileCache.put(jsCodeFile);
+                routeTrie.put(jsCodeFile);
+                scriptModuleInstancePool.forEach(instance -> {
+                    instance.getModuleCache().remove(fullPath);
+                    instance.getModuleResolveCache().clear();
+                });
                 break;
             case Delete:
                 memoryJsCodeFileCache.remove(jsCodeFile);
-                moduleCache.remove(fullPath);
+                routeTrie.remove(jsCodeFile);
+                scriptModuleInstancePool.forEach(instance -> {
+                    instance.getModuleCache().remove(fullPath);
+                    instance.getModuleResolveCache().removeResolvedTo(fullPath);
+                    instance.getCompiledScriptCache().remove(fullPath);
+                });
+                LibModuleRuntime.Instance.remove(fullPath);
         }
     }
 }
@@ -1,24 +1,24 @@
 package org.clever.nashorn.intercept;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import jdk.nashorn.internal.runtime.Undefined;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
 import org.clever.common.utils.exception.ExceptionUtils;
 import org.clever.common.utils.mapper.JacksonMapper;
-import org.clever.common.utils.tuples.TupleTow;
 import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.ScriptModuleInstance.BoundFunction;
 import org.clever.nashorn.cache.JsCodeFileCache;
-import org.clever.nashorn.entity.EnumConstant;
 import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.metrics.ScriptMetrics;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.route.Route;
+import org.clever.nashorn.route.RouteMatch;
+import org.clever.nashorn.route.RouteTrie;
 import org.clever.nashorn.service.CodeRunLogService;
-import org.clever.nashorn.utils.JsCodeFilePathUtils;
+import org.clever.nashorn.utils.ThreadResourceUsage;
+import org.clever.nashorn.watchdog.ScriptInvocation;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
@@ -26,8 +26,6 @@ import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * 作者：lizw <br/>
@@ -35,32 +33,15 @@ import java.util.Set;
  */
 @Slf4j
 public class HttpRequestJsHandler implements HandlerInterceptor {
-    /**
-     * 没有js file映射时的数据前缀
-     */
-    private static final String No_FileFullPath_Mapping = "&&&???###";
-    private static final long No_FileFullPath_Mapping_TimeOut = 1000 * 60 * 10;
-    /**
-     * url path --> file full path
-     */
-    private static final Cache<String, String> Path_FileFullPath_Cache = CacheBuilder.newBuilder().maximumSize(5000).initialCapacity(1000).build();
-    /**
-     * 请求支持的后缀，建议使用特殊的后缀表示使用动态js代码处理请求
-     */
-    private static final Set<String> Support_Suffix = new HashSet<String>() {{
-        add("");
-        add(".json");
-        add(".action");
-    }};
     private static final String Debug_Use_Js_Handler = "debugUseJsHandler";
     /**
      * JS处理请求的方法名
      */
     private static final String Handler_Method = "service";
     /**
-     * 处理请求脚本的文件名称
+     * 路径变量(Map<String, String>)的请求属性名
      */
-    private static final String Handler_File_Name = "controller.js";
+    public static final String Path_Variables_Attribute = HttpRequestJsHandler.class.getName() + ".pathVariables";
 
     /**
      * 业务类型
@@ -77,132 +58,74 @@ public class HttpRequestJsHandler implements HandlerInterceptor {
      */
     private final JacksonMapper jacksonMapper;
     /**
-     * 脚本缓存
+     * 请求路由
      */
     @Getter
+    private final RouteTrie routeTrie;
+    /**
+     * 获取路由对应的脚本内容(只在运行日志需要保存脚本内容时使用)
+     */
     private final JsCodeFileCache jsCodeFileCache;
     /**
-     * js引擎模块实例
+     * js引擎模块实例池(每个请求借用一个实例)
+     */
+    @Getter
+    private final ScriptModuleInstancePool scriptModuleInstancePool;
+    /**
+     * 脚本执行看门狗(限制脚本的CPU时间和执行时间)
      */
     @Getter
-    private final ScriptModuleInstance scriptModuleInstance;
+    private final ScriptWatchdog scriptWatchdog;
 
     private final CodeRunLogService codeRunLogService;
+    /**
+     * 路由、执行、序列化耗时指标
+     */
+    private final ScriptMetrics scriptMetrics;
 
     public HttpRequestJsHandler(
             final String bizType,
             final String groupName,
             ObjectMapper objectMapper,
+            RouteTrie routeTrie,
             JsCodeFileCache jsCodeFileCache,
-            ScriptModuleInstance scriptModuleInstance,
-            CodeRunLogService codeRunLogService) {
+            ScriptModuleInstancePool scriptModuleInstancePool,
+            ScriptWatchdog scriptWatchdog,
+            CodeRunLogService codeRunLogService,
+            ScriptMetrics scriptMetrics) {
         this.bizType = bizType;
         this.groupName = groupName;
         jacksonMapper = new JacksonMapper(objectMapper);
+        this.routeTrie = routeTrie;
         this.jsCodeFileCache = jsCodeFileCache;
-        this.scriptModuleInstance = scriptModuleInstance;
+        this.scriptModuleInstancePool = scriptModuleInstancePool;
+        this.scriptWatchdog = scriptWatchdog;
         this.codeRunLogService = codeRunLogService;
+        this.scriptMetrics = scriptMetrics;
     }
 
     /**
-     * 判断脚本是否存在
-     *
-     * @param fileFullName 脚本全路径
-     */
-    private boolean jsCodeFileExists(String fileFullName) {
-        TupleTow<String, String> tupleTow = JsCodeFilePathUtils.getParentPath(fileFullName);
-        JsCodeFile jsCodeFile = jsCodeFileCache.getFile(bizType, groupName, tupleTow.getValue1(), tupleTow.getValue2());
-        return jsCodeFile != null && StringUtils.isNotBlank(jsCodeFile.getJsCode());
-    }
-
-    private JsCodeFile getJsCodeFile(String fileFullName) {
-        TupleTow<String, String> tupleTow = JsCodeFilePathUtils.getParentPath(fileFullName);
-        JsCodeFile jsCodeFile = jsCodeFileCache.getFile(bizType, groupName, tupleTow.getValue1(), tupleTow.getValue2());
-        if (jsCodeFile != null && StringUtils.isNotBlank(jsCodeFile.getJsCode())) {
-            return jsCodeFile;
-        }
-        return null;
-    }
-
-    /**
-     * 获取JS文件全名称 - 使用缓存
-     */
-    private String getJsHandlerFileFullNameUseCache(final HttpServletRequest request) {
-        final String path = request.getServletPath();
-        String jsHandlerFileFullName = Path_FileFullPath_Cache.getIfPresent(path);
-        if (jsHandlerFileFullName != null && jsHandlerFileFullName.startsWith(No_FileFullPath_Mapping)) {
-            final long time = NumberUtils.toLong(jsHandlerFileFullName.substring(No_FileFullPath_Mapping.length()), -1);
-            if ((System.currentTimeMillis() - time) <= No_FileFullPath_Mapping_TimeOut) {
-                return null;
-            }
-            jsHandlerFileFullName = null;
-        }
-        if (StringUtils.isNotBlank(jsHandlerFileFullName) && jsCodeFileExists(jsHandlerFileFullName)) {
-            return jsHandlerFileFullName;
-        }
-        jsHandlerFileFullName = getJsHandlerFileFullName(request);
-        if (StringUtils.isNotBlank(jsHandlerFileFullName)) {
-            Path_FileFullPath_Cache.put(path, jsHandlerFileFullName);
-        } else {
-            Path_FileFullPath_Cache.put(path, No_FileFullPath_Mapping + System.currentTimeMillis());
-        }
-        return jsHandlerFileFullName;
-    }
-
-    /**
-     * 获取JS文件全名称
+     * 读取路由对应的脚本内容(运行日志保存脚本内容时使用)
      */
-    private String getJsHandlerFileFullName(final HttpServletRequest request) {
-        String requestUri = request.getRequestURI();
-        String method = request.getMethod();
-        boolean supportUri = false;
-        for (String suffix : Support_Suffix) {
-            if (StringUtils.isBlank(suffix)) {
-                supportUri = true;
-                continue;
-            }
-            if (requestUri.endsWith(suffix)) {
-                supportUri = true;
-                requestUri = requestUri.substring(0, requestUri.length() - suffix.length());
-                break;
-            }
-        }
-        String singleMethodHandler = null;
-        String allMethodHandler = null;
-        if (supportUri) {
-            // ...(requestUri)/[post/get/put/delete]_controller
-            singleMethodHandler = requestUri + "/" + method.toLowerCase() + "_" + Handler_File_Name;
-            // ...(requestUri)/controller
-            allMethodHandler = requestUri + "/" + Handler_File_Name;
-        }
-        // 匹配处理当前请求对应的js文件
-        String jsHandlerFileFullName = null;
-        if (StringUtils.isNotBlank(singleMethodHandler) && jsCodeFileExists(singleMethodHandler)) {
-            jsHandlerFileFullName = singleMethodHandler;
-        }
-        if (StringUtils.isBlank(jsHandlerFileFullName) && StringUtils.isNotBlank(allMethodHandler) && jsCodeFileExists(allMethodHandler)) {
-            jsHandlerFileFullName = allMethodHandler;
-        }
-        if (StringUtils.isBlank(jsHandlerFileFullName) && StringUtils.isNotBlank(requestUri) && StringUtils.isBlank(FilenameUtils.getExtension(requestUri))) {
-            String tmp = requestUri + ".js";
-            if (jsCodeFileExists(tmp)) {
-                jsHandlerFileFullName = tmp;
-            }
-        }
-        return jsHandlerFileFullName;
+    private String getJsCode(Route route) {
+        JsCodeFile jsCodeFile = jsCodeFileCache.getFile(bizType, groupName, route.getFilePath(), route.getName());
+        return jsCodeFile == null ? null : jsCodeFile.getJsCode();
     }
 
     /**
-     * 获取js模块对象处理请求
+     * 获取预先解析的请求处理函数
      */
-    private ScriptObjectMirror getJsHandler(final String jsHandlerFileFullName, final HttpServletResponse response, final Object handler) {
-        final ScriptObjectMirror jsHandler = scriptModuleInstance.useJs(jsHandlerFileFullName);
-        Object handlerObject = jsHandler.getMember(Handler_Method);
-        if (!(handlerObject instanceof ScriptObjectMirror)) {
-            return null;
+    private BoundFunction getJsHandler(
+            final ScriptModuleInstance scriptModuleInstance,
+            final Route route,
+            final HttpServletResponse response,
+            final Object handler) {
+        final String jsHandlerFileFullName = route.getFullPath();
+        BoundFunction boundFunction = scriptModuleInstance.getBoundFunction(route.getSlot(), jsHandlerFileFullName);
+        if (boundFunction == null) {
+            boundFunction = scriptModuleInstance.bindFunction(route.getSlot(), jsHandlerFileFullName, Handler_Method);
         }
-        ScriptObjectMirror handlerFunction = (ScriptObjectMirror) handlerObject;
-        if (!handlerFunction.isFunction()) {
+        if (boundFunction == null) {
             return null;
         }
         if (handler instanceof HandlerMethod) {
@@ -214,38 +137,50 @@ public class HttpRequestJsHandler implements HandlerInterceptor {
             log.warn("出现意外的handler | {}", handler.getClass());
             return null;
         }
-        return jsHandler;
+        return boundFunction;
     }
 
     /**
-     * 使用js代码处理请求
+     * 使用js代码处理请求(调用前已经开始看门狗监控，只有js函数调用在监控范围内)
      */
     private long doHandle(
-            final ScriptObjectMirror jsHandler,
+            final BoundFunction jsHandler,
+            final ScriptInvocation invocation,
+            final Long codeRunLogId,
+            final ServletContextWrapper contextWrapper,
             final String jsHandlerFileFullName,
-            final HttpServletRequest request, final HttpServletResponse response) throws IOException {
-        final JsCodeFile jsCodeFile = getJsCodeFile(jsHandlerFileFullName);
-        if (jsCodeFile == null) {
-            throw new RuntimeException("JsCodeFile不存在");
-        }
-        ServletContextWrapper contextWrapper = new ServletContextWrapper(request, response, jacksonMapper);
+            final HttpServletResponse response) throws IOException {
         Object result;
-        Long codeRunLogId = null;
+        boolean failure = false;
+        ThreadResourceUsage usage = null;
+        long executionStartTime = 0;
         try {
-            codeRunLogId = codeRunLogService.startLog(jsCodeFile);
-            result = jsHandler.callMember(Handler_Method, contextWrapper);
+            usage = ThreadResourceUsage.start();
+            executionStartTime = System.nanoTime();
+            try {
+                result = jsHandler.call(contextWrapper);
+            } finally {
+                // 脚本执行结束，不再需要看门狗监控(记录日志、返回值序列化不计入限制)
+                invocation.close();
+            }
         } catch (Throwable e) {
             log.warn("执行jsHandler异常", e);
-            if (codeRunLogId != null) {
-                codeRunLogService.endLog(codeRunLogId, EnumConstant.Status_3);
-            }
+            failure = true;
             throw ExceptionUtils.unchecked(e);
         } finally {
+            final long executionTime = executionStartTime == 0 ? 0 : System.nanoTime() - executionStartTime;
+            if (usage != null) {
+                usage.stop();
+            }
+            final Integer status = CodeRunLogService.getRunStatus(invocation, failure);
             if (codeRunLogId != null) {
-                codeRunLogService.endLog(codeRunLogId, EnumConstant.Status_2);
+                codeRunLogService.endLog(codeRunLogId, status, usage);
+            }
+            if (executionStartTime != 0) {
+                scriptMetrics.recordExecution(bizType, groupName, jsHandlerFileFullName, status, executionTime);
             }
         }
-        final long startTime = System.currentTimeMillis();
+        final long startTime = System.nanoTime();
         contextWrapper.getResponseWrapper().wrapper();
         boolean needWriteResult = false;
         if (result != null && !(result instanceof Undefined)) {
@@ -255,6 +190,7 @@ public class HttpRequestJsHandler implements HandlerInterceptor {
             response.setContentType("application/json;charset=UTF-8");
             response.getWriter().println(jacksonMapper.toJson(result));
         }
+        scriptMetrics.recordSerialization(bizType, groupName, jsHandlerFileFullName, System.nanoTime() - startTime);
         return startTime;
     }
 
@@ -264,36 +200,65 @@ public class HttpRequestJsHandler implements HandlerInterceptor {
             return true;
         }
         // 获取JS文件全名称
-        final long startTime1 = System.currentTimeMillis();
-        final String jsHandlerFileFullName = getJsHandlerFileFullNameUseCache(request);
-        if (StringUtils.isBlank(jsHandlerFileFullName)) {
-            final long tmp = System.currentTimeMillis() - startTime1;
+        final long startTime1 = System.nanoTime();
+        final RouteMatch routeMatch = routeTrie.match(request.getMethod(), request.getRequestURI());
+        final Route route = routeMatch == null ? null : routeMatch.getRoute();
+        final String jsHandlerFileFullName = route == null ? null : route.getFullPath();
+        final long startTime2 = System.nanoTime();
+        scriptMetrics.recordRoute(bizType, groupName, jsHandlerFileFullName, startTime2 - startTime1);
+        if (route == null) {
+            final long tmp = (startTime2 - startTime1) / 1000_000;
             if (tmp > 0) {
                 log.debug("使用js代码处理请求 | 跳过js处理 | 总耗时 {}ms", tmp);
             }
             return true;
         }
-        // 获取js模块对象处理请求
-        final long startTime2 = System.currentTimeMillis();
-        final ScriptObjectMirror jsHandler = getJsHandler(jsHandlerFileFullName, response, handler);
-        if (jsHandler == null) {
-            return true;
+        // 借用js引擎模块实例(当前请求独占)
+        final ScriptModuleInstance scriptModuleInstance = scriptModuleInstancePool.borrow();
+        ScriptInvocation invocation = null;
+        try {
+            // 获取js模块对象处理请求
+            final long startTime3 = System.nanoTime();
+            scriptMetrics.recordBorrow(bizType, groupName, startTime3 - startTime2);
+            final BoundFunction jsHandler = getJsHandler(scriptModuleInstance, route, response, handler);
+            if (jsHandler == null) {
+                return true;
+            }
+            if (route.hasVariables()) {
+                request.setAttribute(Path_Variables_Attribute, routeMatch.getPathVariables());
+            }
+            // 使用js代码处理请求
+            final long startTime4 = System.nanoTime();
+            response.setHeader("use-http-request-js-handler", jsHandlerFileFullName);
+            final ServletContextWrapper contextWrapper = new ServletContextWrapper(request, response, jacksonMapper);
+            // 路由中已有脚本ID和hash，只有hash对应的脚本内容还没有保存时才读取脚本
+            final Long codeRunLogId = codeRunLogService.startLog(route.getJsCodeId(), route.getJsCodeHash(), () -> getJsCode(route));
+            // 看门狗强制终止线程时不能落在数据库操作、缓存等Java代码中，只监控js函数调用
+            invocation = scriptWatchdog.start(jsHandlerFileFullName, jsHandler.getExports());
+            final long startTime5 = doHandle(jsHandler, invocation, codeRunLogId, contextWrapper, jsHandlerFileFullName, response);
+            // 请求处理完成 - 打印日志
+            long endTime = System.nanoTime();
+            log.debug(
+                    "使用js代码处理请求 | [{}] | [总]耗时 {}ms | [获取引擎实例]耗时 {}ms | [Js处理全过程]耗时 {}ms | [Js函数调用]耗时 {}ms | [返回值序列化]耗时 {}ms",
+                    jsHandlerFileFullName,
+                    (endTime - startTime1) / 1000_000,
+                    (startTime3 - startTime2) / 1000_000,
+                    (endTime - startTime3) / 1000_000,
+                    (endTime - startTime4) / 1000_000,
+                    (endTime - startTime5) / 1000_000
+            );
+            return false;
+        } finally {
+            if (invocation != null) {
+                invocation.close();
+            }
+            if (invocation != null && invocation.isStopped()) {
+                // 脚本被看门狗强制终止，engine状态不可靠，丢弃该实例
+                scriptModuleInstancePool.invalidate(scriptModuleInstance);
+            } else {
+                scriptModuleInstancePool.giveBack(scriptModuleInstance);
+            }
         }
-        // 使用js代码处理请求
-        final long startTime3 = System.currentTimeMillis();
-        response.setHeader("use-http-request-js-handler", jsHandlerFileFullName);
-        final long startTime4 = doHandle(jsHandler, jsHandlerFileFullName, request, response);
-        // 请求处理完成 - 打印日志
-        long endTime = System.currentTimeMillis();
-        log.debug(
-                "使用js代码处理请求 | [{}] | [总]耗时 {}ms | [Js处理全过程]耗时 {}ms | [Js函数调用]耗时 {}ms | [返回值序列化]耗时 {}ms",
-                jsHandlerFileFullName,
-                endTime - startTime1,
-                endTime - startTime2,
-                endTime - startTime3,
-                endTime - startTime4
-        );
-        return false;
     }
 
 //    @Override
@@ -76,8 +76,8 @@ public class HttpRequestWrapper extends HashMap<String, Object> {
      * content             -   请求body原始字符串
      * body                -   请求body对象
      * attributes          -   请求attributes
+     * pathVariables       -   路径变量({name}、{*name})
      * // ---------------------------------------------------------------
-     * pathVariables
      * getCookies(name, [options])
      * </pre>
      */
@@ -220,5 +220,12 @@ public class HttpRequestWrapper extends HashMap<String, Object> {
             attributes.put(attributeName, attributeValue);
         }
         wrapper.put("attributes", attributes);
+        // --------------------------------------------------------------------- 路径变量
+        ScriptObjectMirror pathVariables = ScriptEngineUtils.newObject();
+        Object pathVariablesAttribute = request.getAttribute(HttpRequestJsHandler.Path_Variables_Attribute);
+        if (pathVariablesAttribute instanceof Map) {
+            ((Map<?, ?>) pathVariablesAttribute).forEach((name, value) -> pathVariables.put(String.valueOf(name), value));
+        }
+        wrapper.put("pathVariables", pathVariables);
     }
 }
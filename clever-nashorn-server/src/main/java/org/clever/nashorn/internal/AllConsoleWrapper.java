@@ -1,86 +1,162 @@
 package org.clever.nashorn.internal;
 
+import lombok.Getter;
+import org.clever.nashorn.console.AsyncConsoleDispatcher;
+import org.clever.nashorn.console.ConsoleEvent;
+import org.clever.nashorn.console.WebSocketConsoleSink;
 import org.clever.nashorn.dto.response.DebugConsoleRes;
 import org.clever.nashorn.websocket.looklogs.ListenerLogsTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
+ * 输出到slf4j日志和监听日志的websocket客户端 <br />
+ * 有 AsyncConsoleDispatcher 时只把日志写入环形缓冲区，由后台线程输出
+ * <p>
  * 作者： lzw<br/>
  * 创建时间：2019-09-28 21:14 <br/>
  */
 public class AllConsoleWrapper extends AbstractConsole {
 
     private final Logger log;
+    /**
+     * ListenerLogsTask 使用的控制台名称
+     */
+    @Getter
+    private final String listenerForJsFileId;
+    /**
+     * 异步输出(为null时在执行脚本的线程中输出)
+     */
+    private final AsyncConsoleDispatcher dispatcher;
 
-    private AllConsoleWrapper(String bizType, String groupName, String filePath, String fileName) {
+    private AllConsoleWrapper(String bizType, String groupName, String filePath, String fileName, AsyncConsoleDispatcher dispatcher) {
         super(bizType, groupName, filePath, fileName);
         this.log = LoggerFactory.getLogger(getConsoleName());
+        this.listenerForJsFileId = ListenerLogsTask.getListenerForJsFileId(this);
+        this.dispatcher = dispatcher;
     }
 
-    public AllConsoleWrapper(String bizType, String groupName, String filePath) {
+    public AllConsoleWrapper(String bizType, String groupName, String filePath, AsyncConsoleDispatcher dispatcher) {
         super(bizType, groupName, filePath);
         this.log = LoggerFactory.getLogger(getConsoleName());
+        this.listenerForJsFileId = ListenerLogsTask.getListenerForJsFileId(this);
+        this.dispatcher = dispatcher;
+    }
+
+    public AllConsoleWrapper(String bizType, String groupName, String filePath) {
+        this(bizType, groupName, filePath, null);
     }
 
+    /**
+     * Logger 不输出且没有 ListenerLogsTask 监听时不生成日志字符串
+     */
     @Override
-    protected void doLog(String logsText, List<Object> args) {
-        if (log.isInfoEnabled()) {
-            log.info(logsText);
+    protected boolean isEnabled(Level level) {
+        if (dispatcher != null) {
+            return dispatcher.accept(this, level);
+        }
+        return isLoggerEnabled(level) || ListenerLogsTask.hasListener(listenerForJsFileId);
+    }
+
+    /**
+     * Logger 是否输出这个级别的日志
+     */
+    public boolean isLoggerEnabled(Level level) {
+        return isLoggerEnabled(log, level);
+    }
+
+    /**
+     * 输出到 Logger
+     */
+    public void writeLogger(Level level, String logsText) {
+        switch (level) {
+            case Trace:
+                log.trace(logsText);
+                break;
+            case Debug:
+                log.debug(logsText);
+                break;
+            case Warn:
+                log.warn(logsText);
+                break;
+            case Error:
+                log.error(logsText);
+                break;
+            default:
+                log.info(logsText);
+        }
+    }
+
+    /**
+     * 创建发送给websocket客户端的消息
+     */
+    public DebugConsoleRes newDebugConsoleRes(Level level, String logsText, List<Object> args) {
+        switch (level) {
+            case Trace:
+                return DebugConsoleRes.newTrace(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
+            case Debug:
+                return DebugConsoleRes.newDebug(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
+            case Info:
+                return DebugConsoleRes.newInfo(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
+            case Warn:
+                return DebugConsoleRes.newWarn(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
+            case Error:
+                return DebugConsoleRes.newError(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
+            default:
+                return DebugConsoleRes.newLog(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
+        }
+    }
+
+    private void write(Level level, String logsText, List<Object> args) {
+        if (dispatcher != null) {
+            // 只有websocket需要参数，没有监听时不生成参数快照
+            List<Object> eventArgs = ListenerLogsTask.hasListener(listenerForJsFileId) ? WebSocketConsoleSink.snapshotArgs(args) : Collections.emptyList();
+            dispatcher.publish(new ConsoleEvent(this, level, logsText, eventArgs));
+            return;
+        }
+        if (isLoggerEnabled(level)) {
+            writeLogger(level, logsText);
+        }
+        if (ListenerLogsTask.hasListener(listenerForJsFileId)) {
+            ListenerLogsTask.sendMessage(listenerForJsFileId, newDebugConsoleRes(level, logsText, args));
         }
-        DebugConsoleRes res = DebugConsoleRes.newLog(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
-        ListenerLogsTask.sendMessage(this, res);
+    }
+
+    @Override
+    protected void doLog(String logsText, List<Object> args) {
+        write(Level.Log, logsText, args);
     }
 
     @Override
     public void doTrace(String logsText, List<Object> args) {
-        if (log.isTraceEnabled()) {
-            log.trace(logsText);
-        }
-        DebugConsoleRes res = DebugConsoleRes.newTrace(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
-        ListenerLogsTask.sendMessage(this, res);
+        write(Level.Trace, logsText, args);
     }
 
     @Override
     public void doDebug(String logsText, List<Object> args) {
-        if (log.isDebugEnabled()) {
-            log.debug(logsText);
-        }
-        DebugConsoleRes res = DebugConsoleRes.newDebug(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
-        ListenerLogsTask.sendMessage(this, res);
+        write(Level.Debug, logsText, args);
     }
 
     @Override
     public void doInfo(String logsText, List<Object> args) {
-        if (log.isInfoEnabled()) {
-            log.info(logsText);
-        }
-        DebugConsoleRes res = DebugConsoleRes.newInfo(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
-        ListenerLogsTask.sendMessage(this, res);
+        write(Level.Info, logsText, args);
     }
 
     @Override
     public void doWarn(String logsText, List<Object> args) {
-        if (log.isWarnEnabled()) {
-            log.warn(logsText);
-        }
-        DebugConsoleRes res = DebugConsoleRes.newWarn(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
-        ListenerLogsTask.sendMessage(this, res);
+        write(Level.Warn, logsText, args);
     }
 
     @Override
     public void doError(String logsText, List<Object> args) {
-        if (log.isErrorEnabled()) {
-            log.error(logsText);
-        }
-        DebugConsoleRes res = DebugConsoleRes.newError(this.getBizType(), this.getGroupName(), this.getFilePath(), this.getFileName(), logsText, args);
-        ListenerLogsTask.sendMessage(this, res);
+        write(Level.Error, logsText, args);
     }
 
     @Override
     public Console creat(String filePath, String fileName) {
-        return new AllConsoleWrapper(this.getBizType(), this.getGroupName(), filePath, fileName);
+        return new AllConsoleWrapper(this.getBizType(), this.getGroupName(), filePath, fileName, dispatcher);
     }
 }
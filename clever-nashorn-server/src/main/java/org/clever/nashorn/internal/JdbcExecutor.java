@@ -117,6 +117,25 @@ public class JdbcExecutor {
         return jdbcTemplate.queryForList(sql, Collections.emptyMap());
     }
 
+    /**
+     * 查询多条数据，返回JS数组视图(访问元素时才转换成JS对象，Date字段转换成JS Date)
+     *
+     * @param sql      sql脚本，参数格式[:param]
+     * @param paramMap 参数(可选)，参数格式[:param]
+     */
+    public Object queryForListView(String sql, Map<String, Object> paramMap) {
+        return ObjectConvertUtils.Instance.javaToJSView(queryForList(sql, paramMap));
+    }
+
+    /**
+     * 查询多条数据，返回JS数组视图(访问元素时才转换成JS对象，Date字段转换成JS Date)
+     *
+     * @param sql sql脚本，参数格式[:param]
+     */
+    public Object queryForListView(String sql) {
+        return ObjectConvertUtils.Instance.javaToJSView(queryForList(sql));
+    }
+
     /**
      * 查询返回一个 String
      *
@@ -441,11 +460,7 @@ public class JdbcExecutor {
      * @param arrayParamMap 参数数组，参数格式[:param]
      */
     public int[] batchUpdate(String sql, Map<String, Object>[] arrayParamMap) {
-        List<SqlParameterSource> paramMapList = new ArrayList<>(arrayParamMap.length);
-        for (Map<String, Object> map : arrayParamMap) {
-            paramMapList.add(new MapSqlParameterSource(map));
-        }
-        return jdbcTemplate.batchUpdate(sql, paramMapList.toArray(new SqlParameterSource[0]));
+        return jdbcTemplate.batchUpdate(sql, toSqlParameterSources(arrayParamMap));
     }
 
     /**
@@ -455,15 +470,7 @@ public class JdbcExecutor {
      * @param arrayParamMap 参数数组，参数格式[:param]
      */
     public int[] batchUpdate(String sql, Collection<Map<String, Object>> arrayParamMap) {
-        List<SqlParameterSource> paramMapList = new ArrayList<>(arrayParamMap.size());
-        for (Map<String, Object> map : arrayParamMap) {
-            Map<String, Object> tmp = map;
-            if (tmp instanceof ScriptObjectMirror) {
-                tmp = jsToJavaMap(tmp);
-            }
-            paramMapList.add(new MapSqlParameterSource(tmp));
-        }
-        return jdbcTemplate.batchUpdate(sql, paramMapList.toArray(new SqlParameterSource[0]));
+        return jdbcTemplate.batchUpdate(sql, toSqlParameterSources(arrayParamMap));
     }
 
     /**
@@ -476,18 +483,7 @@ public class JdbcExecutor {
         if (arrayParamMap == null) {
             throw new RuntimeException("参数不能为空");
         }
-        if (!arrayParamMap.isArray()) {
-            throw new RuntimeException("参数必须是一个数组");
-        }
-        List<SqlParameterSource> paramMapList = new ArrayList<>(arrayParamMap.size());
-        arrayParamMap.forEach((index, map) -> {
-            if (!(map instanceof Map)) {
-                throw new RuntimeException("数组项必须是一个对象，不能是基本类型变量");
-            }
-            // noinspection unchecked
-            paramMapList.add(new MapSqlParameterSource(jsToJavaMap((Map<String, Object>) map)));
-        });
-        return jdbcTemplate.batchUpdate(sql, paramMapList.toArray(new SqlParameterSource[0]));
+        return jdbcTemplate.batchUpdate(sql, toSqlParameterSources(arrayParamMap));
     }
 
     /**
@@ -700,9 +696,19 @@ public class JdbcExecutor {
         if (paramMap == null || paramMap.size() <= 0) {
             return Collections.emptyMap();
         }
-        Map<String, Object> javaMap = new HashMap<>(paramMap.size());
-        paramMap.forEach((key, value) -> javaMap.put(key, ObjectConvertUtils.jsBaseToJava(value)));
-        return javaMap;
+        return ObjectConvertUtils.jsToJavaMap(paramMap);
+    }
+
+    /**
+     * 把Js对象数组转换成批量Sql参数
+     */
+    private static SqlParameterSource[] toSqlParameterSources(Object arrayParamMap) {
+        List<Map<String, Object>> paramMapList = ObjectConvertUtils.jsToJavaMapList(arrayParamMap);
+        SqlParameterSource[] sqlParameterSources = new SqlParameterSource[paramMapList.size()];
+        for (int i = 0; i < sqlParameterSources.length; i++) {
+            sqlParameterSources[i] = new MapSqlParameterSource(paramMapList.get(i));
+        }
+        return sqlParameterSources;
     }
 
     private static TupleTow<String, Map<String, Object>> updateSql(String tableName, Map<String, Object> fields, Map<String, Object> whereMap, boolean camelToUnderscore) {
@@ -1,11 +1,15 @@
 package org.clever.nashorn.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.clever.common.utils.tuples.TupleTow;
 import org.clever.nashorn.dto.request.CodeRunLogQueryReq;
 import org.clever.nashorn.dto.response.CodeRunLogQueryRes;
+import org.clever.nashorn.dto.response.CodeRunLogResourceSummaryRes;
 import org.clever.nashorn.dto.response.CodeRunLogStatusSummaryRes;
 import org.clever.nashorn.entity.CodeRunLog;
 import org.springframework.stereotype.Repository;
@@ -25,5 +29,41 @@ public interface CodeRunLogMapper extends BaseMapper<CodeRunLog> {
     @Update("update code_run_log set run_log=concat(run_log, #{addLog}) where id=#{codeRunLogId}")
     int appendLog(Long codeRunLogId, String addLog);
 
+    @Update({
+            "<script>",
+            "update code_run_log set run_log=concat(run_log, case id",
+            "<foreach collection='logs' item='item'> when #{item.value1} then #{item.value2} </foreach>",
+            "end) where id in",
+            "<foreach collection='logs' item='item' open='(' separator=',' close=')'>#{item.value1}</foreach>",
+            "</script>"
+    })
+    int appendLogs(@Param("logs") List<TupleTow<Long, String>> logs);
+
+    @Insert({
+            "<script>",
+            "insert into code_run_log (id, js_code_id, js_code_hash, run_start, run_end, run_log, status, cpu_time, allocated_bytes) values",
+            "<foreach collection='list' item='item' separator=','>",
+            "(#{item.id}, #{item.jsCodeId}, #{item.jsCodeHash}, #{item.runStart}, #{item.runEnd}, #{item.runLog}, #{item.status}, #{item.cpuTime}, #{item.allocatedBytes})",
+            "</foreach>",
+            "</script>"
+    })
+    int insertBatch(@Param("list") List<CodeRunLog> list);
+
+    @Update("update code_run_log set run_end=#{runEnd}, status=#{status}, cpu_time=#{cpuTime}, allocated_bytes=#{allocatedBytes} where id=#{id} and status=1")
+    int endLog(CodeRunLog codeRunLog);
+
+    @Insert({
+            "<script>",
+            "insert ignore into code_run_script (js_code_hash, js_code) values",
+            "<foreach collection='scripts' item='item' separator=','>(#{item.value1}, #{item.value2})</foreach>",
+            "</script>"
+    })
+    int insertScripts(@Param("scripts") List<TupleTow<String, String>> scripts);
+
+    @Select("select js_code from code_run_script where js_code_hash=#{jsCodeHash}")
+    String getScript(@Param("jsCodeHash") String jsCodeHash);
+
     List<CodeRunLogStatusSummaryRes> groupByStatus(@Param("query") CodeRunLogQueryReq query);
+
+    List<CodeRunLogResourceSummaryRes> groupByJsCode(@Param("query") CodeRunLogQueryReq query);
 }
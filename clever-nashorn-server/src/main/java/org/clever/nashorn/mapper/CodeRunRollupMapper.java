@@ -0,0 +1,32 @@
+package org.clever.nashorn.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.clever.nashorn.dto.request.CodeRunLogQueryReq;
+import org.clever.nashorn.dto.response.CodeRunLogResourceSummaryRes;
+import org.clever.nashorn.dto.response.CodeRunRollupDashboardRes;
+import org.clever.nashorn.entity.CodeRunRollup;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/30 10:40 <br/>
+ */
+@Mapper
+@Repository
+public interface CodeRunRollupMapper extends BaseMapper<CodeRunRollup> {
+
+    /**
+     * 累加写入(js_code_id + bucket_time 已存在时累加)
+     */
+    int upsertBatch(@Param("list") List<CodeRunRollup> list);
+
+    CodeRunRollup sumByStatus(@Param("query") CodeRunLogQueryReq query);
+
+    List<CodeRunLogResourceSummaryRes> groupByJsCode(@Param("query") CodeRunLogQueryReq query);
+
+    List<CodeRunRollupDashboardRes> groupByBucketTime(@Param("query") CodeRunLogQueryReq query);
+}
@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Select;
 import org.clever.nashorn.entity.JsCodeFile;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -73,6 +74,30 @@ public interface JsCodeFileMapper extends BaseMapper<JsCodeFile> {
     })
     List<JsCodeFile> findAllChildByFilePath(@Param("bizType") String bizType, @Param("groupName") String groupName, @Param("filePath") String filePath);
 
+    /**
+     * 查询请求路由需要的文件信息(不查询脚本内容，只返回脚本内容的hash，不包含空脚本)
+     */
+    @Select({
+            "select id, biz_type, group_name, node_type, file_path, name, sha2(js_code, 256) as js_code_hash from js_code_file ",
+            "where biz_type=#{bizType} and group_name=#{groupName} and node_type=#{nodeType} and js_code is not null and trim(js_code)!=''"
+    })
+    List<JsCodeFile> findRouteMeta(@Param("bizType") String bizType, @Param("groupName") String groupName, @Param("nodeType") Integer nodeType);
+
+    @Select("select * from js_code_file where biz_type=#{bizType} and group_name=#{groupName}")
+    List<JsCodeFile> findAllByBizAndGroup(@Param("bizType") String bizType, @Param("groupName") String groupName);
+
+    /**
+     * 查询指定时间之后新增或修改的 JsCodeFile
+     */
+    @Select({
+            "select * from js_code_file ",
+            "where biz_type=#{bizType} and group_name=#{groupName} and (create_at>=#{time} or update_at>=#{time})"
+    })
+    List<JsCodeFile> findChangedAfter(@Param("bizType") String bizType, @Param("groupName") String groupName, @Param("time") Date time);
+
+    @Select("select id from js_code_file where biz_type=#{bizType} and group_name=#{groupName}")
+    Set<Long> findAllId(@Param("bizType") String bizType, @Param("groupName") String groupName);
+
     @Select("select distinct biz_type, group_name from js_code_file")
     List<Map<String, String>> allBizType();
 
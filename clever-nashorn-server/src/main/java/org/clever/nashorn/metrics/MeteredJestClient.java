@@ -0,0 +1,83 @@
+package org.clever.nashorn.metrics;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录请求耗时的 JestClient(clever.nashorn.jest.requests，标签 name、action、result)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/31 10:30 <br/>
+ */
+public class MeteredJestClient implements JestClient {
+    private final String name;
+    private final JestClient delegate;
+    private final ScriptMetrics scriptMetrics;
+
+    /**
+     * @param name 数据源名称(MultipleJest 中的名称)
+     */
+    public MeteredJestClient(String name, JestClient delegate, ScriptMetrics scriptMetrics) {
+        this.name = name;
+        this.delegate = delegate;
+        this.scriptMetrics = scriptMetrics;
+    }
+
+    @Override
+    public <T extends JestResult> T execute(Action<T> clientRequest) throws IOException {
+        final long startTime = System.nanoTime();
+        String result = "error";
+        try {
+            T jestResult = delegate.execute(clientRequest);
+            result = jestResult != null && jestResult.isSucceeded() ? "success" : "failed";
+            return jestResult;
+        } finally {
+            record(clientRequest, result, System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public <T extends JestResult> void executeAsync(Action<T> clientRequest, JestResultHandler<? super T> jestResultHandler) {
+        final long startTime = System.nanoTime();
+        delegate.executeAsync(clientRequest, new JestResultHandler<T>() {
+            @Override
+            public void completed(T jestResult) {
+                record(clientRequest, jestResult != null && jestResult.isSucceeded() ? "success" : "failed", System.nanoTime() - startTime);
+                jestResultHandler.completed(jestResult);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                record(clientRequest, "error", System.nanoTime() - startTime);
+                jestResultHandler.failed(ex);
+            }
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void shutdownClient() {
+        delegate.shutdownClient();
+    }
+
+    @Override
+    public void setServers(Set<String> servers) {
+        delegate.setServers(servers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private void record(Action<?> clientRequest, String result, long nanos) {
+        scriptMetrics.timer(ScriptMetrics.Prefix + ".jest.requests", "name", name, "action", clientRequest.getClass().getSimpleName(), "result", result)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
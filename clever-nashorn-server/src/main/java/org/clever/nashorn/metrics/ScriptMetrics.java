@@ -0,0 +1,140 @@
+package org.clever.nashorn.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.module.ModuleLoadListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 脚本运行时的 Micrometer 指标(通过 /actuator/prometheus 采集) <br />
+ * 1. 请求路由、脚本执行、返回值序列化: clever.nashorn.http.* (标签 bizType、groupName、path) <br />
+ * 2. require 模块的编译和执行: clever.nashorn.module.* (标签 path) <br />
+ * 3. Binlog消费: clever.nashorn.binlog.* (标签 destination、path) <br />
+ * Timer/Counter 按 名称+标签 缓存，记录时不需要再查找 MeterRegistry
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/31 09:40 <br/>
+ */
+public class ScriptMetrics implements ModuleLoadListener {
+    public static final String Prefix = "clever.nashorn";
+    /**
+     * 请求没有对应的脚本时 path 标签的值(不使用请求路径，避免标签值无限增长)
+     */
+    private static final String No_Path = "none";
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ScriptMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 脚本运行状态对应的标签值
+     */
+    public static String getStatusTag(Integer status) {
+        if (EnumConstant.Status_2.equals(status)) {
+            return "success";
+        }
+        if (EnumConstant.Status_3.equals(status)) {
+            return "error";
+        }
+        if (EnumConstant.Status_4.equals(status)) {
+            return "timeout";
+        }
+        if (EnumConstant.Status_5.equals(status)) {
+            return "cpu_limit";
+        }
+        return "unknown";
+    }
+
+    /**
+     * 请求路由(url path --> 脚本文件)
+     *
+     * @param path 脚本文件全路径，没有对应的脚本时为null
+     */
+    public void recordRoute(String bizType, String groupName, String path, long nanos) {
+        timer(Prefix + ".http.route", "bizType", bizType, "groupName", groupName, "path", StringUtils.isBlank(path) ? No_Path : path)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 借用js引擎模块实例
+     */
+    public void recordBorrow(String bizType, String groupName, long nanos) {
+        timer(Prefix + ".http.borrow", "bizType", bizType, "groupName", groupName).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 脚本执行(js函数调用)
+     *
+     * @param status 脚本运行状态
+     */
+    public void recordExecution(String bizType, String groupName, String path, Integer status, long nanos) {
+        timer(Prefix + ".http.execution", "bizType", bizType, "groupName", groupName, "path", path, "status", getStatusTag(status))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 返回值序列化
+     */
+    public void recordSerialization(String bizType, String groupName, String path, long nanos) {
+        timer(Prefix + ".http.serialization", "bizType", bizType, "groupName", groupName, "path", path)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * require 加载模块
+     */
+    @Override
+    public void onLoaded(String fullPath, long compileTime, long evalTime, boolean success) {
+        final String result = success ? "success" : "error";
+        timer(Prefix + ".module.compile", "path", fullPath, "result", result).record(compileTime, TimeUnit.NANOSECONDS);
+        timer(Prefix + ".module.eval", "path", fullPath, "result", result).record(evalTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 收到的Binlog条数
+     */
+    public void recordBinlogEntries(String destination, int count) {
+        counter(Prefix + ".binlog.entries", "destination", destination).increment(count);
+    }
+
+    /**
+     * 一个脚本消费一条Binlog
+     *
+     * @param status 脚本运行状态
+     */
+    public void recordBinlogConsume(String destination, String path, Integer status, long nanos) {
+        timer(Prefix + ".binlog.consume", "destination", destination, "path", path, "status", getStatusTag(status))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param tags 标签 name1, value1, name2, value2 ...
+     */
+    Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(getKey(name, tags), key -> Timer.builder(name).tags(tags).register(registry));
+    }
+
+    /**
+     * @param tags 标签 name1, value1, name2, value2 ...
+     */
+    Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(getKey(name, tags), key -> Counter.builder(name).tags(tags).register(registry));
+    }
+
+    private static String getKey(String name, String... tags) {
+        StringBuilder sb = new StringBuilder(name.length() + tags.length * 16).append(name);
+        for (String tag : tags) {
+            sb.append('|').append(tag);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package org.clever.nashorn.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.lettuce.core.metrics.CommandLatencyCollector;
+import io.lettuce.core.metrics.CommandLatencyId;
+import io.lettuce.core.metrics.CommandMetrics;
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.cache.BundleJsCodeFileCache;
+import org.clever.nashorn.cache.JsCodeFileCache;
+import org.clever.nashorn.cache.MemoryJsCodeFileCache;
+import org.clever.nashorn.config.LettuceClientBuilder;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.module.cache.DependencyModuleCache;
+import org.clever.nashorn.route.RouteTrie;
+import org.clever.nashorn.service.CodeRunLogWriter;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 缓存命中率、各个数据源(Hikari/Lettuce)使用情况的指标 <br />
+ * 1. 缓存: cache.gets(标签 cache、result)，和 Micrometer 自带的缓存指标同名；请求路由数量: clever.nashorn.http.routes <br />
+ * 2. 数据库连接池: clever.nashorn.datasource.connections(标签 name、state) <br />
+ * 3. Redis: 定时读取 Lettuce CommandLatencyCollector(读取后清零)，累加到 clever.nashorn.redis.commands(标签 name、command) <br />
+ * 4. 运行记录后台写入丢弃的操作数: clever.nashorn.run_log.dropped(标签 operation: all、end、log)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/31 10:50 <br/>
+ */
+@Slf4j
+public class ScriptResourceMetrics implements MeterBinder {
+    /**
+     * 读取Lettuce命令统计的间隔(毫秒)
+     */
+    private static final long Redis_Poll_Interval = 10_000;
+
+    private final JsCodeFileCache jsCodeFileCache;
+    private final RouteTrie routeTrie;
+    private final CodeRunLogWriter codeRunLogWriter;
+    private final Map<String, DataSource> multipleDataSource;
+    private final Map<String, LettuceClientBuilder> multipleRedis;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 各个Redis命令的累计次数 Map<name|command, count>
+     */
+    private final ConcurrentHashMap<String, AtomicLong> redisCommandCount = new ConcurrentHashMap<>();
+    /**
+     * 各个Redis命令上一个统计周期的最大耗时(纳秒) Map<name|command, maxLatency>
+     */
+    private final ConcurrentHashMap<String, AtomicLong> redisCommandMaxLatency = new ConcurrentHashMap<>();
+    private MeterRegistry registry;
+
+    public ScriptResourceMetrics(
+            JsCodeFileCache jsCodeFileCache,
+            RouteTrie routeTrie,
+            CodeRunLogWriter codeRunLogWriter,
+            Map<String, DataSource> multipleDataSource,
+            Map<String, LettuceClientBuilder> multipleRedis) {
+        this.jsCodeFileCache = jsCodeFileCache;
+        this.routeTrie = routeTrie;
+        this.codeRunLogWriter = codeRunLogWriter;
+        this.multipleDataSource = multipleDataSource;
+        this.multipleRedis = multipleRedis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "script-resource-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        // 缓存
+        bindCache(registry, "DependencyModuleCache", DependencyModuleCache.class, clazz -> DependencyModuleCache.getHitCount(), clazz -> DependencyModuleCache.getMissCount());
+        bindCache(registry, "CompiledScriptCache", CompiledScriptCache.class, clazz -> CompiledScriptCache.getHitCount(), clazz -> CompiledScriptCache.getMissCount());
+        MemoryJsCodeFileCache memoryJsCodeFileCache = getMemoryJsCodeFileCache(jsCodeFileCache);
+        if (memoryJsCodeFileCache != null) {
+            bindCache(registry, "MemoryJsCodeFileCache", memoryJsCodeFileCache, MemoryJsCodeFileCache::getHitCount, MemoryJsCodeFileCache::getMissCount);
+        }
+        Gauge.builder(ScriptMetrics.Prefix + ".http.routes", routeTrie, RouteTrie::size).register(registry);
+        // 运行记录后台写入
+        bindRunLogDropped(registry, "all", CodeRunLogWriter::getDroppedCount);
+        bindRunLogDropped(registry, "end", CodeRunLogWriter::getDroppedEndCount);
+        bindRunLogDropped(registry, "log", CodeRunLogWriter::getDroppedLogCount);
+        // 数据库连接池
+        multipleDataSource.forEach((name, dataSource) -> {
+            if (!(dataSource instanceof HikariDataSource)) {
+                return;
+            }
+            HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+            bindPool(registry, name, "active", hikariDataSource, HikariPoolMXBean::getActiveConnections);
+            bindPool(registry, name, "idle", hikariDataSource, HikariPoolMXBean::getIdleConnections);
+            bindPool(registry, name, "total", hikariDataSource, HikariPoolMXBean::getTotalConnections);
+            bindPool(registry, name, "pending", hikariDataSource, HikariPoolMXBean::getThreadsAwaitingConnection);
+            Gauge.builder(ScriptMetrics.Prefix + ".datasource.connections.max", hikariDataSource, HikariDataSource::getMaximumPoolSize)
+                    .tag("name", name)
+                    .register(registry);
+        });
+        // Redis
+        scheduler.scheduleWithFixedDelay(this::pollRedis, Redis_Poll_Interval, Redis_Poll_Interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void bindRunLogDropped(MeterRegistry registry, String operation, ToDoubleFunction<CodeRunLogWriter> count) {
+        FunctionCounter.builder(ScriptMetrics.Prefix + ".run_log.dropped", codeRunLogWriter, count)
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static <T> void bindCache(MeterRegistry registry, String cacheName, T obj, ToDoubleFunction<T> hitCount, ToDoubleFunction<T> missCount) {
+        FunctionCounter.builder("cache.gets", obj, hitCount)
+                .tag("cache", cacheName)
+                .tag("result", "hit")
+                .description("the number of times cache lookup methods have returned a cached value.")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", obj, missCount)
+                .tag("cache", cacheName)
+                .tag("result", "miss")
+                .description("the number of times cache lookup methods have returned an uncached (newly loaded) value, or null")
+                .register(registry);
+    }
+
+    private static void bindPool(MeterRegistry registry, String name, String state, HikariDataSource dataSource, ToDoubleFunction<HikariPoolMXBean> function) {
+        Gauge.builder(ScriptMetrics.Prefix + ".datasource.connections", dataSource, ds -> {
+            // 连接池还未初始化
+            HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+            return pool == null ? Double.NaN : function.applyAsDouble(pool);
+        }).tag("name", name).tag("state", state).register(registry);
+    }
+
+    private static MemoryJsCodeFileCache getMemoryJsCodeFileCache(JsCodeFileCache jsCodeFileCache) {
+        if (jsCodeFileCache instanceof BundleJsCodeFileCache) {
+            jsCodeFileCache = ((BundleJsCodeFileCache) jsCodeFileCache).getDelegate();
+        }
+        return jsCodeFileCache instanceof MemoryJsCodeFileCache ? (MemoryJsCodeFileCache) jsCodeFileCache : null;
+    }
+
+    private void pollRedis() {
+        try {
+            multipleRedis.forEach((name, lettuceClientBuilder) -> {
+                ClientResources clientResources = lettuceClientBuilder.getClientResources();
+                if (clientResources == null) {
+                    return;
+                }
+                CommandLatencyCollector collector = clientResources.commandLatencyCollector();
+                if (collector == null || !collector.isEnabled()) {
+                    return;
+                }
+                Map<CommandLatencyId, CommandMetrics> metrics = collector.retrieveMetrics();
+                metrics.forEach((id, commandMetrics) -> {
+                    final String command = id.commandType().name();
+                    getRedisCommandCount(name, command).addAndGet(commandMetrics.getCount());
+                    final long maxLatency = commandMetrics.getTimeUnit().toNanos(commandMetrics.getCompletion().getMax());
+                    getRedisCommandMaxLatency(name, command).set(maxLatency);
+                });
+            });
+        } catch (Throwable e) {
+            log.warn("读取Redis命令统计失败", e);
+        }
+    }
+
+    private AtomicLong getRedisCommandCount(String name, String command) {
+        return redisCommandCount.computeIfAbsent(name + "|" + command, key -> {
+            AtomicLong value = new AtomicLong(0);
+            FunctionCounter.builder(ScriptMetrics.Prefix + ".redis.commands", value, AtomicLong::get)
+                    .tag("name", name)
+                    .tag("command", command)
+                    .register(registry);
+            return value;
+        });
+    }
+
+    private AtomicLong getRedisCommandMaxLatency(String name, String command) {
+        return redisCommandMaxLatency.computeIfAbsent(name + "|" + command, key -> {
+            AtomicLong value = new AtomicLong(0);
+            TimeGauge.builder(ScriptMetrics.Prefix + ".redis.commands.latency.max", value, TimeUnit.NANOSECONDS, AtomicLong::get)
+                    .tag("name", name)
+                    .tag("command", command)
+                    .register(registry);
+            return value;
+        });
+    }
+}
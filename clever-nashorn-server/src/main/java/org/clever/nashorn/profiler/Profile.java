@@ -0,0 +1,93 @@
+package org.clever.nashorn.profiler;
+
+import lombok.Getter;
+import org.clever.nashorn.dto.response.ScriptProfilerRes;
+import org.clever.nashorn.model.FlameGraphNode;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次脚本采样分析，累计采样到的调用栈(火焰图)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 10:20 <br/>
+ */
+public class Profile {
+    /**
+     * 分析的脚本文件全路径
+     */
+    @Getter
+    private final String fileFullPath;
+    @Getter
+    private final long startTime = System.currentTimeMillis();
+    private final long sampleInterval;
+    private final Node root;
+    private long sampleCount;
+    private long skippedCount;
+
+    public Profile(String fileFullPath, long sampleInterval) {
+        this.fileFullPath = fileFullPath;
+        this.sampleInterval = sampleInterval;
+        this.root = new Node(fileFullPath);
+    }
+
+    /**
+     * 增加一次采样
+     *
+     * @param frames 调用方在前的栈帧，为null表示这次采样没有脚本栈帧
+     */
+    public synchronized void add(List<String> frames) {
+        sampleCount++;
+        if (frames == null || frames.isEmpty()) {
+            skippedCount++;
+            return;
+        }
+        Node node = root;
+        node.count++;
+        for (String frame : frames) {
+            node = node.children.computeIfAbsent(frame, Node::new);
+            node.count++;
+        }
+    }
+
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * 当前的分析结果
+     *
+     * @param end 是否已经结束采样
+     */
+    public synchronized ScriptProfilerRes toRes(boolean end) {
+        ScriptProfilerRes res = new ScriptProfilerRes();
+        res.setFileFullPath(fileFullPath);
+        res.setStartTime(startTime);
+        res.setSampleInterval(sampleInterval);
+        res.setSampleCount(sampleCount);
+        res.setSkippedCount(skippedCount);
+        res.setEnd(end);
+        res.setRoot(root.toFlameGraphNode());
+        return res;
+    }
+
+    private static class Node {
+        private final String name;
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private long count;
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        private FlameGraphNode toFlameGraphNode() {
+            FlameGraphNode node = new FlameGraphNode(name, count);
+            for (Node child : children.values()) {
+                node.getChildren().add(child.toFlameGraphNode());
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.clever.nashorn.profiler;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.config.ScriptProfilerConfig;
+import org.clever.nashorn.watchdog.ScriptInvocation;
+import org.clever.nashorn.watchdog.ScriptWatchdog;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 脚本采样分析器 <br />
+ * 1. 只采样开启了分析的脚本: 通过 ScriptWatchdog 记录这些脚本正在执行的调用(HttpRequestJsHandler、ConsumeBinlogThread 执行脚本时都会开始一次调用) <br />
+ * 2. 后台线程按 sampleInterval 一次获取所有这些线程的调用栈(ThreadMXBean.getThreadInfo)，没有开启分析时不采样 <br />
+ * 3. Nashorn 生成的栈帧(jdk.nashorn.internal.scripts.Script$...)转换成 "函数名 (文件全路径:行号)"，Nashorn 运行时自身的栈帧忽略
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 10:00 <br/>
+ */
+@Slf4j
+public class ScriptProfiler {
+    private static final String Script_Class_Prefix = "jdk.nashorn.internal.scripts.Script$";
+    /**
+     * 模块代码编译前被包装成函数，包装代码占了第一行(参考 Module.compileJavaScriptModule)
+     */
+    private static final int Wrap_Line_Offset = 1;
+    /**
+     * 不显示的Java栈帧(Nashorn运行时、动态调用、反射)
+     */
+    private static final String[] Skip_Class_Prefix = {
+            "jdk.nashorn.",
+            "jdk.internal.",
+            "java.lang.invoke.",
+            "java.lang.reflect.",
+            "sun.reflect.",
+            "sun.invoke.",
+    };
+
+    @Getter
+    private final ScriptProfilerConfig config;
+    private final ScriptWatchdog scriptWatchdog;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 正在进行的分析 Map<脚本文件全路径, List<Profile>>(只在 synchronized 中修改)
+     */
+    private final ConcurrentHashMap<String, List<Profile>> profiles = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> sampleFuture;
+
+    public ScriptProfiler(ScriptProfilerConfig config, ScriptWatchdog scriptWatchdog) {
+        this.config = config;
+        this.scriptWatchdog = scriptWatchdog;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "script-profiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 开始分析脚本(之后开始执行的调用才会被采样)
+     *
+     * @param fileFullPath 脚本文件全路径
+     */
+    public synchronized Profile start(String fileFullPath) {
+        Profile profile = new Profile(fileFullPath, config.getSampleInterval());
+        List<Profile> list = new ArrayList<>(profiles.getOrDefault(fileFullPath, Collections.emptyList()));
+        list.add(profile);
+        profiles.put(fileFullPath, Collections.unmodifiableList(list));
+        scriptWatchdog.addProfiledName(fileFullPath);
+        if (sampleFuture == null) {
+            final long interval = Math.max(1, config.getSampleInterval());
+            sampleFuture = scheduler.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        return profile;
+    }
+
+    /**
+     * 停止分析
+     */
+    public synchronized void stop(Profile profile) {
+        final String fileFullPath = profile.getFileFullPath();
+        List<Profile> list = new ArrayList<>(profiles.getOrDefault(fileFullPath, Collections.emptyList()));
+        if (!list.remove(profile)) {
+            return;
+        }
+        if (list.isEmpty()) {
+            profiles.remove(fileFullPath);
+            scriptWatchdog.removeProfiledName(fileFullPath);
+        } else {
+            profiles.put(fileFullPath, Collections.unmodifiableList(list));
+        }
+        if (profiles.isEmpty() && sampleFuture != null) {
+            sampleFuture.cancel(false);
+            sampleFuture = null;
+        }
+    }
+
+    /**
+     * 正在分析的脚本数
+     */
+    public int getProfilingCount() {
+        return profiles.size();
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void sample() {
+        try {
+            List<ScriptInvocation> invocations = new ArrayList<>(scriptWatchdog.getProfiledInvocations());
+            if (invocations.isEmpty()) {
+                return;
+            }
+            long[] threadIds = new long[invocations.size()];
+            for (int i = 0; i < threadIds.length; i++) {
+                threadIds[i] = invocations.get(i).getThread().getId();
+            }
+            // 一次获取所有线程的调用栈(只进入一次安全点)
+            ThreadInfo[] threadInfos = threadMXBean.getThreadInfo(threadIds, Integer.MAX_VALUE);
+            for (int i = 0; i < threadInfos.length; i++) {
+                ScriptInvocation invocation = invocations.get(i);
+                ThreadInfo threadInfo = threadInfos[i];
+                if (threadInfo == null || invocation.isFinished()) {
+                    continue;
+                }
+                List<Profile> list = profiles.get(invocation.getName());
+                if (list == null) {
+                    continue;
+                }
+                List<String> frames = toFrames(threadInfo.getStackTrace());
+                for (Profile profile : list) {
+                    profile.add(frames);
+                }
+            }
+        } catch (Throwable e) {
+            log.warn("脚本采样失败", e);
+        }
+    }
+
+    /**
+     * 把线程调用栈转换成火焰图的栈帧(从最外层的脚本栈帧开始，调用方在前)
+     *
+     * @param stackTrace 线程调用栈(栈顶在前)
+     * @return 没有脚本栈帧时返回null
+     */
+    public static List<String> toFrames(StackTraceElement[] stackTrace) {
+        int outermost = -1;
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            if (isScriptFrame(stackTrace[i])) {
+                outermost = i;
+                break;
+            }
+        }
+        if (outermost < 0) {
+            return null;
+        }
+        List<String> frames = new ArrayList<>(outermost + 1);
+        for (int i = outermost; i >= 0; i--) {
+            StackTraceElement element = stackTrace[i];
+            if (isScriptFrame(element)) {
+                frames.add(getScriptFrameName(element));
+            } else if (!isSkipFrame(element)) {
+                frames.add(element.getClassName() + "." + element.getMethodName());
+            }
+        }
+        return frames;
+    }
+
+    private static boolean isScriptFrame(StackTraceElement element) {
+        final String fileName = element.getFileName();
+        return element.getClassName().startsWith(Script_Class_Prefix) && fileName != null && !fileName.endsWith(".java");
+    }
+
+    private static boolean isSkipFrame(StackTraceElement element) {
+        final String className = element.getClassName();
+        for (String prefix : Skip_Class_Prefix) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 脚本栈帧名称: 函数名 (文件全路径:行号)
+     */
+    private static String getScriptFrameName(StackTraceElement element) {
+        String methodName = element.getMethodName();
+        if (":program".equals(methodName)) {
+            methodName = "<program>";
+        } else if (methodName.startsWith("L:")) {
+            methodName = "<anonymous>";
+        }
+        int lineNumber = element.getLineNumber();
+        if (lineNumber > Wrap_Line_Offset) {
+            lineNumber = lineNumber - Wrap_Line_Offset;
+        }
+        return String.format("%s (%s:%s)", methodName, element.getFileName(), lineNumber);
+    }
+}
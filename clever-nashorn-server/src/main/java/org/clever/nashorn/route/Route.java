@@ -0,0 +1,76 @@
+package org.clever.nashorn.route;
+
+import lombok.Getter;
+
+/**
+ * 一个请求路由(RouteTrie 的叶子)，指向处理请求的脚本文件(只记录路径和脚本内容hash，不持有脚本内容)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/02 10:10 <br/>
+ */
+public class Route {
+    /**
+     * 处理请求的脚本文件全路径
+     */
+    @Getter
+    private final String fullPath;
+    /**
+     * 预先解析的请求处理函数的下标(ScriptModuleInstance.getBoundFunction)，同一个脚本文件的下标不变
+     */
+    @Getter
+    private final int slot;
+    /**
+     * 路由的路径段，可能包含路径变量 {name} 和 {*name}
+     */
+    private final String[] segments;
+    /**
+     * 是否包含路径变量
+     */
+    private final boolean hasVariables;
+    /**
+     * 处理请求的脚本文件上级路径
+     */
+    @Getter
+    private final String filePath;
+    /**
+     * 处理请求的脚本文件名称
+     */
+    @Getter
+    private final String name;
+    /**
+     * 处理请求的脚本文件ID(JsCodeFile.id)
+     */
+    @Getter
+    private final Long jsCodeId;
+    /**
+     * 处理请求的脚本内容hash(运行日志使用，脚本修改时路由随之更新)
+     */
+    @Getter
+    private final String jsCodeHash;
+
+    Route(String fullPath, int slot, String[] segments, String filePath, String name, Long jsCodeId, String jsCodeHash) {
+        this.fullPath = fullPath;
+        this.slot = slot;
+        this.segments = segments;
+        this.filePath = filePath;
+        this.name = name;
+        this.jsCodeId = jsCodeId;
+        this.jsCodeHash = jsCodeHash;
+        boolean hasVariables = false;
+        for (String segment : segments) {
+            if (RouteTrie.isVariable(segment)) {
+                hasVariables = true;
+                break;
+            }
+        }
+        this.hasVariables = hasVariables;
+    }
+
+    public boolean hasVariables() {
+        return hasVariables;
+    }
+
+    String[] getSegments() {
+        return segments;
+    }
+}
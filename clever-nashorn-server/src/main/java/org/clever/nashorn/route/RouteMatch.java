@@ -0,0 +1,57 @@
+package org.clever.nashorn.route;
+
+import lombok.Getter;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 请求路由的匹配结果
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/02 10:20 <br/>
+ */
+public class RouteMatch {
+    @Getter
+    private final Route route;
+    /**
+     * 请求路径的路径段
+     */
+    private final String[] segments;
+
+    RouteMatch(Route route, String[] segments) {
+        this.route = route;
+        this.segments = segments;
+    }
+
+    /**
+     * 路径变量(已解码)，没有路径变量时返回空Map <br />
+     * {*name} 的值是剩余的所有路径段(使用“/”连接)
+     */
+    public Map<String, String> getPathVariables() {
+        if (!route.hasVariables()) {
+            return Collections.emptyMap();
+        }
+        final String[] routeSegments = route.getSegments();
+        Map<String, String> pathVariables = new LinkedHashMap<>(routeSegments.length);
+        for (int i = 0; i < routeSegments.length; i++) {
+            final String routeSegment = routeSegments[i];
+            if (RouteTrie.isCatchAll(routeSegment)) {
+                pathVariables.put(RouteTrie.getVariableName(routeSegment), decode(String.join("/", Arrays.copyOfRange(segments, i, segments.length))));
+                break;
+            }
+            if (RouteTrie.isVariable(routeSegment)) {
+                pathVariables.put(RouteTrie.getVariableName(routeSegment), decode(segments[i]));
+            }
+        }
+        return pathVariables;
+    }
+
+    private static String decode(String value) {
+        return UriUtils.decode(value, StandardCharsets.UTF_8);
+    }
+}
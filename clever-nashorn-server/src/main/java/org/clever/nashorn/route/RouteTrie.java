@@ -0,0 +1,501 @@
+package org.clever.nashorn.route;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.utils.JsCodeFilePathUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 请求路由前缀树(按路径段)，由 JsCodeFile 生成，代替每次请求按文件名逐个查找脚本 <br />
+ * 1. 脚本和请求路径的对应关系(优先级从高到低): <br />
+ * &nbsp;&nbsp; .../X/[get|post|put|delete...]_controller.js --> .../X (只处理对应的请求方法) <br />
+ * &nbsp;&nbsp; .../X/controller.js --> .../X <br />
+ * &nbsp;&nbsp; .../X.js --> .../X (请求路径没有扩展名时) <br />
+ * 2. 请求路径的后缀 .json、.action 会被去掉 <br />
+ * 3. 文件夹或文件名可以是路径变量: {name} 匹配一个路径段，{*name} 匹配剩余的所有路径段(只能是最后一段)，
+ * 同一位置静态路径段优先于 {name}，{name} 优先于 {*name} <br />
+ * 4. JsCodeFileChangeEvent 时增量修改(put、remove)，reloadInterval 定时从数据库全量重建(其它服务节点修改的脚本)，
+ * 重建期间的增量修改在重建完成前重新应用到新的前缀树 <br />
+ * 5. 只需要脚本的路径和脚本内容hash(不需要脚本内容)，全量加载时由加载方提供hash(JsCodeFile.jsCodeHash)，增量修改时使用脚本内容计算
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/02 10:30 <br/>
+ */
+@Slf4j
+public class RouteTrie {
+    /**
+     * 请求支持的后缀，建议使用特殊的后缀表示使用动态js代码处理请求
+     */
+    private static final String[] Support_Suffix = {".json", ".action"};
+    /**
+     * 处理请求脚本的文件名称
+     */
+    private static final String Handler_File_Name = "controller.js";
+    private static final String Method_Handler_Suffix = "_" + Handler_File_Name;
+    private static final String Js_Suffix = ".js";
+
+    /**
+     * 业务类型
+     */
+    private final String bizType;
+    /**
+     * 代码分组
+     */
+    private final String groupName;
+    /**
+     * 全量加载 JsCodeFile(可以不包含脚本内容，此时需要包含 jsCodeHash)
+     */
+    private final Supplier<Collection<JsCodeFile>> loader;
+    /**
+     * 同一时间只有一个全量重建
+     */
+    private final Object reloadLock = new Object();
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 前缀树根节点(全量重建时替换)
+     */
+    private volatile Node root = new Node();
+    /**
+     * 已加入的脚本 Map<JsCodeFile.id, 脚本全路径>，重命名或移动时删除旧的路由(只在 synchronized 中访问)
+     */
+    private Map<Long, String> fullPaths = new HashMap<>();
+    /**
+     * 全量重建期间的增量修改(不在重建时为null，只在 synchronized 中访问)
+     */
+    private List<PendingChange> pendingChanges;
+    /**
+     * 脚本的预先解析函数下标 Map<脚本全路径, slot>，脚本存在期间下标不变(只在 synchronized 中访问)
+     */
+    private final Map<String, Integer> slots = new HashMap<>();
+    /**
+     * 已删除的脚本释放的下标(分配时优先使用)，slots 的大小不会超过脚本数量的最大值
+     */
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * @param loader         全量加载 JsCodeFile
+     * @param reloadInterval 定时全量重建的时间间隔,毫秒(小于等于0表示不重建)
+     */
+    public RouteTrie(String bizType, String groupName, Supplier<Collection<JsCodeFile>> loader, long reloadInterval) {
+        this.bizType = bizType;
+        this.groupName = groupName;
+        this.loader = loader;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "route-trie-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reload();
+        if (reloadInterval > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    reload();
+                } catch (Throwable e) {
+                    log.warn("重建请求路由失败", e);
+                }
+            }, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 全量重建(加载数据时不阻塞增量修改，加载期间的增量修改在替换前重新应用)
+     */
+    public void reload() {
+        synchronized (reloadLock) {
+            final long startTime = System.currentTimeMillis();
+            synchronized (this) {
+                pendingChanges = new ArrayList<>();
+            }
+            final Collection<JsCodeFile> all;
+            try {
+                all = loader.get();
+            } catch (Throwable e) {
+                synchronized (this) {
+                    pendingChanges = null;
+                }
+                throw e;
+            }
+            final int pendingCount;
+            synchronized (this) {
+                Node newRoot = new Node();
+                Map<Long, String> newFullPaths = new HashMap<>(all.size());
+                for (JsCodeFile jsCodeFile : all) {
+                    if (accept(jsCodeFile)) {
+                        add(newRoot, newFullPaths, jsCodeFile);
+                    }
+                }
+                // 加载的数据可能不包含加载期间的修改
+                for (PendingChange change : pendingChanges) {
+                    if (change.remove) {
+                        remove(newRoot, newFullPaths, change.jsCodeFile);
+                    } else {
+                        put(newRoot, newFullPaths, change.jsCodeFile);
+                    }
+                }
+                pendingCount = pendingChanges.size();
+                pendingChanges = null;
+                root = newRoot;
+                fullPaths = newFullPaths;
+                // 释放已经不存在的脚本的下标
+                Set<String> exists = new HashSet<>(newFullPaths.values());
+                Iterator<Map.Entry<String, Integer>> iterator = slots.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, Integer> entry = iterator.next();
+                    if (!exists.contains(entry.getKey())) {
+                        freeSlots.add(entry.getValue());
+                        iterator.remove();
+                    }
+                }
+            }
+            log.info("重建请求路由 | 脚本 {} | 重建期间的修改 {} | 耗时 {}ms", size(), pendingCount, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 新增或修改脚本(重命名、移动时删除旧路径的路由)
+     */
+    public synchronized void put(JsCodeFile jsCodeFile) {
+        if (!accept(jsCodeFile)) {
+            return;
+        }
+        if (pendingChanges != null) {
+            pendingChanges.add(new PendingChange(jsCodeFile, false));
+        }
+        put(root, fullPaths, jsCodeFile);
+    }
+
+    /**
+     * 删除脚本
+     */
+    public synchronized void remove(JsCodeFile jsCodeFile) {
+        if (!accept(jsCodeFile)) {
+            return;
+        }
+        if (pendingChanges != null) {
+            pendingChanges.add(new PendingChange(jsCodeFile, true));
+        }
+        remove(root, fullPaths, jsCodeFile);
+    }
+
+    private void put(Node root, Map<Long, String> fullPaths, JsCodeFile jsCodeFile) {
+        final String old = fullPaths.get(jsCodeFile.getId());
+        final String fullPath = JsCodeFilePathUtils.concat(jsCodeFile.getFilePath(), jsCodeFile.getName());
+        // 先分配新路径的下标再释放旧路径的下标，重命名后的脚本不会立即复用旧下标
+        add(root, fullPaths, jsCodeFile);
+        if (old != null && !old.equals(fullPath)) {
+            remove(root, old);
+            freeSlot(old);
+        }
+    }
+
+    private void remove(Node root, Map<Long, String> fullPaths, JsCodeFile jsCodeFile) {
+        String fullPath = fullPaths.remove(jsCodeFile.getId());
+        if (fullPath == null) {
+            fullPath = JsCodeFilePathUtils.concat(jsCodeFile.getFilePath(), jsCodeFile.getName());
+        }
+        remove(root, fullPath);
+        freeSlot(fullPath);
+    }
+
+    private int allocateSlot(String fullPath) {
+        Integer slot = slots.get(fullPath);
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? slots.size() : freeSlots.poll();
+            slots.put(fullPath, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * 释放下标(ScriptModuleInstance.getBoundFunction 会校验脚本全路径，下标给其它脚本使用时旧的函数不会被使用)
+     */
+    private void freeSlot(String fullPath) {
+        Integer slot = slots.remove(fullPath);
+        if (slot != null) {
+            freeSlots.add(slot);
+        }
+    }
+
+    /**
+     * 已加入的脚本数量
+     */
+    public synchronized int size() {
+        return fullPaths.size();
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 匹配请求
+     *
+     * @param method 请求方法(大写)
+     * @param uri    请求路径
+     * @return 没有对应的脚本返回null
+     */
+    public RouteMatch match(String method, String uri) {
+        for (String suffix : Support_Suffix) {
+            if (uri.endsWith(suffix)) {
+                uri = uri.substring(0, uri.length() - suffix.length());
+                break;
+            }
+        }
+        final boolean matchFile = StringUtils.isBlank(FilenameUtils.getExtension(uri));
+        final String[] segments = StringUtils.split(uri, '/');
+        final Route route = match(root, segments, 0, method, matchFile);
+        return route == null ? null : new RouteMatch(route, segments);
+    }
+
+    private static Route match(Node node, String[] segments, int index, String method, boolean matchFile) {
+        if (index >= segments.length) {
+            return node.getRoute(method, matchFile);
+        }
+        Node child = node.children.get(segments[index]);
+        if (child != null) {
+            Route route = match(child, segments, index + 1, method, matchFile);
+            if (route != null) {
+                return route;
+            }
+        }
+        child = node.variableChild;
+        if (child != null) {
+            Route route = match(child, segments, index + 1, method, matchFile);
+            if (route != null) {
+                return route;
+            }
+        }
+        child = node.catchAllChild;
+        return child == null ? null : child.getRoute(method, matchFile);
+    }
+
+    private boolean accept(JsCodeFile jsCodeFile) {
+        return jsCodeFile != null
+                && Objects.equals(EnumConstant.Node_Type_1, jsCodeFile.getNodeType())
+                && Objects.equals(bizType, jsCodeFile.getBizType())
+                && Objects.equals(groupName, jsCodeFile.getGroupName());
+    }
+
+    private void add(Node root, Map<Long, String> fullPaths, JsCodeFile jsCodeFile) {
+        final String fullPath = JsCodeFilePathUtils.concat(jsCodeFile.getFilePath(), jsCodeFile.getName());
+        // 空脚本不处理请求(jsCode为null表示只加载了路径，由加载方过滤空脚本)
+        if (jsCodeFile.getJsCode() != null && StringUtils.isBlank(jsCodeFile.getJsCode())) {
+            remove(root, fullPath);
+            fullPaths.remove(jsCodeFile.getId());
+            freeSlot(fullPath);
+            return;
+        }
+        final int slot = allocateSlot(fullPath);
+        final String jsCodeHash = jsCodeFile.getJsCode() == null ? jsCodeFile.getJsCodeHash() : CompiledScriptCache.sha256(jsCodeFile.getJsCode());
+        for (RouteKey key : getRouteKeys(fullPath)) {
+            if (!isValid(key.segments)) {
+                log.warn("请求路由无效，{*name}只能是最后一个路径段 | {}", fullPath);
+                continue;
+            }
+            Node node = root;
+            for (String segment : key.segments) {
+                node = node.getOrCreateChild(segment);
+            }
+            node.setRoute(key.method, key.file, new Route(fullPath, slot, key.segments, jsCodeFile.getFilePath(), jsCodeFile.getName(), jsCodeFile.getId(), jsCodeHash));
+        }
+        fullPaths.put(jsCodeFile.getId(), fullPath);
+    }
+
+    /**
+     * 删除路由(空节点在下次全量重建时清除)
+     */
+    private static void remove(Node root, String fullPath) {
+        for (RouteKey key : getRouteKeys(fullPath)) {
+            Node node = root;
+            for (String segment : key.segments) {
+                node = node == null ? null : node.getChild(segment);
+            }
+            if (node != null) {
+                node.removeRoute(key.method, key.file, fullPath);
+            }
+        }
+    }
+
+    /**
+     * 脚本文件对应的路由(一个脚本可能有两个路由，例如 .../X/controller.js 对应 .../X 和 .../X/controller)
+     */
+    private static List<RouteKey> getRouteKeys(String fullPath) {
+        List<RouteKey> keys = new ArrayList<>(2);
+        if (!fullPath.endsWith(Js_Suffix)) {
+            return keys;
+        }
+        TupleTow<String, String> tupleTow = JsCodeFilePathUtils.getParentPath(fullPath);
+        final String[] folderSegments = StringUtils.split(tupleTow.getValue1(), '/');
+        final String name = tupleTow.getValue2();
+        if (Handler_File_Name.equals(name)) {
+            keys.add(new RouteKey(folderSegments, null, false));
+        } else if (name.endsWith(Method_Handler_Suffix) && name.length() > Method_Handler_Suffix.length()) {
+            final String method = name.substring(0, name.length() - Method_Handler_Suffix.length()).toUpperCase();
+            keys.add(new RouteKey(folderSegments, method, false));
+        }
+        String[] fileSegments = Arrays.copyOf(folderSegments, folderSegments.length + 1);
+        fileSegments[folderSegments.length] = name.substring(0, name.length() - Js_Suffix.length());
+        keys.add(new RouteKey(fileSegments, null, true));
+        return keys;
+    }
+
+    private static boolean isValid(String[] segments) {
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (isCatchAll(segments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否是路径变量 {name} 或 {*name}
+     */
+    static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    /**
+     * 是否是匹配剩余所有路径段的路径变量 {*name}
+     */
+    static boolean isCatchAll(String segment) {
+        return isVariable(segment) && segment.charAt(1) == '*' && segment.length() > 3;
+    }
+
+    static String getVariableName(String segment) {
+        return segment.substring(isCatchAll(segment) ? 2 : 1, segment.length() - 1);
+    }
+
+    /**
+     * 全量重建期间的增量修改
+     */
+    private static class PendingChange {
+        private final JsCodeFile jsCodeFile;
+        private final boolean remove;
+
+        private PendingChange(JsCodeFile jsCodeFile, boolean remove) {
+            this.jsCodeFile = jsCodeFile;
+            this.remove = remove;
+        }
+    }
+
+    /**
+     * 路由在前缀树中的位置
+     */
+    private static class RouteKey {
+        private final String[] segments;
+        /**
+         * 请求方法(null表示所有请求方法)
+         */
+        private final String method;
+        /**
+         * 是否是 .../X.js 对应的路由
+         */
+        private final boolean file;
+
+        private RouteKey(String[] segments, String method, boolean file) {
+            this.segments = segments;
+            this.method = method;
+            this.file = file;
+        }
+    }
+
+    /**
+     * 前缀树节点(修改只在 RouteTrie 的 synchronized 中进行)
+     */
+    private static class Node {
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private volatile Node variableChild;
+        private volatile Node catchAllChild;
+        /**
+         * .../X/[method]_controller.js Map<请求方法, Route>
+         */
+        private final Map<String, Route> methodRoutes = new ConcurrentHashMap<>(0);
+        /**
+         * .../X/controller.js
+         */
+        private volatile Route controllerRoute;
+        /**
+         * .../X.js
+         */
+        private volatile Route fileRoute;
+
+        private Route getRoute(String method, boolean matchFile) {
+            if (!methodRoutes.isEmpty()) {
+                Route route = methodRoutes.get(method);
+                if (route != null) {
+                    return route;
+                }
+            }
+            final Route route = controllerRoute;
+            if (route != null) {
+                return route;
+            }
+            return matchFile ? fileRoute : null;
+        }
+
+        private void setRoute(String method, boolean file, Route route) {
+            if (file) {
+                fileRoute = route;
+            } else if (method == null) {
+                controllerRoute = route;
+            } else {
+                methodRoutes.put(method, route);
+            }
+        }
+
+        private void removeRoute(String method, boolean file, String fullPath) {
+            if (file) {
+                if (fileRoute != null && fileRoute.getFullPath().equals(fullPath)) {
+                    fileRoute = null;
+                }
+            } else if (method == null) {
+                if (controllerRoute != null && controllerRoute.getFullPath().equals(fullPath)) {
+                    controllerRoute = null;
+                }
+            } else {
+                Route route = methodRoutes.get(method);
+                if (route != null && route.getFullPath().equals(fullPath)) {
+                    methodRoutes.remove(method);
+                }
+            }
+        }
+
+        private Node getChild(String segment) {
+            if (isCatchAll(segment)) {
+                return catchAllChild;
+            }
+            if (isVariable(segment)) {
+                return variableChild;
+            }
+            return children.get(segment);
+        }
+
+        private Node getOrCreateChild(String segment) {
+            if (isCatchAll(segment)) {
+                if (catchAllChild == null) {
+                    catchAllChild = new Node();
+                }
+                return catchAllChild;
+            }
+            if (isVariable(segment)) {
+                if (variableChild == null) {
+                    variableChild = new Node();
+                }
+                return variableChild;
+            }
+            return children.computeIfAbsent(segment, key -> new Node());
+        }
+    }
+}
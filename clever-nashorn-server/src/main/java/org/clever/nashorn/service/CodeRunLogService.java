@@ -1,21 +1,42 @@
 package org.clever.nashorn.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.clever.common.model.request.QueryBySort;
+import org.clever.common.utils.exception.ExceptionUtils;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.console.AsyncConsoleDispatcher;
+import org.clever.nashorn.console.CodeRunLogContext;
 import org.clever.nashorn.dto.request.CodeRunLogQueryReq;
 import org.clever.nashorn.dto.response.CodeRunLogQueryRes;
+import org.clever.nashorn.dto.response.CodeRunLogResourceSummaryRes;
 import org.clever.nashorn.dto.response.CodeRunLogStatusSummaryRes;
+import org.clever.nashorn.dto.response.CodeRunRollupDashboardRes;
 import org.clever.nashorn.entity.CodeRunLog;
+import org.clever.nashorn.entity.CodeRunRollup;
 import org.clever.nashorn.entity.EnumConstant;
 import org.clever.nashorn.entity.JsCodeFile;
 import org.clever.nashorn.mapper.CodeRunLogMapper;
+import org.clever.nashorn.mapper.CodeRunRollupMapper;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.utils.ThreadResourceUsage;
+import org.clever.nashorn.watchdog.ExceededLimit;
+import org.clever.nashorn.watchdog.ScriptInvocation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 作者：lizw <br/>
@@ -24,11 +45,36 @@ import java.util.List;
 @Transactional(readOnly = true)
 @Service
 public class CodeRunLogService {
+    /**
+     * 一条insert、update语句最多写入的运行日志数
+     */
+    private static final int Append_Logs_Batch_Size = 100;
+
     @Autowired
     private CodeRunLogMapper codeRunLogMapper;
+    @Autowired
+    @Qualifier("Global-AsyncConsoleDispatcher")
+    private AsyncConsoleDispatcher asyncConsoleDispatcher;
+    @Autowired
+    @Qualifier("Global-CodeRunLogWriter")
+    private CodeRunLogWriter codeRunLogWriter;
+    @Autowired
+    private CodeRunRollupMapper codeRunRollupMapper;
+    @Autowired
+    @Qualifier("Global-CodeRunRollupRecorder")
+    private CodeRunRollupRecorder codeRunRollupRecorder;
+
+    /**
+     * 脚本内容的hash(key是JsCodeFile中的jsCode字符串对象，按引用比较)
+     */
+    private final Cache<String, String> jsCodeHashCache = CacheBuilder.newBuilder().weakKeys().maximumSize(4096).build();
 
     public CodeRunLog getCodeRunLog(Long id) {
-        return codeRunLogMapper.selectById(id);
+        CodeRunLog codeRunLog = codeRunLogMapper.selectById(id);
+        if (codeRunLog != null && codeRunLog.getJsCode() == null && codeRunLog.getJsCodeHash() != null) {
+            codeRunLog.setJsCode(codeRunLogMapper.getScript(codeRunLog.getJsCodeHash()));
+        }
+        return codeRunLog;
     }
 
     public IPage<CodeRunLogQueryRes> queryByPage(CodeRunLogQueryReq query) {
@@ -45,39 +91,241 @@ public class CodeRunLogService {
         query.addOrderFieldMapping("name", "b.name");
         query.addOrderFieldMapping("runTime", "b.name");
         if (query.getOrderFields().size() <= 0) {
-            query.addOrderField("createAt", QueryBySort.DESC);
+            // id按时间递增(IdWorker)，使用主键排序不需要排序整张表
+            query.addOrderField("id", QueryBySort.DESC);
         }
         return query.result(codeRunLogMapper.queryByPage(query));
     }
 
+    /**
+     * 有执行时间条件时统计运行日志，否则统计每分钟的汇总数据(code_run_rollup) <br />
+     * 汇总数据在脚本执行结束后才记录，运行中的数量从运行日志统计
+     */
     public List<CodeRunLogStatusSummaryRes> groupByStatus(CodeRunLogQueryReq query) {
         query.setSearchCount(false);
-        return codeRunLogMapper.groupByStatus(query);
+        if (hasRunTimeCondition(query)) {
+            return codeRunLogMapper.groupByStatus(query);
+        }
+        List<CodeRunLogStatusSummaryRes> list = new ArrayList<>(5);
+        final Integer queryStatus = query.getStatus();
+        if (queryStatus == null || EnumConstant.Status_1.equals(queryStatus)) {
+            query.setStatus(EnumConstant.Status_1);
+            try {
+                list.addAll(codeRunLogMapper.groupByStatus(query));
+            } finally {
+                query.setStatus(queryStatus);
+            }
+            if (queryStatus != null) {
+                return list;
+            }
+        }
+        CodeRunRollup sum = codeRunRollupMapper.sumByStatus(query);
+        if (sum != null) {
+            addStatusSummary(list, query.getStatus(), EnumConstant.Status_2, sum.getSuccessCount());
+            addStatusSummary(list, query.getStatus(), EnumConstant.Status_3, sum.getErrorCount());
+            addStatusSummary(list, query.getStatus(), EnumConstant.Status_4, sum.getTimeoutCount());
+            addStatusSummary(list, query.getStatus(), EnumConstant.Status_5, sum.getCpuLimitCount());
+        }
+        return list;
     }
 
-    @Transactional
+    private static void addStatusSummary(List<CodeRunLogStatusSummaryRes> list, Integer queryStatus, Integer status, Long count) {
+        if (count == null || count <= 0 || (queryStatus != null && !queryStatus.equals(status))) {
+            return;
+        }
+        CodeRunLogStatusSummaryRes res = new CodeRunLogStatusSummaryRes();
+        res.setStatus(status);
+        res.setCount(count.intValue());
+        list.add(res);
+    }
+
+    /**
+     * 是否有执行时间条件(汇总数据中没有单次执行的执行时间)
+     */
+    private static boolean hasRunTimeCondition(CodeRunLogQueryReq query) {
+        return query.getRunTimeMin() != null || query.getRunTimeMax() != null;
+    }
+
+    /**
+     * 按分钟统计运行次数、执行时间分布(默认最近一小时，返回所有分钟，按时间排序)
+     */
+    public List<CodeRunRollupDashboardRes> groupByBucketTime(CodeRunLogQueryReq query) {
+        if (query.getRunStartStart() == null && query.getRunEndStart() == null) {
+            query.setRunStartStart(new Date(System.currentTimeMillis() - 60 * 60 * 1000));
+        }
+        // size小于0时不分页(也不查询总数)
+        query.setSearchCount(false);
+        query.setSize(-1);
+        return codeRunRollupMapper.groupByBucketTime(query);
+    }
+
+    public IPage<CodeRunLogResourceSummaryRes> groupByJsCode(CodeRunLogQueryReq query) {
+        query.addOrderFieldMapping("jsCodeId", "js_code_id");
+        query.addOrderFieldMapping("runCount", "run_count");
+        query.addOrderFieldMapping("sumCpuTime", "sum_cpu_time");
+        query.addOrderFieldMapping("avgCpuTime", "avg_cpu_time");
+        query.addOrderFieldMapping("maxCpuTime", "max_cpu_time");
+        query.addOrderFieldMapping("sumAllocatedBytes", "sum_allocated_bytes");
+        query.addOrderFieldMapping("avgAllocatedBytes", "avg_allocated_bytes");
+        query.addOrderFieldMapping("maxAllocatedBytes", "max_allocated_bytes");
+        if (query.getOrderFields().size() <= 0) {
+            query.addOrderField("sumAllocatedBytes", QueryBySort.DESC);
+        }
+        if (hasRunTimeCondition(query) || query.getStatus() != null) {
+            return query.result(codeRunLogMapper.groupByJsCode(query));
+        }
+        return query.result(codeRunRollupMapper.groupByJsCode(query));
+    }
+
+    /**
+     * 记录脚本开始执行(由 CodeRunLogWriter 在后台写入，立即返回运行日志ID) <br />
+     * 按 rawLogSampleRate 抽样保存运行日志，没有抽中的只计入统计
+     */
     public Long startLog(JsCodeFile jsCodeFile) {
+        return startLog(jsCodeFile.getId(), getJsCodeHash(jsCodeFile.getJsCode()), jsCodeFile::getJsCode);
+    }
+
+    /**
+     * 记录脚本开始执行(调用方已知脚本内容hash，只有hash对应的脚本内容还没有保存时才读取脚本内容)
+     *
+     * @param jsCodeId     脚本文件ID
+     * @param jsCodeHash   脚本内容hash
+     * @param jsCodeLoader 读取脚本内容
+     */
+    public Long startLog(Long jsCodeId, String jsCodeHash, Supplier<String> jsCodeLoader) {
         CodeRunLog codeRunLog = new CodeRunLog();
-        codeRunLog.setJsCodeId(jsCodeFile.getId());
-        codeRunLog.setJsCode(jsCodeFile.getJsCode());
+        codeRunLog.setId(IdWorker.getId());
+        codeRunLog.setJsCodeId(jsCodeId);
+        codeRunLog.setJsCodeHash(jsCodeHash);
+        if (jsCodeHash == null || !codeRunLogWriter.isScriptSaved(jsCodeHash)) {
+            final String jsCode = jsCodeLoader.get();
+            codeRunLog.setJsCode(jsCode);
+            // 读取到的脚本可能已经修改，hash以读取到的脚本内容为准
+            codeRunLog.setJsCodeHash(getJsCodeHash(jsCode));
+        }
         codeRunLog.setRunStart(new Date());
         codeRunLog.setRunLog(StringUtils.EMPTY);
         codeRunLog.setStatus(EnumConstant.Status_1);
-        codeRunLogMapper.insert(codeRunLog);
+        final double sampleRate = codeRunRollupRecorder.getConfig().getRawLogSampleRate();
+        final boolean sampled = sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        if (sampled) {
+            codeRunLogWriter.start(codeRunLog);
+        }
+        // 之后当前线程的Console输出写入这条运行日志(抽中时)
+        CodeRunLogContext.set(codeRunLog.getId(), codeRunLog, sampled);
         return codeRunLog.getId();
     }
 
-    @Transactional
     public void endLog(Long codeRunLogId, Integer status) {
+        endLog(codeRunLogId, status, null);
+    }
+
+    /**
+     * 记录脚本执行结束(由 CodeRunLogWriter 在后台写入，同一个运行日志只记录第一次的结束状态)
+     *
+     * @param usage 脚本执行的资源使用(CPU时间、分配的堆内存)，可以为null
+     */
+    public void endLog(Long codeRunLogId, Integer status, ThreadResourceUsage usage) {
+        CodeRunLogContext context = CodeRunLogContext.current();
+        CodeRunLogContext.clear();
+        if (context != null && !codeRunLogId.equals(context.getCodeRunLogId())) {
+            context = null;
+        }
         CodeRunLog codeRunLog = new CodeRunLog();
         codeRunLog.setId(codeRunLogId);
         codeRunLog.setRunEnd(new Date());
         codeRunLog.setStatus(status);
-        codeRunLogMapper.updateById(codeRunLog);
+        if (usage != null) {
+            codeRunLog.setCpuTime(usage.getCpuTimeMicros());
+            codeRunLog.setAllocatedBytes(usage.getAllocatedBytes() < 0 ? null : usage.getAllocatedBytes());
+        }
+        if (context != null && context.getStartLog() != null) {
+            final long runTime = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - context.getStartNanoTime());
+            codeRunRollupRecorder.record(context.getStartLog().getJsCodeId(), status, runTime, codeRunLog.getCpuTime(), codeRunLog.getAllocatedBytes());
+        }
+        if (context == null || context.isSampled()) {
+            // 后台线程读到结束标记时写入缓冲的日志
+            asyncConsoleDispatcher.publishEnd(codeRunLogId);
+            codeRunLogWriter.end(codeRunLog);
+        } else if (!EnumConstant.Status_2.equals(status) && codeRunRollupRecorder.getConfig().isRawLogKeepFailure()) {
+            // 没有抽中的执行失败时仍然保存运行日志(没有Console输出)
+            codeRunLogWriter.start(context.getStartLog());
+            codeRunLogWriter.end(codeRunLog);
+        }
+    }
+
+    /**
+     * 累加写入每分钟的统计
+     */
+    @Transactional
+    public void saveRollups(List<CodeRunRollup> rollups) {
+        for (int i = 0; i < rollups.size(); i += Append_Logs_Batch_Size) {
+            codeRunRollupMapper.upsertBatch(rollups.subList(i, Math.min(i + Append_Logs_Batch_Size, rollups.size())));
+        }
+    }
+
+    private String getJsCodeHash(String jsCode) {
+        if (jsCode == null) {
+            return null;
+        }
+        try {
+            return jsCodeHashCache.get(jsCode, () -> CompiledScriptCache.sha256(jsCode));
+        } catch (ExecutionException e) {
+            throw ExceptionUtils.unchecked(e.getCause());
+        }
+    }
+
+    /**
+     * 在一个事务中写入 CodeRunLogWriter 合并后的数据(顺序: 脚本内容、新的运行日志、追加日志、结束状态)
+     */
+    @Transactional
+    public void writeBatch(CodeRunLogWriter.Batch batch) {
+        if (!batch.getScripts().isEmpty()) {
+            List<TupleTow<String, String>> scripts = new ArrayList<>(batch.getScripts().size());
+            batch.getScripts().forEach((hash, jsCode) -> scripts.add(TupleTow.creat(hash, jsCode)));
+            for (int i = 0; i < scripts.size(); i += Append_Logs_Batch_Size) {
+                codeRunLogMapper.insertScripts(scripts.subList(i, Math.min(i + Append_Logs_Batch_Size, scripts.size())));
+            }
+        }
+        List<CodeRunLog> inserts = batch.getInserts();
+        for (int i = 0; i < inserts.size(); i += Append_Logs_Batch_Size) {
+            codeRunLogMapper.insertBatch(inserts.subList(i, Math.min(i + Append_Logs_Batch_Size, inserts.size())));
+        }
+        if (!batch.getAppendLogs().isEmpty()) {
+            appendLogs(batch.getAppendLogs());
+        }
+        for (CodeRunLog codeRunLog : batch.getUpdates()) {
+            codeRunLogMapper.endLog(codeRunLog);
+        }
+    }
+
+    /**
+     * 根据脚本执行结果得到运行状态
+     *
+     * @param invocation 看门狗监控的脚本调用(可以为null)
+     * @param failure    脚本是否抛出异常
+     */
+    public static Integer getRunStatus(ScriptInvocation invocation, boolean failure) {
+        if (invocation != null && invocation.isExceeded()) {
+            return ExceededLimit.CpuTime.equals(invocation.getExceeded()) ? EnumConstant.Status_5 : EnumConstant.Status_4;
+        }
+        return failure ? EnumConstant.Status_3 : EnumConstant.Status_2;
     }
 
     @Transactional
     public void appendLog(Long codeRunLogId, String addLog) {
         codeRunLogMapper.appendLog(codeRunLogId, addLog);
     }
+
+    /**
+     * 批量追加运行日志(每100条运行日志一条update语句，一个事务)
+     *
+     * @param logs List<TupleTow<运行日志ID, 追加的日志>>，运行日志ID不能重复
+     */
+    @Transactional
+    public void appendLogs(List<TupleTow<Long, String>> logs) {
+        for (int i = 0; i < logs.size(); i += Append_Logs_Batch_Size) {
+            codeRunLogMapper.appendLogs(logs.subList(i, Math.min(i + Append_Logs_Batch_Size, logs.size())));
+        }
+    }
 }
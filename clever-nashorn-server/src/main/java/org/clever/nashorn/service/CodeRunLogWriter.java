@@ -0,0 +1,397 @@
+package org.clever.nashorn.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.config.CodeRunLogWriterConfig;
+import org.clever.nashorn.entity.CodeRunLog;
+import org.clever.nashorn.entity.EnumConstant;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 脚本运行记录(code_run_log)后台批量写入 <br />
+ * 1. 执行脚本的线程只把操作(开始、结束、追加日志)放入有界队列，不会长时间阻塞:
+ * 队列预留 1/8 的空间只给"结束"使用，开始和日志只能使用剩余的空间；
+ * 丢弃"开始"时记住这个运行记录(之后它的结束和日志也丢弃)；
+ * 已经进入队列的运行记录，日志在没有空间时直接丢弃，结束最多等待 endWaitTimeout，超时后丢弃并计数 <br />
+ * 2. 后台线程每次取出一批操作合并后在一个事务中写入: 同一批中开始和结束的运行记录只insert一次(不再update)，
+ * 追加的日志按运行记录合并 <br />
+ * 3. 脚本内容按hash只写入一次(code_run_script)，运行记录只保存hash <br />
+ * 4. 写入失败时整批重试(最多 maxRetries 次)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/29 14:30 <br/>
+ */
+@Slf4j
+public class CodeRunLogWriter {
+    /**
+     * 记住已写入的脚本hash数量
+     */
+    private static final int Max_Saved_Script_Count = 1024;
+    /**
+     * 记住被丢弃的运行记录数量
+     */
+    private static final int Max_Dropped_Id_Count = 4096;
+    /**
+     * 队列中给"结束"预留的空间比例(1/N)
+     */
+    private static final int End_Reserved_Ratio = 8;
+
+    @Getter
+    private final CodeRunLogWriterConfig config;
+    /**
+     * 在一个事务中写入一批数据
+     */
+    private final Consumer<Batch> batchWriter;
+    private final BlockingQueue<Operation> queue;
+    /**
+     * 给"结束"预留的队列空间(开始和日志不能使用)
+     */
+    private final int endReserved;
+    private final Thread thread;
+    private volatile boolean running = true;
+    /**
+     * 已写入的脚本hash(enable=false时多个线程访问，需要同步)
+     */
+    private final Map<String, Boolean> savedScripts = new LinkedHashMap<String, Boolean>(Max_Saved_Script_Count * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > Max_Saved_Script_Count;
+        }
+    };
+
+    /**
+     * "开始"被丢弃的运行记录ID(它的结束和日志也要丢弃)
+     */
+    private final Map<Long, Boolean> droppedIds = new LinkedHashMap<Long, Boolean>(Max_Dropped_Id_Count * 4 / 3 + 1) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > Max_Dropped_Id_Count;
+        }
+    };
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * 已经进入队列的运行记录，结束被丢弃的次数(数据库中的运行记录会一直是运行中)
+     */
+    private final AtomicLong droppedEnds = new AtomicLong();
+    /**
+     * 已经进入队列的运行记录，日志被丢弃的次数
+     */
+    private final AtomicLong droppedLogs = new AtomicLong();
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    public CodeRunLogWriter(CodeRunLogWriterConfig config, Consumer<Batch> batchWriter) {
+        this.config = config;
+        this.batchWriter = batchWriter;
+        final int queueSize = Math.max(16, config.getQueueSize());
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.endReserved = queueSize / End_Reserved_Ratio;
+        this.thread = new Thread(this::run, "code-run-log-writer");
+        this.thread.setDaemon(true);
+        if (config.isEnable()) {
+            this.thread.start();
+        }
+    }
+
+    /**
+     * 脚本开始执行
+     *
+     * @param codeRunLog 需要 id、jsCodeId、jsCodeHash、runStart，hash对应的脚本内容还没有写入时需要 jsCode
+     */
+    public void start(CodeRunLog codeRunLog) {
+        submit(new Operation(Operation.Start, codeRunLog, null));
+    }
+
+    /**
+     * 脚本执行结束(同一个运行记录只保留第一次的结束状态)
+     *
+     * @param codeRunLog 需要 id、runEnd、status，可选 cpuTime、allocatedBytes
+     */
+    public void end(CodeRunLog codeRunLog) {
+        submit(new Operation(Operation.End, codeRunLog, null));
+    }
+
+    /**
+     * 追加运行日志
+     *
+     * @param logs List<TupleTow<运行日志ID, 追加的日志>>
+     */
+    public void appendLogs(List<TupleTow<Long, String>> logs) {
+        for (TupleTow<Long, String> tupleTow : logs) {
+            CodeRunLog codeRunLog = new CodeRunLog();
+            codeRunLog.setId(tupleTow.getValue1());
+            submit(new Operation(Operation.Append_Log, codeRunLog, tupleTow.getValue2()));
+        }
+    }
+
+    private void submit(Operation operation) {
+        submitted.incrementAndGet();
+        if (!config.isEnable()) {
+            write(Collections.singletonList(operation));
+            return;
+        }
+        final Long id = operation.codeRunLog.getId();
+        if (operation.type == Operation.Start) {
+            if (!offerUnreserved(operation)) {
+                dropped.incrementAndGet();
+                synchronized (droppedIds) {
+                    droppedIds.put(id, Boolean.TRUE);
+                }
+            }
+            return;
+        }
+        synchronized (droppedIds) {
+            if (droppedIds.containsKey(id)) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        if (operation.type == Operation.Append_Log) {
+            if (!offerUnreserved(operation)) {
+                dropped.incrementAndGet();
+                droppedLogs.incrementAndGet();
+            }
+            return;
+        }
+        // 结束可以使用预留的空间，预留的空间也满了(数据库写入很慢或者不可用)时最多等待 endWaitTimeout，不长时间阻塞执行脚本的线程
+        if (queue.offer(operation)) {
+            return;
+        }
+        waited.incrementAndGet();
+        boolean success = false;
+        try {
+            success = running && queue.offer(operation, Math.max(0, config.getEndWaitTimeout()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!success) {
+            dropped.incrementAndGet();
+            droppedEnds.incrementAndGet();
+        }
+    }
+
+    /**
+     * 不使用给"结束"预留的空间(检查和放入不是原子操作，预留的空间是近似值)
+     */
+    private boolean offerUnreserved(Operation operation) {
+        return queue.remainingCapacity() > endReserved && queue.offer(operation);
+    }
+
+    /**
+     * 丢弃的操作数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 已经进入队列的运行记录，结束被丢弃的次数
+     */
+    public long getDroppedEndCount() {
+        return droppedEnds.get();
+    }
+
+    /**
+     * 已经进入队列的运行记录，日志被丢弃的次数
+     */
+    public long getDroppedLogCount() {
+        return droppedLogs.get();
+    }
+
+    /**
+     * 统计: 队列大小、积压数、丢弃数(其中结束、日志的丢弃数)、等待队列空位数、写入数、重试数、写入失败数、事务数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        stats.put("queueSize", queue.size());
+        stats.put("submitted", submitted.get());
+        stats.put("dropped", dropped.get());
+        stats.put("droppedEnds", droppedEnds.get());
+        stats.put("droppedLogs", droppedLogs.get());
+        stats.put("waited", waited.get());
+        stats.put("written", written.get());
+        stats.put("retried", retried.get());
+        stats.put("failed", failed.get());
+        stats.put("batchCount", batchCount.get());
+        return stats;
+    }
+
+    /**
+     * 写入剩余的数据并停止后台线程
+     */
+    public void close() {
+        running = false;
+        if (!thread.isAlive()) {
+            return;
+        }
+        // 不中断后台线程(可能正在写数据库)，等待它在 flushInterval 后退出
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        final int batchSize = Math.max(1, config.getBatchSize());
+        final List<Operation> operations = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Operation first = queue.poll(Math.max(1, config.getFlushInterval()), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                operations.add(first);
+                queue.drainTo(operations, batchSize - 1);
+                write(operations);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            operations.clear();
+        }
+        // 停止前写入剩余的数据
+        while (queue.drainTo(operations, batchSize) > 0) {
+            write(operations);
+            operations.clear();
+        }
+    }
+
+    /**
+     * 合并一批操作并写入
+     */
+    private void write(List<Operation> operations) {
+        Batch batch = new Batch();
+        Map<Long, CodeRunLog> inserts = new LinkedHashMap<>();
+        Map<Long, StringBuilder> appendLogs = new LinkedHashMap<>();
+        Map<Long, CodeRunLog> updates = new LinkedHashMap<>();
+        for (Operation operation : operations) {
+            final CodeRunLog codeRunLog = operation.codeRunLog;
+            final CodeRunLog insert = inserts.get(codeRunLog.getId());
+            switch (operation.type) {
+                case Operation.Start:
+                    inserts.put(codeRunLog.getId(), codeRunLog);
+                    String hash = codeRunLog.getJsCodeHash();
+                    // 调用方确认脚本已保存时不会读取脚本内容(jsCode为null)
+                    if (hash != null && codeRunLog.getJsCode() != null && !batch.scripts.containsKey(hash) && !isScriptSaved(hash)) {
+                        batch.scripts.put(hash, codeRunLog.getJsCode());
+                    }
+                    break;
+                case Operation.End:
+                    if (insert == null) {
+                        updates.putIfAbsent(codeRunLog.getId(), codeRunLog);
+                    } else if (Objects.equals(insert.getStatus(), EnumConstant.Status_1)) {
+                        insert.setRunEnd(codeRunLog.getRunEnd());
+                        insert.setStatus(codeRunLog.getStatus());
+                        insert.setCpuTime(codeRunLog.getCpuTime());
+                        insert.setAllocatedBytes(codeRunLog.getAllocatedBytes());
+                    }
+                    break;
+                case Operation.Append_Log:
+                    if (insert == null) {
+                        appendLogs.computeIfAbsent(codeRunLog.getId(), id -> new StringBuilder()).append(operation.addLog);
+                    } else {
+                        insert.setRunLog(insert.getRunLog() + operation.addLog);
+                    }
+                    break;
+                default:
+            }
+        }
+        batch.inserts.addAll(inserts.values());
+        appendLogs.forEach((id, addLog) -> batch.appendLogs.add(TupleTow.creat(id, addLog.toString())));
+        batch.updates.addAll(updates.values());
+        // enable=false时在执行脚本的线程中写入，不重试
+        final int maxRetries = config.isEnable() ? Math.max(0, config.getMaxRetries()) : 0;
+        long retryInterval = Math.max(1, config.getRetryInterval());
+        for (int retry = 0; ; retry++) {
+            try {
+                batchWriter.accept(batch);
+                if (!batch.scripts.isEmpty()) {
+                    synchronized (savedScripts) {
+                        batch.scripts.keySet().forEach(hash -> savedScripts.put(hash, Boolean.TRUE));
+                    }
+                }
+                written.addAndGet(operations.size());
+                batchCount.incrementAndGet();
+                return;
+            } catch (Throwable e) {
+                if (retry >= maxRetries) {
+                    failed.addAndGet(operations.size());
+                    log.warn("写入脚本运行记录失败 | 操作数: {} | 重试次数: {}", operations.size(), retry, e);
+                    return;
+                }
+                retried.incrementAndGet();
+                log.warn("写入脚本运行记录失败，{}ms后重试 | 操作数: {} | 第{}次重试 | {}", retryInterval, operations.size(), retry + 1, e.getMessage());
+            }
+            try {
+                Thread.sleep(retryInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.addAndGet(operations.size());
+                return;
+            }
+            retryInterval = retryInterval * 2;
+        }
+    }
+
+    /**
+     * hash对应的脚本内容是否已经写入(code_run_script)
+     */
+    public boolean isScriptSaved(String hash) {
+        synchronized (savedScripts) {
+            return savedScripts.containsKey(hash);
+        }
+    }
+
+    /**
+     * 在一个事务中写入的数据
+     */
+    @Getter
+    public static class Batch {
+        /**
+         * 新的脚本内容 Map<hash, 脚本内容>
+         */
+        private final Map<String, String> scripts = new LinkedHashMap<>();
+        /**
+         * 新的运行记录(可能已经结束)
+         */
+        private final List<CodeRunLog> inserts = new ArrayList<>();
+        /**
+         * 追加到已写入的运行记录的日志
+         */
+        private final List<TupleTow<Long, String>> appendLogs = new ArrayList<>();
+        /**
+         * 已写入的运行记录的结束状态
+         */
+        private final List<CodeRunLog> updates = new ArrayList<>();
+    }
+
+    private static class Operation {
+        private static final int Start = 1;
+        private static final int End = 2;
+        private static final int Append_Log = 3;
+
+        private final int type;
+        private final CodeRunLog codeRunLog;
+        private final String addLog;
+
+        Operation(int type, CodeRunLog codeRunLog, String addLog) {
+            this.type = type;
+            this.codeRunLog = codeRunLog;
+            this.addLog = addLog;
+        }
+    }
+}
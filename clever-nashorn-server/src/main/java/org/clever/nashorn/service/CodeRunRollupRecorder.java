@@ -0,0 +1,273 @@
+package org.clever.nashorn.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.config.CodeRunRollupConfig;
+import org.clever.nashorn.entity.CodeRunRollup;
+import org.clever.nashorn.entity.EnumConstant;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 脚本运行统计(在内存中按 分钟+脚本文件 汇总，定时写入code_run_rollup) <br />
+ * 1. 执行脚本的线程只累加计数器(LongAdder)，不访问数据库 <br />
+ * 2. 一分钟结束(再等待几秒)之后才写入这一分钟的统计，写入是累加的(insert ... on duplicate key update)，多个实例可以写同一张表 <br />
+ * 3. 写入失败(事务已回滚)时把统计合并回内存，下次再写入，最多保留 Max_Pending_Minutes 分钟
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/30 10:00 <br/>
+ */
+@Slf4j
+public class CodeRunRollupRecorder {
+    private static final long Minute = 60_000;
+    /**
+     * 一分钟结束后等待正在累加的线程的时间
+     */
+    private static final long Flush_Delay = 5_000;
+    /**
+     * 执行时间分布的上限(单位:微秒)，最后一个区间没有上限
+     */
+    private static final long[] Latency_Bounds = {10_000, 50_000, 100_000, 500_000, 1_000_000, 5_000_000};
+    /**
+     * 写入一直失败时内存中最多保留的分钟数(超过后丢弃最旧的统计)
+     */
+    private static final int Max_Pending_Minutes = 24 * 60;
+
+    @Getter
+    private final CodeRunRollupConfig config;
+    /**
+     * 写入数据库
+     */
+    private final Consumer<List<CodeRunRollup>> writer;
+    /**
+     * Map<分钟(时间戳), Map<脚本文件ID, 统计>>
+     */
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Bucket>> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile long flushCount;
+    private volatile long failedCount;
+    private volatile long droppedMinutes;
+
+    public CodeRunRollupRecorder(CodeRunRollupConfig config, Consumer<List<CodeRunRollup>> writer) {
+        this.config = config;
+        this.writer = writer;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "code-run-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Math.max(1000, config.getFlushInterval());
+        this.scheduler.scheduleWithFixedDelay(() -> flush(false), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次脚本执行
+     *
+     * @param jsCodeId       系统JS代码ID
+     * @param status         脚本运行状态
+     * @param runTime        执行时间(单位:微秒)
+     * @param cpuTime        CPU时间(单位:微秒)，可以为null
+     * @param allocatedBytes 分配的堆内存(单位:字节)，可以为null
+     */
+    public void record(Long jsCodeId, Integer status, long runTime, Long cpuTime, Long allocatedBytes) {
+        if (jsCodeId == null) {
+            return;
+        }
+        final long minute = System.currentTimeMillis() / Minute * Minute;
+        buckets.computeIfAbsent(minute, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(jsCodeId, key -> new Bucket())
+                .add(status, runTime, cpuTime, allocatedBytes);
+    }
+
+    /**
+     * 写入已经结束的分钟的统计
+     *
+     * @param all 是否写入全部统计(包括当前这一分钟)
+     */
+    public void flush(boolean all) {
+        final long now = System.currentTimeMillis();
+        List<CodeRunRollup> rollups = new ArrayList<>();
+        Map<Long, ConcurrentHashMap<Long, Bucket>> removed = new TreeMap<>();
+        for (Long minute : new TreeSet<>(buckets.keySet())) {
+            if (!all && minute + Minute + Flush_Delay > now) {
+                continue;
+            }
+            ConcurrentHashMap<Long, Bucket> minuteBuckets = buckets.remove(minute);
+            if (minuteBuckets == null) {
+                continue;
+            }
+            removed.put(minute, minuteBuckets);
+            final Date bucketTime = new Date(minute);
+            minuteBuckets.forEach((jsCodeId, bucket) -> rollups.add(bucket.toRollup(jsCodeId, bucketTime)));
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+        try {
+            writer.accept(rollups);
+            flushCount++;
+        } catch (Throwable e) {
+            failedCount++;
+            log.warn("写入脚本运行统计失败，下次再写入 | 统计数: {}", rollups.size(), e);
+            removed.forEach(this::mergeBack);
+            dropOldest();
+        }
+    }
+
+    /**
+     * 把写入失败的统计合并回内存(这期间可能已经有新的统计)
+     */
+    private void mergeBack(Long minute, ConcurrentHashMap<Long, Bucket> failed) {
+        buckets.merge(minute, failed, (current, old) -> {
+            old.forEach((jsCodeId, bucket) -> current.merge(jsCodeId, bucket, Bucket::addAll));
+            return current;
+        });
+    }
+
+    /**
+     * 内存中的统计超过 Max_Pending_Minutes 分钟时丢弃最旧的
+     */
+    private void dropOldest() {
+        if (buckets.size() <= Max_Pending_Minutes) {
+            return;
+        }
+        TreeSet<Long> minutes = new TreeSet<>(buckets.keySet());
+        while (minutes.size() > Max_Pending_Minutes) {
+            Long minute = minutes.pollFirst();
+            if (buckets.remove(minute) != null) {
+                droppedMinutes++;
+                log.warn("写入脚本运行统计一直失败，丢弃统计 | 分钟: {}", new Date(minute));
+            }
+        }
+    }
+
+    /**
+     * 统计: 未写入的分钟数、写入次数、写入失败次数、丢弃的分钟数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingMinutes", buckets.size());
+        stats.put("flushCount", flushCount);
+        stats.put("failedCount", failedCount);
+        stats.put("droppedMinutes", droppedMinutes);
+        return stats;
+    }
+
+    /**
+     * 停止定时任务并写入全部统计
+     */
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+    }
+
+    /**
+     * 一个脚本文件一分钟的统计
+     */
+    private static class Bucket {
+        private final LongAdder runCount = new LongAdder();
+        private final LongAdder successCount = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder timeoutCount = new LongAdder();
+        private final LongAdder cpuLimitCount = new LongAdder();
+        private final LongAdder sumRunTime = new LongAdder();
+        private final LongAccumulator maxRunTime = new LongAccumulator(Long::max, 0);
+        private final LongAdder sumCpuTime = new LongAdder();
+        private final LongAccumulator maxCpuTime = new LongAccumulator(Long::max, 0);
+        private final LongAdder sumAllocatedBytes = new LongAdder();
+        private final LongAccumulator maxAllocatedBytes = new LongAccumulator(Long::max, 0);
+        private final LongAdder[] latency = new LongAdder[Latency_Bounds.length + 1];
+
+        Bucket() {
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] = new LongAdder();
+            }
+        }
+
+        void add(Integer status, long runTime, Long cpuTime, Long allocatedBytes) {
+            runCount.increment();
+            if (EnumConstant.Status_2.equals(status)) {
+                successCount.increment();
+            } else if (EnumConstant.Status_3.equals(status)) {
+                errorCount.increment();
+            } else if (EnumConstant.Status_4.equals(status)) {
+                timeoutCount.increment();
+            } else if (EnumConstant.Status_5.equals(status)) {
+                cpuLimitCount.increment();
+            }
+            sumRunTime.add(runTime);
+            maxRunTime.accumulate(runTime);
+            if (cpuTime != null) {
+                sumCpuTime.add(cpuTime);
+                maxCpuTime.accumulate(cpuTime);
+            }
+            if (allocatedBytes != null) {
+                sumAllocatedBytes.add(allocatedBytes);
+                maxAllocatedBytes.accumulate(allocatedBytes);
+            }
+            int index = 0;
+            while (index < Latency_Bounds.length && runTime > Latency_Bounds[index]) {
+                index++;
+            }
+            latency[index].increment();
+        }
+
+        /**
+         * 合并另一个统计(写入失败时使用)
+         */
+        Bucket addAll(Bucket other) {
+            runCount.add(other.runCount.sum());
+            successCount.add(other.successCount.sum());
+            errorCount.add(other.errorCount.sum());
+            timeoutCount.add(other.timeoutCount.sum());
+            cpuLimitCount.add(other.cpuLimitCount.sum());
+            sumRunTime.add(other.sumRunTime.sum());
+            maxRunTime.accumulate(other.maxRunTime.get());
+            sumCpuTime.add(other.sumCpuTime.sum());
+            maxCpuTime.accumulate(other.maxCpuTime.get());
+            sumAllocatedBytes.add(other.sumAllocatedBytes.sum());
+            maxAllocatedBytes.accumulate(other.maxAllocatedBytes.get());
+            for (int i = 0; i < latency.length; i++) {
+                latency[i].add(other.latency[i].sum());
+            }
+            return this;
+        }
+
+        CodeRunRollup toRollup(Long jsCodeId, Date bucketTime) {
+            CodeRunRollup rollup = new CodeRunRollup();
+            rollup.setJsCodeId(jsCodeId);
+            rollup.setBucketTime(bucketTime);
+            rollup.setRunCount(runCount.sum());
+            rollup.setSuccessCount(successCount.sum());
+            rollup.setErrorCount(errorCount.sum());
+            rollup.setTimeoutCount(timeoutCount.sum());
+            rollup.setCpuLimitCount(cpuLimitCount.sum());
+            rollup.setSumRunTime(sumRunTime.sum());
+            rollup.setMaxRunTime(maxRunTime.get());
+            rollup.setSumCpuTime(sumCpuTime.sum());
+            rollup.setMaxCpuTime(maxCpuTime.get());
+            rollup.setSumAllocatedBytes(sumAllocatedBytes.sum());
+            rollup.setMaxAllocatedBytes(maxAllocatedBytes.get());
+            rollup.setLatency10ms(latency[0].sum());
+            rollup.setLatency50ms(latency[1].sum());
+            rollup.setLatency100ms(latency[2].sum());
+            rollup.setLatency500ms(latency[3].sum());
+            rollup.setLatency1s(latency[4].sum());
+            rollup.setLatency5s(latency[5].sum());
+            rollup.setLatencyOver5s(latency[6].sum());
+            return rollup;
+        }
+    }
+}
@@ -190,11 +190,11 @@ public class JsCodeFileService {
                 });
                 updateList.forEach(file -> jsCodeFileMapper.updateById(file));
                 childList = jsCodeFileMapper.selectBatchIds(updateList.stream().map(JsCodeFile::getId).collect(Collectors.toSet()));
-                childList.forEach(file -> applicationContext.publishEvent(new JsCodeFileChangeEvent(this, JsCodeFileChangeEnum.Update, file)));
+                childList.forEach(file -> applicationContext.publishEvent(new JsCodeFileChangeEvent(this, JsCodeFileChangeEnum.Rename, file)));
             }
         }
         // 发布更新事件
-        applicationContext.publishEvent(new JsCodeFileChangeEvent(this, JsCodeFileChangeEnum.Update, update));
+        applicationContext.publishEvent(new JsCodeFileChangeEvent(this, updateFullPath ? JsCodeFileChangeEnum.Rename : JsCodeFileChangeEnum.Update, update));
         return update;
     }
 
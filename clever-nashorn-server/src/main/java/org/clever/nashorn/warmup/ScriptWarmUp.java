@@ -0,0 +1,271 @@
+package org.clever.nashorn.warmup;
+
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.ScriptModuleInstance;
+import org.clever.nashorn.cache.BundleJsCodeFileCache;
+import org.clever.nashorn.cache.JsCodeFileCache;
+import org.clever.nashorn.cache.JsCodeFileCacheService;
+import org.clever.nashorn.cache.MemoryJsCodeFileCache;
+import org.clever.nashorn.config.GlobalConfig;
+import org.clever.nashorn.config.MultipleCanalConfig;
+import org.clever.nashorn.config.ScriptWarmUpConfig;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.pool.ScriptModuleInstancePool;
+import org.clever.nashorn.utils.JsCodeFilePathUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 启动预热 <br />
+ * 应用启动完成后预编译所有 controller.js 和 Binlog 消费脚本(可选调用脚本导出的 warmup 函数)，
+ * 预热完成之前健康检查(/actuator/health)返回 DOWN，避免流量进入未预热的节点 <br />
+ * 编译结果和ModuleCache属于单个实例，所以先把池中空闲实例补足到 minIdle，再同时借出这些实例，
+ * 每个实例加载全部脚本(实例之间并行)，所有实例预热完成后才返回 UP；
+ * 之后按需创建的实例(超过 minIdle)第一次加载时仍需编译(开启持久化代码缓存时可以复用磁盘上的编译结果)
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/24 09:50 <br/>
+ */
+@Slf4j
+@Component("scriptWarmUp")
+public class ScriptWarmUp implements ApplicationListener<ApplicationReadyEvent>, HealthIndicator {
+    /**
+     * 脚本导出的预热函数名
+     */
+    private static final String Warmup_Function = "warmup";
+    /**
+     * 处理请求脚本的文件名称
+     */
+    private static final String Handler_File_Name = "controller.js";
+
+    @Autowired
+    private GlobalConfig globalConfig;
+    @Autowired
+    private JsCodeFileCacheService jsCodeFileCacheService;
+    @Autowired
+    @Qualifier("HttpRequestJsHandler-JsCodeFileCache")
+    private JsCodeFileCache jsCodeFileCache;
+    @Autowired
+    @Qualifier("Global-ScriptModuleInstancePool")
+    private ScriptModuleInstancePool scriptModuleInstancePool;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicInteger finishedCount = new AtomicInteger(0);
+    private volatile boolean finished = false;
+    private volatile int totalCount = 0;
+    private volatile int instanceCount = 0;
+    private volatile long totalTime = 0;
+    private volatile List<WarmUpResult> results = Collections.emptyList();
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        ScriptWarmUpConfig config = getConfig();
+        if (!config.isEnable()) {
+            finished = true;
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                warmUp(config);
+            } catch (Throwable e) {
+                log.error("脚本预热失败", e);
+            } finally {
+                finished = true;
+            }
+        }, "script-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private ScriptWarmUpConfig getConfig() {
+        ScriptWarmUpConfig config = globalConfig.getScriptWarmUp();
+        if (config == null) {
+            config = new ScriptWarmUpConfig();
+            globalConfig.setScriptWarmUp(config);
+        }
+        return config;
+    }
+
+    private void warmUp(ScriptWarmUpConfig config) throws Exception {
+        final long startTime = System.currentTimeMillis();
+        Set<JsCodeFile> allFile;
+        if (jsCodeFileCache instanceof BundleJsCodeFileCache) {
+            // 脚本已经在发布包中，不需要查询数据库
+            allFile = ((BundleJsCodeFileCache) jsCodeFileCache).findAll();
+        } else {
+            // 一次性加载所有脚本到 JsCodeFileCache(整体替换，预热期间的请求不会出现缓存未命中)
+            allFile = jsCodeFileCacheService.findAll();
+            if (jsCodeFileCache instanceof MemoryJsCodeFileCache) {
+                ((MemoryJsCodeFileCache) jsCodeFileCache).replaceAll(allFile);
+            } else {
+                allFile.forEach(jsCodeFileCache::put);
+            }
+        }
+        // 需要预热的脚本
+        List<String> fullPathList = allFile.stream()
+                .filter(this::needWarmUp)
+                .map(file -> JsCodeFilePathUtils.concat(file.getFilePath(), file.getName()))
+                .sorted()
+                .collect(Collectors.toList());
+        totalCount = fullPathList.size();
+        // 补足空闲实例，同时借出 minIdle 个实例(保证是不同的实例)
+        scriptModuleInstancePool.preparePool();
+        final int borrowCount = Math.max(1, scriptModuleInstancePool.getConfig().getMinIdle());
+        List<ScriptModuleInstance> instances = new ArrayList<>(borrowCount);
+        try {
+            for (int i = 0; i < borrowCount; i++) {
+                instances.add(scriptModuleInstancePool.borrow());
+            }
+            instanceCount = instances.size();
+            int parallelism = config.getParallelism() > 0 ? config.getParallelism() : Runtime.getRuntime().availableProcessors();
+            parallelism = Math.max(1, Math.min(parallelism, instanceCount));
+            log.info("脚本预热开始 | 文件数 {} | 实例数 {} | 并行数 {}", totalCount, instanceCount, parallelism);
+            ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+            List<List<WarmUpResult>> instanceResults;
+            try {
+                // 每个实例只在一个线程中使用
+                instanceResults = forkJoinPool.submit(() -> instances.parallelStream()
+                        .map(instance -> fullPathList.stream()
+                                .map(fullPath -> warmUp(instance, fullPath, config.isInvokeWarmupFunction()))
+                                .collect(Collectors.toList()))
+                        .collect(Collectors.toList())
+                ).get();
+            } finally {
+                forkJoinPool.shutdown();
+            }
+            results = merge(fullPathList, instanceResults);
+        } finally {
+            instances.forEach(scriptModuleInstancePool::giveBack);
+        }
+        totalTime = System.currentTimeMillis() - startTime;
+        long failCount = results.stream().filter(result -> result.getError() != null).count();
+        log.info("脚本预热完成 | 文件数 {} | 实例数 {} | 失败数 {} | 总耗时 {}ms", totalCount, instanceCount, failCount, totalTime);
+        for (WarmUpResult result : getSlowest(config.getSlowestTop())) {
+            log.info("脚本预热耗时 | {} | 编译 {}ms | warmup {}ms", result.getFullPath(), result.getCompileTime(), result.getWarmupTime());
+        }
+    }
+
+    /**
+     * 在指定的实例中预热单个脚本
+     */
+    private WarmUpResult warmUp(ScriptModuleInstance scriptModuleInstance, String fullPath, boolean invokeWarmupFunction) {
+        WarmUpResult result = new WarmUpResult(fullPath);
+        try {
+            long startTime = System.currentTimeMillis();
+            ScriptObjectMirror exports = scriptModuleInstance.useJs(fullPath);
+            result.setCompileTime(System.currentTimeMillis() - startTime);
+            if (invokeWarmupFunction) {
+                Object warmup = exports.getMember(Warmup_Function);
+                if (warmup instanceof ScriptObjectMirror && ((ScriptObjectMirror) warmup).isFunction()) {
+                    startTime = System.currentTimeMillis();
+                    exports.callMember(Warmup_Function);
+                    result.setWarmupTime(System.currentTimeMillis() - startTime);
+                }
+            }
+        } catch (Throwable e) {
+            result.setError(e.getMessage());
+            log.warn("脚本预热失败 | {}", fullPath, e);
+        } finally {
+            finishedCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * 合并各个实例中同一个脚本的预热结果(取最大耗时，保留第一个错误)
+     */
+    private List<WarmUpResult> merge(List<String> fullPathList, List<List<WarmUpResult>> instanceResults) {
+        List<WarmUpResult> merged = new ArrayList<>(fullPathList.size());
+        for (int i = 0; i < fullPathList.size(); i++) {
+            WarmUpResult result = new WarmUpResult(fullPathList.get(i));
+            for (List<WarmUpResult> list : instanceResults) {
+                WarmUpResult item = list.get(i);
+                result.setCompileTime(Math.max(result.getCompileTime(), item.getCompileTime()));
+                result.setWarmupTime(Math.max(result.getWarmupTime(), item.getWarmupTime()));
+                if (result.getError() == null) {
+                    result.setError(item.getError());
+                }
+            }
+            merged.add(result);
+        }
+        return merged;
+    }
+
+    /**
+     * 判断是否需要预热(controller.js、[method]_controller.js 以及 Binlog 消费脚本)
+     */
+    private boolean needWarmUp(JsCodeFile file) {
+        if (!Objects.equals(file.getNodeType(), EnumConstant.Node_Type_1)
+                || !Objects.equals(file.getBizType(), EnumConstant.DefaultBizType)
+                || !Objects.equals(file.getGroupName(), EnumConstant.DefaultGroupName)) {
+            return false;
+        }
+        if (file.getName().endsWith(Handler_File_Name)) {
+            return true;
+        }
+        MultipleCanalConfig multipleCanal = globalConfig.getMultipleCanal();
+        if (multipleCanal == null || multipleCanal.getCanalConfigMap() == null) {
+            return false;
+        }
+        for (String destination : multipleCanal.getCanalConfigMap().keySet()) {
+            if (file.getFilePath().startsWith(String.format("/%s/", destination))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 耗时最长的脚本
+     */
+    public List<WarmUpResult> getSlowest(int top) {
+        return results.stream()
+                .sorted(Comparator.comparingLong((WarmUpResult result) -> result.getCompileTime() + Math.max(result.getWarmupTime(), 0)).reversed())
+                .limit(top)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 所有脚本的预热结果
+     */
+    public List<WarmUpResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    @Override
+    public Health health() {
+        if (!finished) {
+            return Health.down()
+                    .withDetail("status", "预热中")
+                    .withDetail("progress", String.format("%s/%s", finishedCount.get(), totalCount * Math.max(instanceCount, 1)))
+                    .build();
+        }
+        long failCount = results.stream().filter(result -> result.getError() != null).count();
+        List<String> slowest = getSlowest(getConfig().getSlowestTop()).stream()
+                .map(result -> String.format("%s=%sms", result.getFullPath(), result.getCompileTime()))
+                .collect(Collectors.toList());
+        return Health.up()
+                .withDetail("fileCount", totalCount)
+                .withDetail("instanceCount", instanceCount)
+                .withDetail("failCount", failCount)
+                .withDetail("totalTime", totalTime)
+                .withDetail("slowest", slowest)
+                .build();
+    }
+}
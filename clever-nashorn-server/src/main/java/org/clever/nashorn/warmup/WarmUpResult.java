@@ -0,0 +1,35 @@
+package org.clever.nashorn.warmup;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 单个脚本文件的预热结果
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/24 09:42 <br/>
+ */
+@Data
+public class WarmUpResult implements Serializable {
+    /**
+     * 文件全路径
+     */
+    private String fullPath;
+    /**
+     * 加载编译耗时(毫秒)
+     */
+    private long compileTime;
+    /**
+     * 调用 warmup 函数耗时(毫秒，未调用为-1)
+     */
+    private long warmupTime = -1;
+    /**
+     * 预热失败的错误信息
+     */
+    private String error;
+
+    public WarmUpResult(String fullPath) {
+        this.fullPath = fullPath;
+    }
+}
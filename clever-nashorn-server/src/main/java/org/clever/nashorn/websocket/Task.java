@@ -13,7 +13,10 @@ import org.clever.nashorn.websocket.utils.WebSocketCloseSessionUtils;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -159,11 +162,10 @@ public abstract class Task<T extends WebSocketTaskReq> {
     /**
      * 发送消息到指定的客户端
      *
-     * @param session WebSocket连接
-     * @param object  消息对象
+     * @param session     WebSocket连接
+     * @param textMessage 序列化好的消息
      */
-    private void sendMessage(WebSocketSession session, Object object) {
-        TextMessage textMessage = new TextMessage(Jackson_Mapper.toJson(object));
+    private void sendMessage(WebSocketSession session, TextMessage textMessage) {
         try {
             if (session.isOpen()) {
                 session.sendMessage(textMessage);
@@ -195,13 +197,31 @@ public abstract class Task<T extends WebSocketTaskReq> {
      * @param object 消息对象
      */
     protected void sendMessage(Object object) {
+        sendMessages(Collections.singletonList(object));
+    }
+
+    /**
+     * 批量发送消息到所有的客户端(每个消息只序列化一次)
+     *
+     * @param objects 消息对象
+     */
+    protected void sendMessages(List<?> objects) {
+        if (objects.isEmpty() || Session_Set.isEmpty()) {
+            return;
+        }
+        List<TextMessage> textMessages = new ArrayList<>(objects.size());
+        for (Object object : objects) {
+            textMessages.add(new TextMessage(Jackson_Mapper.toJson(object)));
+        }
         Set<WebSocketSession> rmSet = new HashSet<>();
         for (WebSocketSession session : Session_Set) {
             if (!session.isOpen()) {
                 rmSet.add(session);
                 continue;
             }
-            sendMessage(session, object);
+            for (TextMessage textMessage : textMessages) {
+                sendMessage(session, textMessage);
+            }
         }
         // 移除关闭了的Session
         Session_Set.removeAll(rmSet);
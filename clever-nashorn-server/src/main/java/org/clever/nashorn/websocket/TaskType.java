@@ -13,4 +13,8 @@ public enum TaskType {
      * 监听日志
      */
     ListenerLogs,
+    /**
+     * 脚本采样分析
+     */
+    ScriptProfiler,
 }
@@ -4,14 +4,19 @@ import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import lombok.extern.slf4j.Slf4j;
 import org.clever.common.utils.IDCreateUtils;
 import org.clever.common.utils.spring.SpringContextHolder;
+import org.clever.common.utils.tuples.TupleTow;
 import org.clever.nashorn.ScriptModuleInstance;
 import org.clever.nashorn.cache.MemoryJsCodeFileCache;
 import org.clever.nashorn.dto.request.DebugReq;
+import org.clever.nashorn.entity.JsCodeFile;
 import org.clever.nashorn.folder.DatabaseFolder;
 import org.clever.nashorn.folder.Folder;
 import org.clever.nashorn.internal.Console;
 import org.clever.nashorn.module.cache.MemoryModuleCache;
 import org.clever.nashorn.module.cache.ModuleCache;
+import org.clever.nashorn.service.CodeRunLogService;
+import org.clever.nashorn.utils.JsCodeFilePathUtils;
+import org.clever.nashorn.utils.ThreadResourceUsage;
 import org.clever.nashorn.websocket.Task;
 import org.clever.nashorn.websocket.TaskType;
 import org.clever.nashorn.websocket.WebSocketConsole;
@@ -27,12 +32,15 @@ import java.util.Map;
 public class DebugTask extends Task<DebugReq> {
 
     private final ScriptModuleInstance scriptModuleInstance;
+    private final MemoryJsCodeFileCache jsCodeFileCache;
+    private final CodeRunLogService codeRunLogService;
 
     public DebugTask(DebugReq debugReq) {
         // (uuid)path
         super(String.format("(%s)%s", IDCreateUtils.uuid(), debugReq.getFileFullPath()), TaskType.DebugJs);
         // Folder rootFolder = FileSystemFolder.create(new File(debugReq.getFilePath()));
-        MemoryJsCodeFileCache jsCodeFileCache = new MemoryJsCodeFileCache();
+        jsCodeFileCache = new MemoryJsCodeFileCache();
+        codeRunLogService = SpringContextHolder.getBean(CodeRunLogService.class);
         Folder rootFolder = new DatabaseFolder(debugReq.getBizType(), debugReq.getGroupName(), jsCodeFileCache);
         ModuleCache moduleCache = new MemoryModuleCache();
         Console console = new WebSocketConsole(debugReq.getBizType(), debugReq.getGroupName(), debugReq.getFileFullPath(), this);
@@ -45,7 +53,22 @@ public class DebugTask extends Task<DebugReq> {
     protected void doStart(DebugReq message, boolean verify) {
         execTask(() -> {
             ScriptObjectMirror scriptObjectMirror = scriptModuleInstance.useJs(message.getFileFullPath());
-            scriptObjectMirror.callMember(message.getFucName());
+            TupleTow<String, String> tupleTow = JsCodeFilePathUtils.getParentPath(message.getFileFullPath());
+            JsCodeFile jsCodeFile = jsCodeFileCache.getFile(message.getBizType(), message.getGroupName(), tupleTow.getValue1(), tupleTow.getValue2());
+            Long codeRunLogId = jsCodeFile == null ? null : codeRunLogService.startLog(jsCodeFile);
+            ThreadResourceUsage usage = ThreadResourceUsage.start();
+            boolean failure = false;
+            try {
+                scriptObjectMirror.callMember(message.getFucName());
+            } catch (Throwable e) {
+                failure = true;
+                throw e;
+            } finally {
+                usage.stop();
+                if (codeRunLogId != null) {
+                    codeRunLogService.endLog(codeRunLogId, CodeRunLogService.getRunStatus(null, failure), usage);
+                }
+            }
             // Thread.sleep(50);
             stop();
         });
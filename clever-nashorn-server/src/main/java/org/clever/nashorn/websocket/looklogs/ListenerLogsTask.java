@@ -35,9 +35,9 @@ public class ListenerLogsTask extends Task<ListenerLogsReq> {
     }
 
     /**
-     * 获取控制台名称
+     * 获取控制台名称(Console 创建时计算一次，之后使用 {@link #hasListener(String)}、{@link #sendMessage(String, Object)})
      */
-    private static String getListenerForJsFileId(AbstractConsole console) {
+    public static String getListenerForJsFileId(AbstractConsole console) {
         return String.format("%s.%s#%s", console.getBizType(), console.getGroupName(), JsCodeFilePathUtils.concat(console.getFilePath(), console.getFileName()));
     }
 
@@ -81,7 +81,25 @@ public class ListenerLogsTask extends Task<ListenerLogsReq> {
      * @param object 消息对象
      */
     public static void sendMessage(AbstractConsole target, Object object) {
-        final String listenerForJsFileId = ListenerLogsTask.getListenerForJsFileId(target);
+        sendMessage(ListenerLogsTask.getListenerForJsFileId(target), object);
+    }
+
+    /**
+     * 是否有客户端在监听
+     *
+     * @param listenerForJsFileId 控制台名称
+     */
+    public static boolean hasListener(String listenerForJsFileId) {
+        return !ListenerLogsTask_Map.isEmpty() && ListenerLogsTask_Map.containsKey(listenerForJsFileId);
+    }
+
+    /**
+     * 发送消息到所有的客户端
+     *
+     * @param listenerForJsFileId 控制台名称
+     * @param object              消息对象
+     */
+    public static void sendMessage(String listenerForJsFileId, Object object) {
         ListenerLogsTask listenerLogsTask = ListenerLogsTask.ListenerLogsTask_Map.get(listenerForJsFileId);
         if (listenerLogsTask == null) {
             return;
@@ -89,6 +107,20 @@ public class ListenerLogsTask extends Task<ListenerLogsReq> {
         listenerLogsTask.sendMessage(object);
     }
 
+    /**
+     * 批量发送消息到所有的客户端
+     *
+     * @param listenerForJsFileId 控制台名称
+     * @param objects             消息对象
+     */
+    public static void sendMessages(String listenerForJsFileId, List<?> objects) {
+        ListenerLogsTask listenerLogsTask = ListenerLogsTask.ListenerLogsTask_Map.get(listenerForJsFileId);
+        if (listenerLogsTask == null) {
+            return;
+        }
+        listenerLogsTask.sendMessages(objects);
+    }
+
     /**
      * 监听的js文件名
      */
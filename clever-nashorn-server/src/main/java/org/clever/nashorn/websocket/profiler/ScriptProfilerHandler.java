@@ -0,0 +1,26 @@
+package org.clever.nashorn.websocket.profiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.dto.request.ScriptProfilerReq;
+import org.clever.nashorn.dto.response.ConsoleLogRes;
+import org.clever.nashorn.websocket.Handler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 10:35 <br/>
+ */
+@Component
+@Slf4j
+public class ScriptProfilerHandler extends Handler<ScriptProfilerReq, ScriptProfilerTask> {
+
+    @Override
+    public ScriptProfilerTask creatTask(WebSocketSession session, ScriptProfilerReq message, boolean verify) {
+        if (!verify) {
+            sendErrorMessage(session, ConsoleLogRes.newError("请求参数校验失败", null), true);
+            return null;
+        }
+        return new ScriptProfilerTask(message);
+    }
+}
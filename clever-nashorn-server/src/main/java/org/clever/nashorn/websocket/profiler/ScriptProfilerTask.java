@@ -0,0 +1,80 @@
+package org.clever.nashorn.websocket.profiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.common.utils.IDCreateUtils;
+import org.clever.common.utils.spring.SpringContextHolder;
+import org.clever.nashorn.config.ScriptProfilerConfig;
+import org.clever.nashorn.dto.request.ScriptProfilerReq;
+import org.clever.nashorn.profiler.Profile;
+import org.clever.nashorn.profiler.ScriptProfiler;
+import org.clever.nashorn.websocket.Task;
+import org.clever.nashorn.websocket.TaskType;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * 脚本采样分析任务，定时推送从开始采样累计的火焰图，到了采样时长或者所有连接都关闭后结束
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 10:40 <br/>
+ */
+@Slf4j
+public class ScriptProfilerTask extends Task<ScriptProfilerReq> {
+
+    private final ScriptProfiler scriptProfiler;
+    /**
+     * 采样时长(毫秒)
+     */
+    private final long duration;
+    private volatile Profile profile;
+
+    public ScriptProfilerTask(ScriptProfilerReq req) {
+        // (uuid)path
+        super(String.format("(%s)%s", IDCreateUtils.uuid(), req.getFileFullPath()), TaskType.ScriptProfiler);
+        scriptProfiler = SpringContextHolder.getBean(ScriptProfiler.class);
+        ScriptProfilerConfig config = scriptProfiler.getConfig();
+        int seconds = req.getDuration() == null ? config.getDefaultDuration() : req.getDuration();
+        seconds = Math.min(seconds, config.getMaxDuration());
+        duration = seconds * 1000L;
+        // 正常情况下采样结束后任务自己停止，超时由 Handler 强制停止
+        this.runTimeOut = seconds + 10;
+    }
+
+    @Override
+    protected void doStart(ScriptProfilerReq message, boolean verify) {
+        final Profile current = scriptProfiler.start(message.getFileFullPath());
+        profile = current;
+        final long pushInterval = Math.max(100, scriptProfiler.getConfig().getPushInterval());
+        execTask(() -> {
+            try {
+                long remaining = duration;
+                while (!isStop() && remaining > 0) {
+                    Thread.sleep(Math.min(pushInterval, remaining));
+                    // 客户端都已断开
+                    removeCloseSession();
+                    if (getWebSocketSessionSize() <= 0) {
+                        break;
+                    }
+                    sendMessage(current.toRes(false));
+                    remaining = duration - (System.currentTimeMillis() - current.getStartTime());
+                }
+            } finally {
+                scriptProfiler.stop(current);
+            }
+            sendMessage(current.toRes(true));
+            log.info("脚本采样分析结束 | {} | 采样次数 {}", current.getFileFullPath(), current.getSampleCount());
+            stop();
+        });
+    }
+
+    @Override
+    protected void doStop() {
+        Profile current = profile;
+        if (current != null) {
+            scriptProfiler.stop(current);
+        }
+    }
+
+    @Override
+    protected void handleMessage(WebSocketSession session, ScriptProfilerReq message, boolean verify) {
+    }
+}
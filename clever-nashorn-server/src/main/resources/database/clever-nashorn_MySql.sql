@@ -63,11 +63,14 @@ create table code_run_log
 (
     id                  bigint          not null        auto_increment                          comment '主键id',
     js_code_id          bigint          not null                                                comment '系统JS代码ID(js_code_file.id)',
-    js_code             mediumtext      not null                                                comment '脚本内容',
+    js_code             mediumtext                                                              comment '脚本内容(已废弃，使用js_code_hash)',
+    js_code_hash        varchar(64)                                                             comment '脚本内容hash(code_run_script.js_code_hash)',
     run_start           datetime(3)     not null                                                comment '运行开始时间',
     run_end             datetime(3)                                                             comment '运行结束时间',
     run_log             mediumtext      not null        default ''                              comment '运行日志',
-    status              int(1)          not null        default 1                               comment '脚本运行状态：1-运行中，2-成功，3-异常，4-超时，...',
+    status              int(1)          not null        default 1                               comment '脚本运行状态：1-运行中，2-成功，3-异常，4-超时，5-超出CPU时间限制，...',
+    cpu_time            bigint                                                                  comment 'CPU时间(单位:微秒)',
+    allocated_bytes     bigint                                                                  comment '分配的堆内存(单位:字节)',
     create_at           datetime(3)     not null        default current_timestamp(3)            comment '创建时间',
     update_at           datetime(3)                     on update current_timestamp(3)          comment '更新时间',
     primary key (id)
@@ -80,6 +83,58 @@ create index code_run_log_run_end on code_run_log (run_end);
 --------------------------------------------------------------------------------------------------------------------------*/
 
 
+/* ====================================================================================================================
+    code_run_rollup -- JS代码运行统计(按脚本文件每分钟汇总)
+==================================================================================================================== */
+create table code_run_rollup
+(
+    id                  bigint          not null        auto_increment                          comment '主键id',
+    js_code_id          bigint          not null                                                comment '系统JS代码ID(js_code_file.id)',
+    bucket_time         datetime        not null                                                comment '统计时间(运行结束时间所在的分钟)',
+    run_count           bigint          not null        default 0                               comment '运行次数',
+    success_count       bigint          not null        default 0                               comment '成功次数',
+    error_count         bigint          not null        default 0                               comment '异常次数',
+    timeout_count       bigint          not null        default 0                               comment '超时次数',
+    cpu_limit_count     bigint          not null        default 0                               comment '超出CPU时间限制次数',
+    sum_run_time        bigint          not null        default 0                               comment '执行时间合计(单位:微秒)',
+    max_run_time        bigint          not null        default 0                               comment '执行时间最大值(单位:微秒)',
+    sum_cpu_time        bigint          not null        default 0                               comment 'CPU时间合计(单位:微秒)',
+    max_cpu_time        bigint          not null        default 0                               comment 'CPU时间最大值(单位:微秒)',
+    sum_allocated_bytes bigint          not null        default 0                               comment '分配的堆内存合计(单位:字节)',
+    max_allocated_bytes bigint          not null        default 0                               comment '分配的堆内存最大值(单位:字节)',
+    latency_10ms        bigint          not null        default 0                               comment '执行时间 <=10ms 的次数',
+    latency_50ms        bigint          not null        default 0                               comment '执行时间 (10ms, 50ms] 的次数',
+    latency_100ms       bigint          not null        default 0                               comment '执行时间 (50ms, 100ms] 的次数',
+    latency_500ms       bigint          not null        default 0                               comment '执行时间 (100ms, 500ms] 的次数',
+    latency_1s          bigint          not null        default 0                               comment '执行时间 (500ms, 1s] 的次数',
+    latency_5s          bigint          not null        default 0                               comment '执行时间 (1s, 5s] 的次数',
+    latency_over_5s     bigint          not null        default 0                               comment '执行时间 >5s 的次数',
+    create_at           datetime(3)     not null        default current_timestamp(3)            comment '创建时间',
+    update_at           datetime(3)                     on update current_timestamp(3)          comment '更新时间',
+    primary key (id)
+) comment = 'JS代码运行统计';
+create unique index code_run_rollup_js_code_bucket on code_run_rollup (js_code_id, bucket_time);
+create index code_run_rollup_bucket_time on code_run_rollup (bucket_time);
+/*------------------------------------------------------------------------------------------------------------------------
+
+--------------------------------------------------------------------------------------------------------------------------*/
+
+
+/* ====================================================================================================================
+    code_run_script -- JS代码运行日志的脚本内容(按内容hash保存，相同的脚本只保存一次)
+==================================================================================================================== */
+create table code_run_script
+(
+    js_code_hash        varchar(64)     not null                                                comment '脚本内容hash(SHA-256)',
+    js_code             mediumtext      not null                                                comment '脚本内容',
+    create_at           datetime(3)     not null        default current_timestamp(3)            comment '创建时间',
+    primary key (js_code_hash)
+) comment = 'JS代码运行日志的脚本内容';
+/*------------------------------------------------------------------------------------------------------------------------
+
+--------------------------------------------------------------------------------------------------------------------------*/
+
+
 
 
 
@@ -0,0 +1,180 @@
+package org.clever.nashorn.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.config.AsyncConsoleConfig;
+import org.clever.nashorn.console.*;
+import org.clever.nashorn.internal.AbstractConsole;
+import org.clever.nashorn.internal.AllConsoleWrapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/28 17:10 <br/>
+ */
+@Slf4j
+public class AsyncConsoleDispatcherTest {
+
+    private static ConsoleEvent newEvent(String text) {
+        return new ConsoleEvent(null, AbstractConsole.Level.Info, text, Collections.emptyList());
+    }
+
+    /**
+     * 缓冲区满了丢弃最旧的日志
+     */
+    @Test
+    public void t1() {
+        ConsoleRingBuffer ringBuffer = new ConsoleRingBuffer(16);
+        ConsoleRingBuffer.Cursor cursor = ringBuffer.newCursor();
+        for (int i = 0; i < 100; i++) {
+            ringBuffer.publish(newEvent("log-" + i));
+        }
+        ConsoleEvent first = cursor.poll();
+        Assert.assertNotNull(first);
+        Assert.assertEquals("log-84", first.getLogsText());
+        int count = 1;
+        while (cursor.poll() != null) {
+            count++;
+        }
+        Assert.assertEquals(16, count);
+        Assert.assertEquals(84, cursor.getDropped());
+    }
+
+    /**
+     * 慢的输出目标不会阻塞写日志的线程
+     */
+    @Test
+    public void t2() throws Exception {
+        AsyncConsoleConfig config = new AsyncConsoleConfig();
+        config.setBufferSize(1024);
+        AsyncConsoleDispatcher dispatcher = new AsyncConsoleDispatcher(config);
+        AtomicLong fastCount = new AtomicLong();
+        AtomicLong slowCount = new AtomicLong();
+        dispatcher.addSink(new CountSink("fast", fastCount, 0));
+        dispatcher.addSink(new CountSink("slow", slowCount, 5));
+        final int threadCount = 4;
+        final int count = 100_000;
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < count; j++) {
+                    dispatcher.publish(newEvent("log"));
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        log.info("### 写入 {} 条日志耗时 {}ms", threadCount * count, System.currentTimeMillis() - startTime);
+        dispatcher.close();
+        log.info("### {}", dispatcher.getStats());
+        Assert.assertTrue(slowCount.get() < fastCount.get());
+    }
+
+    /**
+     * 生产者申请序号之后没有写入(写入前被终止)，消费者等待超时后跳过这个位置
+     */
+    @Test
+    public void t4() throws Exception {
+        ConsoleRingBuffer ringBuffer = new ConsoleRingBuffer(16);
+        ConsoleRingBuffer.Cursor cursor = ringBuffer.newCursor();
+        // 模拟 tail.getAndIncrement() 之后线程被终止
+        Field tail = ConsoleRingBuffer.class.getDeclaredField("tail");
+        tail.setAccessible(true);
+        ((AtomicLong) tail.get(ringBuffer)).getAndIncrement();
+        ringBuffer.publish(newEvent("after-stop"));
+        Assert.assertNull(cursor.poll());
+        Thread.sleep(200);
+        ConsoleEvent event = cursor.poll();
+        Assert.assertNotNull(event);
+        Assert.assertEquals("after-stop", event.getLogsText());
+        Assert.assertEquals(1, cursor.getDropped());
+        Assert.assertNull(cursor.poll());
+    }
+
+    /**
+     * 运行日志按ID合并，脚本执行结束时写入
+     */
+    @Test
+    public void t3() throws Exception {
+        AsyncConsoleConfig config = new AsyncConsoleConfig();
+        config.setRunLogFlushInterval(60_000);
+        AsyncConsoleDispatcher dispatcher = new AsyncConsoleDispatcher(config);
+        List<List<TupleTow<Long, String>>> writes = new CopyOnWriteArrayList<>();
+        dispatcher.addSink(new RunLogConsoleSink(config, writes::add));
+        // 不在执行脚本的线程中输出的日志不写入运行日志
+        Assert.assertFalse(dispatcher.publish(newEvent("no-run-log")));
+        for (long id = 1; id <= 3; id++) {
+            CodeRunLogContext.set(id);
+            for (int i = 0; i < 100; i++) {
+                dispatcher.publish(newEvent("log-" + id + "-" + i));
+            }
+            // debug级别默认不写入
+            dispatcher.publish(new ConsoleEvent(null, AbstractConsole.Level.Debug, "debug", Collections.emptyList()));
+            CodeRunLogContext.clear();
+            dispatcher.publishEnd(id);
+        }
+        long startTime = System.currentTimeMillis();
+        while (writes.stream().mapToInt(List::size).sum() < 3 && System.currentTimeMillis() - startTime < 3000) {
+            Thread.sleep(10);
+        }
+        dispatcher.close();
+        log.info("### 写入次数 {}", writes.size());
+        Map<Long, StringBuilder> runLogs = new HashMap<>();
+        for (List<TupleTow<Long, String>> logs : writes) {
+            for (TupleTow<Long, String> tupleTow : logs) {
+                runLogs.computeIfAbsent(tupleTow.getValue1(), id -> new StringBuilder()).append(tupleTow.getValue2());
+            }
+        }
+        Assert.assertEquals(3, runLogs.size());
+        for (long id = 1; id <= 3; id++) {
+            String runLog = runLogs.get(id).toString();
+            Assert.assertEquals(100, runLog.split("\n").length);
+            Assert.assertTrue(runLog.contains("[INFO] log-" + id + "-99"));
+            Assert.assertFalse(runLog.contains("debug"));
+        }
+    }
+
+    private static class CountSink implements ConsoleSink {
+        private final String name;
+        private final AtomicLong counter;
+        private final long sleep;
+
+        CountSink(String name, AtomicLong counter, long sleep) {
+            this.name = name;
+            this.counter = counter;
+            this.sleep = sleep;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean accept(AllConsoleWrapper console, AbstractConsole.Level level) {
+            return true;
+        }
+
+        @Override
+        public void write(List<ConsoleEvent> events) {
+            counter.addAndGet(events.size());
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.clever.nashorn.test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import jdk.nashorn.api.scripting.JSObject;
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.JSTools;
+import org.clever.nashorn.config.jackson.BindingsJsonSerializer;
+import org.clever.nashorn.utils.ScriptEngineUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * 对比 BindingsJsonSerializer 与原来的 JSTools.inspect 序列化方式
+ * <p>
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/27 16:40 <br/>
+ */
+@Slf4j
+public class BindingsJsonSerializerTest {
+    private static final String Script = "(function () {\n" +
+            "    var shared = {name: 'shared', time: new Date(1571990400000)};\n" +
+            "    var list = [];\n" +
+            "    for (var i = 0; i < 2000; i++) {\n" +
+            "        list.push({id: i, price: i / 4, name: 'item-' + i, tags: ['a', 'b', i], nested: {flag: i % 2 === 0, empty: null, missing: undefined, date: '2019-10-25T08:00:00.000Z'}});\n" +
+            "    }\n" +
+            "    var result = {total: list.length, list: list, shared1: shared, shared2: shared, fn: function (a) { return a; }, nan: NaN};\n" +
+            "    result.self = result;\n" +
+            "    return result;\n" +
+            "})()";
+
+    /**
+     * 原来的实现
+     */
+    private static class InspectSerializer extends JsonSerializer<JSObject> {
+        @Override
+        public void serialize(JSObject value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeRawValue(JSTools.inspect(value));
+        }
+    }
+
+    private static ObjectMapper newMapper(JsonSerializer<?> serializer) {
+        SimpleModule module = new SimpleModule();
+        //noinspection unchecked
+        module.addSerializer(JSObject.class, (JsonSerializer<JSObject>) serializer);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(module);
+        return objectMapper;
+    }
+
+    private static long benchmark(ObjectMapper objectMapper, ScriptObjectMirror value, int count) throws IOException {
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            objectMapper.writeValueAsString(value);
+        }
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * 输出结果一致
+     */
+    @Test
+    public void t1() throws Exception {
+        ScriptObjectMirror value = (ScriptObjectMirror) ScriptEngineUtils.creatEngine().eval(Script);
+        ObjectMapper inspectMapper = newMapper(new InspectSerializer());
+        ObjectMapper streamMapper = newMapper(BindingsJsonSerializer.instance);
+        String expected = inspectMapper.writeValueAsString(value);
+        String actual = streamMapper.writeValueAsString(value);
+        log.info("### {}", actual.substring(actual.length() - 300));
+        Assert.assertEquals(inspectMapper.readTree(expected), streamMapper.readTree(actual));
+    }
+
+    /**
+     * 性能对比
+     */
+    @Test
+    public void t2() throws Exception {
+        ScriptObjectMirror value = (ScriptObjectMirror) ScriptEngineUtils.creatEngine().eval(Script);
+        ObjectMapper inspectMapper = newMapper(new InspectSerializer());
+        ObjectMapper streamMapper = newMapper(BindingsJsonSerializer.instance);
+        // 预热
+        benchmark(inspectMapper, value, 20);
+        benchmark(streamMapper, value, 20);
+        final int count = 100;
+        long inspectTime = benchmark(inspectMapper, value, count);
+        long streamTime = benchmark(streamMapper, value, count);
+        log.info("### 序列化 {} 次 | inspect {}ms | BindingsJsonSerializer {}ms", count, inspectTime, streamTime);
+    }
+}
@@ -0,0 +1,179 @@
+package org.clever.nashorn.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.config.CodeRunLogWriterConfig;
+import org.clever.nashorn.entity.CodeRunLog;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.service.CodeRunLogWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/29 16:40 <br/>
+ */
+@Slf4j
+public class CodeRunLogWriterTest {
+
+    private static CodeRunLog newStart(long id) {
+        CodeRunLog codeRunLog = new CodeRunLog();
+        codeRunLog.setId(id);
+        codeRunLog.setJsCodeId(1L);
+        codeRunLog.setJsCode("exports.service = function () {};");
+        codeRunLog.setJsCodeHash("hash-1");
+        codeRunLog.setRunStart(new Date());
+        codeRunLog.setRunLog("");
+        codeRunLog.setStatus(EnumConstant.Status_1);
+        return codeRunLog;
+    }
+
+    private static CodeRunLog newEnd(long id, Integer status) {
+        CodeRunLog codeRunLog = new CodeRunLog();
+        codeRunLog.setId(id);
+        codeRunLog.setRunEnd(new Date());
+        codeRunLog.setStatus(status);
+        return codeRunLog;
+    }
+
+    /**
+     * 同一批中开始、追加日志、结束合并成一次insert，只保留第一次的结束状态，相同的脚本内容只写入一次
+     */
+    @Test
+    public void t1() {
+        CodeRunLogWriterConfig config = new CodeRunLogWriterConfig();
+        config.setEnable(false);
+        List<CodeRunLogWriter.Batch> batches = new CopyOnWriteArrayList<>();
+        CodeRunLogWriter writer = new CodeRunLogWriter(config, batches::add);
+        writer.start(newStart(1L));
+        writer.start(newStart(2L));
+        Assert.assertEquals(1, batches.get(0).getScripts().size());
+        Assert.assertEquals(0, batches.get(1).getScripts().size());
+
+        config.setEnable(true);
+        writer = new CodeRunLogWriter(config, batches::add);
+        batches.clear();
+        for (long id = 1; id <= 100; id++) {
+            writer.start(newStart(id));
+            writer.appendLogs(Collections.singletonList(TupleTow.creat(id, "log-" + id + "\n")));
+            writer.end(newEnd(id, EnumConstant.Status_3));
+            writer.end(newEnd(id, EnumConstant.Status_2));
+        }
+        writer.close();
+        log.info("### 事务数 {} | {}", batches.size(), writer.getStats());
+        // 后台线程可能把同一个运行记录的操作分到两批中
+        Map<Long, Integer> status = new HashMap<>();
+        Map<Long, String> runLog = new HashMap<>();
+        for (CodeRunLogWriter.Batch batch : batches) {
+            for (CodeRunLog codeRunLog : batch.getInserts()) {
+                status.put(codeRunLog.getId(), codeRunLog.getStatus());
+                runLog.put(codeRunLog.getId(), codeRunLog.getRunLog());
+            }
+            for (TupleTow<Long, String> tupleTow : batch.getAppendLogs()) {
+                runLog.merge(tupleTow.getValue1(), tupleTow.getValue2(), String::concat);
+            }
+            for (CodeRunLog codeRunLog : batch.getUpdates()) {
+                // 对应 update ... where status=1
+                status.computeIfPresent(codeRunLog.getId(), (id, old) -> EnumConstant.Status_1.equals(old) ? codeRunLog.getStatus() : old);
+            }
+        }
+        Assert.assertEquals(100, status.size());
+        for (long id = 1; id <= 100; id++) {
+            Assert.assertEquals(EnumConstant.Status_3, status.get(id));
+            Assert.assertEquals("log-" + id + "\n", runLog.get(id));
+        }
+        Assert.assertEquals(1, batches.stream().mapToInt(batch -> batch.getScripts().size()).sum());
+    }
+
+    /**
+     * 队列满了丢弃"开始"时，同一个运行记录的结束和日志也丢弃；
+     * 预留的空间只给"结束"使用，预留的空间也满了时"结束"最多等待 endWaitTimeout 后丢弃
+     */
+    @Test
+    public void t2() throws Exception {
+        CodeRunLogWriterConfig config = new CodeRunLogWriterConfig();
+        config.setQueueSize(16);
+        config.setBatchSize(1);
+        config.setEndWaitTimeout(100);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CodeRunLogWriter.Batch> batches = new CopyOnWriteArrayList<>();
+        CodeRunLogWriter writer = new CodeRunLogWriter(config, batch -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(batch);
+        });
+        writer.start(newStart(0L));
+        blocked.await();
+        // 预留 16/8=2 个空间，只能放入14个"开始"
+        for (long id = 1; id <= 16; id++) {
+            writer.start(newStart(id));
+        }
+        Assert.assertEquals(2L, writer.getDroppedCount());
+        writer.end(newEnd(16L, EnumConstant.Status_2));
+        writer.appendLogs(Collections.singletonList(TupleTow.creat(16L, "log-16\n")));
+        Assert.assertEquals(4L, writer.getDroppedCount());
+        Assert.assertEquals(0L, writer.getDroppedEndCount());
+        // 日志不能使用预留的空间
+        writer.appendLogs(Collections.singletonList(TupleTow.creat(1L, "log-1\n")));
+        Assert.assertEquals(1L, writer.getDroppedLogCount());
+        // 结束使用预留的空间
+        writer.end(newEnd(1L, EnumConstant.Status_2));
+        writer.end(newEnd(2L, EnumConstant.Status_2));
+        Assert.assertEquals(0L, writer.getDroppedEndCount());
+        // 预留的空间也满了，最多等待 endWaitTimeout
+        final long startTime = System.currentTimeMillis();
+        writer.end(newEnd(3L, EnumConstant.Status_2));
+        Assert.assertTrue(System.currentTimeMillis() - startTime < 2000);
+        Assert.assertEquals(1L, writer.getDroppedEndCount());
+        release.countDown();
+        writer.close();
+        Map<String, Object> stats = writer.getStats();
+        Assert.assertEquals(6L, stats.get("dropped"));
+        Assert.assertEquals(1L, stats.get("waited"));
+        for (CodeRunLogWriter.Batch batch : batches) {
+            batch.getInserts().forEach(codeRunLog -> Assert.assertNotEquals(Long.valueOf(16L), codeRunLog.getId()));
+            batch.getUpdates().forEach(codeRunLog -> Assert.assertNotEquals(Long.valueOf(16L), codeRunLog.getId()));
+            batch.getAppendLogs().forEach(tupleTow -> Assert.assertNotEquals(Long.valueOf(16L), tupleTow.getValue1()));
+        }
+        Assert.assertTrue(batches.stream().anyMatch(batch -> batch.getUpdates().stream().anyMatch(codeRunLog -> codeRunLog.getId() == 1L)));
+    }
+
+    /**
+     * 写入失败时整批重试
+     */
+    @Test
+    public void t3() {
+        CodeRunLogWriterConfig config = new CodeRunLogWriterConfig();
+        config.setMaxRetries(3);
+        config.setRetryInterval(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<CodeRunLogWriter.Batch> batches = new CopyOnWriteArrayList<>();
+        CodeRunLogWriter writer = new CodeRunLogWriter(config, batch -> {
+            if (calls.incrementAndGet() <= 2) {
+                throw new RuntimeException("数据库连接失败");
+            }
+            batches.add(batch);
+        });
+        writer.start(newStart(1L));
+        writer.end(newEnd(1L, EnumConstant.Status_2));
+        writer.close();
+        Map<String, Object> stats = writer.getStats();
+        Assert.assertEquals(0L, stats.get("failed"));
+        Assert.assertTrue((Long) stats.get("retried") >= 2L);
+        Assert.assertEquals(1L, batches.stream().mapToLong(batch -> batch.getInserts().size()).sum());
+    }
+}
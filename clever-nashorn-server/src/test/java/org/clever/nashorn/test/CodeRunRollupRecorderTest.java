@@ -0,0 +1,98 @@
+package org.clever.nashorn.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.config.CodeRunRollupConfig;
+import org.clever.nashorn.entity.CodeRunRollup;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.service.CodeRunRollupRecorder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/30 14:10 <br/>
+ */
+@Slf4j
+public class CodeRunRollupRecorderTest {
+
+    @Test
+    public void t1() throws InterruptedException {
+        List<CodeRunRollup> rollups = new CopyOnWriteArrayList<>();
+        CodeRunRollupRecorder recorder = new CodeRunRollupRecorder(new CodeRunRollupConfig(), rollups::addAll);
+        final int threadCount = 4;
+        final int count = 10_000;
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < count; j++) {
+                    Integer status = j % 10 == 0 ? EnumConstant.Status_3 : EnumConstant.Status_2;
+                    // 执行时间 0ms ~ 99ms
+                    recorder.record(1L, status, (j % 100) * 1000L, 100L, 1024L);
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        recorder.record(2L, EnumConstant.Status_4, 6_000_000L, null, null);
+        // 当前这一分钟还没结束(除非刚好跨过一分钟)
+        recorder.close();
+        log.info("### {}", rollups);
+        long runCount = 0;
+        long errorCount = 0;
+        long latency10ms = 0;
+        long latency50ms = 0;
+        long latency100ms = 0;
+        long maxRunTime = 0;
+        long latencyOver5s = 0;
+        for (CodeRunRollup rollup : rollups) {
+            if (rollup.getJsCodeId() == 2L) {
+                Assert.assertEquals(1L, rollup.getTimeoutCount().longValue());
+                latencyOver5s += rollup.getLatencyOver5s();
+                continue;
+            }
+            runCount += rollup.getRunCount();
+            errorCount += rollup.getErrorCount();
+            latency10ms += rollup.getLatency10ms();
+            latency50ms += rollup.getLatency50ms();
+            latency100ms += rollup.getLatency100ms();
+            maxRunTime = Math.max(maxRunTime, rollup.getMaxRunTime());
+        }
+        Assert.assertEquals(threadCount * count, runCount);
+        Assert.assertEquals(threadCount * count / 10, errorCount);
+        Assert.assertEquals(threadCount * count * 11 / 100, latency10ms);
+        Assert.assertEquals(threadCount * count * 40 / 100, latency50ms);
+        Assert.assertEquals(threadCount * count * 49 / 100, latency100ms);
+        Assert.assertEquals(99_000L, maxRunTime);
+        Assert.assertEquals(1L, latencyOver5s);
+    }
+
+    /**
+     * 写入失败时统计合并回内存，下次一起写入
+     */
+    @Test
+    public void t2() {
+        List<CodeRunRollup> rollups = new CopyOnWriteArrayList<>();
+        AtomicBoolean fail = new AtomicBoolean(true);
+        CodeRunRollupRecorder recorder = new CodeRunRollupRecorder(new CodeRunRollupConfig(), list -> {
+            if (fail.get()) {
+                throw new RuntimeException("数据库连接失败");
+            }
+            rollups.addAll(list);
+        });
+        recorder.record(1L, EnumConstant.Status_2, 1000L, null, null);
+        recorder.flush(true);
+        Assert.assertEquals(1L, recorder.getStats().get("failedCount"));
+        Assert.assertTrue((Integer) recorder.getStats().get("pendingMinutes") >= 1);
+        recorder.record(1L, EnumConstant.Status_3, 2000L, null, null);
+        fail.set(false);
+        recorder.close();
+        Assert.assertEquals(2L, rollups.stream().mapToLong(CodeRunRollup::getRunCount).sum());
+        Assert.assertEquals(1L, rollups.stream().mapToLong(CodeRunRollup::getErrorCount).sum());
+        Assert.assertEquals(2000L, rollups.stream().mapToLong(CodeRunRollup::getMaxRunTime).max().orElse(0));
+    }
+}
@@ -0,0 +1,175 @@
+package org.clever.nashorn.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.common.utils.tuples.TupleTow;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.clever.nashorn.module.cache.CompiledScriptCache;
+import org.clever.nashorn.route.RouteMatch;
+import org.clever.nashorn.route.RouteTrie;
+import org.clever.nashorn.utils.JsCodeFilePathUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/02 14:20 <br/>
+ */
+@Slf4j
+public class RouteTrieTest {
+    private static final String Biz_Type = EnumConstant.DefaultBizType;
+    private static final String Group_Name = EnumConstant.DefaultGroupName;
+
+    private static long id = 0;
+
+    private static JsCodeFile newFile(String fullPath) {
+        TupleTow<String, String> tupleTow = JsCodeFilePathUtils.getParentPath(fullPath);
+        JsCodeFile jsCodeFile = new JsCodeFile();
+        jsCodeFile.setId(++id);
+        jsCodeFile.setBizType(Biz_Type);
+        jsCodeFile.setGroupName(Group_Name);
+        jsCodeFile.setNodeType(EnumConstant.Node_Type_1);
+        jsCodeFile.setFilePath(tupleTow.getValue1());
+        jsCodeFile.setName(tupleTow.getValue2());
+        jsCodeFile.setJsCode("exports.service = function (ctx) {};");
+        return jsCodeFile;
+    }
+
+    private static String match(RouteTrie routeTrie, String method, String uri) {
+        RouteMatch routeMatch = routeTrie.match(method, uri);
+        return routeMatch == null ? null : routeMatch.getRoute().getFullPath();
+    }
+
+    /**
+     * 请求方法、controller.js、X.js 的优先级，请求后缀
+     */
+    @Test
+    public void t1() {
+        List<JsCodeFile> all = new ArrayList<>();
+        all.add(newFile("/api/user/controller.js"));
+        all.add(newFile("/api/user/post_controller.js"));
+        all.add(newFile("/api/user.js"));
+        all.add(newFile("/api/order.js"));
+        RouteTrie routeTrie = new RouteTrie(Biz_Type, Group_Name, () -> all, -1);
+        Assert.assertEquals(4, routeTrie.size());
+        Assert.assertEquals("/api/user/post_controller.js", match(routeTrie, "POST", "/api/user.json"));
+        Assert.assertEquals("/api/user/controller.js", match(routeTrie, "GET", "/api/user.json"));
+        Assert.assertEquals("/api/user/controller.js", match(routeTrie, "GET", "/api/user/controller"));
+        Assert.assertEquals("/api/order.js", match(routeTrie, "GET", "/api/order"));
+        Assert.assertEquals("/api/order.js", match(routeTrie, "GET", "/api/order.action"));
+        Assert.assertNull(match(routeTrie, "GET", "/api/order.css"));
+        Assert.assertNull(match(routeTrie, "GET", "/api"));
+        Assert.assertNull(match(routeTrie, "GET", "/static/app.css"));
+        routeTrie.close();
+    }
+
+    /**
+     * 路径变量
+     */
+    @Test
+    public void t2() {
+        List<JsCodeFile> all = new ArrayList<>();
+        all.add(newFile("/api/user/{id}/controller.js"));
+        all.add(newFile("/api/user/me/controller.js"));
+        all.add(newFile("/api/file/{*path}.js"));
+        all.add(newFile("/api/{*path}/controller.js"));
+        RouteTrie routeTrie = new RouteTrie(Biz_Type, Group_Name, () -> all, -1);
+        Assert.assertEquals("/api/user/me/controller.js", match(routeTrie, "GET", "/api/user/me.json"));
+        RouteMatch routeMatch = routeTrie.match("GET", "/api/user/%E5%BC%A0%E4%B8%89.json");
+        Assert.assertEquals("/api/user/{id}/controller.js", routeMatch.getRoute().getFullPath());
+        Assert.assertEquals("张三", routeMatch.getPathVariables().get("id"));
+        routeMatch = routeTrie.match("GET", "/api/file/a/b/c");
+        Map<String, String> pathVariables = routeMatch.getPathVariables();
+        Assert.assertEquals("/api/file/{*path}.js", routeMatch.getRoute().getFullPath());
+        Assert.assertEquals("a/b/c", pathVariables.get("path"));
+        // 静态路径段没有匹配的脚本时回退到 {*path}
+        routeMatch = routeTrie.match("GET", "/api/file.json");
+        Assert.assertEquals("/api/{*path}/controller.js", routeMatch.getRoute().getFullPath());
+        Assert.assertEquals("file", routeMatch.getPathVariables().get("path"));
+        Assert.assertEquals("x/y", routeTrie.match("GET", "/api/x/y.json").getPathVariables().get("path"));
+        Assert.assertNull(match(routeTrie, "GET", "/api.json"));
+        routeTrie.close();
+    }
+
+    /**
+     * 增量修改: 新增、重命名、删除
+     */
+    @Test
+    public void t3() {
+        List<JsCodeFile> all = new ArrayList<>();
+        RouteTrie routeTrie = new RouteTrie(Biz_Type, Group_Name, () -> all, -1);
+        JsCodeFile jsCodeFile = newFile("/api/a/controller.js");
+        routeTrie.put(jsCodeFile);
+        Assert.assertEquals("/api/a/controller.js", match(routeTrie, "GET", "/api/a.json"));
+        final int slot = routeTrie.match("GET", "/api/a.json").getRoute().getSlot();
+        Assert.assertEquals(jsCodeFile.getId(), routeTrie.match("GET", "/api/a.json").getRoute().getJsCodeId());
+        Assert.assertEquals(CompiledScriptCache.sha256(jsCodeFile.getJsCode()), routeTrie.match("GET", "/api/a.json").getRoute().getJsCodeHash());
+        // 重命名
+        jsCodeFile.setFilePath("/api/b/");
+        routeTrie.put(jsCodeFile);
+        Assert.assertNull(match(routeTrie, "GET", "/api/a.json"));
+        Assert.assertEquals("/api/b/controller.js", match(routeTrie, "GET", "/api/b.json"));
+        Assert.assertNotEquals(slot, routeTrie.match("GET", "/api/b.json").getRoute().getSlot());
+        Assert.assertEquals(1, routeTrie.size());
+        // 修改脚本内容，路由中的hash随之更新
+        jsCodeFile.setJsCode("exports.service = function (ctx) { return 1; };");
+        routeTrie.put(jsCodeFile);
+        Assert.assertEquals(CompiledScriptCache.sha256(jsCodeFile.getJsCode()), routeTrie.match("GET", "/api/b.json").getRoute().getJsCodeHash());
+        // 空脚本不处理请求
+        jsCodeFile.setJsCode("");
+        routeTrie.put(jsCodeFile);
+        Assert.assertNull(match(routeTrie, "GET", "/api/b.json"));
+        // 删除
+        jsCodeFile.setJsCode("exports.service = function (ctx) {};");
+        routeTrie.put(jsCodeFile);
+        routeTrie.remove(jsCodeFile);
+        Assert.assertNull(match(routeTrie, "GET", "/api/b.json"));
+        Assert.assertEquals(0, routeTrie.size());
+        routeTrie.close();
+    }
+
+    /**
+     * 全量重建期间的增量修改不会丢失，删除的脚本下标被复用，只加载路径(不含脚本内容)
+     */
+    @Test
+    public void t4() {
+        final List<JsCodeFile> all = new ArrayList<>();
+        JsCodeFile a = newFile("/api/a.js");
+        a.setJsCode(null);
+        all.add(a);
+        final List<JsCodeFile> changed = new ArrayList<>();
+        final RouteTrie[] holder = new RouteTrie[1];
+        RouteTrie routeTrie = new RouteTrie(Biz_Type, Group_Name, () -> {
+            // 模拟加载数据期间收到的 JsCodeFileChangeEvent(加载的数据中没有)
+            if (holder[0] != null) {
+                changed.forEach(holder[0]::put);
+            }
+            return new ArrayList<>(all);
+        }, -1);
+        holder[0] = routeTrie;
+        Assert.assertEquals("/api/a.js", match(routeTrie, "GET", "/api/a"));
+        JsCodeFile b = newFile("/api/b.js");
+        changed.add(b);
+        routeTrie.reload();
+        Assert.assertEquals("/api/b.js", match(routeTrie, "GET", "/api/b"));
+        Assert.assertEquals(2, routeTrie.size());
+        // 删除的脚本下标给新脚本使用
+        changed.clear();
+        all.add(b);
+        final int slot = routeTrie.match("GET", "/api/b").getRoute().getSlot();
+        routeTrie.remove(b);
+        JsCodeFile c = newFile("/api/c.js");
+        routeTrie.put(c);
+        Assert.assertEquals(slot, routeTrie.match("GET", "/api/c").getRoute().getSlot());
+        // 重建时加载的数据中还有 b.js
+        routeTrie.remove(c);
+        routeTrie.reload();
+        Assert.assertEquals("/api/b.js", match(routeTrie, "GET", "/api/b"));
+        Assert.assertNull(match(routeTrie, "GET", "/api/c"));
+        routeTrie.close();
+    }
+}
@@ -0,0 +1,133 @@
+package org.clever.nashorn.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.bundle.ScriptBundle;
+import org.clever.nashorn.cache.BundleJsCodeFileCache;
+import org.clever.nashorn.cache.JsCodeFileCacheService;
+import org.clever.nashorn.cache.MemoryJsCodeFileCache;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.entity.JsCodeFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/03 14:30 <br/>
+ */
+@Slf4j
+public class ScriptBundleTest {
+    private static final String Biz_Type = EnumConstant.DefaultBizType;
+    private static final String Group_Name = EnumConstant.DefaultGroupName;
+
+    private static JsCodeFile newFile(long id, Integer nodeType, String filePath, String name, String jsCode, long updateAt) {
+        JsCodeFile jsCodeFile = new JsCodeFile();
+        jsCodeFile.setId(id);
+        jsCodeFile.setBizType(Biz_Type);
+        jsCodeFile.setGroupName(Group_Name);
+        jsCodeFile.setNodeType(nodeType);
+        jsCodeFile.setFilePath(filePath);
+        jsCodeFile.setName(name);
+        jsCodeFile.setJsCode(jsCode);
+        jsCodeFile.setCreateAt(new Date(updateAt));
+        jsCodeFile.setUpdateAt(new Date(updateAt));
+        return jsCodeFile;
+    }
+
+    private static ScriptBundle writeAndOpen(Collection<JsCodeFile> files) throws IOException {
+        File file = File.createTempFile("script-bundle", ".bin");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            ScriptBundle.write(out, Biz_Type, Group_Name, files);
+        }
+        return ScriptBundle.open(file);
+    }
+
+    /**
+     * 发布包写入后再读取，内容一致
+     */
+    @Test
+    public void t1() throws IOException {
+        List<JsCodeFile> files = new ArrayList<>();
+        files.add(newFile(1L, EnumConstant.Node_Type_2, "/", "api", null, 1000L));
+        files.add(newFile(2L, EnumConstant.Node_Type_1, "/api/", "a.js", "exports.a = '中文';", 2000L));
+        files.add(newFile(3L, EnumConstant.Node_Type_1, "/api/", "empty.js", "", 3000L));
+        ScriptBundle bundle = writeAndOpen(files);
+        Assert.assertEquals(Biz_Type, bundle.getBizType());
+        Assert.assertEquals(Group_Name, bundle.getGroupName());
+        Assert.assertEquals(JsCodeFileCacheService.getContentVersion(files), bundle.getVersion());
+        Assert.assertEquals(3000L, bundle.getMaxUpdateTime());
+        Assert.assertEquals(3, bundle.size());
+        JsCodeFile folder = bundle.get(EnumConstant.Node_Type_2, "/", "api");
+        Assert.assertEquals(Long.valueOf(1L), folder.getId());
+        Assert.assertNull(folder.getJsCode());
+        JsCodeFile a = bundle.get(EnumConstant.Node_Type_1, "/api/", "a.js");
+        Assert.assertEquals("exports.a = '中文';", a.getJsCode());
+        Assert.assertEquals(new Date(2000L), a.getUpdateAt());
+        Assert.assertEquals("", bundle.get(EnumConstant.Node_Type_1, "/api/", "empty.js").getJsCode());
+        Assert.assertEquals("a.js", bundle.getMetaById(2L).getName());
+        Assert.assertNull(bundle.get(EnumConstant.Node_Type_1, "/api/", "b.js"));
+    }
+
+    /**
+     * 发布包之后的新增、修改、重命名、删除
+     */
+    @Test
+    public void t2() throws IOException {
+        List<JsCodeFile> files = new ArrayList<>();
+        files.add(newFile(1L, EnumConstant.Node_Type_1, "/api/", "a.js", "exports.v = 1;", 1000L));
+        files.add(newFile(2L, EnumConstant.Node_Type_1, "/api/", "b.js", "exports.v = 2;", 1000L));
+        files.add(newFile(3L, EnumConstant.Node_Type_1, "/api/", "c.js", "exports.v = 3;", 1000L));
+        ScriptBundle bundle = writeAndOpen(files);
+        // 数据库中: a.js 被修改，b.js 被重命名为 b2.js，c.js 被删除，新增 d.js
+        final List<JsCodeFile> delta = new ArrayList<>();
+        delta.add(newFile(1L, EnumConstant.Node_Type_1, "/api/", "a.js", "exports.v = 11;", 2000L));
+        delta.add(newFile(2L, EnumConstant.Node_Type_1, "/api/", "b2.js", "exports.v = 2;", 2000L));
+        delta.add(newFile(4L, EnumConstant.Node_Type_1, "/api/", "d.js", "exports.v = 4;", 2000L));
+        final Set<Long> allId = new HashSet<>(Arrays.asList(1L, 2L, 4L));
+        JsCodeFileCacheService cacheService = new JsCodeFileCacheService() {
+            @Override
+            public List<JsCodeFile> findChangedAfter(String bizType, String groupName, Date time) {
+                return new ArrayList<>(delta);
+            }
+
+            @Override
+            public Set<Long> findAllId(String bizType, String groupName) {
+                return new HashSet<>(allId);
+            }
+        };
+        BundleJsCodeFileCache cache = new BundleJsCodeFileCache(bundle, new MemoryJsCodeFileCache(-1, cacheService), cacheService);
+        Assert.assertEquals(4, cache.getDeltaCount());
+        Assert.assertEquals("exports.v = 11;", cache.getFile(Biz_Type, Group_Name, "/api/", "a.js").getJsCode());
+        Assert.assertNull(cache.getFile(Biz_Type, Group_Name, "/api/", "b.js"));
+        Assert.assertEquals("exports.v = 2;", cache.getFile(Biz_Type, Group_Name, "/api/", "b2.js").getJsCode());
+        Assert.assertNull(cache.getFile(Biz_Type, Group_Name, "/api/", "c.js"));
+        Assert.assertEquals("exports.v = 4;", cache.getFile(Biz_Type, Group_Name, "/api/", "d.js").getJsCode());
+        Assert.assertEquals(3, cache.findAll().size());
+        final String version = cache.getContentVersion();
+        Assert.assertNotEquals(bundle.getVersion(), version);
+        // 运行中的变化: d.js 重命名为 e.js
+        JsCodeFile e = newFile(4L, EnumConstant.Node_Type_1, "/api/", "e.js", "exports.v = 4;", 3000L);
+        cache.put(e);
+        Assert.assertNull(cache.getFile(Biz_Type, Group_Name, "/api/", "d.js"));
+        Assert.assertEquals(Long.valueOf(4L), cache.getFile(Biz_Type, Group_Name, "/api/", "e.js").getId());
+        Assert.assertEquals(3, cache.findAll().size());
+        cache.remove(e);
+        Assert.assertNull(cache.getFile(Biz_Type, Group_Name, "/api/", "e.js"));
+        Assert.assertEquals(2, cache.findAll().size());
+        // 重新同步后以数据库为准
+        delta.remove(2);
+        allId.remove(4L);
+        cache.reload();
+        Assert.assertEquals(3, cache.getDeltaCount());
+        Assert.assertNull(cache.getFile(Biz_Type, Group_Name, "/api/", "d.js"));
+        Assert.assertNull(cache.getFile(Biz_Type, Group_Name, "/api/", "e.js"));
+        Assert.assertEquals("exports.v = 11;", cache.getFile(Biz_Type, Group_Name, "/api/", "a.js").getJsCode());
+        Assert.assertEquals(2, cache.findAll().size());
+    }
+}
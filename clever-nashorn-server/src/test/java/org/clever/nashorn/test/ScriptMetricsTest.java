@@ -0,0 +1,38 @@
+package org.clever.nashorn.test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.entity.EnumConstant;
+import org.clever.nashorn.metrics.ScriptMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/10/31 14:20 <br/>
+ */
+@Slf4j
+public class ScriptMetricsTest {
+
+    @Test
+    public void t1() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ScriptMetrics scriptMetrics = new ScriptMetrics(registry);
+        for (int i = 0; i < 10; i++) {
+            scriptMetrics.recordRoute("biz", "group", i % 2 == 0 ? "/a/controller.js" : null, 1000);
+            scriptMetrics.recordExecution("biz", "group", "/a/controller.js", i < 8 ? EnumConstant.Status_2 : EnumConstant.Status_4, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        Timer route = registry.get("clever.nashorn.http.route").tag("path", "none").timer();
+        Assert.assertEquals(5, route.count());
+        Timer success = registry.get("clever.nashorn.http.execution").tag("status", "success").timer();
+        Assert.assertEquals(8, success.count());
+        Assert.assertEquals(40, success.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        Timer timeout = registry.get("clever.nashorn.http.execution").tag("status", "timeout").timer();
+        Assert.assertEquals(2, timeout.count());
+        scriptMetrics.onLoaded("/a/controller.js", 100, 200, true);
+        Assert.assertEquals(1, registry.get("clever.nashorn.module.eval").tag("path", "/a/controller.js").timer().count());
+    }
+}
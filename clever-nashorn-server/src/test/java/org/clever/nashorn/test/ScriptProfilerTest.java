@@ -0,0 +1,62 @@
+package org.clever.nashorn.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.clever.nashorn.dto.response.ScriptProfilerRes;
+import org.clever.nashorn.profiler.Profile;
+import org.clever.nashorn.profiler.ScriptProfiler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 作者：lizw <br/>
+ * 创建时间：2019/11/01 14:30 <br/>
+ */
+@Slf4j
+public class ScriptProfilerTest {
+
+    /**
+     * 栈顶在前
+     */
+    private static StackTraceElement[] stackTrace() {
+        return new StackTraceElement[]{
+                new StackTraceElement("java.net.SocketInputStream", "socketRead0", "SocketInputStream.java", -2),
+                new StackTraceElement("org.clever.nashorn.internal.JdbcUtils", "queryList", "JdbcUtils.java", 88),
+                new StackTraceElement("jdk.nashorn.internal.runtime.linker.Bootstrap", "invoke", "Bootstrap.java", 10),
+                new StackTraceElement("jdk.nashorn.internal.scripts.Script$Recompilation$3$201A$\\^eval\\_", "L:5", "/demo/dao.js", 7),
+                new StackTraceElement("jdk.nashorn.internal.scripts.Script$5$\\^eval\\_", "service", "/demo/controller.js", 13),
+                new StackTraceElement("jdk.nashorn.internal.runtime.ScriptFunctionData", "invoke", "ScriptFunctionData.java", 20),
+                new StackTraceElement("org.clever.nashorn.intercept.HttpRequestJsHandler", "doHandle", "HttpRequestJsHandler.java", 254),
+        };
+    }
+
+    @Test
+    public void t1() {
+        List<String> frames = ScriptProfiler.toFrames(stackTrace());
+        log.info("frames -> {}", frames);
+        Assert.assertEquals(
+                Arrays.asList("service (/demo/controller.js:12)", "<anonymous> (/demo/dao.js:6)", "org.clever.nashorn.internal.JdbcUtils.queryList", "java.net.SocketInputStream.socketRead0"),
+                frames
+        );
+        // 没有脚本栈帧
+        Assert.assertNull(ScriptProfiler.toFrames(new StackTraceElement[]{stackTrace()[6]}));
+    }
+
+    @Test
+    public void t2() {
+        Profile profile = new Profile("/demo/controller.js", 10);
+        List<String> frames = ScriptProfiler.toFrames(stackTrace());
+        profile.add(frames);
+        profile.add(frames.subList(0, 1));
+        profile.add(null);
+        ScriptProfilerRes res = profile.toRes(false);
+        Assert.assertEquals(3, res.getSampleCount().longValue());
+        Assert.assertEquals(1, res.getSkippedCount().longValue());
+        Assert.assertEquals(2, res.getRoot().getValue());
+        Assert.assertEquals(1, res.getRoot().getChildren().size());
+        Assert.assertEquals(2, res.getRoot().getChildren().get(0).getValue());
+        Assert.assertEquals(1, res.getRoot().getChildren().get(0).getChildren().get(0).getValue());
+    }
+}